@@ -0,0 +1,317 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * AlgorithmRegistry.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import weka.associations.AprioriTS;
+import weka.associations.FPGrowthTS;
+import weka.associations.FilteredAssociatorTS;
+import weka.classifiers.UpdateableClassifier;
+import weka.classifiers.bayes.BayesNetTS;
+import weka.classifiers.bayes.NaiveBayesTS;
+import weka.classifiers.bayes.NaiveBayesUpdateableTS;
+import weka.classifiers.functions.LogisticTS;
+import weka.classifiers.functions.MultilayerPerceptronTS;
+import weka.classifiers.functions.SimpleLogisticTS;
+import weka.classifiers.lazy.IBkTS;
+import weka.classifiers.lazy.KStarTS;
+import weka.classifiers.meta.AdaBoostM1TS;
+import weka.classifiers.meta.BaggingTS;
+import weka.classifiers.meta.LogitBoostTS;
+import weka.classifiers.meta.MultiBoostABTS;
+import weka.classifiers.meta.RandomCommitteeTS;
+import weka.classifiers.meta.RandomSubSpaceTS;
+import weka.classifiers.meta.RotationForestTS;
+import weka.classifiers.rules.ConjunctiveRuleTS;
+import weka.classifiers.rules.DTNBTS;
+import weka.classifiers.rules.DecisionTableTS;
+import weka.classifiers.rules.JRipTS;
+import weka.classifiers.rules.OneRTS;
+import weka.classifiers.rules.PARTTS;
+import weka.classifiers.rules.RidorTS;
+import weka.classifiers.rules.ZeroRTS;
+import weka.classifiers.trees.ADTreeTS;
+import weka.classifiers.trees.BFTreeTS;
+import weka.classifiers.trees.DecisionStumpTS;
+import weka.classifiers.trees.ForestPA;
+import weka.classifiers.trees.J48TS;
+import weka.classifiers.trees.LADTreeTS;
+import weka.classifiers.trees.REPTreeTS;
+import weka.classifiers.trees.RandomForestTS;
+import weka.classifiers.trees.RandomTreeTS;
+import weka.classifiers.trees.SPAARC;
+import weka.classifiers.trees.SimpleCartTS;
+import weka.classifiers.trees.SysFor;
+import weka.clusterers.DBSCANTS;
+import weka.clusterers.EMTS;
+import weka.clusterers.FarthestFirstTS;
+import weka.clusterers.FilteredClustererTS;
+import weka.clusterers.SimpleKMeansTS;
+
+/**
+ * The algorithms DataLearner can run, keyed on the names shown in the
+ * algorithm spinners. Each entry knows what kind of learner it is and what it
+ * needs from the data, and creates the learner only when asked, so a run only
+ * constructs the one algorithm that was selected.
+ * <p/>
+ * This class has no Android dependencies so it can also be used off-device.
+ */
+public final class AlgorithmRegistry {
+
+	/**
+	 * The kinds of learner that can be registered.
+	 */
+	public enum Type {
+		CLASSIFIER, CLUSTERER, ASSOCIATOR
+	}
+
+	/**
+	 * One registered algorithm.
+	 */
+	public static final class Entry {
+
+		private final String id;
+		private final Class<?> learnerClass;
+		private final Type type;
+		private final boolean nominalClassOnly;
+		private final boolean parallelFolds;
+		private final CostModel costModel;
+		private String alternative;
+
+		private Entry(String id, Class<?> learnerClass, Type type, boolean nominalClassOnly,
+					  boolean parallelFolds, CostModel costModel) {
+			this.id = id;
+			this.learnerClass = learnerClass;
+			this.type = type;
+			this.nominalClassOnly = nominalClassOnly;
+			this.parallelFolds = parallelFolds;
+			this.costModel = costModel;
+		}
+
+		/**
+		 * @return the name of the algorithm as shown in the spinners
+		 */
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * @return the class of the learner
+		 */
+		public Class<?> getLearnerClass() {
+			return learnerClass;
+		}
+
+		/**
+		 * @return whether the learner is a classifier, clusterer or associator
+		 */
+		public Type getType() {
+			return type;
+		}
+
+		/**
+		 * @return true if the learner can only model a nominal class attribute
+		 */
+		public boolean needsNominalClass() {
+			return nominalClassOnly;
+		}
+
+		/**
+		 * @return true if cross-validation folds of this learner can be built on
+		 * several threads at once
+		 */
+		public boolean supportsParallelFolds() {
+			return parallelFolds;
+		}
+
+		/**
+		 * @return true if the learner can be trained one instance at a time,
+		 * which is what streaming a dataset through it needs
+		 */
+		public boolean isUpdateable() {
+			return UpdateableClassifier.class.isAssignableFrom(learnerClass);
+		}
+
+		/**
+		 * @return the model of the heap and time the learner needs
+		 */
+		public CostModel getCostModel() {
+			return costModel;
+		}
+
+		/**
+		 * @return the name of a learner of the same kind that scales better to
+		 * large datasets, or null if there is none
+		 */
+		public String getScalableAlternative() {
+			return alternative;
+		}
+
+		/**
+		 * Creates a new learner with its default options.
+		 *
+		 * @return the learner
+		 * @throws Exception if the learner cannot be created
+		 */
+		public Object newInstance() throws Exception {
+			return learnerClass.newInstance();
+		}
+	}
+
+	private static final Map<String, Entry> ENTRIES = new LinkedHashMap<>();
+
+	static {
+		// bayes
+		classifier("BayesNet", BayesNetTS.class, true, CostModel.COUNTS);
+		classifier("NaiveBayes", NaiveBayesTS.class, true, CostModel.COUNTS);
+		classifier("NaiveBayesUpdateable", NaiveBayesUpdateableTS.class, true, CostModel.COUNTS);
+		// rules
+		classifier("Conjunctive Rule", ConjunctiveRuleTS.class, false, CostModel.COUNTS);
+		classifier("Decision Table", DecisionTableTS.class, false, CostModel.SUBSET_SEARCH);
+		classifier("DTNB", DTNBTS.class, false, CostModel.SUBSET_SEARCH);
+		classifier("JRip", JRipTS.class, true, CostModel.RULES);
+		classifier("OneR", OneRTS.class, true, CostModel.COUNTS);
+		classifier("PART", PARTTS.class, true, CostModel.RULES);
+		classifier("Ridor", RidorTS.class, true, CostModel.RULES);
+		classifier("ZeroR", ZeroRTS.class, false, CostModel.COUNTS);
+		// trees
+		classifier("ADTree", ADTreeTS.class, true, CostModel.TREE);
+		// BFTree and SPAARC keep tree-building state in static fields
+		register("BFTree", BFTreeTS.class, Type.CLASSIFIER, true, false, CostModel.TREE);
+		classifier("DecisionStump", DecisionStumpTS.class, false, CostModel.COUNTS);
+		classifier("ForestPA", ForestPA.class, true, CostModel.ensemble(CostModel.TREE, 10));
+		classifier("J48 (C4.5)", J48TS.class, true, CostModel.TREE);
+		classifier("LADTree", LADTreeTS.class, true, CostModel.TREE);
+		classifier("RandomForest", RandomForestTS.class, true,
+				CostModel.ensemble(CostModel.RANDOM_TREE, 100));
+		classifier("RandomTree", RandomTreeTS.class, true, CostModel.RANDOM_TREE);
+		classifier("*REPTree", REPTreeTS.class, false, CostModel.TREE);
+		classifier("SimpleCART", SimpleCartTS.class, true, CostModel.TREE);
+		classifier("SysFor", SysFor.class, true, CostModel.ensemble(CostModel.TREE, 60));
+		register("SPAARC", SPAARC.class, Type.CLASSIFIER, true, false, CostModel.TREE);
+		// meta
+		classifier("AdaBoostM1", AdaBoostM1TS.class, true, CostModel.ensemble(CostModel.COUNTS, 10));
+		classifier("*Bagging", BaggingTS.class, false, CostModel.ensemble(CostModel.TREE, 10));
+		classifier("LogitBoost", LogitBoostTS.class, true, CostModel.ensemble(CostModel.COUNTS, 10));
+		classifier("MultiBoostAB", MultiBoostABTS.class, true, CostModel.ensemble(CostModel.COUNTS, 10));
+		classifier("Random Committee", RandomCommitteeTS.class, false,
+				CostModel.ensemble(CostModel.RANDOM_TREE, 10));
+		classifier("RandomSubSpace", RandomSubSpaceTS.class, false, CostModel.ensemble(CostModel.TREE, 10));
+		classifier("Rotation Forest", RotationForestTS.class, true, CostModel.ensemble(CostModel.TREE, 10));
+		// lazy
+		classifier("IBk (KNN)", IBkTS.class, false, CostModel.pairwise(1));
+		classifier("KStar", KStarTS.class, false, CostModel.pairwise(10));
+		// functions
+		classifier("Logistic", LogisticTS.class, true, CostModel.HESSIAN);
+		classifier("SimpleLogistic", SimpleLogisticTS.class, true, CostModel.BOOSTED_REGRESSION);
+		classifier("*MultilayerPerceptron", MultilayerPerceptronTS.class, false, CostModel.NETWORK);
+		// clusterers
+		register("DBSCAN", DBSCANTS.class, Type.CLUSTERER, false, false, CostModel.DENSITY);
+		// EM picks the number of clusters by cross-validation
+		register("EM", EMTS.class, Type.CLUSTERER, false, false, CostModel.iterative(5000));
+		register("FarthestFirst", FarthestFirstTS.class, Type.CLUSTERER, false, false, CostModel.iterative(2));
+		register("FilteredClusterer", FilteredClustererTS.class, Type.CLUSTERER, false, false,
+				CostModel.iterative(20));
+		register("SimpleKMeans", SimpleKMeansTS.class, Type.CLUSTERER, false, false, CostModel.iterative(20));
+		// associators
+		register("Apriori", AprioriTS.class, Type.ASSOCIATOR, false, false, CostModel.ITEMSETS);
+		register("FilteredAssociator", FilteredAssociatorTS.class, Type.ASSOCIATOR, false, false,
+				CostModel.ITEMSETS);
+		register("FPGrowth", FPGrowthTS.class, Type.ASSOCIATOR, false, false, CostModel.ITEMSETS);
+		// learners of the same kind that cope with more rows or attributes
+		alternative("KStar", "IBk (KNN)");
+		alternative("Logistic", "SimpleLogistic");
+		alternative("*MultilayerPerceptron", "SimpleLogistic");
+		alternative("DBSCAN", "SimpleKMeans");
+		alternative("EM", "SimpleKMeans");
+	}
+
+	private AlgorithmRegistry() {
+	}
+
+	private static void classifier(String id, Class<?> learnerClass, boolean nominalClassOnly,
+								   CostModel costModel) {
+		register(id, learnerClass, Type.CLASSIFIER, nominalClassOnly, true, costModel);
+	}
+
+	private static void alternative(String id, String alternativeId) {
+		ENTRIES.get(id).alternative = alternativeId;
+	}
+
+	/**
+	 * Adds an algorithm to the registry, replacing any algorithm with the same
+	 * name. Its cost is taken to be that of a decision tree.
+	 *
+	 * @param id               the name of the algorithm as shown in the spinners
+	 * @param learnerClass     the class of the learner, which needs a public
+	 *                         no-argument constructor
+	 * @param type             the kind of learner
+	 * @param nominalClassOnly true if the learner needs a nominal class attribute
+	 * @param parallelFolds    true if cross-validation folds can be built on
+	 *                         several threads at once
+	 */
+	public static synchronized void register(String id, Class<?> learnerClass, Type type,
+											 boolean nominalClassOnly, boolean parallelFolds) {
+		register(id, learnerClass, type, nominalClassOnly, parallelFolds, CostModel.TREE);
+	}
+
+	/**
+	 * Adds an algorithm to the registry, replacing any algorithm with the same
+	 * name.
+	 *
+	 * @param id               the name of the algorithm as shown in the spinners
+	 * @param learnerClass     the class of the learner, which needs a public
+	 *                         no-argument constructor
+	 * @param type             the kind of learner
+	 * @param nominalClassOnly true if the learner needs a nominal class attribute
+	 * @param parallelFolds    true if cross-validation folds can be built on
+	 *                         several threads at once
+	 * @param costModel        the model of the heap and time the learner needs
+	 */
+	public static synchronized void register(String id, Class<?> learnerClass, Type type,
+											 boolean nominalClassOnly, boolean parallelFolds,
+											 CostModel costModel) {
+		ENTRIES.put(id, new Entry(id, learnerClass, type, nominalClassOnly, parallelFolds, costModel));
+	}
+
+	/**
+	 * Looks up an algorithm by name.
+	 *
+	 * @param id the name of the algorithm as shown in the spinners
+	 * @return the entry, or null if no algorithm of that name is registered
+	 */
+	public static synchronized Entry get(String id) {
+		return ENTRIES.get(id.trim());
+	}
+
+	/**
+	 * @return all registered algorithms, in registration order
+	 */
+	public static synchronized Collection<Entry> entries() {
+		return new ArrayList<>(ENTRIES.values());
+	}
+}
@@ -34,9 +34,7 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
 
-import static au.com.darrenyates.datalearner.DataAnalysis.returnEval;
-import static au.com.darrenyates.datalearner.DataAnalysis.classifierTree;
-import static au.com.darrenyates.datalearner.DataAnalysis.classType;
+import static au.com.darrenyates.datalearner.MainActivity.shownOutput;
 
 
 public class ConfusionMatrixActivity extends AppCompatActivity {
@@ -58,15 +56,18 @@ public class ConfusionMatrixActivity extends AppCompatActivity {
 		
 		tv.setMovementMethod(new ScrollingMovementMethod());
 		try {
-			if (classType == 0 && returnEval != null) {
-				tv.append(returnEval.toClassDetailsString("=== Detailed Accuracy by Class ===\r\n"));
+			DataAnalysis.Output output = shownOutput;
+			if (output == null) return;
+			tv.append("=== " + output.algorithm + " ===\r\n\r\n");
+			if (output.classType == 0 && output.evaluation != null) {
+				tv.append(output.evaluation.toClassDetailsString("=== Detailed Accuracy by Class ===\r\n"));
 				tv.append("\r\n");
-				tv.append(returnEval.toMatrixString("=== Confusion Matrix ===\r\n"));
+				tv.append(output.evaluation.toMatrixString("=== Confusion Matrix ===\r\n"));
 			}
-			if (classifierTree != "") {
+			if (!output.model.equals("")) {
 				tv.append("\r\n");
 				tv.append("=== Generated Classifier Model ===\r\n");
-				tv.append(classifierTree);
+				tv.append(output.model);
 			}
 			tv.append("\r\n");
 			
@@ -0,0 +1,551 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * CostModel.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+
+/**
+ * A rough model of how much heap and time an algorithm needs on a dataset of
+ * a given shape, so a run that cannot finish on the device can be caught
+ * before it starts. The estimates are orders of magnitude rather than
+ * measurements: heap is in bytes on top of the dataset itself, and work is
+ * in attribute values touched, so that one pass over the data (about what
+ * NaiveBayes takes) is rows x attributes.
+ * <p/>
+ * Each model gives the cost of building on a number of rows, the heap the
+ * built model keeps, and the work of classifying one row, from which
+ * {@link #estimate(Shape, double, int, int)} works out a whole run including
+ * cross-validation.
+ * <p/>
+ * This class has no Android dependencies so it can also be used off-device.
+ */
+public abstract class CostModel {
+
+	/**
+	 * work above which a run is likely to take more than a few minutes on a
+	 * phone
+	 */
+	public static final double SLOW_WORK = 2e10;
+
+	/**
+	 * The size of a dataset as the cost models see it.
+	 */
+	public static final class Shape {
+		/** the number of rows */
+		public final int numInstances;
+		/** the number of attributes other than the class */
+		public final int numAttributes;
+		/** the number of class values, 1 for a numeric class or no class */
+		public final int numClasses;
+		/** the number of columns once nominal attributes are made binary */
+		public final int binaryWidth;
+		/** the number of attribute values an associator can make items of */
+		public final int numItems;
+
+		public Shape(int numInstances, int numAttributes, int numClasses, int binaryWidth,
+					 int numItems) {
+			this.numInstances = numInstances;
+			this.numAttributes = Math.max(1, numAttributes);
+			this.numClasses = Math.max(1, numClasses);
+			this.binaryWidth = Math.max(1, binaryWidth);
+			this.numItems = Math.max(1, numItems);
+		}
+
+		/**
+		 * @param data the dataset, with the class set if it has one
+		 * @return the shape of the dataset
+		 */
+		public static Shape of(Instances data) {
+			int numAttributes = 0;
+			int binaryWidth = 0;
+			int numItems = 0;
+			for (int i = 0; i < data.numAttributes(); i++) {
+				if (i == data.classIndex()) continue;
+				Attribute att = data.attribute(i);
+				numAttributes++;
+				if (att.isNominal()) {
+					binaryWidth += Math.max(1, att.numValues() - 1);
+					numItems += att.numValues();
+				} else {
+					binaryWidth++;
+				}
+			}
+			int numClasses = (data.classIndex() >= 0 && data.classAttribute().isNominal())
+					? data.numClasses() : 1;
+			return new Shape(data.numInstances(), numAttributes, numClasses, binaryWidth, numItems);
+		}
+
+		/**
+		 * @param n a number of rows
+		 * @return the heap a copy of n rows of this dataset takes
+		 */
+		double dataBytes(double n) {
+			return n * (8.0 * (numAttributes + 1) + 40);
+		}
+
+		/**
+		 * @param n a number of rows
+		 * @return the work of one pass over n rows of this dataset
+		 */
+		double pass(double n) {
+			return n * numAttributes;
+		}
+	}
+
+	/**
+	 * The predicted cost of one run.
+	 */
+	public static final class Estimate {
+		/** the most heap the run is expected to hold at once, in bytes */
+		public final double peakBytes;
+		/** the expected work, in attribute values touched */
+		public final double work;
+		private final double pass;
+
+		Estimate(double peakBytes, double work, double pass) {
+			this.peakBytes = peakBytes;
+			this.work = work;
+			this.pass = pass;
+		}
+
+		/**
+		 * @return the expected run time relative to one pass over the data
+		 */
+		public double relativeTime() {
+			return work / Math.max(1, pass);
+		}
+
+		/**
+		 * @param heapBytes the heap that can be spared for the run
+		 * @return true if the run is expected to fit the heap and finish in a
+		 * reasonable time
+		 */
+		public boolean fits(double heapBytes) {
+			return peakBytes <= heapBytes && work <= SLOW_WORK;
+		}
+	}
+
+	/**
+	 * @return the heap used while building on n rows, freed afterwards
+	 */
+	abstract double buildBytes(Shape s, double n);
+
+	/**
+	 * @return the heap kept by a model built on n rows
+	 */
+	abstract double modelBytes(Shape s, double n);
+
+	/**
+	 * @return the work of building on n rows
+	 */
+	abstract double buildWork(Shape s, double n);
+
+	/**
+	 * @return the work of classifying (or clustering) one row with a model
+	 * built on n rows
+	 */
+	abstract double testWork(Shape s, double n);
+
+	/**
+	 * Estimates a run on a number of rows of a dataset.
+	 *
+	 * @param s       the shape of the dataset
+	 * @param n       the number of rows to run on
+	 * @param folds   the number of cross-validation folds, 0 for none
+	 * @param threads the number of folds built at once
+	 * @return the estimate
+	 */
+	public Estimate estimate(Shape s, double n, int folds, int threads) {
+		double model = modelBytes(s, n);
+		double peak = buildBytes(s, n) + model;
+		double work = buildWork(s, n);
+		if (folds > 1) {
+			// the full model is kept while the folds are built; each fold in
+			// progress holds its own training set view, build state and model
+			double train = n * (folds - 1) / folds;
+			int concurrent = Math.max(1, Math.min(threads, folds));
+			peak = Math.max(peak, model + concurrent
+					* (buildBytes(s, train) + modelBytes(s, train) + 8 * train));
+			work += folds * buildWork(s, train) + n * testWork(s, train);
+		}
+		return new Estimate(peak, work, s.pass(n));
+	}
+
+	/**
+	 * Estimates a run on the whole dataset.
+	 *
+	 * @param s       the shape of the dataset
+	 * @param folds   the number of cross-validation folds, 0 for none
+	 * @param threads the number of folds built at once
+	 * @return the estimate
+	 */
+	public Estimate estimate(Shape s, int folds, int threads) {
+		return estimate(s, s.numInstances, folds, threads);
+	}
+
+	/**
+	 * Finds the most rows of a dataset a run can use and still fit.
+	 *
+	 * @param s         the shape of the dataset
+	 * @param folds     the number of cross-validation folds, 0 for none
+	 * @param threads   the number of folds built at once
+	 * @param heapBytes the heap that can be spared for the run
+	 * @return the number of rows, 0 if not even a small sample fits
+	 */
+	public int maxRows(Shape s, int folds, int threads, double heapBytes) {
+		int low = Math.min(s.numInstances, 100);
+		if (!estimate(s, low, folds, threads).fits(heapBytes)) return 0;
+		int high = s.numInstances;
+		while (low < high) {
+			int mid = low + (high - low + 1) / 2;
+			if (estimate(s, mid, folds, threads).fits(heapBytes)) low = mid;
+			else high = mid - 1;
+		}
+		return low;
+	}
+
+	private static double log2(double n) {
+		return Math.log(Math.max(2, n)) / Math.log(2);
+	}
+
+	/**
+	 * Learners that keep counts of attribute values per class, e.g. NaiveBayes,
+	 * OneR or DecisionStump: one pass (or one sort) of the data and a table of
+	 * counts.
+	 */
+	public static final CostModel COUNTS = new CostModel() {
+		double buildBytes(Shape s, double n) {
+			return 8 * n;
+		}
+
+		double modelBytes(Shape s, double n) {
+			return 8.0 * (s.numItems + s.numAttributes) * s.numClasses;
+		}
+
+		double buildWork(Shape s, double n) {
+			return s.pass(n) * log2(n);
+		}
+
+		double testWork(Shape s, double n) {
+			return s.numAttributes * s.numClasses;
+		}
+	};
+
+	/**
+	 * Single decision trees: each attribute is sorted at the root and the rows
+	 * are split down the tree, with about one leaf for every few rows at
+	 * worst.
+	 */
+	public static final CostModel TREE = new CostModel() {
+		double buildBytes(Shape s, double n) {
+			return 4 * n * s.numAttributes + 8 * n * log2(n);
+		}
+
+		double modelBytes(Shape s, double n) {
+			return n / 2 * (64 + 8.0 * s.numClasses);
+		}
+
+		double buildWork(Shape s, double n) {
+			return s.pass(n) * log2(n) * 2;
+		}
+
+		double testWork(Shape s, double n) {
+			return log2(n);
+		}
+	};
+
+	/**
+	 * Random trees, which look at about log2(attributes) + 1 randomly chosen
+	 * attributes at each node and are not pruned.
+	 */
+	public static final CostModel RANDOM_TREE = new CostModel() {
+		double buildBytes(Shape s, double n) {
+			return 8 * n * log2(n);
+		}
+
+		double modelBytes(Shape s, double n) {
+			return n / 2 * (64 + 8.0 * s.numClasses);
+		}
+
+		double buildWork(Shape s, double n) {
+			return n * (log2(s.numAttributes) + 1) * log2(n) * log2(n);
+		}
+
+		double testWork(Shape s, double n) {
+			return log2(n);
+		}
+	};
+
+	/**
+	 * Rule learners that grow, prune and optimise rule sets (JRip, PART,
+	 * Ridor): several tree-like passes over the data.
+	 */
+	public static final CostModel RULES = new CostModel() {
+		double buildBytes(Shape s, double n) {
+			return s.dataBytes(n) + 8 * n * log2(n);
+		}
+
+		double modelBytes(Shape s, double n) {
+			return 64 * Math.sqrt(n) * s.numAttributes;
+		}
+
+		double buildWork(Shape s, double n) {
+			return s.pass(n) * log2(n) * log2(n) * 4;
+		}
+
+		double testWork(Shape s, double n) {
+			return Math.sqrt(n);
+		}
+	};
+
+	/**
+	 * Attribute subset search around a table of the rows (DecisionTable,
+	 * DTNB): every step of the search adds or drops each attribute in turn and
+	 * rebuilds the table.
+	 */
+	public static final CostModel SUBSET_SEARCH = new CostModel() {
+		double buildBytes(Shape s, double n) {
+			return 2 * s.dataBytes(n);
+		}
+
+		double modelBytes(Shape s, double n) {
+			return s.dataBytes(n);
+		}
+
+		double buildWork(Shape s, double n) {
+			return s.pass(n) * s.numAttributes * 5;
+		}
+
+		double testWork(Shape s, double n) {
+			return s.numAttributes;
+		}
+	};
+
+	/**
+	 * Nearest-neighbour learners with a linear search (IBk, KStar): building
+	 * keeps the rows, and each row classified is compared with all of them.
+	 *
+	 * @param perPair the work of comparing two rows, in attribute values
+	 * @return the model
+	 */
+	public static CostModel pairwise(final double perPair) {
+		return new CostModel() {
+			double buildBytes(Shape s, double n) {
+				return 16 * n;
+			}
+
+			double modelBytes(Shape s, double n) {
+				return 8 * n;
+			}
+
+			double buildWork(Shape s, double n) {
+				return n;
+			}
+
+			double testWork(Shape s, double n) {
+				return n * s.numAttributes * perPair;
+			}
+		};
+	}
+
+	/**
+	 * Logistic regression fitted with a quasi-Newton method: a binary copy of
+	 * the data and a (p x p) matrix, where p is the number of binary columns
+	 * plus one, times the number of classes less one.
+	 */
+	public static final CostModel HESSIAN = new CostModel() {
+		private double parameters(Shape s) {
+			return (s.binaryWidth + 1.0) * Math.max(1, s.numClasses - 1);
+		}
+
+		double buildBytes(Shape s, double n) {
+			double p = parameters(s);
+			return 8 * n * (s.binaryWidth + 1) + 24 * p * p;
+		}
+
+		double modelBytes(Shape s, double n) {
+			return 8 * parameters(s);
+		}
+
+		double buildWork(Shape s, double n) {
+			double p = parameters(s);
+			double iterations = Math.min(200, 2 * p) + 10;
+			return iterations * (n * p + p * p);
+		}
+
+		double testWork(Shape s, double n) {
+			return parameters(s);
+		}
+	};
+
+	/**
+	 * LogitBoost with simple regression functions and cross-validation of the
+	 * number of iterations (SimpleLogistic): linear in the rows and binary
+	 * columns, but with hundreds of iterations.
+	 */
+	public static final CostModel BOOSTED_REGRESSION = new CostModel() {
+		double buildBytes(Shape s, double n) {
+			return 8 * n * (s.binaryWidth + 1 + 3 * s.numClasses);
+		}
+
+		double modelBytes(Shape s, double n) {
+			return 16.0 * (s.binaryWidth + 1) * s.numClasses;
+		}
+
+		double buildWork(Shape s, double n) {
+			return 500.0 * 6 * n * s.binaryWidth * s.numClasses;
+		}
+
+		double testWork(Shape s, double n) {
+			return s.binaryWidth * s.numClasses;
+		}
+	};
+
+	/**
+	 * A multilayer perceptron with the default single hidden layer of
+	 * (inputs + outputs) / 2 nodes, trained for 500 epochs.
+	 */
+	public static final CostModel NETWORK = new CostModel() {
+		private double weights(Shape s) {
+			double hidden = (s.binaryWidth + s.numClasses) / 2.0;
+			return (s.binaryWidth + 1) * hidden + (hidden + 1) * s.numClasses;
+		}
+
+		double buildBytes(Shape s, double n) {
+			return 8 * n * (s.binaryWidth + 1) + 24 * weights(s);
+		}
+
+		double modelBytes(Shape s, double n) {
+			return 8 * weights(s);
+		}
+
+		double buildWork(Shape s, double n) {
+			return 500 * n * weights(s) * 2;
+		}
+
+		double testWork(Shape s, double n) {
+			return weights(s);
+		}
+	};
+
+	/**
+	 * DBSCAN over a sequential database: the rows are copied and normalised,
+	 * and every row's neighbourhood is found by scanning all the others.
+	 */
+	public static final CostModel DENSITY = new CostModel() {
+		double buildBytes(Shape s, double n) {
+			return 3 * s.dataBytes(n);
+		}
+
+		double modelBytes(Shape s, double n) {
+			return 0;
+		}
+
+		double buildWork(Shape s, double n) {
+			return n * s.pass(n);
+		}
+
+		double testWork(Shape s, double n) {
+			return s.pass(n);
+		}
+	};
+
+	/**
+	 * Clusterers that iterate over a copy of the data a bounded number of
+	 * times.
+	 *
+	 * @param passes the number of passes over the data
+	 * @return the model
+	 */
+	public static CostModel iterative(final double passes) {
+		return new CostModel() {
+			double buildBytes(Shape s, double n) {
+				return s.dataBytes(n);
+			}
+
+			double modelBytes(Shape s, double n) {
+				return 64.0 * s.numAttributes;
+			}
+
+			double buildWork(Shape s, double n) {
+				return passes * s.pass(n);
+			}
+
+			double testWork(Shape s, double n) {
+				return s.numAttributes;
+			}
+		};
+	}
+
+	/**
+	 * Frequent itemset miners: candidate item sets of each size are counted in
+	 * passes over the data, and the number of candidates grows with the square
+	 * of the number of items.
+	 */
+	public static final CostModel ITEMSETS = new CostModel() {
+		double buildBytes(Shape s, double n) {
+			return 4.0 * s.numAttributes * s.numItems * s.numItems + 8 * n;
+		}
+
+		double modelBytes(Shape s, double n) {
+			return 0;
+		}
+
+		double buildWork(Shape s, double n) {
+			return 20.0 * n * s.numItems * s.numItems;
+		}
+
+		double testWork(Shape s, double n) {
+			return 0;
+		}
+	};
+
+	/**
+	 * An ensemble of models of one kind, built one after another on copies
+	 * of the data.
+	 *
+	 * @param member the cost of one member
+	 * @param size   the number of members
+	 * @return the model
+	 */
+	public static CostModel ensemble(final CostModel member, final int size) {
+		return new CostModel() {
+			double buildBytes(Shape s, double n) {
+				return s.dataBytes(n) + member.buildBytes(s, n);
+			}
+
+			double modelBytes(Shape s, double n) {
+				return size * member.modelBytes(s, n);
+			}
+
+			double buildWork(Shape s, double n) {
+				return size * member.buildWork(s, n);
+			}
+
+			double testWork(Shape s, double n) {
+				return size * member.testWork(s, n);
+			}
+		};
+	}
+}
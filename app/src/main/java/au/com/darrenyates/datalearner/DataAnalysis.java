@@ -26,86 +26,68 @@ package au.com.darrenyates.datalearner;
 import android.app.Activity;
 import android.app.ActivityManager;
 import android.content.Context;
+import android.net.Uri;
 import android.os.Handler;
 import android.text.method.ScrollingMovementMethod;
 import android.util.Log;
-import android.widget.Button;
 import android.widget.TextView;
 
+import java.io.InputStream;
 import java.text.DecimalFormat;
 import java.util.Random;
 
-import weka.associations.AprioriTS;
-import weka.associations.FPGrowthTS;
-import weka.associations.FilteredAssociatorTS;
+import weka.associations.Associator;
+import weka.classifiers.Classifier;
 import weka.classifiers.EvaluationTS;
-import weka.classifiers.bayes.BayesNetTS;
-import weka.classifiers.bayes.NaiveBayesTS;
-import weka.classifiers.functions.LogisticTS;
-import weka.classifiers.functions.SimpleLogisticTS;
-import weka.classifiers.functions.MultilayerPerceptronTS;
-import weka.classifiers.lazy.IBkTS;
-import weka.classifiers.lazy.KStarTS;
-import weka.classifiers.meta.AdaBoostM1TS;
 import weka.classifiers.meta.BaggingTS;
-import weka.classifiers.meta.LogitBoostTS;
-import weka.classifiers.meta.MultiBoostABTS;
-import weka.classifiers.meta.RandomCommitteeTS;
-import weka.classifiers.meta.RotationForestTS;
-import weka.classifiers.rules.ConjunctiveRuleTS;
-import weka.classifiers.rules.DTNBTS;
-import weka.classifiers.rules.DecisionTableTS;
-import weka.classifiers.rules.JRipTS;
-import weka.classifiers.rules.OneRTS;
-import weka.classifiers.rules.PARTTS;
-import weka.classifiers.rules.RidorTS;
-import weka.classifiers.rules.ZeroRTS;
-import weka.classifiers.trees.BFTreeTS;
-import weka.classifiers.trees.DecisionStumpTS;
-import weka.classifiers.trees.J48TS;
-import weka.classifiers.trees.LADTreeTS;
-import weka.classifiers.trees.ADTreeTS;
-import weka.classifiers.trees.REPTreeTS;
 import weka.classifiers.trees.RandomForestTS;
-import weka.classifiers.trees.RandomTreeTS;
-import weka.classifiers.trees.SimpleCartTS;
 import weka.clusterers.ClusterEvaluation;
-import weka.clusterers.DBSCANTS;
-import weka.clusterers.EMTS;
-import weka.classifiers.trees.SysFor;
-import weka.classifiers.trees.ForestPA;
-import weka.classifiers.trees.SPAARC;
-import weka.clusterers.FarthestFirstTS;
-import weka.clusterers.FilteredClustererTS;
-import weka.clusterers.SimpleKMeansTS;
-import weka.classifiers.meta.RandomSubSpaceTS;
+import weka.clusterers.Clusterer;
+import weka.core.CancellationToken;
+import weka.core.DatasetStatistics;
 import weka.core.Instances;
-import weka.filters.Filter;
-import weka.filters.unsupervised.attribute.Remove;
+import weka.core.ProjectedInstances;
+import weka.core.UnsupportedAttributeTypeException;
+import weka.core.converters.AbstractFileLoader;
+import weka.core.converters.DLArffLoader;
+import weka.core.converters.DLCSVLoader;
 
-import static au.com.darrenyates.datalearner.MainActivity.alType;
-import static au.com.darrenyates.datalearner.MainActivity.killThread;
-import static au.com.darrenyates.datalearner.MainActivity.isThreadRunning;
-import static au.com.darrenyates.datalearner.MainActivity.statusUpdateStore;
-
-class DataAnalysis implements Runnable {
+// runs as a JobScheduler job; what it prints goes to the job's log as well as
+// the status view, and the job's result is the run's Output
+class DataAnalysis implements JobScheduler.Task {
+	
+	// what a run leaves behind for the results table and the details screen
+	static final class Output {
+		final String algorithm;
+		// 0 for a nominal class, 1 for a numeric one
+		final int classType;
+		// the printed classifier, or "" for other kinds of learner
+		final String model;
+		// null if the run was not evaluated
+		final EvaluationTS evaluation;
+		
+		Output(String algorithm, int classType, String model, EvaluationTS evaluation) {
+			this.algorithm = algorithm;
+			this.classType = classType;
+			this.model = model;
+			this.evaluation = evaluation;
+		}
+	}
 	
 	private Context context;
 	private TextView tv;
-	private TextView tvsl3;
-	private TextView cci;
-	private TextView ici;
-	private TextView kappa;
-	private TextView mae;
-	private TextView rmse;
-	private TextView rae;
-	private TextView rrse;
-	private TextView tni;
-	private Button btnRun;
-	private Button btnCM;
 	private String algorithm;
 	private int validate;
 	private Instances data;
+	private Uri source;
+	private boolean sourceIsArff;
+	private CancellationToken token;
+	private JobScheduler.Job job;
+	// trains on growing stratified samples instead of the whole dataset
+	private boolean progressive;
+	private long timeBudget;
+	private long memoryBudget;
+	private ProgressiveSampler sampler;
 	private boolean isRunning;
 	private long timeBuildStart;
 	private long timeBuildEnd;
@@ -113,97 +95,57 @@ class DataAnalysis implements Runnable {
 	private long timeEvalEnd;
 	private long timeBuild;
 	private long timeEval;
-	static EvaluationTS returnEval;
-	static String classifierTree;
-	static int classType = 0;
+	private EvaluationTS evaluation;
+	private String classifierTree = "";
+	private int classType = 0;
 	private Handler handler = new Handler();
 	private Instances clusterdata;
 	private int dotCount = 0;
 	
-	DataAnalysis(Context context, String algorithm, int validate, Instances dataset) {
+	DataAnalysis(Context context, String algorithm, int validate) {
 		
 		this.context = context;
 		this.tv = ((Activity) context).findViewById(R.id.tvStatus);
-		this.tvsl3 = ((Activity) context).findViewById(R.id.section_label3);
-		this.btnRun = ((Activity) context).findViewById(R.id.btnRun);
-		this.btnCM = ((Activity) context).findViewById(R.id.btnCM);
 		this.algorithm = algorithm;
 		this.validate = validate;
-		this.data = dataset;
-		this.cci = ((Activity) context).findViewById(R.id.tvCCI);
-		this.ici = ((Activity) context).findViewById(R.id.tvICI);
-		this.kappa = ((Activity) context).findViewById(R.id.tvKappa);
-		this.mae = ((Activity) context).findViewById(R.id.tvMAE);
-		this.rmse = ((Activity) context).findViewById(R.id.tvRMSE);
-		this.rae = ((Activity) context).findViewById(R.id.tvRAE);
-		this.rrse = ((Activity) context).findViewById(R.id.tvRRSE);
-		this.tni = ((Activity) context).findViewById(R.id.tvTNI);
 		
 	}
 	
-	class Classifiers {
-		
-		BayesNetTS bayesNet = new BayesNetTS();
-		NaiveBayesTS naiveBayes = new NaiveBayesTS();
-		J48TS j48 = new J48TS();
-		SimpleCartTS simpleCart = new SimpleCartTS();
-		OneRTS oner = new OneRTS();
-		ZeroRTS zeror = new ZeroRTS();
-		RandomTreeTS randomTree = new RandomTreeTS();
-		RandomForestTS randomForest = new RandomForestTS();
-		REPTreeTS reptree = new REPTreeTS();
-		BFTreeTS bftree = new BFTreeTS();
-		DecisionStumpTS decisionStump = new DecisionStumpTS();
-		JRipTS jrip = new JRipTS();
-		PARTTS part = new PARTTS();
-		RidorTS ridor = new RidorTS();
-		ConjunctiveRuleTS conjunctiveRule = new ConjunctiveRuleTS();
-		DecisionTableTS decisionTable = new DecisionTableTS();
-		AdaBoostM1TS adaBoostM1 = new AdaBoostM1TS();
-		BaggingTS bagging = new BaggingTS();
-		LogitBoostTS logitBoost = new LogitBoostTS();
-		RandomCommitteeTS randomCommittee = new RandomCommitteeTS();
-		IBkTS ibk = new IBkTS();
-		LADTreeTS ladtree = new LADTreeTS();
-		MultiBoostABTS multiBoostAB = new MultiBoostABTS();
-		RotationForestTS rotationForest = new RotationForestTS();
-		DTNBTS dtnb = new DTNBTS();
-		LogisticTS logistic = new LogisticTS();
-		SimpleLogisticTS simpleLogistic = new SimpleLogisticTS();
-		KStarTS kstar = new KStarTS();
-		SysFor sysFor = new SysFor();
-		ForestPA forestPA = new ForestPA();
-		SPAARC spaarc = new SPAARC();
-		ADTreeTS adtree = new ADTreeTS();
-		RandomSubSpaceTS randomSubSpace = new RandomSubSpaceTS();
+	// streams the rows from the file rather than using a loaded dataset; the
+	// dataset the job is given is only the header
+	DataAnalysis(Context context, String algorithm, int validate, Uri source, boolean sourceIsArff) {
 		
-		SimpleKMeansTS simpleK = new SimpleKMeansTS();
-		EMTS em = new EMTS();
-		DBSCANTS dbScan = new DBSCANTS();
-		FarthestFirstTS farthestFirst = new FarthestFirstTS();
-		FilteredClustererTS filteredClusterer = new FilteredClustererTS();
+		this(context, algorithm, validate);
+		this.source = source;
+		this.sourceIsArff = sourceIsArff;
 		
-		AprioriTS apriori = new AprioriTS();
-		FPGrowthTS fpGrowth = new FPGrowthTS();
-		FilteredAssociatorTS filteredAssociator = new FilteredAssociatorTS();
-		MultilayerPerceptronTS mlp = new MultilayerPerceptronTS();
+	}
+	
+	// trains classifiers on growing stratified samples until the learning curve
+	// flattens or the next sample would break a budget; 0 means no time budget
+	// or the default memory budget
+	void setProgressiveSampling(long timeBudgetMillis, long memoryBudgetBytes) {
 		
-		Classifiers() {
-		}
+		this.progressive = true;
+		this.timeBudget = timeBudgetMillis;
+		this.memoryBudget = memoryBudgetBytes;
 		
 	}
 	
 	@Override
-	public void run() {
+	public Object run(Instances dataset) {
 		
+		data = dataset;
+		job = JobScheduler.currentJob();
+		token = CancellationToken.current();
 		runAlgorithm();
+		return new Output(algorithm, classType, classifierTree, evaluation);
 		
 	}
 	
 	private Runnable progressRun = new Runnable() {
 		@Override
 		public void run() {
-			statusUpdateStore += ".";
 			dotCount++;
 			if (dotCount == 1 || dotCount % 35 == 0) statusUpdate("\r\n");
 			statusUpdate(".");
@@ -212,139 +154,71 @@ class DataAnalysis implements Runnable {
 	};
 	
 	private void runAlgorithm() {
-		Classifiers cl = new Classifiers();
 		if (data.classAttribute().isNominal()) classType = 0;
 		else classType = 1;
 		try {
 			isRunning = true;
 //            Instances data = getData();
-			System.out.println(data.toSummaryString());
+			System.out.println(DatasetStatistics.get(data).toSummaryString());
 			System.out.println("ALGORITHM TO BUILD: " + algorithm);
+			AlgorithmRegistry.Entry entry = AlgorithmRegistry.get(algorithm);
+			if (entry.needsNominalClass() && !data.classAttribute().isNominal())
+				throw new UnsupportedAttributeTypeException("Cannot handle numeric class!");
+			if (source != null && !entry.isUpdateable()) {
+				statusUpdate("\r\n=== ERROR: [" + algorithm + "] can't be trained on streamed data.\r\n" +
+						"Choose NaiveBayesUpdateable, IBk or KStar, or turn off streaming and reload the dataset.\r\nReady.");
+				restoreCode();
+				return;
+			}
 			statusUpdate("\r\n[" + algorithm + "] model build started.");
 			dotCount = 0;
 			handler.post(progressRun);
 			timeBuildStart = System.nanoTime();
-			if (algorithm.equals("BayesNet")) cl.bayesNet.buildClassifier(data);
-			else if (algorithm.equals("NaiveBayes")) cl.naiveBayes.buildClassifier(data);
-			else if (algorithm.equals("Conjunctive Rule")) cl.conjunctiveRule.buildClassifier(data);
-			else if (algorithm.equals("Decision Table")) cl.decisionTable.buildClassifier(data);
-			else if (algorithm.equals("JRip")) cl.jrip.buildClassifier(data);
-			else if (algorithm.equals("OneR")) cl.oner.buildClassifier(data);
-			else if (algorithm.equals("PART")) cl.part.buildClassifier(data);
-			else if (algorithm.equals("Ridor")) cl.ridor.buildClassifier(data);
-			else if (algorithm.equals("ZeroR")) cl.zeror.buildClassifier(data);
-			else if (algorithm.equals("BFTree")) cl.bftree.buildClassifier(data);
-			else if (algorithm.equals("Decision Stump")) cl.decisionStump.buildClassifier(data);
-			else if (algorithm.equals("J48 (C4.5)")) cl.j48.buildClassifier(data);
-			else if (algorithm.equals("RandomForest")) cl.randomForest.buildClassifier(data);
-			else if (algorithm.equals("RandomTree")) cl.randomTree.buildClassifier(data);
-			else if (algorithm.equals("*REPTree")) cl.reptree.buildClassifier(data);
-			else if (algorithm.equals("SimpleCART")) cl.simpleCart.buildClassifier(data);
-			else if (algorithm.equals("AdaBoostM1")) cl.adaBoostM1.buildClassifier(data);
-			else if (algorithm.equals("*Bagging")) cl.bagging.buildClassifier(data);
-			else if (algorithm.equals("LogitBoost")) cl.logitBoost.buildClassifier(data);
-			else if (algorithm.equals("Random Committee")) cl.randomCommittee.buildClassifier(data);
-			else if (algorithm.equals("IBk (KNN)")) cl.ibk.buildClassifier(data);
-			else if (algorithm.equals("ADTree")) cl.adtree.buildClassifier(data);
-			else if (algorithm.equals("LADTree")) cl.ladtree.buildClassifier(data);
-			else if (algorithm.equals("MultiBoostAB")) cl.multiBoostAB.buildClassifier(data);
-			else if (algorithm.equals("Rotation Forest")) cl.rotationForest.buildClassifier(data);
-			else if (algorithm.equals("DTNB")) cl.dtnb.buildClassifier(data);
-			else if (algorithm.equals("Logistic")) cl.logistic.buildClassifier(data);
-			else if (algorithm.equals("SimpleLogistic")) cl.simpleLogistic.buildClassifier(data);
-			else if (algorithm.equals("KStar")) cl.kstar.buildClassifier(data);
-			else if (algorithm.equals("SysFor")) cl.sysFor.buildClassifier(data);
-			else if (algorithm.equals("ForestPA")) cl.forestPA.buildClassifier(data);
-			else if (algorithm.equals("SPAARC")) cl.spaarc.buildClassifier(data);
-			else if (algorithm.equals("*MultilayerPerceptron")) cl.mlp.buildClassifier(data);
-			else if (algorithm.equals("RandomSubSpace")) cl.randomSubSpace.buildClassifier(data);
-			else if (algorithm.equals("SimpleKMeans")) {
-				clusterdata = removeClass(data);
-				cl.simpleK.buildClusterer(new Instances(clusterdata));
-			} else if (algorithm.equals("EM")) {
-				clusterdata = removeClass(data);
-				cl.em.buildClusterer(new Instances(clusterdata));
-			} else if (algorithm.equals("DBSCAN")) {
-				clusterdata = removeClass(data);
-				cl.dbScan.buildClusterer(new Instances(clusterdata));
-			} else if (algorithm.equals("FarthestFirst")) {
-				clusterdata = removeClass(data);
-				cl.farthestFirst.buildClusterer(new Instances(clusterdata));
-			} else if (algorithm.equals("FilteredClusterer")) {
-				clusterdata = removeClass(data);
-				cl.filteredClusterer.buildClusterer(new Instances(clusterdata));
-			} else if (algorithm.equals("Apriori")) {
-				cl.apriori.buildAssociations(data);
-				statusUpdate(cl.apriori.toString());
-			} else if (algorithm.equals("FilteredAssociator")) {
-				cl.filteredAssociator.buildAssociations(data);
-				statusUpdate(cl.filteredAssociator.toString());
-			} else if (algorithm.equals("FPGrowth")) {
-				cl.fpGrowth.buildAssociations(data);
-				statusUpdate(cl.fpGrowth.toString());
+			Object learner = entry.newInstance();
+			// the final model builds its members on every core
+			setMemberSlots(learner, Runtime.getRuntime().availableProcessors());
+			// trees are scored from flat arrays rather than node objects
+			setFlattenTrees(learner);
+			// with an evaluation to follow, the forest's out of bag error is wasted work
+			if (validate == 1 && learner instanceof RandomForestTS)
+				((RandomForestTS) learner).setDontCalculateOutOfBagError(true);
+			EvaluationTS streamEval = null;
+			if (source != null) {
+				// when evaluating, each row tests the model before it is trained on it
+				streamEval = trainFromStream((Classifier) learner);
+			} else if (entry.getType() == AlgorithmRegistry.Type.CLASSIFIER && progressive) {
+				Classifier model = sampleProgressively((Classifier) learner);
+				if (model != null) learner = model;
+			} else if (entry.getType() == AlgorithmRegistry.Type.CLASSIFIER) {
+				((Classifier) learner).buildClassifier(data);
+			} else if (entry.getType() == AlgorithmRegistry.Type.CLUSTERER) {
+				// the clusterers copy what they need, so they are given a view of the
+				// dataset without the class rather than a copy of it
+				clusterdata = ProjectedInstances.withoutClass(data);
+				((Clusterer) learner).buildClusterer(clusterdata);
+			} else {
+				((Associator) learner).buildAssociations(data);
+				statusUpdate(learner.toString());
 			}
 			
 			timeBuildEnd = System.nanoTime();
 			timeBuild = timeBuildEnd - timeBuildStart;
 			handler.removeCallbacks(progressRun);
-			if (killThread == false) {
-				statusUpdateStore += "\r\n[" + algorithm + "] model build complete.\r\n";
+			if (!token.isCancelled()) {
 				statusUpdate("\r\n[" + algorithm + "] model build complete.\r\n");
 			} else {
-				statusUpdateStore += "\r\n[" + algorithm + "] model build stopped.\r\n";
 				statusUpdate("\r\n[" + algorithm + "] model build stopped.\r\n");
 				restoreCode();
 			}
-			classifierTree = "";
-			if (algorithm.equals("BayesNet")) classifierTree = cl.bayesNet.toString();
-			else if (algorithm.equals("NaiveBayes")) classifierTree = cl.naiveBayes.toString();
-			else if (algorithm.equals("Conjunctive Rule"))
-				classifierTree = cl.conjunctiveRule.toString();
-			else if (algorithm.equals("Decision Table"))
-				classifierTree = cl.decisionTable.toString();
-			else if (algorithm.equals("JRip")) classifierTree = cl.jrip.toString();
-			else if (algorithm.equals("OneR")) classifierTree = cl.oner.toString();
-			else if (algorithm.equals("PART")) classifierTree = cl.part.toString();
-			else if (algorithm.equals("Ridor")) classifierTree = cl.ridor.toString();
-			else if (algorithm.equals("ZeroR")) classifierTree = cl.zeror.toString();
-			else if (algorithm.equals("BFTree")) classifierTree = cl.bftree.toString();
-			else if (algorithm.equals("Decision Stump"))
-				classifierTree = cl.decisionStump.toString();
-			else if (algorithm.equals("J48 (C4.5)")) classifierTree = cl.j48.toString();
-			else if (algorithm.equals("RandomForest")) classifierTree = cl.randomForest.toString();
-			else if (algorithm.equals("RandomTree")) classifierTree = cl.randomTree.toString();
-			else if (algorithm.equals("*REPTree")) classifierTree = cl.reptree.toString();
-			else if (algorithm.equals("SimpleCART")) classifierTree = cl.simpleCart.toString();
-			else if (algorithm.equals("AdaBoostM1")) classifierTree = cl.adaBoostM1.toString();
-			else if (algorithm.equals("*Bagging")) classifierTree = cl.bagging.toString();
-			else if (algorithm.equals("LogitBoost")) classifierTree = cl.logitBoost.toString();
-			else if (algorithm.equals("Random Committee"))
-				classifierTree = cl.randomCommittee.toString();
-			else if (algorithm.equals("IBk (KNN)")) classifierTree = cl.ibk.toString();
-			else if (algorithm.equals("LADTree")) classifierTree = cl.ladtree.toString();
-			else if (algorithm.equals("ADTree")) classifierTree = cl.adtree.toString();
-			else if (algorithm.equals("MultiBoostAB")) classifierTree = cl.multiBoostAB.toString();
-			else if (algorithm.equals("Rotation Forest"))
-				classifierTree = cl.rotationForest.toString();
-			else if (algorithm.equals("DTNB")) classifierTree = cl.dtnb.toString();
-			else if (algorithm.equals("Logistic")) classifierTree = cl.logistic.toString();
-			else if (algorithm.equals("SimpleLogistic"))
-				classifierTree = cl.simpleLogistic.toString();
-			else if (algorithm.equals("KStar")) classifierTree = cl.kstar.toString();
-			else if (algorithm.equals("SysFor")) classifierTree = cl.sysFor.toString();
-			else if (algorithm.equals("ForestPA")) classifierTree = cl.forestPA.toString();
-			else if (algorithm.equals("SPAARC")) classifierTree = cl.spaarc.toString();
-			else if (algorithm.equals("*MultilayerPerceptron")) classifierTree = cl.mlp.toString();
-			else if (algorithm.equals("RandomSubSpace"))
-				classifierTree = cl.randomSubSpace.toString();
+			if (entry.getType() == AlgorithmRegistry.Type.CLASSIFIER) classifierTree = learner.toString();
 			
-			enableBtnCM();
-			if (validate == 1 && killThread == false) runEvaluation(algorithm, cl, data);
+			if (validate == 1 && !token.isCancelled() && streamEval != null) showStreamEvaluation(streamEval);
+			else if (validate == 1 && !token.isCancelled() && sampler != null) showSampleEvaluation();
+			else if (validate == 1 && !token.isCancelled()) runEvaluation(algorithm, entry, learner, data);
 			else restoreSettings();
 			
 		} catch (Exception e) {
-			if (killThread == true) {
-				statusUpdateStore += "\r\n[" + algorithm + "] model build stopped.\r\nReady.";
+			if (token.isCancelled()) {
 				statusUpdate("\r\n[" + algorithm + "] model build stopped.\r\nReady.");
 			} else {
 				statusUpdate("\r\n=== ERROR: Does the dataset have a numeric class attribute?\r\nTry 'Force class attribute to nominal' button on Load screen.\r\n" +
@@ -358,248 +232,136 @@ class DataAnalysis implements Runnable {
 	}
 	
 	private void restoreCode() {
-		resetRunBtn();
 		handler.removeCallbacks(progressRun);
 		isRunning = false;
-		isThreadRunning = false;
 	}
 	
-	private Instances removeClass(Instances inst) {
-		Remove af = new Remove();
-		Instances retI = null;
-		
+	private EvaluationTS trainFromStream(Classifier classifier) throws Exception {
+		InputStream input = context.getContentResolver().openInputStream(source);
 		try {
-			if (inst.classIndex() < 0) {
-				retI = inst;
-			} else {
-				af.setAttributeIndices("" + (inst.classIndex() + 1));
-				af.setInvertSelection(false);
-				af.setInputFormat(inst);
-				retI = Filter.useFilter(inst, af);
+			AbstractFileLoader loader = sourceIsArff ? new DLArffLoader() : new DLCSVLoader();
+			loader.setSource(input);
+			loader.getStructure();
+			return StreamingTrainer.train(classifier, loader, data, validate == 1);
+		} finally {
+			input.close();
+		}
+	}
+	
+	private void showStreamEvaluation(EvaluationTS eval) throws Exception {
+		// the rows were tested during the build, so there is no separate eval time
+		statusUpdate("\r\n[" + algorithm + "] prequential evaluation complete.");
+		evaluation = eval;
+		restoreSettings();
+	}
+	
+	private Classifier sampleProgressively(Classifier classifier) throws Exception {
+		sampler = new ProgressiveSampler();
+		sampler.setTimeBudget(timeBudget);
+		sampler.setMemoryBudget(memoryBudget);
+		sampler.setListener(new ProgressiveSampler.Listener() {
+			@Override
+			public void stepDone(ProgressiveSampler.Step step) {
+				DecimalFormat df = new DecimalFormat("#.##");
+				String line = "\r\n[" + algorithm + "] " + df.format(step.fraction * 100) + "% ("
+						+ step.numInstances + " rows): "
+						+ ((classType == 0) ? df.format(step.score) + "% correct"
+						: "RRSE " + df.format(step.score) + "%")
+						+ ", build " + df.format(step.buildMillis / 1000.0) + "s"
+						+ ", test " + df.format(step.testMillis / 1000.0) + "s";
+				statusUpdate(line);
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
+		});
+		Classifier model = sampler.run(classifier, data);
+		String reason;
+		switch (sampler.getStopReason()) {
+			case FLAT:
+				reason = "learning curve has flattened";
+				break;
+			case TIME:
+				reason = "next sample would take about "
+						+ (sampler.getProjectedMillis() + 999) / 1000 + "s, over the time budget";
+				break;
+			case MEMORY:
+				reason = "next sample would need about "
+						+ (sampler.getProjectedBytes() >> 20) + "MB, over the memory budget";
+				break;
+			case COMPLETE:
+				reason = "all rows used";
+				break;
+			default:
+				reason = "stopped";
+		}
+		statusUpdate("\r\n[" + algorithm + "] sampling stopped: " + reason + ".");
+		return model;
+	}
+	
+	private void showSampleEvaluation() throws Exception {
+		// each sample was tested on the hold-out set during the build; the last
+		// one stands in for cross-validation, which would defeat the sampling
+		timeEval = 0;
+		for (ProgressiveSampler.Step step : sampler.getSteps()) {
+			timeEval += step.testMillis * 1000000L;
+		}
+		timeBuild -= timeEval;
+		if (sampler.getSteps().isEmpty()) {
+			restoreSettings();
+			return;
 		}
-		return retI;
+		EvaluationTS eval = sampler.getSteps().get(sampler.getSteps().size() - 1).evaluation;
+		statusUpdate("\r\n[" + algorithm + "] hold-out evaluation complete.");
+		evaluation = eval;
+		restoreSettings();
+	}
+	
+	private static void setMemberSlots(Object learner, int slots) {
+		if (learner instanceof BaggingTS) ((BaggingTS) learner).setNumExecutionSlots(slots);
+		else if (learner instanceof RandomForestTS) ((RandomForestTS) learner).setNumExecutionSlots(slots);
 	}
 	
+	private static void setFlattenTrees(Object learner) {
+		if (learner instanceof BaggingTS) ((BaggingTS) learner).setFlattenTrees(true);
+		else if (learner instanceof RandomForestTS) ((RandomForestTS) learner).setFlattenTrees(true);
+	}
 	
-	private void runEvaluation(String algorithm, Classifiers cl, Instances data) {
+	private void runEvaluation(String algorithm, AlgorithmRegistry.Entry entry, Object learner, Instances data) {
 		
 		try {
 			EvaluationTS eval = new EvaluationTS(data);
+			if (entry.supportsParallelFolds()) {
+				eval.setNumExecutionSlots(Runtime.getRuntime().availableProcessors());
+				// the folds already use every core, so each fold builds its members in turn
+				setMemberSlots(learner, 1);
+			}
 			ClusterEvaluation ceval = new ClusterEvaluation();
 			System.out.println("ORIG ALGORITHM: " + algorithm);
 			statusUpdate("\r\n[" + algorithm + "] model evaluation started.");
 			dotCount = 0;
 			handler.post(progressRun);
-			switch (algorithm) {
-				case "BayesNet":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.bayesNet, data, 10, new Random(1));
-					break;
-				case "NaiveBayes":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.naiveBayes, data, 10, new Random(1));
-					break;
-				case "Conjunctive Rule":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.conjunctiveRule, data, 10, new Random(1));
-					break;
-				case "Decision Table":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.decisionTable, data, 10, new Random(1));
-					break;
-				case "JRip":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.jrip, data, 10, new Random(1));
-					break;
-				case "OneR":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.oner, data, 10, new Random(1));
-					break;
-				case "PART":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.part, data, 10, new Random(1));
-					break;
-				case "Ridor":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.ridor, data, 10, new Random(1));
-					break;
-				case "ZeroR":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.zeror, data, 10, new Random(1));
-					break;
-				case "BFTree":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.bftree, data, 10, new Random(1));
-					break;
-				case "Decision Stump":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.decisionStump, data, 10, new Random(1));
-					break;
-				case "J48 (C4.5)":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.j48, data, 10, new Random(1));
-					break;
-				case "RandomForest":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.randomForest, data, 10, new Random(1));
-					break;
-				case "RandomTree":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.randomTree, data, 10, new Random(1));
-					break;
-				case "*REPTree":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.reptree, data, 10, new Random(1));
-					break;
-				case "SimpleCART":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.simpleCart, data, 10, new Random(1));
-					break;
-				case "AdaBoostM1":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.adaBoostM1, data, 10, new Random(1));
-					break;
-				case "*Bagging":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.bagging, data, 10, new Random(1));
-					break;
-				case "LogitBoost":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.logitBoost, data, 10, new Random(1));
-					break;
-				case "Random Committee":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.randomCommittee, data, 10, new Random(1));
-					break;
-				case "IBk (KNN)":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.ibk, data, 10, new Random(1));
-					break;
-				case "ADTree":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.adtree, data, 10, new Random(1));
-					break;
-				case "LADTree":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.ladtree, data, 10, new Random(1));
-					break;
-				case "MultiBoostAB":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.multiBoostAB, data, 10, new Random(1));
-					break;
-				case "Rotation Forest":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.rotationForest, data, 10, new Random(1));
-					break;
-				case "DTNB":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.dtnb, data, 10, new Random(1));
-					break;
-				case "Logistic":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.logistic, data, 10, new Random(1));
-					break;
-				case "SimpleLogistic":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.simpleLogistic, data, 10, new Random(1));
-					break;
-				case "KStar":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.kstar, data, 10, new Random(1));
-					break;
-				case "SysFor":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.sysFor, data, 10, new Random(1));
-					break;
-				case "ForestPA":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.forestPA, data, 10, new Random(1));
-					break;
-				case "SPAARC":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.spaarc, data, 10, new Random(1));
-					break;
-				case "*MultilayerPerceptron":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.mlp, data, 10, new Random(1));
-					break;
-				case "RandomSubSpace":
-					timeEvalStart = System.nanoTime();
-					eval.crossValidateModel(cl.randomSubSpace, data, 10, new Random(1));
-					break;
-				case "SimpleKMeans":
-					timeEvalStart = System.nanoTime();
-					ceval.setClusterer(cl.simpleK);
-					ceval.evaluateClusterer(clusterdata);
-					statusUpdate("\r\n" + ceval.clusterResultsToString());
-					break;
-				case "EM":
-					timeEvalStart = System.nanoTime();
-					ceval.setClusterer(cl.em);
-					ceval.evaluateClusterer(clusterdata);
-					statusUpdate("\r\n" + ceval.clusterResultsToString());
-					break;
-				case "DBSCAN":
-					timeEvalStart = System.nanoTime();
-					ceval.setClusterer(cl.dbScan);
-					ceval.evaluateClusterer(clusterdata);
-					statusUpdate("\r\n" + ceval.clusterResultsToString());
-					break;
-				case "FarthestFirst":
-					timeEvalStart = System.nanoTime();
-					ceval.setClusterer(cl.farthestFirst);
-					ceval.evaluateClusterer(clusterdata);
-					statusUpdate("\r\n" + ceval.clusterResultsToString());
-					break;
-				case "FilteredClusterer":
-					timeEvalStart = System.nanoTime();
-					ceval.setClusterer(cl.filteredClusterer);
-					ceval.evaluateClusterer(clusterdata);
-					statusUpdate("\r\n" + ceval.clusterResultsToString());
-					break;
-				
-				
+			timeEvalStart = System.nanoTime();
+			if (entry.getType() == AlgorithmRegistry.Type.CLASSIFIER) {
+				eval.crossValidateModel((Classifier) learner, data, 10, new Random(1));
+			} else if (entry.getType() == AlgorithmRegistry.Type.CLUSTERER) {
+				ceval.setClusterer((Clusterer) learner);
+				ceval.evaluateClusterer(clusterdata);
+				statusUpdate("\r\n" + ceval.clusterResultsToString());
 			}
 			timeEvalEnd = System.nanoTime();
 			timeEval = timeEvalEnd - timeEvalStart;
 			handler.removeCallbacks(progressRun);
 			isRunning = false;
-			if (killThread == false) {
-				if (alType == 1) {
-					DecimalFormat df = new DecimalFormat("#.####");
-					enableBtnCM();
-					if (classType == 0) {
-						updateResults(cci, (int) eval.correct() + " (" + df.format(eval.pctCorrect()) + "%)");
-						updateResults(ici, (int) eval.incorrect() + " (" + df.format(eval.pctIncorrect()) + "%)");
-						updateResults(kappa, "" + df.format(eval.kappa()));
-					}
-					updateResults(mae, df.format(eval.meanAbsoluteError()));
-					updateResults(rmse, df.format(eval.rootMeanSquaredError()));
-					updateResults(rae, df.format(eval.relativeAbsoluteError()) + "%");
-					updateResults(rrse, df.format(eval.rootRelativeSquaredError()) + "%");
-					updateResults(tni, "" + (int) eval.numInstances());
-					//					if (!algorithm.equals("Apriori") && !algorithm.equals("FPGrowth")) {
-					//						restoreSettings();
-					//					}
-				}
-				statusUpdateStore += "\r\n[" + algorithm + "] model evaluation complete.";
+			if (!token.isCancelled()) {
+				if (entry.getType() == AlgorithmRegistry.Type.CLASSIFIER) evaluation = eval;
 				statusUpdate("\r\n[" + algorithm + "] model evaluation complete.");
 				restoreSettings();
 			} else {
-				statusUpdateStore += "\r\n[" + algorithm + "] evaluation stopped.\r\nReady.";
 				statusUpdate("\r\n[" + algorithm + "] evaluation stopped.\r\nReady.");
 			}
-			resetRunBtn();
-			isThreadRunning = false;
-			returnEval = eval;
 		} catch (Exception e) {
 			restoreCode();
 			System.out.print("ERROR: " + Log.getStackTraceString(e));
 //            statusUpdate("=== ERROR: "+ Log.getStackTraceString(e));
-			if (killThread == false) {
+			if (!token.isCancelled()) {
 				statusUpdate("=== ERROR: this dataset is not supported.");
 			} else {
 				statusUpdate("\r\n[" + algorithm + "] evaluation stopped.\r\nReady.");
@@ -608,27 +370,23 @@ class DataAnalysis implements Runnable {
 	}
 	
 	private void restoreSettings() {
-		if (killThread == false) {
+		if (!token.isCancelled()) {
 			DecimalFormat df2 = new DecimalFormat("#.#####");
-			statusUpdateStore += "\r\n[" + algorithm + "] build: " + (df2.format(timeBuild / 1000000000.0) + "s");
 			statusUpdate("\r\n[" + algorithm + "] build: " + (df2.format(timeBuild / 1000000000.0)) + "s");
-			if (validate == 1) {
-				statusUpdateStore += "\r\n[" + algorithm + "]  eval: " + (df2.format(timeEval / 1000000000.0) + "s");
+			if (validate == 1 && source == null) {
 				statusUpdate("\r\n[" + algorithm + "]  eval: " + (df2.format(timeEval / 1000000000.0)) + "s");
 			}
 		}
-		statusUpdateStore += "\r\nReady.";
 		statusUpdate("\r\nReady.");
-		resetRunBtn();
 		handler.removeCallbacks(progressRun);
 		isRunning = false;
-		isThreadRunning = false;
 		System.out.println("Ready.");
 	}
 
 	private void statusUpdate(String status) {
 		final String newStatus;
 		newStatus = status;
+		if (job != null) job.log(status);
 		tv.post(new Runnable() {
 			@Override
 			public void run() {
@@ -639,34 +397,4 @@ class DataAnalysis implements Runnable {
 		});
 	}
 	
-	private void updateResults(TextView tvui, String text) {
-		final String displayText = text;
-		final TextView tvGUI = tvui;
-		tvui.post(new Runnable() {
-			@Override
-			public void run() {
-				tvGUI.setText(displayText);
-			}
-		});
-	}
-	
-	private void resetRunBtn() {
-		btnRun.post(new Runnable() {
-			@Override
-			public void run() {
-				btnRun.setText(context.getString(R.string.str_run));
-				tvsl3.setText("Tap 'Run' to model your data:");
-			}
-		});
-	}
-	
-	private void enableBtnCM() {
-		btnCM.post(new Runnable() {
-			@Override
-			public void run() {
-				btnCM.setEnabled(true);
-			}
-		});
-	}
-	
 }
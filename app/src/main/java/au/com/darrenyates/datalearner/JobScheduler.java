@@ -0,0 +1,497 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * JobScheduler.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import weka.core.CancellationToken;
+import weka.core.FoldView;
+import weka.core.Instances;
+
+/**
+ * Runs modelling jobs on a bounded pool of worker threads. Jobs wait in a
+ * queue until a worker is free, and each job has its own status, timings and
+ * cancellation token, so several algorithms can be built and evaluated over
+ * the same dataset at once.
+ * <p/>
+ * The dataset given to a job is shared with the other jobs, not copied. Each
+ * job gets its own Instances object holding the same rows, so a learner that
+ * reorders its data (sorting, randomizing, stratifying) does not disturb the
+ * others; learners must not change the values or weights of the rows
+ * themselves. The object is made when the job is submitted, so a job waiting
+ * in the queue keeps the class attribute it was submitted with.
+ * <p/>
+ * Jobs submitted as exclusive run one at a time, for learners that keep build
+ * state in static fields; the other jobs run alongside them as usual. Jobs
+ * that are done are forgotten when the next job is submitted.
+ * <p/>
+ * This class has no Android dependencies so it can also be used off-device.
+ */
+public class JobScheduler {
+
+	/**
+	 * The work done by a job.
+	 */
+	public interface Task {
+
+		/**
+		 * Runs the job. The token of the job is bound to the calling thread, so
+		 * learners can poll it with CancellationToken.current().
+		 *
+		 * @param data the rows of the shared dataset
+		 * @return the result of the job, e.g. a built model or an evaluation
+		 * @throws Exception if the job fails
+		 */
+		Object run(Instances data) throws Exception;
+	}
+
+	/**
+	 * Told when a job is done.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called once a job has finished, failed or been cancelled, on the
+		 * thread that ran or cancelled it.
+		 *
+		 * @param job the job
+		 */
+		void jobDone(Job job);
+	}
+
+	/**
+	 * The states a job moves through.
+	 */
+	public enum Status {
+		QUEUED, RUNNING, FINISHED, FAILED, CANCELLED
+	}
+
+	/**
+	 * One submitted job.
+	 */
+	public static final class Job {
+
+		private final JobScheduler scheduler;
+		private final int id;
+		private final String name;
+		private final boolean exclusive;
+		private final CancellationToken token = new CancellationToken();
+		private final long timeSubmitted = System.nanoTime();
+		private volatile Status status = Status.QUEUED;
+		private volatile long timeStarted;
+		private volatile long timeFinished;
+		private volatile Object result;
+		private volatile Throwable error;
+		private final CountDownLatch done = new CountDownLatch(1);
+		private final StringBuilder log = new StringBuilder();
+		private Callable<Object> work;
+		private Future<?> future;
+
+		private Job(JobScheduler scheduler, int id, String name, boolean exclusive) {
+			this.scheduler = scheduler;
+			this.id = id;
+			this.name = name;
+			this.exclusive = exclusive;
+		}
+
+		/**
+		 * @return the number of the job, in order of submission
+		 */
+		public int getId() {
+			return id;
+		}
+
+		/**
+		 * @return the name the job was submitted under, e.g. the algorithm
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return true if the job does not run at the same time as other
+		 * exclusive jobs
+		 */
+		public boolean isExclusive() {
+			return exclusive;
+		}
+
+		/**
+		 * @return the token the job polls to find out if it should stop
+		 */
+		public CancellationToken getToken() {
+			return token;
+		}
+
+		/**
+		 * @return the current state of the job
+		 */
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * @return true if the job has finished, failed or been cancelled
+		 */
+		public boolean isDone() {
+			Status s = status;
+			return s == Status.FINISHED || s == Status.FAILED || s == Status.CANCELLED;
+		}
+
+		/**
+		 * @return the time in nanoseconds the job spent waiting in the queue
+		 */
+		public long getQueueTime() {
+			long start = timeStarted;
+			return (start == 0 ? System.nanoTime() : start) - timeSubmitted;
+		}
+
+		/**
+		 * @return the time in nanoseconds the job has been running, or 0 if it
+		 * has not started
+		 */
+		public long getRunTime() {
+			long start = timeStarted;
+			if (start == 0) return 0;
+			long end = timeFinished;
+			return (end == 0 ? System.nanoTime() : end) - start;
+		}
+
+		/**
+		 * @return what the task returned, or null if it has not finished
+		 */
+		public Object getResult() {
+			return result;
+		}
+
+		/**
+		 * @return the exception the task threw, or null if it did not fail
+		 */
+		public Throwable getError() {
+			return error;
+		}
+
+		/**
+		 * Adds text to the job's log, e.g. the progress and results of a run.
+		 *
+		 * @param text the text to add
+		 */
+		public void log(String text) {
+			synchronized (log) {
+				log.append(text);
+			}
+		}
+
+		/**
+		 * @return what the job has logged so far
+		 */
+		public String getLog() {
+			synchronized (log) {
+				return log.toString();
+			}
+		}
+
+		/**
+		 * Asks the job to stop. A queued job is cancelled at once and skipped
+		 * when its turn comes; a running job is interrupted and stops at the
+		 * next point its learner polls the token.
+		 */
+		public void cancel() {
+			token.cancel();
+			Future<?> f = null;
+			boolean dequeued = false;
+			synchronized (this) {
+				if (status == Status.QUEUED) {
+					finish(Status.CANCELLED);
+					dequeued = true;
+				} else if (status == Status.RUNNING) {
+					f = future;
+				}
+			}
+			if (f != null) f.cancel(true);
+			if (dequeued) scheduler.jobDone(this);
+		}
+
+		/**
+		 * Waits for the job to finish.
+		 *
+		 * @throws InterruptedException if the waiting thread is interrupted
+		 */
+		public void await() throws InterruptedException {
+			done.await();
+		}
+
+		private synchronized boolean start() {
+			if (status != Status.QUEUED) return false;
+			timeStarted = System.nanoTime();
+			status = Status.RUNNING;
+			return true;
+		}
+
+		private synchronized void finish(Status s) {
+			timeFinished = System.nanoTime();
+			if (timeStarted == 0) timeStarted = timeFinished;
+			status = s;
+			done.countDown();
+		}
+
+		@Override
+		public String toString() {
+			return "[" + id + "] " + name + " " + status;
+		}
+	}
+
+	private static final ThreadLocal<Job> CURRENT = new ThreadLocal<>();
+
+	private final ThreadPoolExecutor pool;
+	private final AtomicInteger jobCount = new AtomicInteger();
+	private final List<Job> jobs = new ArrayList<>();
+	// exclusive jobs waiting for the one that holds the exclusive slot
+	private final LinkedList<Job> waiting = new LinkedList<>();
+	private boolean exclusiveBusy;
+	private volatile Listener listener;
+
+	/**
+	 * Creates a scheduler.
+	 *
+	 * @param numWorkers the number of jobs that can run at once
+	 * @param stackSize  the stack size in bytes of the worker threads, or 0 for
+	 *                   the platform default
+	 */
+	public JobScheduler(int numWorkers, final long stackSize) {
+		final ThreadGroup group = new ThreadGroup("DataLearner jobs");
+		final AtomicInteger threadCount = new AtomicInteger();
+		ThreadFactory factory = new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(group, r, "dataRunnable-" + threadCount.incrementAndGet(), stackSize);
+				t.setDaemon(true);
+				return t;
+			}
+		};
+		numWorkers = Math.max(1, numWorkers);
+		pool = new ThreadPoolExecutor(numWorkers, numWorkers, 30L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), factory);
+		pool.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Returns the job running on the calling thread.
+	 *
+	 * @return the job, or null if the thread is not running one
+	 */
+	public static Job currentJob() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Sets the object told when a job is done.
+	 *
+	 * @param listener the listener, or null for none
+	 */
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Queues a job to run over a dataset.
+	 *
+	 * @param name the name of the job, e.g. the algorithm it runs
+	 * @param data the dataset, shared with the other jobs
+	 * @param task the work to do
+	 * @return the job
+	 */
+	public Job submit(String name, Instances data, Task task) {
+		return submit(name, data, task, false);
+	}
+
+	/**
+	 * Queues a job to run over a dataset. An exclusive job waits until no
+	 * other exclusive job is queued ahead of it or running. The rows and class
+	 * index of the dataset are taken now, on the calling thread, so later
+	 * changes to the dataset do not affect the job.
+	 *
+	 * @param name      the name of the job, e.g. the algorithm it runs
+	 * @param data      the dataset, shared with the other jobs
+	 * @param task      the work to do
+	 * @param exclusive true if the job must not run at the same time as other
+	 *                  exclusive jobs
+	 * @return the job
+	 */
+	public Job submit(String name, Instances data, final Task task, boolean exclusive) {
+		purge();
+		final Instances rows = data == null ? null : FoldView.shareRows(data);
+		final Job job = new Job(this, jobCount.incrementAndGet(), name, exclusive);
+		job.work = new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				try {
+					if (!job.start()) return null;
+					return run(job, rows, task);
+				} finally {
+					if (job.exclusive) releaseExclusive();
+				}
+			}
+		};
+		synchronized (jobs) {
+			jobs.add(job);
+		}
+		if (exclusive) {
+			synchronized (waiting) {
+				if (exclusiveBusy) {
+					waiting.add(job);
+					return job;
+				}
+				exclusiveBusy = true;
+			}
+		}
+		dispatch(job);
+		return job;
+	}
+
+	private Object run(Job job, Instances data, Task task) throws Exception {
+		CancellationToken.setCurrent(job.token);
+		CURRENT.set(job);
+		try {
+			job.result = task.run(data);
+			job.finish(job.token.isCancelled() ? Status.CANCELLED : Status.FINISHED);
+			return job.result;
+		} catch (Exception | Error e) {
+			job.error = e;
+			job.finish(job.token.isCancelled() ? Status.CANCELLED : Status.FAILED);
+			throw e;
+		} finally {
+			CancellationToken.setCurrent(null);
+			CURRENT.remove();
+			jobDone(job);
+		}
+	}
+
+	private void dispatch(Job job) {
+		try {
+			synchronized (job) {
+				job.future = pool.submit(job.work);
+			}
+		} catch (RejectedExecutionException e) {
+			// the scheduler has been shut down
+			job.cancel();
+		}
+	}
+
+	// hands the exclusive slot to the next waiting job; cancelled jobs are still
+	// dispatched, and pass the slot on as soon as they find they were cancelled
+	private void releaseExclusive() {
+		Job next;
+		synchronized (waiting) {
+			next = waiting.poll();
+			if (next == null) {
+				exclusiveBusy = false;
+				return;
+			}
+		}
+		dispatch(next);
+	}
+
+	private void jobDone(Job job) {
+		Listener l = listener;
+		if (l != null) l.jobDone(job);
+	}
+
+	/**
+	 * Queues a job that does not return a result.
+	 *
+	 * @param name     the name of the job, e.g. the algorithm it runs
+	 * @param runnable the work to do
+	 * @return the job
+	 */
+	public Job submit(String name, final Runnable runnable) {
+		return submit(name, null, new Task() {
+			@Override
+			public Object run(Instances data) {
+				runnable.run();
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @return all jobs submitted to this scheduler, in order of submission
+	 */
+	public List<Job> getJobs() {
+		synchronized (jobs) {
+			return new ArrayList<>(jobs);
+		}
+	}
+
+	/**
+	 * @return the number of jobs that are queued or running
+	 */
+	public int numActiveJobs() {
+		int count = 0;
+		synchronized (jobs) {
+			for (Job job : jobs) {
+				if (!job.isDone()) count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Forgets the jobs that are done.
+	 */
+	public void purge() {
+		synchronized (jobs) {
+			for (int i = jobs.size() - 1; i >= 0; i--) {
+				if (jobs.get(i).isDone()) jobs.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Cancels every job that is queued or running.
+	 */
+	public void cancelAll() {
+		for (Job job : getJobs()) {
+			if (!job.isDone()) job.cancel();
+		}
+	}
+
+	/**
+	 * Cancels every job and stops the worker threads.
+	 */
+	public void shutdown() {
+		cancelAll();
+		pool.shutdownNow();
+	}
+}
@@ -23,11 +23,14 @@
 package au.com.darrenyates.datalearner;
 
 import android.app.Activity;
+import android.app.ActivityManager;
 import android.content.ActivityNotFoundException;
+import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
+import android.provider.DocumentsContract;
 import android.provider.OpenableColumns;
 import android.support.constraint.ConstraintLayout;
 import android.support.design.widget.TabLayout;
@@ -41,6 +44,7 @@ import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentPagerAdapter;
 import android.support.v4.view.ViewPager;
 import android.os.Bundle;
+import android.text.InputType;
 import android.text.method.ScrollingMovementMethod;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -52,17 +56,28 @@ import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.CheckBox;
+import android.widget.EditText;
+import android.widget.LinearLayout;
 import android.widget.Spinner;
 import android.widget.TextView;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
+import weka.classifiers.EvaluationTS;
+import weka.core.AttributeRetype;
+import weka.core.CompactInstances;
+import weka.core.DatasetStatistics;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 
 import weka.core.converters.ConverterUtils;
+import weka.core.converters.DatasetCache;
+import weka.core.converters.DLArffLoader;
 import weka.core.converters.DLCSVLoader;
-import weka.filters.Filter;
-import weka.filters.unsupervised.attribute.NumericToNominal;
+import weka.core.converters.DLConverterUtils;
 
 public class MainActivity extends AppCompatActivity {
 	
@@ -82,13 +97,23 @@ public class MainActivity extends AppCompatActivity {
 	private static int validate;
 	private static Uri uriDataset;
 	private static Instances data;
-	public static boolean killThread = false;
-	static boolean isThreadRunning = false;
-	static String statusUpdateStore = "Ready.";
+	// keep loaded datasets in CompactInstances (floats and byte/short indices)
+	private static boolean compactStorage = false;
+	// read CSV files as sparse data (SparseInstances for market baskets and the like)
+	private static boolean sparseData = false;
+	private static boolean streamData = false;
+	// train classifiers on growing stratified samples within a time and memory budget
+	private static boolean progressiveSampling = false;
+	private static int progressiveMinutes = 5;
+	// 0 uses three quarters of the free heap
+	private static int progressiveMB = 0;
+	// the name of the file whose rows are streamed on each run; null when data holds the rows
+	private static String streamFile;
 	
 	//DataAnalysis task = null;
-	private static Thread thread;
-	private static ThreadGroup threadGroup;
+	private static JobScheduler scheduler = new JobScheduler(Runtime.getRuntime().availableProcessors(), 64000);
+	// the finished run whose results are on screen, for the details screen
+	static DataAnalysis.Output shownOutput;
 	static int alType = 1;
 	static int viewCount = 0;
 	static int classType = 0;
@@ -139,9 +164,58 @@ public class MainActivity extends AppCompatActivity {
 	public boolean onCreateOptionsMenu(Menu menu) {
 		// Inflate the menu; this adds items to the action bar if it is present.
 		getMenuInflater().inflate(R.menu.menu_main, menu);
+		menu.findItem(R.id.compact).setChecked(compactStorage);
+		menu.findItem(R.id.sparse).setChecked(sparseData);
+		menu.findItem(R.id.stream).setChecked(streamData);
+		menu.findItem(R.id.progressive).setChecked(progressiveSampling);
 		return true;
 	}
 
+	// asks for the time and memory budget before turning progressive sampling on
+	private void showSamplingBudget(final MenuItem item) {
+		final EditText minutes = new EditText(this);
+		minutes.setInputType(InputType.TYPE_CLASS_NUMBER);
+		minutes.setHint("Time budget (minutes, 0 = none)");
+		minutes.setText(String.valueOf(progressiveMinutes));
+		final EditText megabytes = new EditText(this);
+		megabytes.setInputType(InputType.TYPE_CLASS_NUMBER);
+		megabytes.setHint("Memory budget (MB, blank = 3/4 of free memory)");
+		if (progressiveMB > 0) megabytes.setText(String.valueOf(progressiveMB));
+		LinearLayout layout = new LinearLayout(this);
+		layout.setOrientation(LinearLayout.VERTICAL);
+		layout.setPadding(48, 16, 48, 0);
+		layout.addView(minutes);
+		layout.addView(megabytes);
+		
+		AlertDialog.Builder builder1 = new AlertDialog.Builder(this);
+		builder1.setTitle("Progressive sampling");
+		builder1.setMessage("Classifiers are trained on 1%, 2%, 5%, 10%... of the dataset and tested on a " +
+				"hold-out set, stopping when accuracy stops improving or the next sample would go over budget.");
+		AlertDialog alert1 = builder1.create();
+		alert1.setView(layout);
+		alert1.setButton(AlertDialog.BUTTON_POSITIVE, "Turn on", new DialogInterface.OnClickListener() {
+			public void onClick(DialogInterface dialog, int id) {
+				progressiveMinutes = parseBudget(minutes);
+				progressiveMB = parseBudget(megabytes);
+				progressiveSampling = true;
+				item.setChecked(true);
+			}
+		});
+		alert1.setButton(AlertDialog.BUTTON_NEGATIVE, "Cancel", new DialogInterface.OnClickListener() {
+			public void onClick(DialogInterface dialog, int id) {
+			}
+		});
+		alert1.show();
+	}
+	
+	private static int parseBudget(EditText field) {
+		try {
+			return Math.max(0, Integer.parseInt(field.getText().toString().trim()));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+	
 	@Override
 	public boolean onOptionsItemSelected(MenuItem item) {
 		// Handle action bar item clicks here. The action bar will
@@ -163,6 +237,30 @@ public class MainActivity extends AppCompatActivity {
 			alert1.show();
 			return true;
 		}
+		if (id == R.id.compact) {
+			compactStorage = !item.isChecked();
+			item.setChecked(compactStorage);
+			return true;
+		}
+		if (id == R.id.sparse) {
+			sparseData = !item.isChecked();
+			item.setChecked(sparseData);
+			return true;
+		}
+		if (id == R.id.stream) {
+			streamData = !item.isChecked();
+			item.setChecked(streamData);
+			return true;
+		}
+		if (id == R.id.progressive) {
+			if (item.isChecked()) {
+				progressiveSampling = false;
+				item.setChecked(false);
+			} else {
+				showSamplingBudget(item);
+			}
+			return true;
+		}
 		if (id == R.id.clear) {
 			tvStatus.setText(getResources().getString(R.string.str_ready));
 			return true;
@@ -252,6 +350,8 @@ public class MainActivity extends AppCompatActivity {
 						ConverterUtils.DataSource dataSource = new ConverterUtils.DataSource(inputStream);
 						newdata = csvReader(inputStream, uriDataset.toString());
 						inputStream.close();
+						// the demo dataset is small enough to always load
+						streamFile = null;
 						data = newdata;
 						data.setClassIndex(data.numAttributes() - 1);
 						displayData();
@@ -272,7 +372,6 @@ public class MainActivity extends AppCompatActivity {
 						showDemoSteps();
 						btnForce.setEnabled(true);
 					} catch (Exception e) {
-						statusUpdateStore += "\r\nERROR: " + e.getMessage() + "\r\n";
 						tvStats.append("\r\nERROR: " + e.getMessage() + "\r\n");
 					}
 				}
@@ -364,13 +463,14 @@ public class MainActivity extends AppCompatActivity {
 		
 		
 		void displayData() {
+			DatasetStatistics stats = DatasetStatistics.get(data);
 			tvStats.setText("");
-			tvStats.append(data.toSummaryString());
+			tvStats.append(stats.toSummaryString());
 			tvStats.append("\nClass attribute: (" + ((data.classIndex() + 1) + ") " + data.classAttribute().name()));
 			if (data.classAttribute().isNominal())
 				tvStats.append("\nAttribute type : Nominal/Categorical");
 			else tvStats.append("\nAttribute type : Numeric");
-			tvStats.append("\nDistinct values: " + data.numDistinctValues(data.classAttribute()) + "\n");
+			tvStats.append("\nDistinct values: " + stats.numDistinctValues(data.classIndex()) + "\n");
 			tvIntro.setText("");
 			ConstraintLayout.LayoutParams params = (ConstraintLayout.LayoutParams) tvIntro.getLayoutParams();
 			params.topMargin = 0;
@@ -391,18 +491,54 @@ public class MainActivity extends AppCompatActivity {
 			split = fileCut.lastIndexOf(':');
 			System.out.println(fileCut);
 			String filePath = fileCut;
+			// the size and modification time tell if a cached copy is still current
+			int sizeIndex = returnCursor.getColumnIndex(OpenableColumns.SIZE);
+			int modifiedIndex = returnCursor.getColumnIndex(DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+			long size = (sizeIndex < 0 || returnCursor.isNull(sizeIndex)) ? -1 : returnCursor.getLong(sizeIndex);
+			long modified = (modifiedIndex < 0 || returnCursor.isNull(modifiedIndex)) ? -1 : returnCursor.getLong(modifiedIndex);
+			returnCursor.close();
+			boolean cacheable = size >= 0 && modified > 0;
+			// compact data holds rounded numbers, so it is cached apart from full precision data
+			String source = compactStorage ? uriDataset + "#compact" : uriDataset.toString();
+			// and sparse data has its labels in a different order
+			if (sparseData) source += "#sparse";
+			DatasetCache cache = new DatasetCache(new File(getContext().getCacheDir(), "datasets"));
 
 			Instances newdata = null;
 			try {
-				InputStream inputStream = getContext().getContentResolver().openInputStream(uriDataset);
-				ConverterUtils.DataSource dataSource = new ConverterUtils.DataSource(inputStream);
-				if (filePath.endsWith("arff")) {
-					newdata = dataSource.getDataSet();
-				} else {
-					newdata = csvReader(inputStream, filePath);
+				streamFile = null;
+				if (streamData) {
+					// only the header is loaded; each run streams the rows from the file
+					newdata = streamHeader(filePath);
+					streamFile = filePath;
 				}
-				inputStream.close();
-				data = new Instances(newdata);
+				if (newdata == null && cacheable) {
+					newdata = cache.load(source, size, modified);
+				}
+				if (newdata == null) {
+					InputStream inputStream = getContext().getContentResolver().openInputStream(uriDataset);
+					DLConverterUtils.DataSource dataSource = new DLConverterUtils.DataSource(inputStream);
+					if (filePath.endsWith("arff")) {
+						newdata = dataSource.getDataSet();
+					} else {
+						newdata = csvReader(inputStream, filePath);
+					}
+					inputStream.close();
+					if (cacheable) {
+						try {
+							cache.store(source, size, modified, newdata);
+						} catch (IOException e) {
+							e.printStackTrace();
+						}
+					}
+				}
+				if (compactStorage && streamFile == null && !(newdata instanceof CompactInstances)
+						&& !(newdata.numInstances() > 0 && newdata.instance(0) instanceof SparseInstance)) {
+					// snapshots and ARFF files are read as usual, then packed, unless
+					// they are sparse
+					newdata = new CompactInstances(newdata);
+				}
+				data = newdata;
 				data.setClassIndex(data.numAttributes() - 1);
 				spinClassAtt.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
 					@Override
@@ -419,18 +555,47 @@ public class MainActivity extends AppCompatActivity {
 				});
 				setSpinClass(newdata.numAttributes());
 				spinClassAtt.setSelection(newdata.numAttributes() - 1);
-				btnForce.setEnabled(true);
+				// forcing the class to nominal needs the rows
+				btnForce.setEnabled(streamFile == null);
 				
 			} catch (Exception e) {
-				statusUpdateStore += "\r\nERROR: " + e.getMessage() + "\r\n";
 				tvStats.append("\r\nERROR: " + e.getMessage() + "\r\n");
 			}
 			return newdata;
 		}
 		
+		// reads the header of the file for streaming; a CSV file is read through
+		// once, as the types of its attributes are only known at the end
+		Instances streamHeader(String filePath) throws Exception {
+			InputStream inputStream = getContext().getContentResolver().openInputStream(uriDataset);
+			try {
+				if (filePath.endsWith("arff")) {
+					DLArffLoader al = new DLArffLoader();
+					al.setSource(inputStream);
+					return al.getStructure();
+				}
+				DLCSVLoader cl = new DLCSVLoader();
+				cl.setSource(inputStream);
+				Instances header = cl.scanStructure();
+				header.setRelationName(filePath);
+				return header;
+			} finally {
+				inputStream.close();
+			}
+		}
+		
 		void showLimits() {
+			if (scheduler.numActiveJobs() > 0) {
+				// the class column is rewritten in place, under the running job
+				AlertDialog alertDialog = new AlertDialog.Builder(getContext()).create();
+				alertDialog.setTitle("Please wait");
+				alertDialog.setIcon(R.mipmap.ic_launcher);
+				alertDialog.setMessage("The class attribute can be changed once the current run has finished.");
+				alertDialog.show();
+				return;
+			}
 			double numInstances = data.numInstances();
-			double numDistinct = data.numDistinctValues(data.classAttribute());
+			double numDistinct = DatasetStatistics.get(data).numDistinctValues(data.classIndex());
 			double ratio = numInstances / numDistinct;
 			if (ratio < 3 || numDistinct > 255) { // too many class values for number of instances = better as numeric
 				AlertDialog alertDialog = new AlertDialog.Builder(getContext()).create();
@@ -473,6 +638,8 @@ public class MainActivity extends AppCompatActivity {
 			int split = fileCut.lastIndexOf('/');
 			fileCut = fileCut.substring(split + 1);
 			DLCSVLoader cl = new DLCSVLoader();
+			cl.setCompactStorage(compactStorage);
+			cl.setSparse(sparseData);
 			cl.setSource(inputStream);
 			Instances dataSet = cl.getDataSet();
 //			NumericToNominal ntn = new NumericToNominal();
@@ -490,16 +657,10 @@ public class MainActivity extends AppCompatActivity {
 			return dataSet;
 		}
 		
+		// retypes the class column in place rather than copying the dataset through
+		// NumericToNominal, so the input must not be used afterwards
 		Instances convertClass(Instances input) throws Exception {
-			Instances output = new Instances(input);
-			NumericToNominal ntn = new NumericToNominal();
-			String[] options = new String[2];
-			options[0] = "-R";
-			options[1] = Integer.toString(output.classIndex() + 1);
-			ntn.setOptions(options);
-			ntn.setInputFormat(output);
-			Instances newData = Filter.useFilter(output, ntn);
-			return newData;
+			return AttributeRetype.numericToNominal(input, input.classIndex());
 		}
 		
 		void setSpinClass(int number) {
@@ -728,6 +889,7 @@ public class MainActivity extends AppCompatActivity {
 		//		TextView cci, ici, kappa, mae, rmse, rae, rrse, tni, tvStatus, tvsl3;
 		TextView tvsl3;
 		Button btnRun;
+		Button btnStop;
 		CheckBox checkBox;
 
 //		public void setInterface(int uitype) {
@@ -742,6 +904,7 @@ public class MainActivity extends AppCompatActivity {
 			tvStatus = rootView.findViewById(R.id.tvStatus);
 			checkBox = rootView.findViewById(R.id.checkBox);
 			btnRun = rootView.findViewById(R.id.btnRun);
+			btnStop = rootView.findViewById(R.id.btnStop);
 			btnCM = rootView.findViewById(R.id.btnCM);
 
 			cci = rootView.findViewById(R.id.tvCCI);
@@ -760,20 +923,8 @@ public class MainActivity extends AppCompatActivity {
 				@Override
 				public void onClick(View v) {
 				if (uriDataset != null && !nameClassifier.equals("-- none selected --")) {
-					if (thread == null || !isThreadRunning) {
-						launchTask(checkBox);
-						System.out.println("Pressed for START");
-						btnRun.setText("Stop");
-						tvsl3.setText("Tap 'Stop' to stop process:");
-						killThread = false;
-					} else if (isThreadRunning) {
-						System.out.println("Pressed for STOP");
-						statusUpdateStore += "\r\n[" + nameClassifier + "] Stopping - please wait.";
-						tvStatus.append("\r\n[" + nameClassifier + "] Stopping - please wait.");
-						thread.interrupt();
-						killThread = true;
-					}
-
+					// runs already going keep going; this one is queued behind them
+					admitTask(checkBox);
 				} else {
 					AlertDialog alertDialog = new AlertDialog.Builder(getContext()).create();
 					alertDialog.setTitle("You're missing something...");
@@ -784,6 +935,16 @@ public class MainActivity extends AppCompatActivity {
 				}
 			});
 
+			btnStop.setOnClickListener(new Button.OnClickListener() {
+				@Override
+				public void onClick(View v) {
+					if (scheduler.numActiveJobs() > 0) {
+						tvStatus.append("\r\nStopping - please wait.");
+						scheduler.cancelAll();
+					}
+				}
+			});
+
 			btnCM.setOnClickListener(new Button.OnClickListener() {
 				@Override
 				public void onClick(View v) {
@@ -792,6 +953,23 @@ public class MainActivity extends AppCompatActivity {
 
 			});
 
+			// jobs finish on their worker threads; their results are shown here
+			scheduler.setListener(new JobScheduler.Listener() {
+				@Override
+				public void jobDone(final JobScheduler.Job job) {
+					tvStatus.post(new Runnable() {
+						@Override
+						public void run() {
+							showJob(job);
+						}
+					});
+				}
+			});
+			if (scheduler.numActiveJobs() > 0) {
+				btnStop.setEnabled(true);
+				tvsl3.setText(R.string.str_tap_queue);
+			}
+
 
 			return rootView;
 		}
@@ -818,19 +996,129 @@ public class MainActivity extends AppCompatActivity {
 			
 		}
 		
-		void launchTask(CheckBox checkBox) {
-			btnCM.setEnabled(false);
-			cleanDisplay();
+		// checks the predicted heap and time of the run against what the device
+		// can give it, and offers a scalable alternative or a sample of the data
+		// instead of starting a run that is not likely to finish
+		void admitTask(CheckBox checkBox) {
 			if (checkBox.isChecked()) validate = 1;
 			else validate = 0;
+			AlgorithmRegistry.Entry entry = AlgorithmRegistry.get(nameClassifier);
+			if (streamFile != null || entry == null) {
+				launchTask(nameClassifier, data);
+				return;
+			}
+			int folds = (validate == 1 && entry.getType() == AlgorithmRegistry.Type.CLASSIFIER) ? 10 : 0;
+			int threads = entry.supportsParallelFolds() ? Runtime.getRuntime().availableProcessors() : 1;
+			ActivityManager am = (ActivityManager) getContext().getSystemService(Context.ACTIVITY_SERVICE);
+			Runtime rt = Runtime.getRuntime();
+			long heap = am.getLargeMemoryClass() * 1048576L - (rt.totalMemory() - rt.freeMemory());
+			CostModel.Shape shape = CostModel.Shape.of(data);
+			CostModel.Estimate estimate = entry.getCostModel().estimate(shape, folds, threads);
+			if (estimate.fits(heap)) {
+				launchTask(nameClassifier, data);
+				return;
+			}
+			
+			final String alternative = entry.getScalableAlternative();
+			final boolean useAlternative = alternative != null && AlgorithmRegistry.get(alternative)
+					.getCostModel().estimate(shape, folds, threads).fits(heap);
+			final int rows = entry.getCostModel().maxRows(shape, folds, threads, heap);
+			String message = "[" + nameClassifier + "] is estimated to need about "
+					+ (long) Math.ceil(estimate.peakBytes / 1048576) + "MB of memory (" + heap / 1048576
+					+ "MB free) and about " + (long) estimate.relativeTime()
+					+ " times as long as NaiveBayes on this dataset, so it may not finish.";
+			if (useAlternative) message += "\r\n\r\n" + alternative + " should cope with the whole dataset.";
+			if (rows > 0) message += "\r\n\r\nA random sample of " + rows + " of the "
+					+ data.numInstances() + " rows should fit.";
+			AlertDialog alert1 = new AlertDialog.Builder(getContext()).create();
+			alert1.setTitle("This dataset may be too big");
+			alert1.setIcon(R.mipmap.ic_launcher);
+			alert1.setMessage(message);
+			if (useAlternative) {
+				alert1.setButton(AlertDialog.BUTTON_POSITIVE, "Use " + alternative, new DialogInterface.OnClickListener() {
+					public void onClick(DialogInterface dialog, int id) {
+						launchTask(alternative, data);
+					}
+				});
+			}
+			if (rows > 0) {
+				alert1.setButton(useAlternative ? AlertDialog.BUTTON_NEUTRAL : AlertDialog.BUTTON_POSITIVE,
+						"Use " + rows + " rows", new DialogInterface.OnClickListener() {
+					public void onClick(DialogInterface dialog, int id) {
+						launchTask(nameClassifier, ProgressiveSampler.sample(data, rows, 1));
+					}
+				});
+			}
+			alert1.setButton(AlertDialog.BUTTON_NEGATIVE, "Run anyway", new DialogInterface.OnClickListener() {
+				public void onClick(DialogInterface dialog, int id) {
+					launchTask(nameClassifier, data);
+				}
+			});
+			alert1.show();
+		}
+		
+		void launchTask(String algorithm, Instances dataset) {
+			// a run queued behind others leaves their output on screen
+			if (scheduler.numActiveJobs() == 0) {
+				btnCM.setEnabled(false);
+				cleanDisplay();
+			}
 //			DataAnalysis task = new DataAnalysis(getContext());
 //			DataAnalysis task = new DataAnalysis(getContext(), tvStatus, tvsl3, btnRun, btnCM, nameClassifier, validate, data,
 //					cci, ici, kappa, mae, rmse, rae, rrse, tni);
-			DataAnalysis task = new DataAnalysis(getContext(), nameClassifier, validate, data);
-			threadGroup = new ThreadGroup("null");
-			thread = new Thread(threadGroup, task, "dataRunnable", 64000);
-			thread.start();
-			isThreadRunning = true;
+			DataAnalysis task;
+			if (streamFile != null) {
+				task = new DataAnalysis(getContext(), algorithm, validate, uriDataset,
+						streamFile.endsWith("arff"));
+			} else {
+				task = new DataAnalysis(getContext(), algorithm, validate);
+				if (progressiveSampling)
+					task.setProgressiveSampling(progressiveMinutes * 60000L, progressiveMB * 1048576L);
+			}
+			// learners that can't build their folds in parallel keep build state in
+			// static fields, so no two of them may run at once
+			AlgorithmRegistry.Entry entry = AlgorithmRegistry.get(algorithm);
+			boolean exclusive = entry != null && entry.getType() == AlgorithmRegistry.Type.CLASSIFIER
+					&& !entry.supportsParallelFolds();
+			scheduler.submit(algorithm, dataset, task, exclusive);
+			if (scheduler.numActiveJobs() > 1) tvStatus.append("\r\n[" + algorithm + "] queued.");
+			btnStop.setEnabled(true);
+			tvsl3.setText(R.string.str_tap_queue);
+		}
+		
+		// shows the results of a finished run; runs that finish later replace
+		// the results of earlier ones
+		void showJob(JobScheduler.Job job) {
+			if (job.getStatus() == JobScheduler.Status.FINISHED
+					&& job.getResult() instanceof DataAnalysis.Output) {
+				DataAnalysis.Output output = (DataAnalysis.Output) job.getResult();
+				shownOutput = output;
+				btnCM.setEnabled(true);
+				if (output.evaluation != null && alType == 1) displayEvaluation(output);
+			}
+			if (scheduler.numActiveJobs() == 0) {
+				btnStop.setEnabled(false);
+				tvsl3.setText(R.string.str_tap_run);
+			}
+		}
+		
+		static void displayEvaluation(DataAnalysis.Output output) {
+			EvaluationTS eval = output.evaluation;
+			DecimalFormat df = new DecimalFormat("#.####");
+			try {
+				if (output.classType == 0) {
+					cci.setText((int) eval.correct() + " (" + df.format(eval.pctCorrect()) + "%)");
+					ici.setText((int) eval.incorrect() + " (" + df.format(eval.pctIncorrect()) + "%)");
+					kappa.setText("" + df.format(eval.kappa()));
+				}
+				mae.setText(df.format(eval.meanAbsoluteError()));
+				rmse.setText(df.format(eval.rootMeanSquaredError()));
+				rae.setText(df.format(eval.relativeAbsoluteError()) + "%");
+				rrse.setText(df.format(eval.rootRelativeSquaredError()) + "%");
+				tni.setText("" + (int) eval.numInstances());
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
 		}
 		
 		
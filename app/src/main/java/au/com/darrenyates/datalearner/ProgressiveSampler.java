@@ -0,0 +1,441 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * ProgressiveSampler.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.EvaluationTS;
+import weka.core.CancellationToken;
+import weka.core.FoldView;
+import weka.core.Instances;
+
+/**
+ * Trains a classifier on a growing series of stratified samples of a dataset
+ * (1%, 2%, 5%, 10%, ... by default) rather than on all of it at once, and
+ * tests each model on the same stratified hold-out set. The samples are
+ * nested, each holding the rows of the one before, so the scores trace the
+ * learning curve of the classifier.
+ * <p/>
+ * Sampling stops at the first of:
+ * <ul>
+ * <li>the learning curve flattening, i.e. a step improving the score by less
+ * than the minimum gain,</li>
+ * <li>the next step being projected to run past the time budget or to need
+ * more memory than the memory budget, or</li>
+ * <li>the whole training pool having been used.</li>
+ * </ul>
+ * The time of the next step is projected from the last two with a power law,
+ * and its memory linearly from the last one, so a learner that would take
+ * too long or run out of memory on the whole dataset stops at the largest
+ * sample it can handle instead.
+ * <p/>
+ * The samples share the rows of the dataset rather than copying them. This
+ * class has no Android dependencies so it can also be used off-device.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class ProgressiveSampler {
+
+	/**
+	 * Why sampling stopped.
+	 */
+	public enum StopReason {
+		/** the last step improved the score by less than the minimum gain */
+		FLAT,
+		/** the next step would have run past the time budget */
+		TIME,
+		/** the next step would have needed more than the memory budget */
+		MEMORY,
+		/** the whole training pool was used */
+		COMPLETE,
+		/** the current CancellationToken was cancelled */
+		CANCELLED
+	}
+
+	/**
+	 * The outcome of one step.
+	 */
+	public static class Step {
+		/** the fraction of the training pool sampled */
+		public final double fraction;
+		/** the number of rows trained on */
+		public final int numInstances;
+		/** the time taken to build the model */
+		public final long buildMillis;
+		/** the time taken to test it on the hold-out set */
+		public final long testMillis;
+		/** the heap in use after the build, above what was in use at the start */
+		public final long usedBytes;
+		/** the evaluation on the hold-out set */
+		public final EvaluationTS evaluation;
+		/** percent correct, or the root relative squared error for a numeric class */
+		public final double score;
+
+		Step(double fraction, int numInstances, long buildMillis, long testMillis,
+			 long usedBytes, EvaluationTS evaluation, double score) {
+			this.fraction = fraction;
+			this.numInstances = numInstances;
+			this.buildMillis = buildMillis;
+			this.testMillis = testMillis;
+			this.usedBytes = usedBytes;
+			this.evaluation = evaluation;
+			this.score = score;
+		}
+	}
+
+	/**
+	 * Receives each step as soon as it is done.
+	 */
+	public interface Listener {
+		void stepDone(Step step);
+	}
+
+	/**
+	 * the default sample sizes, as fractions of the training pool
+	 */
+	public static final double[] DEFAULT_FRACTIONS = {0.01, 0.02, 0.05, 0.1, 0.2, 0.5, 1.0};
+
+	/**
+	 * the fraction of the rows held out for testing
+	 */
+	public static final double HOLDOUT_FRACTION = 0.1;
+
+	/**
+	 * the most rows held out for testing, so that testing stays cheap
+	 */
+	public static final int MAX_HOLDOUT = 5000;
+
+	private double[] m_Fractions = DEFAULT_FRACTIONS;
+	private long m_TimeBudget = 0;
+	private long m_MemoryBudget = 0;
+	private double m_MinGain = 0.5;
+	private long m_Seed = 1;
+	private Listener m_Listener;
+
+	private List<Step> m_Steps = new ArrayList<>();
+	private StopReason m_StopReason;
+	private Classifier m_Classifier;
+	private long m_ProjectedMillis;
+	private long m_ProjectedBytes;
+
+	/**
+	 * Sets the sample sizes, as ascending fractions of the training pool.
+	 *
+	 * @param fractions the fractions, the last normally 1
+	 */
+	public void setFractions(double[] fractions) {
+		m_Fractions = fractions.clone();
+	}
+
+	/**
+	 * Sets the time all the steps together may take.
+	 *
+	 * @param millis the budget in milliseconds, 0 for none
+	 */
+	public void setTimeBudget(long millis) {
+		m_TimeBudget = millis;
+	}
+
+	/**
+	 * Sets the heap a step may use on top of what is in use when sampling
+	 * starts, e.g. by the dataset itself.
+	 *
+	 * @param bytes the budget in bytes, 0 for three quarters of the heap that
+	 *              is free at the start
+	 */
+	public void setMemoryBudget(long bytes) {
+		m_MemoryBudget = bytes;
+	}
+
+	/**
+	 * Sets the least improvement of the score a step has to make for the
+	 * learning curve not to count as flat.
+	 *
+	 * @param gain the gain in percentage points (percent correct, or root
+	 *             relative squared error for a numeric class)
+	 */
+	public void setMinGain(double gain) {
+		m_MinGain = gain;
+	}
+
+	/**
+	 * Sets the seed for drawing the samples.
+	 *
+	 * @param seed the seed
+	 */
+	public void setSeed(long seed) {
+		m_Seed = seed;
+	}
+
+	/**
+	 * Sets the listener told about each step.
+	 *
+	 * @param listener the listener, or null
+	 */
+	public void setListener(Listener listener) {
+		m_Listener = listener;
+	}
+
+	/**
+	 * Runs the steps until one of the stopping conditions is met.
+	 *
+	 * @param classifier the classifier to copy for each step
+	 * @param data       the dataset, with the class set
+	 * @return the model of the last step, or null if there was none
+	 * @throws Exception if the dataset is too small to sample, or building or
+	 *                   testing fails
+	 */
+	public Classifier run(Classifier classifier, Instances data) throws Exception {
+		m_Steps.clear();
+		m_StopReason = null;
+		m_Classifier = null;
+		m_ProjectedMillis = 0;
+		m_ProjectedBytes = 0;
+		CancellationToken token = CancellationToken.current();
+		Runtime rt = Runtime.getRuntime();
+		rt.gc();
+		long usedAtStart = rt.totalMemory() - rt.freeMemory();
+		long memoryBudget = (m_MemoryBudget > 0) ? m_MemoryBudget
+				: (rt.maxMemory() - usedAtStart) / 4 * 3;
+		long start = System.currentTimeMillis();
+
+		// the rows of each class in random order; the first of each are held
+		// out, and each sample takes the next ones in proportion
+		List<List<Integer>> strata = stratify(data, new Random(m_Seed), false);
+		int numRows = 0;
+		for (List<Integer> stratum : strata) {
+			numRows += stratum.size();
+		}
+		int numHoldout = (int) Math.min(MAX_HOLDOUT, Math.round(numRows * HOLDOUT_FRACTION));
+		if (numHoldout < 1 || numRows - numHoldout < 2) {
+			throw new IllegalArgumentException("Not enough instances to sample: " + numRows);
+		}
+		int[] holdoutSizes = new int[strata.size()];
+		List<Integer> holdout = new ArrayList<>(numHoldout);
+		for (int c = 0; c < strata.size(); c++) {
+			List<Integer> stratum = strata.get(c);
+			holdoutSizes[c] = (int) Math.round(stratum.size() * (double) numHoldout / numRows);
+			holdout.addAll(stratum.subList(0, holdoutSizes[c]));
+		}
+		Instances test = view(data, holdout);
+
+		int lastSize = 0;
+		for (int f = 0; f < m_Fractions.length; f++) {
+			double fraction = m_Fractions[f];
+			List<Integer> rows = new ArrayList<>();
+			for (int c = 0; c < strata.size(); c++) {
+				List<Integer> stratum = strata.get(c);
+				int pool = stratum.size() - holdoutSizes[c];
+				// every class that has rows in the pool is in every sample
+				int size = Math.min(pool, Math.max((pool > 0) ? 1 : 0,
+						(int) Math.round(pool * fraction)));
+				rows.addAll(stratum.subList(holdoutSizes[c], holdoutSizes[c] + size));
+			}
+			if (rows.size() <= lastSize) {
+				continue;
+			}
+			if (!m_Steps.isEmpty()) {
+				project(rows.size());
+				if (m_TimeBudget > 0
+						&& System.currentTimeMillis() - start + m_ProjectedMillis > m_TimeBudget) {
+					m_StopReason = StopReason.TIME;
+					break;
+				}
+				if (m_ProjectedBytes > memoryBudget) {
+					m_StopReason = StopReason.MEMORY;
+					break;
+				}
+			}
+
+			Instances train = view(data, rows);
+			Classifier model = Classifier.makeCopy(classifier);
+			long buildStart = System.currentTimeMillis();
+			model.buildClassifier(train);
+			long buildMillis = System.currentTimeMillis() - buildStart;
+			if (token.isCancelled()) {
+				m_StopReason = StopReason.CANCELLED;
+				break;
+			}
+			rt.gc();
+			long usedBytes = Math.max(0, rt.totalMemory() - rt.freeMemory() - usedAtStart);
+
+			long testStart = System.currentTimeMillis();
+			EvaluationTS eval = new EvaluationTS(train);
+			eval.evaluateModel(model, test);
+			long testMillis = System.currentTimeMillis() - testStart;
+			if (token.isCancelled()) {
+				m_StopReason = StopReason.CANCELLED;
+				break;
+			}
+			double score = data.classAttribute().isNominal() ? eval.pctCorrect()
+					: eval.rootRelativeSquaredError();
+			Step step = new Step(fraction, rows.size(), buildMillis, testMillis, usedBytes,
+					eval, score);
+			m_Steps.add(step);
+			m_Classifier = model;
+			lastSize = rows.size();
+			if (m_Listener != null) {
+				m_Listener.stepDone(step);
+			}
+
+			if (m_Steps.size() > 1) {
+				Step previous = m_Steps.get(m_Steps.size() - 2);
+				double gain = data.classAttribute().isNominal() ? score - previous.score
+						: previous.score - score;
+				if (gain < m_MinGain) {
+					m_StopReason = StopReason.FLAT;
+					break;
+				}
+			}
+		}
+		if (m_StopReason == null) {
+			m_StopReason = StopReason.COMPLETE;
+		}
+		if (m_StopReason != StopReason.TIME && m_StopReason != StopReason.MEMORY) {
+			m_ProjectedMillis = 0;
+			m_ProjectedBytes = 0;
+		}
+		return m_Classifier;
+	}
+
+	/**
+	 * Projects the time and memory of a step of the given size from the steps
+	 * so far. Time follows a power law through the last two steps, with the
+	 * exponent kept between 1 and 3 so that one noisy step does not throw it
+	 * off; memory grows in proportion to the sample.
+	 *
+	 * @param size the number of rows of the next sample
+	 */
+	private void project(int size) {
+		Step last = m_Steps.get(m_Steps.size() - 1);
+		double ratio = (double) size / last.numInstances;
+		double exponent = 1;
+		if (m_Steps.size() > 1) {
+			Step previous = m_Steps.get(m_Steps.size() - 2);
+			long lastMillis = last.buildMillis + last.testMillis;
+			long previousMillis = previous.buildMillis + previous.testMillis;
+			if (lastMillis > 0 && previousMillis > 0) {
+				exponent = Math.log((double) lastMillis / previousMillis)
+						/ Math.log((double) last.numInstances / previous.numInstances);
+				exponent = Math.max(1, Math.min(3, exponent));
+			}
+		}
+		m_ProjectedMillis = (long) ((last.buildMillis + last.testMillis) * Math.pow(ratio, exponent));
+		m_ProjectedBytes = (long) (last.usedBytes * ratio);
+	}
+
+	/**
+	 * Draws a stratified random sample of a dataset, for when it is too big to
+	 * run on as a whole. The sample shares the rows of the dataset and keeps
+	 * them in their original order.
+	 *
+	 * @param data    the dataset
+	 * @param numRows the size of the sample
+	 * @param seed    the seed for drawing the sample
+	 * @return the sample
+	 */
+	public static Instances sample(Instances data, int numRows, long seed) {
+		List<List<Integer>> strata = stratify(data, new Random(seed), true);
+		List<Integer> rows = new ArrayList<>(numRows);
+		for (List<Integer> stratum : strata) {
+			int size = (int) Math.round(stratum.size() * (double) numRows / data.numInstances());
+			rows.addAll(stratum.subList(0, Math.min(size, stratum.size())));
+		}
+		Collections.sort(rows);
+		return view(data, rows);
+	}
+
+	/**
+	 * Groups the rows by class, each group in random order; a numeric class or
+	 * no class gives a single group. Rows with a missing class are left out,
+	 * or put in a group of their own if they are kept.
+	 */
+	private static List<List<Integer>> stratify(Instances data, Random random, boolean keepMissing) {
+		boolean nominal = data.classIndex() >= 0 && data.classAttribute().isNominal();
+		int numGroups = nominal ? data.numClasses() : 1;
+		List<List<Integer>> strata = new ArrayList<>(numGroups + 1);
+		for (int c = 0; c <= numGroups; c++) {
+			strata.add(new ArrayList<Integer>());
+		}
+		for (int i = 0; i < data.numInstances(); i++) {
+			if (data.classIndex() >= 0 && data.instance(i).classIsMissing()) {
+				if (keepMissing) strata.get(numGroups).add(i);
+			} else {
+				strata.get(nominal ? (int) data.instance(i).classValue() : 0).add(i);
+			}
+		}
+		if (strata.get(numGroups).isEmpty()) strata.remove(numGroups);
+		for (List<Integer> stratum : strata) {
+			Collections.shuffle(stratum, random);
+		}
+		return strata;
+	}
+
+	private static Instances view(Instances data, List<Integer> rows) {
+		int[] indices = new int[rows.size()];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = rows.get(i);
+		}
+		return new FoldView(data, indices).toInstances();
+	}
+
+	/**
+	 * @return the steps of the last run
+	 */
+	public List<Step> getSteps() {
+		return m_Steps;
+	}
+
+	/**
+	 * @return why the last run stopped
+	 */
+	public StopReason getStopReason() {
+		return m_StopReason;
+	}
+
+	/**
+	 * @return the model of the last step of the last run
+	 */
+	public Classifier getClassifier() {
+		return m_Classifier;
+	}
+
+	/**
+	 * @return the projected time of the step the last run stopped before, or 0
+	 */
+	public long getProjectedMillis() {
+		return m_ProjectedMillis;
+	}
+
+	/**
+	 * @return the projected memory of the step the last run stopped before, or 0
+	 */
+	public long getProjectedBytes() {
+		return m_ProjectedBytes;
+	}
+}
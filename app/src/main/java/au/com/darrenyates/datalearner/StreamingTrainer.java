@@ -0,0 +1,93 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * StreamingTrainer.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.EvaluationTS;
+import weka.classifiers.UpdateableClassifier;
+import weka.core.CancellationToken;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.converters.Loader;
+
+/**
+ * Trains an updateable classifier on a dataset one instance at a time, as the
+ * loader reads it, so that only the header and the current instance are held
+ * in memory rather than the whole dataset. What the model itself keeps is up
+ * to the classifier: NaiveBayesUpdateable keeps counts and sums only, while
+ * IBk and KStar keep every instance they are trained on unless IBk is given
+ * a window size.
+ * <p/>
+ * Optionally each instance is first used to test the model trained on the
+ * instances before it (prequential, or test-then-train, evaluation), which
+ * gives an estimate of the performance of the model in the same single pass.
+ * <p/>
+ * This class has no Android dependencies so it can also be used off-device.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public final class StreamingTrainer {
+
+	private StreamingTrainer() {
+	}
+
+	/**
+	 * Builds the classifier on the empty header and then updates it with each
+	 * instance the loader returns, until the loader has no more instances or
+	 * the current CancellationToken is cancelled.
+	 *
+	 * @param classifier  the classifier, which has to be updateable
+	 * @param loader      the loader, positioned at the first instance; the
+	 *                    instances it returns are moved into the header
+	 * @param header      the structure of the dataset, with the class set
+	 * @param prequential true to test each instance on the model before it is
+	 *                    trained on it
+	 * @return the prequential evaluation, or null if prequential is false
+	 * @throws Exception if the classifier is not updateable, or if reading,
+	 *                   training or testing fails
+	 */
+	public static EvaluationTS train(Classifier classifier, Loader loader, Instances header,
+									 boolean prequential) throws Exception {
+		if (!(classifier instanceof UpdateableClassifier)) {
+			throw new IllegalArgumentException(classifier.getClass().getName()
+					+ " can't be trained incrementally!");
+		}
+		classifier.buildClassifier(header);
+		EvaluationTS eval = prequential ? new EvaluationTS(header) : null;
+
+		CancellationToken token = CancellationToken.current();
+		Instance row;
+		while ((row = loader.getNextInstance(header)) != null) {
+			if (token.isCancelled()) break;
+			// e.g. the ARFF loader returns instances of its own copy of the header
+			row.setDataset(header);
+			if (prequential) {
+				eval.evaluateModelOnceAndUpdate(classifier, row);
+			} else {
+				((UpdateableClassifier) classifier).updateClassifier(row);
+			}
+		}
+		return eval;
+	}
+}
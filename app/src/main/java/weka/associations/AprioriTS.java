@@ -25,16 +25,18 @@ package weka.associations;
 import java.util.Enumeration;
 import java.util.Hashtable;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.core.AttributeStats;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
 import weka.core.FastVector;
+import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
 import weka.core.OptionHandler;
 import weka.core.RevisionUtils;
 import weka.core.SelectedTag;
+import weka.core.SparseInstance;
 import weka.core.Tag;
 import weka.core.TechnicalInformation;
 import weka.core.TechnicalInformation.Field;
@@ -510,7 +512,7 @@ public class AprioriTS extends AbstractAssociator implements OptionHandler,
 		
 		do {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			
 			// Reserve space for variables
@@ -1452,7 +1454,7 @@ public class AprioriTS extends AbstractAssociator implements OptionHandler,
 		necMaxSupport = (int) (m_upperBoundMinSupport * m_instances.numInstances() + 0.5);
 		
 		kSets = AprioriItemSet.singletons(m_instances);
-		AprioriItemSet.upDateCounters(kSets, m_instances);
+		upDateCounters(kSets, m_instances);
 		kSets = AprioriItemSet.deleteItemSets(kSets, necSupport,
 				m_instances.numInstances());
 		if (kSets.size() == 0)
@@ -1466,13 +1468,89 @@ public class AprioriTS extends AbstractAssociator implements OptionHandler,
 					kMinusOneSets.size());
 			m_hashtables.addElement(hashtable);
 			kSets = AprioriItemSet.pruneItemSets(kSets, hashtable);
-			AprioriItemSet.upDateCounters(kSets, m_instances);
+			upDateCounters(kSets, m_instances);
 			kSets = AprioriItemSet.deleteItemSets(kSets, necSupport,
 					m_instances.numInstances());
 			i++;
 		} while (kSets.size() > 0);
 	}
 	
+	/*
+	 * Counts the instances that contain each item set, as
+	 * AprioriItemSet.upDateCounters() does, but tests only the attributes that
+	 * are in a set rather than all of them. The values of each instance are
+	 * read once into a buffer, and those of a SparseInstance through its
+	 * stored values only, since the values it leaves out are all 0.
+	 *
+	 * @param itemSets  the item sets whose counters are updated
+	 * @param instances the instances to count
+	 */
+	private static void upDateCounters(FastVector itemSets, Instances instances) {
+		int numSets = itemSets.size();
+		int[][] atts = new int[numSets][];
+		int[][] values = new int[numSets][];
+		for (int k = 0; k < numSets; k++) {
+			int[] items = ((ItemSet) itemSets.elementAt(k)).items();
+			int size = 0;
+			for (int item : items) {
+				if (item > -1) {
+					size++;
+				}
+			}
+			atts[k] = new int[size];
+			values[k] = new int[size];
+			size = 0;
+			for (int i = 0; i < items.length; i++) {
+				if (items[i] > -1) {
+					atts[k][size] = i;
+					values[k][size++] = items[i];
+				}
+			}
+		}
+		
+		int[] counts = new int[numSets];
+		double[] row = new double[instances.numAttributes()];
+		for (int n = 0; n < instances.numInstances(); n++) {
+			Instance instance = instances.instance(n);
+			boolean sparse = instance instanceof SparseInstance;
+			if (sparse) {
+				for (int j = 0; j < instance.numValues(); j++) {
+					row[instance.index(j)] = instance.valueSparse(j);
+				}
+			} else {
+				for (int i = 0; i < row.length; i++) {
+					row[i] = instance.value(i);
+				}
+			}
+			for (int k = 0; k < numSets; k++) {
+				int[] setAtts = atts[k];
+				int[] setValues = values[k];
+				boolean contained = true;
+				for (int i = 0; i < setAtts.length; i++) {
+					double value = row[setAtts[i]];
+					// a missing value is not contained in any item
+					if (Instance.isMissingValue(value) || (int) value != setValues[i]) {
+						contained = false;
+						break;
+					}
+				}
+				if (contained) {
+					counts[k]++;
+				}
+			}
+			if (sparse) {
+				for (int j = 0; j < instance.numValues(); j++) {
+					row[instance.index(j)] = 0;
+				}
+			}
+		}
+		
+		for (int k = 0; k < numSets; k++) {
+			ItemSet itemSet = (ItemSet) itemSets.elementAt(k);
+			itemSet.setCounter(itemSet.counter() + counts[k]);
+		}
+	}
+	
 	/*
 	 * Method that finds all association rules and performs significance test.
 	 *
@@ -24,6 +24,7 @@ package weka.associations;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -36,8 +37,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -1609,10 +1610,15 @@ public class FPGrowthTS extends AbstractAssociator
 		
 		boolean result = false;
 		
-		if (inst instanceof SparseInstance) {
+		if (scansStoredValues(inst)) {
 			int containsCount = 0;
 			for (int i = 0; i < inst.numValues(); i++) {
 				int attIndex = inst.index(i);
+				// as in the dense case, only the positive value counts
+				if (inst.isMissingSparse(i)
+						|| (int) inst.valueSparse(i) != m_positiveIndex - 1) {
+					continue;
+				}
 				
 				if (m_mustContainOR) {
 					if (transactionsMustContainIndexes[attIndex]) {
@@ -1660,6 +1666,64 @@ public class FPGrowthTS extends AbstractAssociator
 	}
 	
 	
+	/*
+	 * Returns whether the items of a transaction can be found from its stored
+	 * values only. A sparse instance leaves out the first value of every
+	 * attribute, so if that is the positive value (-P 1) the transaction is
+	 * scanned attribute by attribute, as a dense one is.
+	 *
+	 * @param inst the transaction
+	 * @return true if only the stored values need to be scanned
+	 */
+	private boolean scansStoredValues(Instance inst) {
+		return inst instanceof SparseInstance && m_positiveIndex > 1;
+	}
+	
+	/*
+	 * Get the indexes of the unary attributes, whose only value is the one a
+	 * sparse instance leaves out.
+	 *
+	 * @param data the Instances to process
+	 * @return the indexes of the unary attributes
+	 */
+	private static int[] unaryAttributes(Instances data) {
+		int count = 0;
+		int[] unary = new int[data.numAttributes()];
+		for (int i = 0; i < data.numAttributes(); i++) {
+			if (data.attribute(i).numValues() == 1) {
+				unary[count++] = i;
+			}
+		}
+		return Arrays.copyOf(unary, count);
+	}
+	
+	/*
+	 * Collects the items of a sparse transaction, going through its stored
+	 * values only: an attribute is an item if its value is the positive value,
+	 * or, for a unary attribute, if it is not missing, as in the dense case.
+	 *
+	 * @param inst  the sparse transaction
+	 * @param unary the indexes of the unary attributes
+	 * @param items receives the indexes of the items, in ascending order
+	 *              unless there are unary attributes
+	 * @return the number of items
+	 */
+	private int sparseItems(Instance inst, int[] unary, int[] items) {
+		int numItems = 0;
+		for (int j = 0; j < inst.numValues(); j++) {
+			if (!inst.isMissingSparse(j) && inst.attributeSparse(j).numValues() > 1
+					&& inst.valueSparse(j) == m_positiveIndex - 1) {
+				items[numItems++] = inst.index(j);
+			}
+		}
+		for (int att : unary) {
+			if (!inst.isMissing(att)) {
+				items[numItems++] = att;
+			}
+		}
+		return numItems;
+	}
+	
 	/*
 	 * Get the singleton items in the data
 	 *
@@ -1674,12 +1738,14 @@ public class FPGrowthTS extends AbstractAssociator
 			singletons.add(new BinaryItem(data.attribute(i), m_positiveIndex - 1));
 		}
 		
+		int[] unary = unaryAttributes(data);
+		int[] items = new int[data.numAttributes()];
 		for (int i = 0; i < data.numInstances(); i++) {
 			Instance current = data.instance(i);
-			if (current instanceof SparseInstance) {
-				for (int j = 0; j < current.numValues(); j++) {
-					int attIndex = current.index(j);
-					singletons.get(attIndex).increaseFrequency();
+			if (scansStoredValues(current)) {
+				int numItems = sparseItems(current, unary, items);
+				for (int j = 0; j < numItems; j++) {
+					singletons.get(items[j]).increaseFrequency();
 				}
 			} else {
 				for (int j = 0; j < data.numAttributes(); j++) {
@@ -1723,16 +1789,19 @@ public class FPGrowthTS extends AbstractAssociator
 								   Instances data, int minSupport) {
 		
 		FPTreeRoot tree = new FPTreeRoot();
+		int[] unary = unaryAttributes(data);
+		int[] items = new int[data.numAttributes()];
 		
 		for (int i = 0; i < data.numInstances(); i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			Instance current = data.instance(i);
 			ArrayList<BinaryItem> transaction = new ArrayList<BinaryItem>();
-			if (current instanceof SparseInstance) {
-				for (int j = 0; j < current.numValues(); j++) {
-					int attIndex = current.index(j);
+			if (scansStoredValues(current)) {
+				int numItems = sparseItems(current, unary, items);
+				for (int j = 0; j < numItems; j++) {
+					int attIndex = items[j];
 					if (singletons.get(attIndex).getFrequency() >= minSupport) {
 						transaction.add(singletons.get(attIndex));
 					}
@@ -2614,7 +2683,7 @@ public class FPGrowthTS extends AbstractAssociator
 		// while not enough rules
 		do {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			int currentSupportAsInstances = (currentSupport > 1)
 					? (int) currentSupport
@@ -39,17 +39,25 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.LinkedList;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.evaluation.NominalPrediction;
 import weka.classifiers.evaluation.ThresholdCurve;
 import weka.classifiers.pmml.consumer.PMMLClassifier;
 import weka.classifiers.xml.XMLClassifier;
+import weka.core.BatchPredictor;
+import weka.core.CancellationToken;
 import weka.core.Drawable;
 import weka.core.FastVector;
+import weka.core.FoldView;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
@@ -391,7 +399,13 @@ public class EvaluationTS implements Summarizable, RevisionHandler {
 	 * case of de-serialized schemes
 	 */
 	private boolean m_NoPriors = false;
-	
+
+	/*
+	 * The number of folds that may be built and evaluated at the same time
+	 * during cross-validation (1 = sequential)
+	 */
+	private int m_NumExecutionSlots = 1;
+
 	//	/*
 //	 * Initializes all the counters for the evaluation. Use
 //	 * <code>useNoPriors()</code> if the dataset is the test set and you can't
@@ -536,14 +550,8 @@ public class EvaluationTS implements Summarizable, RevisionHandler {
 								   int numFolds, Random random, Object... forPredictionsPrinting)
 			throws Exception {
 
-		// Make a copy of the data we can reorder
-		
-		Runtime rt = Runtime.getRuntime();
-		long maxMemory = rt.maxMemory();
-		System.out.println("BEFORE: " + maxMemory);
-		
-		
-		data = new Instances(data);
+		// Share the rows of the data in a dataset we can reorder
+		data = FoldView.shareRows(data);
 		
 		
 		data.randomize(random);
@@ -562,6 +570,10 @@ public class EvaluationTS implements Summarizable, RevisionHandler {
 			Range attsToOutput = (Range) forPredictionsPrinting[1];
 			boolean printDist = ((Boolean) forPredictionsPrinting[2]).booleanValue();
 			printClassificationsHeader(data, attsToOutput, printDist, buff);
+		} else if (m_NumExecutionSlots > 1) {
+			crossValidateFoldsInParallel(classifier, data, numFolds, random);
+			m_NumFolds = numFolds;
+			return;
 		}
 
 		// Do the folds
@@ -570,15 +582,15 @@ public class EvaluationTS implements Summarizable, RevisionHandler {
 //---------------------------------------------------------------------------------------------------
 //			System.out.println(Thread.currentThread().isInterrupted());
 			if (Thread.currentThread().isInterrupted()) break;
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 
 
-			Instances train = data.trainCV(numFolds, i, random);
+			Instances train = FoldView.trainCV(data, numFolds, i, random).toInstances();
 			setPriors(train);
 			Classifier copiedClassifier = Classifier.makeCopy(classifier);
 			copiedClassifier.buildClassifier(train);
-			Instances test = data.testCV(numFolds, i);
+			Instances test = FoldView.testCV(data, numFolds, i).toInstances();
 			evaluateModel(copiedClassifier, test, forPredictionsPrinting);
 		}
 		m_NumFolds = numFolds;
@@ -604,6 +616,125 @@ public class EvaluationTS implements Summarizable, RevisionHandler {
 				numFolds, random);
 	}
 
+	/*
+	 * Sets the number of folds that crossValidateModel() may build and evaluate
+	 * at the same time. Each fold is trained on its own copy of the classifier
+	 * and scored into its own EvaluationTS; the fold results are then merged
+	 * back in fold order, so the statistics are identical to the sequential
+	 * run for the same Random seed.
+	 *
+	 * @param numSlots the number of worker threads (1 = sequential)
+	 */
+	public void setNumExecutionSlots(int numSlots) {
+		m_NumExecutionSlots = Math.max(1, numSlots);
+	}
+
+	/*
+	 * Gets the number of folds that may be processed at the same time.
+	 *
+	 * @return the number of worker threads
+	 */
+	public int getNumExecutionSlots() {
+		return m_NumExecutionSlots;
+	}
+
+	/*
+	 * Holds the outcome of one cross-validation fold built on a worker thread.
+	 */
+	private static class FoldResult {
+
+		private Instances m_Train;
+		private Instances m_Test;
+		private EvaluationTS m_Eval;
+		private double[] m_Predictions;
+	}
+
+	/*
+	 * Runs the folds of a cross-validation on a bounded pool of worker threads.
+	 * The training sets are drawn on the calling thread in fold order so that
+	 * the random number generator is consumed exactly as in the sequential
+	 * loop, and at most m_NumExecutionSlots folds are held in memory at once.
+	 *
+	 * @param classifier the classifier with any options set
+	 * @param data       the randomized (and stratified) data
+	 * @param numFolds   the number of folds for the cross-validation
+	 * @param random     random number generator for randomization
+	 * @throws Exception if a classifier could not be generated successfully
+	 */
+	private void crossValidateFoldsInParallel(Classifier classifier, Instances data,
+											  int numFolds, Random random) throws Exception {
+
+		final CancellationToken token = CancellationToken.current();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(m_NumExecutionSlots, numFolds));
+		LinkedList<Future<FoldResult>> pending = new LinkedList<Future<FoldResult>>();
+		try {
+			for (int i = 0; i < numFolds; i++) {
+//---------------------------------------------------------------------------------------------------
+				if (Thread.currentThread().isInterrupted()) break;
+				if (token.isCancelled()) break;
+//---------------------------------------------------------------------------------------------------
+				if (pending.size() >= m_NumExecutionSlots) {
+					mergeFold(pending.removeFirst().get());
+				}
+				final Instances train = FoldView.trainCV(data, numFolds, i, random).toInstances();
+				final Instances test = FoldView.testCV(data, numFolds, i).toInstances();
+				final Classifier copiedClassifier = Classifier.makeCopy(classifier);
+				pending.add(pool.submit(new Callable<FoldResult>() {
+					@Override
+					public FoldResult call() throws Exception {
+						CancellationToken.setCurrent(token);
+						FoldResult result = new FoldResult();
+						result.m_Train = train;
+						result.m_Test = test;
+						copiedClassifier.buildClassifier(train);
+						result.m_Eval = new EvaluationTS(train);
+						result.m_Predictions = result.m_Eval.evaluateModel(copiedClassifier, test);
+						return result;
+					}
+				}));
+			}
+			while (!pending.isEmpty() && !token.isCancelled()) {
+				mergeFold(pending.removeFirst().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/*
+	 * Replays the predictions of a finished fold into this evaluation, using
+	 * the priors of the fold's training set.
+	 *
+	 * @param fold the fold to merge
+	 * @throws Exception if the predictions cannot be evaluated
+	 */
+	private void mergeFold(FoldResult fold) throws Exception {
+
+		setPriors(fold.m_Train);
+		if (m_ClassIsNominal) {
+			FastVector preds = fold.m_Eval.predictions();
+			if (preds == null) {
+				return;
+			}
+			for (int i = 0; i < preds.size(); i++) {
+				evaluateModelOnceAndRecordPrediction(
+						((NominalPrediction) preds.elementAt(i)).distribution(),
+						fold.m_Test.instance(i));
+			}
+		} else {
+			for (int i = 0; i < fold.m_Predictions.length; i++) {
+				evaluateModelOnce(fold.m_Predictions[i], fold.m_Test.instance(i));
+			}
+		}
+	}
+
 	/*
 	 * Evaluates a classifier with the options given in an array of strings.
 	 * <p/>
@@ -1558,9 +1689,24 @@ public class EvaluationTS implements Summarizable, RevisionHandler {
 
 		// Need to be able to collect predictions if appropriate (for AUC)
 
+		CancellationToken token = CancellationToken.current();
+		
+		// score the whole set at once if the classifier can do that more quickly
+		if (buff == null && m_ClassIsNominal && classifier instanceof BatchPredictor
+				&& ((BatchPredictor) classifier).implementsMoreEfficientBatchPrediction()) {
+			double[][] dists = ((BatchPredictor) classifier).distributionsForInstances(data);
+			for (int i = 0; i < data.numInstances(); i++) {
+//---------------------------------------------------------------------------------------------------
+				if (token.isCancelled()) break;
+//---------------------------------------------------------------------------------------------------
+				predictions[i] = evaluateModelOnceAndRecordPrediction(dists[i], data.instance(i));
+			}
+			return predictions;
+		}
+		
 		for (int i = 0; i < data.numInstances(); i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (token.isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			predictions[i] =
 					evaluateModelOnceAndRecordPrediction(classifier, data.instance(i));
@@ -1639,6 +1785,34 @@ public class EvaluationTS implements Summarizable, RevisionHandler {
 		return pred;
 	}
 
+	/*
+	 * Evaluates an updateable classifier on a single instance and then trains
+	 * it on that instance (test-then-train, or prequential, evaluation). The
+	 * class priors are updated with the instance after it has been tested, so
+	 * the relative measures are against the priors seen up to that point.
+	 * Predictions are not stored, so for a nominal class the memory used does
+	 * not grow with the number of instances (the area under ROC is not
+	 * available as a result).
+	 *
+	 * @param classifier the updateable classifier
+	 * @param instance   the instance to test and then train on
+	 * @return the prediction made by the classifier before it was updated
+	 * @throws Exception if the classifier is not updateable or could not be
+	 *                   evaluated or updated
+	 */
+	public double evaluateModelOnceAndUpdate(Classifier classifier, Instance instance)
+			throws Exception {
+
+		if (!(classifier instanceof UpdateableClassifier)) {
+			throw new IllegalArgumentException("Classifier "
+					+ classifier.getClass().getName() + " is not updateable!");
+		}
+		double pred = evaluateModelOnce(classifier, instance);
+		updatePriors(instance);
+		((UpdateableClassifier) classifier).updateClassifier(instance);
+		return pred;
+	}
+
 	/*
 	 * Evaluates the supplied distribution on a single instance.
 	 *
@@ -3142,6 +3316,133 @@ public class EvaluationTS implements Summarizable, RevisionHandler {
 		m_NoPriors = true;
 	}
 
+	/*
+	 * Adds the statistics of another evaluation to this one, so that partial
+	 * evaluations of one model, e.g. on the two halves of a test set or on
+	 * different threads, can be combined without re-scoring. Both evaluations
+	 * must have been set up from the same training set, whose class priors are
+	 * kept as they are. The counts, error sums, SF entropy sums, margins and
+	 * confusion matrix are summed, the stored predictions are appended, and for
+	 * a numeric class the errors seen by the other evaluation are added to this
+	 * one's error estimator. Note that the sums are added as totals, so the
+	 * result can differ in the last bits from scoring all instances into one
+	 * evaluation.
+	 *
+	 * @param evaluation the evaluation to add to this one
+	 * @throws Exception if the evaluations are not for the same class attribute
+	 */
+	public void aggregate(EvaluationTS evaluation) throws Exception {
+		aggregate(evaluation, true);
+	}
+
+	/*
+	 * Adds the statistics of another evaluation to this one, as aggregate() does.
+	 * If sameTrainingSet is false, the evaluations are taken to come from models
+	 * trained on different shards of the data, and the class priors of the
+	 * other evaluation's training set are added to this one's, so that the
+	 * priors are those of the union of the shards. Only the statistics of
+	 * instances scored after the call use the summed priors.
+	 *
+	 * @param evaluation      the evaluation to add to this one
+	 * @param sameTrainingSet whether both evaluations were set up from the same
+	 *                        training set
+	 * @throws Exception if the evaluations are not for the same class attribute
+	 */
+	public void aggregate(EvaluationTS evaluation, boolean sameTrainingSet)
+			throws Exception {
+
+		if (m_ClassIsNominal != evaluation.m_ClassIsNominal
+				|| m_NumClasses != evaluation.m_NumClasses) {
+			throw new Exception("Evaluations are not compatible!");
+		}
+
+		m_Incorrect += evaluation.m_Incorrect;
+		m_Correct += evaluation.m_Correct;
+		m_Unclassified += evaluation.m_Unclassified;
+		m_MissingClass += evaluation.m_MissingClass;
+		m_WithClass += evaluation.m_WithClass;
+		m_TotalCost += evaluation.m_TotalCost;
+
+		m_SumErr += evaluation.m_SumErr;
+		m_SumAbsErr += evaluation.m_SumAbsErr;
+		m_SumSqrErr += evaluation.m_SumSqrErr;
+		m_SumClass += evaluation.m_SumClass;
+		m_SumSqrClass += evaluation.m_SumSqrClass;
+		m_SumPredicted += evaluation.m_SumPredicted;
+		m_SumSqrPredicted += evaluation.m_SumSqrPredicted;
+		m_SumClassPredicted += evaluation.m_SumClassPredicted;
+		m_SumPriorAbsErr += evaluation.m_SumPriorAbsErr;
+		m_SumPriorSqrErr += evaluation.m_SumPriorSqrErr;
+		m_SumKBInfo += evaluation.m_SumKBInfo;
+		m_SumPriorEntropy += evaluation.m_SumPriorEntropy;
+		m_SumSchemeEntropy += evaluation.m_SumSchemeEntropy;
+
+		for (int i = 0; i < m_MarginCounts.length; i++) {
+			m_MarginCounts[i] += evaluation.m_MarginCounts[i];
+		}
+
+		if (m_ClassIsNominal) {
+			for (int i = 0; i < m_NumClasses; i++) {
+				for (int j = 0; j < m_NumClasses; j++) {
+					m_ConfusionMatrix[i][j] += evaluation.m_ConfusionMatrix[i][j];
+				}
+			}
+			if (!sameTrainingSet) {
+				// both sets of priors start from a count of 1 per class (see setPriors)
+				for (int i = 0; i < m_NumClasses; i++) {
+					m_ClassPriors[i] += evaluation.m_ClassPriors[i] - 1;
+				}
+				m_ClassPriorsSum += evaluation.m_ClassPriorsSum - m_NumClasses;
+			}
+
+			if (evaluation.m_Predictions != null) {
+				if (m_Predictions == null) {
+					m_Predictions = new FastVector();
+				}
+				for (int i = 0; i < evaluation.m_Predictions.size(); i++) {
+					m_Predictions.addElement(evaluation.m_Predictions.elementAt(i));
+				}
+			}
+		} else {
+			KernelEstimator errors = (KernelEstimator) m_ErrorEstimator;
+			if (!sameTrainingSet) {
+				for (int i = 0; i < evaluation.m_NumTrainClassVals; i++) {
+					addNumericTrainClass(evaluation.m_TrainClassVals[i],
+							evaluation.m_TrainClassWeights[i]);
+				}
+			}
+			if (errors == null && evaluation.m_ErrorEstimator == null) {
+				// neither has scored an instance yet, so the priors are set up
+				// from the buffer on the next prediction
+				m_PriorErrorEstimator = null;
+			} else {
+				// the summed priors may change the precision of the estimators, so
+				// both are set up again from the buffer and the errors re-added
+				setNumericPriorsFromBuffer();
+				addErrors(errors);
+				addErrors((KernelEstimator) evaluation.m_ErrorEstimator);
+			}
+		}
+	}
+
+	/*
+	 * Adds the errors held by an error estimator to this evaluation's error
+	 * estimator, with the weights they were seen with.
+	 *
+	 * @param errors the estimator to add, may be null
+	 */
+	private void addErrors(KernelEstimator errors) {
+
+		if (errors == null) {
+			return;
+		}
+		double[] means = errors.getMeans();
+		double[] weights = errors.getWeights();
+		for (int i = 0; i < errors.getNumKernels(); i++) {
+			m_ErrorEstimator.addValue(means[i], weights[i]);
+		}
+	}
+
 	/*
 	 * Tests whether the current evaluation object is equal to another evaluation
 	 * object
@@ -22,9 +22,9 @@
 
 package weka.classifiers.bayes;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -251,7 +251,7 @@ public class NaiveBayesTS extends Classifier
 		Enumeration enu = m_Instances.enumerateAttributes();
 		while (enu.hasMoreElements()) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			Attribute attribute = (Attribute) enu.nextElement();
 			
@@ -286,7 +286,7 @@ public class NaiveBayesTS extends Classifier
 			
 			for (int j = 0; j < m_Instances.numClasses(); j++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				switch (attribute.type()) {
 					case Attribute.NUMERIC:
@@ -313,7 +313,7 @@ public class NaiveBayesTS extends Classifier
 		Enumeration enumInsts = m_Instances.enumerateInstances();
 		while (enumInsts.hasMoreElements()) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			Instance instance =
 					(Instance) enumInsts.nextElement();
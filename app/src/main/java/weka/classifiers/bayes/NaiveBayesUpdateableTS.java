@@ -0,0 +1,114 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+/*
+ *    NaiveBayesUpdateable.java
+ *    Copyright (C) 1999 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package weka.classifiers.bayes;
+
+import weka.classifiers.UpdateableClassifier;
+import weka.core.RevisionUtils;
+import weka.core.Utils;
+
+/*
+ * <!-- globalinfo-start -->
+ * Class for a Naive Bayes classifier using estimator classes. This is the updateable version of NaiveBayes.<br/>
+ * This classifier will use a default precision of 0.01 for numeric attributes when buildClassifier is called with zero training instances.<br/>
+ * <br/>
+ * For more information on Naive Bayes classifiers, see<br/>
+ * <br/>
+ * George H. John, Pat Langley: Estimating Continuous Distributions in Bayesian Classifiers. In: Eleventh Conference on Uncertainty in Artificial Intelligence, San Mateo, 338-345, 1995.
+ * <p/>
+ * <!-- globalinfo-end -->
+ * <p>
+ * <!-- options-start -->
+ * Valid options are: <p/>
+ *
+ * <pre> -K
+ *  Use kernel density estimator rather than normal
+ *  distribution for numeric attributes</pre>
+ *
+ * <pre> -O
+ *  Display model in old format (good when there are many classes)
+ * </pre>
+ * <p>
+ * <!-- options-end -->
+ *
+ * @author Len Trigg (trigg@cs.waikato.ac.nz)
+ * @author Eibe Frank (eibe@cs.waikato.ac.nz)
+ * @version $Revision: 5516 $
+ */
+public class NaiveBayesUpdateableTS extends NaiveBayesTS
+		implements UpdateableClassifier {
+
+	/*
+	 * for serialization
+	 */
+	static final long serialVersionUID = -5354015843807192221L;
+
+	/*
+	 * Returns a string describing this classifier
+	 *
+	 * @return a description of the classifier suitable for
+	 * displaying in the explorer/experimenter gui
+	 */
+	public String globalInfo() {
+		return "Class for a Naive Bayes classifier using estimator classes. This is the "
+				+ "updateable version of NaiveBayes.\n"
+				+ "This classifier will use a default precision of 0.01 for numeric attributes "
+				+ "when buildClassifier is called with zero training instances.\n\n"
+				+ "For more information on Naive Bayes classifiers, see\n\n"
+				+ getTechnicalInformation().toString();
+	}
+
+	/*
+	 * Parses a given list of options. Supervised discretization (-D) is
+	 * refused, because the discretization intervals are chosen from the
+	 * training data and cannot be changed as instances are added.
+	 *
+	 * @param options the list of options as an array of strings
+	 * @throws Exception if an option is not supported
+	 */
+	public void setOptions(String[] options) throws Exception {
+
+		if (Utils.getOptionPos('D', options) >= 0) {
+			throw new IllegalArgumentException("Can't use discretization " +
+					"in NaiveBayesUpdateable!");
+		}
+		super.setOptions(options);
+	}
+
+	/*
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision: 5516 $");
+	}
+
+	/*
+	 * Main method for testing this class.
+	 *
+	 * @param argv the options
+	 */
+	public static void main(String[] argv) {
+		runClassifier(new NaiveBayesUpdateableTS(), argv);
+	}
+}
@@ -21,9 +21,9 @@
  */
 package weka.classifiers.bayes.net.search;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.bayes.BayesNetTS;
 import weka.classifiers.bayes.net.ParentSet;
+import weka.core.CancellationToken;
 import weka.core.Instances;
 import weka.core.OptionHandler;
 import weka.core.RevisionHandler;
@@ -283,7 +283,7 @@ public class SearchAlgorithmTS
             // each of the other nodes
             for (int iAttribute = 0; iAttribute < instances.numAttributes(); iAttribute++) {
 //---------------------------------------------------------------------------------------------------
-                if (MainActivity.killThread == true) break;
+                if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
                 if (iAttribute != iClass) {
                     bayesNet.getParentSet(iAttribute).addParent(iClass, instances);
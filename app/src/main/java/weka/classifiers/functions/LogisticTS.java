@@ -22,8 +22,8 @@
 
 package weka.classifiers.functions;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -489,7 +489,7 @@ public class LogisticTS extends Classifier
 			
 			for (int i = 0; i < cls.length; i++) { // ith instance
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				double[] num = new double[m_NumClasses - 1]; // numerator of [-log(1+sum(exp))]'
 				int index;
@@ -623,7 +623,7 @@ public class LogisticTS extends Classifier
 		
 		for (int i = 0; i < nC; i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 
 			// initialize X[][]
@@ -655,7 +655,7 @@ public class LogisticTS extends Classifier
 		xSD[0] = 1;
 		for (int j = 1; j <= nR; j++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			xMean[j] = xMean[j] / totWeights;
 			if (totWeights > 1)
@@ -681,7 +681,7 @@ public class LogisticTS extends Classifier
 		for (int i = 0; i < nC; i++) {
 			for (int j = 0; j <= nR; j++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				if (xSD[j] != 0) {
 					m_Data[i][j] = (m_Data[i][j] - xMean[j]) / xSD[j];
@@ -704,7 +704,7 @@ public class LogisticTS extends Classifier
 			b[1][offset] = Double.NaN;
 			for (int q = 1; q <= nR; q++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				x[offset + q] = 0.0;
 				b[0][offset + q] = Double.NaN;
@@ -721,7 +721,7 @@ public class LogisticTS extends Classifier
 			x = opt.findArgmin(x, b);
 			while (x == null) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				x = opt.getVarbValues();
 				if (m_Debug)
@@ -745,7 +745,7 @@ public class LogisticTS extends Classifier
 		// Convert coefficients back to non-normalized attribute units
 		for (int i = 0; i < nK; i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			m_Par[0][i] = x[i * (nR + 1)];
 			for (int j = 1; j <= nR; j++) {
@@ -22,12 +22,12 @@
 package weka.classifiers.functions;
 
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.classifiers.functions.neural.LinearUnit;
 import weka.classifiers.functions.neural.NeuralConnection;
 import weka.classifiers.functions.neural.NeuralNode;
 import weka.classifiers.functions.neural.SigmoidUnit;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.FastVector;
 import weka.core.Instance;
@@ -2033,7 +2033,7 @@ public class MultilayerPerceptronTS
 			for (int nob = numInVal; nob < m_instances.numInstances(); nob++) {
 				m_currentInstance = m_instances.instance(nob);
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				
 				if (!m_currentInstance.classIsMissing()) {
@@ -22,11 +22,11 @@
 
 package weka.classifiers.lazy;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.classifiers.UpdateableClassifier;
 import weka.classifiers.rules.ZeroRTS;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -543,7 +543,7 @@ public class IBkTS
 		m_NumAttributesUsed = 0.0;
 		for (int i = 0; i < m_Train.numAttributes(); i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			if ((i != m_Train.classIndex()) &&
 					(m_Train.attribute(i).isNominal() ||
@@ -971,7 +971,7 @@ public class IBkTS
 			double[] origDistances, convertedDistances;
 			for (int i = 0; i < m_Train.numInstances(); i++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				if (m_Debug && (i % 50 == 0)) {
 					System.err.print("Cross validating "
@@ -983,7 +983,7 @@ public class IBkTS
 				
 				for (int j = m_kNNUpper - 1; j >= 0; j--) {
 //---------------------------------------------------------------------------------------------------
-					if (MainActivity.killThread == true) break;
+					if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 					// Update the performance stats
 					convertedDistances = new double[origDistances.length];
@@ -1011,7 +1011,7 @@ public class IBkTS
 			// Display the results of the cross-validation
 			for (int i = 0; i < m_kNNUpper; i++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				if (m_Debug) {
 					System.err.print("Hold-one-out performance of " + (i + 1)
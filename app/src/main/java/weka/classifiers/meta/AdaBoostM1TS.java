@@ -22,11 +22,11 @@
 
 package weka.classifiers.meta;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.classifiers.EvaluationTS;
 import weka.classifiers.RandomizableIteratedSingleClassifierEnhancer;
 import weka.classifiers.Sourcable;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -509,7 +509,7 @@ public class AdaBoostM1TS
 		sumProbs = training.sumOfWeights();
 		for (int i = 0; i < training.numInstances(); i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			training.instance(i).setWeight(training.instance(i).
 					weight() / sumProbs);
@@ -519,7 +519,7 @@ public class AdaBoostM1TS
 		for (m_NumIterationsPerformed = 0; m_NumIterationsPerformed < m_Classifiers.length;
 			 m_NumIterationsPerformed++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			if (m_Debug) {
 				System.err.println("Training classifier " + (m_NumIterationsPerformed + 1));
@@ -541,7 +541,7 @@ public class AdaBoostM1TS
 			}
 			do {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				sample = trainData.resampleWithWeights(randomInstance, weights);
 				
@@ -592,7 +592,7 @@ public class AdaBoostM1TS
 		Enumeration enu = training.enumerateInstances();
 		while (enu.hasMoreElements()) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			Instance instance = (Instance) enu.nextElement();
 			if (!Utils.eq(m_Classifiers[m_NumIterationsPerformed].classifyInstance(instance),
@@ -605,7 +605,7 @@ public class AdaBoostM1TS
 		enu = training.enumerateInstances();
 		while (enu.hasMoreElements()) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			Instance instance = (Instance) enu.nextElement();
 			instance.setWeight(instance.weight() * oldSumOfWeights
@@ -642,7 +642,7 @@ public class AdaBoostM1TS
 		for (m_NumIterationsPerformed = 0; m_NumIterationsPerformed < m_Classifiers.length;
 			 m_NumIterationsPerformed++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			if (m_Debug) {
 				System.err.println("Training classifier " + (m_NumIterationsPerformed + 1));
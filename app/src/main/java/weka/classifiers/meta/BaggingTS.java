@@ -23,13 +23,24 @@
 package weka.classifiers.meta;
 
 import java.util.Enumeration;
+import java.util.LinkedList;
 import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import au.com.darrenyates.datalearner.MainActivity;
 //import weka.classifiers.RandomizableIteratedSingleClassifierEnhancer;
+import weka.classifiers.Classifier;
 import weka.classifiers.RandomizableIteratedSingleClassifierEnhancer;
+import weka.classifiers.trees.FlatForest;
 import weka.core.AdditionalMeasureProducer;
+import weka.core.BatchPredictor;
+import weka.core.Bootstrap;
+import weka.core.BootstrapHandler;
+import weka.core.CancellationToken;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
@@ -155,7 +166,7 @@ import weka.core.WeightedInstancesHandler;
  */
 public class BaggingTS extends RandomizableIteratedSingleClassifierEnhancer
 		implements WeightedInstancesHandler, AdditionalMeasureProducer,
-		TechnicalInformationHandler {
+		TechnicalInformationHandler, BatchPredictor {
 	
 	/**
 	 * for serialization
@@ -177,6 +188,32 @@ public class BaggingTS extends RandomizableIteratedSingleClassifierEnhancer
 	 */
 	private double m_OutOfBagError;
 	
+	/**
+	 * The number of members that may be built at the same time
+	 */
+	private int m_NumExecutionSlots = 1;
+	
+	/**
+	 * Whether to lay the members out in flat arrays after building
+	 */
+	private boolean m_FlattenTrees = false;
+	
+	/**
+	 * The members laid out in flat arrays, or null if they are used as built
+	 */
+	private FlatForest m_Flat;
+	
+	/**
+	 * The summed out-of-bag predictions for each training instance while the
+	 * ensemble is built
+	 */
+	private transient double[][] m_OutOfBagVotes;
+	
+	/**
+	 * The number of members that left each training instance out of their bag
+	 */
+	private transient int[] m_OutOfBagCounts;
+	
 	/**
 	 * Constructor.
 	 */
@@ -247,6 +284,13 @@ public class BaggingTS extends RandomizableIteratedSingleClassifierEnhancer
 						+ "\ttraining set size. (default 100)", "P", 1, "-P"));
 		newVector.addElement(new Option("\tCalculate the out of bag error.", "O",
 				0, "-O"));
+		newVector.addElement(new Option(
+				"\tNumber of members to build at the same time.\n"
+						+ "\t(default 1 - build one after another)", "num-slots", 1,
+				"-num-slots <num>"));
+		newVector.addElement(new Option(
+				"\tLay RandomTree members out in flat arrays for faster prediction.",
+				"flat", 0, "-flat"));
 		
 		Enumeration enu = super.listOptions();
 		while (enu.hasMoreElements()) {
@@ -275,6 +319,17 @@ public class BaggingTS extends RandomizableIteratedSingleClassifierEnhancer
 	 * </pre>
 	 *
 	 * <pre>
+	 * -num-slots &lt;num&gt;
+	 *  Number of members to build at the same time.
+	 *  (default 1 - build one after another)
+	 * </pre>
+	 *
+	 * <pre>
+	 * -flat
+	 *  Lay RandomTree members out in flat arrays for faster prediction.
+	 * </pre>
+	 *
+	 * <pre>
 	 * -S &lt;num&gt;
 	 *  Random number seed.
 	 *  (default 1)
@@ -353,6 +408,15 @@ public class BaggingTS extends RandomizableIteratedSingleClassifierEnhancer
 		
 		setCalcOutOfBag(Utils.getFlag('O', options));
 		
+		String numSlots = Utils.getOption("num-slots", options);
+		if (numSlots.length() != 0) {
+			setNumExecutionSlots(Integer.parseInt(numSlots));
+		} else {
+			setNumExecutionSlots(1);
+		}
+		
+		setFlattenTrees(Utils.getFlag("flat", options));
+		
 		super.setOptions(options);
 	}
 	
@@ -365,7 +429,7 @@ public class BaggingTS extends RandomizableIteratedSingleClassifierEnhancer
 	public String[] getOptions() {
 		
 		String[] superOptions = super.getOptions();
-		String[] options = new String[superOptions.length + 3];
+		String[] options = new String[superOptions.length + 6];
 		
 		int current = 0;
 		options[current++] = "-P";
@@ -375,6 +439,13 @@ public class BaggingTS extends RandomizableIteratedSingleClassifierEnhancer
 			options[current++] = "-O";
 		}
 		
+		options[current++] = "-num-slots";
+		options[current++] = "" + getNumExecutionSlots();
+		
+		if (getFlattenTrees()) {
+			options[current++] = "-flat";
+		}
+		
 		System.arraycopy(superOptions, 0, options, current, superOptions.length);
 		
 		current += superOptions.length;
@@ -444,6 +515,70 @@ public class BaggingTS extends RandomizableIteratedSingleClassifierEnhancer
 		return m_CalcOutOfBag;
 	}
 	
+	/*
+	 * Returns the tip text for this property
+	 *
+	 * @return tip text for this property suitable for displaying in the
+	 * explorer/experimenter gui
+	 */
+	public String numExecutionSlotsTipText() {
+		return "The number of members to build at the same time (1 = one after another).";
+	}
+	
+	/*
+	 * Sets the number of members that may be built at the same time. The bags
+	 * and seeds are still drawn in member order, so the ensemble is identical
+	 * to the one built one member after another for the same seed.
+	 *
+	 * @param numSlots the number of worker threads (1 = sequential)
+	 */
+	public void setNumExecutionSlots(int numSlots) {
+		
+		m_NumExecutionSlots = Math.max(1, numSlots);
+	}
+	
+	/*
+	 * Gets the number of members that may be built at the same time.
+	 *
+	 * @return the number of worker threads
+	 */
+	public int getNumExecutionSlots() {
+		
+		return m_NumExecutionSlots;
+	}
+	
+	/*
+	 * Returns the tip text for this property
+	 *
+	 * @return tip text for this property suitable for displaying in the
+	 * explorer/experimenter gui
+	 */
+	public String flattenTreesTipText() {
+		return "Whether to lay RandomTree members out in flat arrays after building, "
+				+ "which makes prediction faster without changing it.";
+	}
+	
+	/*
+	 * Sets whether to lay the members out in flat arrays after building. Only
+	 * RandomTree members can be laid out; other members are used as built.
+	 *
+	 * @param flatten whether to lay the members out
+	 */
+	public void setFlattenTrees(boolean flatten) {
+		
+		m_FlattenTrees = flatten;
+	}
+	
+	/*
+	 * Gets whether the members are laid out in flat arrays after building.
+	 *
+	 * @return whether the members are laid out
+	 */
+	public boolean getFlattenTrees() {
+		
+		return m_FlattenTrees;
+	}
+	
 	/*
 	 * Gets the out of bag error that was calculated as the classifier was built.
 	 *
@@ -509,106 +644,255 @@ public class BaggingTS extends RandomizableIteratedSingleClassifierEnhancer
 		
 		int bagSize = (int) (data.numInstances() * (m_BagSizePercent / 100.0));
 		Random random = new Random(m_Seed);
+		m_Flat = null;
 		
-		boolean[][] inBag = null;
-		if (m_CalcOutOfBag)
-			inBag = new boolean[m_Classifiers.length][];
+		if (m_CalcOutOfBag) {
+			boolean numeric = data.classAttribute().isNumeric();
+			m_OutOfBagVotes = new double[data.numInstances()][numeric ? 1 : data.numClasses()];
+			m_OutOfBagCounts = new int[data.numInstances()];
+		}
 		
-		for (int j = 0; j < m_Classifiers.length; j++) {
+		try {
+			if (m_NumExecutionSlots > 1 && m_Classifiers.length > 1) {
+				buildMembersInParallel(data, random, bagSize);
+			} else {
+				for (int j = 0; j < m_Classifiers.length; j++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+					if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
-			Instances bagData = null;
+					Bootstrap bag = drawBag(data, random, bagSize, j);
+					
+					// build the classifier
+					buildMember(m_Classifiers[j], bag);
+					
+					// score the instances it left out of its bag
+					if (m_CalcOutOfBag) {
+						addOutOfBagVotes(outOfBagVotes(m_Classifiers[j], data, bag));
+					}
+				}
+			}
 			
-			// create the in-bag dataset
+			// calc OOB error?
 			if (m_CalcOutOfBag) {
-				inBag[j] = new boolean[data.numInstances()];
-				// bagData = resampleWithWeights(data, random, inBag[j]);
-				bagData = data.resampleWithWeights(random, inBag[j]);
+				m_OutOfBagError = outOfBagError(data);
 			} else {
-				bagData = data.resampleWithWeights(random);
-				if (bagSize < data.numInstances()) {
-					bagData.randomize(random);
-					Instances newBagData = new Instances(bagData, 0, bagSize);
-					bagData = newBagData;
-				}
+				m_OutOfBagError = 0;
 			}
 			
-			if (m_Classifier instanceof Randomizable) {
-				((Randomizable) m_Classifiers[j]).setSeed(random.nextInt());
+			if (m_FlattenTrees && !CancellationToken.current().isCancelled()) {
+				m_Flat = FlatForest.compile(m_Classifiers);
 			}
-			
-			// build the classifier
-			m_Classifiers[j].buildClassifier(bagData);
+		} finally {
+			m_OutOfBagVotes = null;
+			m_OutOfBagCounts = null;
 		}
+	}
+	
+	/*
+	 * Works out the out of bag error from the votes that were added up as the
+	 * members were built.
+	 *
+	 * @param data the training data
+	 * @return the out of bag error
+	 */
+	private double outOfBagError(Instances data) {
 		
-		// calc OOB error?
-		if (getCalcOutOfBag()) {
-			double outOfBagCount = 0.0;
-			double errorSum = 0.0;
-			boolean numeric = data.classAttribute().isNumeric();
+		double outOfBagCount = 0.0;
+		double errorSum = 0.0;
+		boolean numeric = data.classAttribute().isNumeric();
+		
+		for (int i = 0; i < data.numInstances(); i++) {
+			double vote;
+			double[] votes = m_OutOfBagVotes[i];
 			
-			for (int i = 0; i < data.numInstances(); i++) {
-//---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
-//---------------------------------------------------------------------------------------------------
-				double vote;
-				double[] votes;
-				if (numeric)
-					votes = new double[1];
-				else
-					votes = new double[data.numClasses()];
-				
-				// determine predictions for instance
-				int voteCount = 0;
-				for (int j = 0; j < m_Classifiers.length; j++) {
-					if (inBag[j][i])
-						continue;
-					
-					voteCount++;
-					// double pred = m_Classifiers[j].classifyInstance(data.instance(i));
-					if (numeric) {
-						// votes[0] += pred;
-						votes[0] += m_Classifiers[j].classifyInstance(data.instance(i));
-					} else {
-						// votes[(int) pred]++;
-						double[] newProbs = m_Classifiers[j].distributionForInstance(data
-								.instance(i));
-						// average the probability estimates
-						for (int k = 0; k < newProbs.length; k++) {
-							votes[k] += newProbs[k];
-						}
-					}
-				}
-				
-				// "vote"
-				if (numeric) {
-					vote = votes[0];
-					if (voteCount > 0) {
-						vote /= voteCount; // average
-					}
-				} else {
-					if (Utils.eq(Utils.sum(votes), 0)) {
-					} else {
-						Utils.normalize(votes);
-					}
-					vote = Utils.maxIndex(votes); // predicted class
+			// "vote"
+			if (numeric) {
+				vote = votes[0];
+				if (m_OutOfBagCounts[i] > 0) {
+					vote /= m_OutOfBagCounts[i]; // average
 				}
-				
-				// error for instance
-				outOfBagCount += data.instance(i).weight();
-				if (numeric) {
-					errorSum += StrictMath.abs(vote - data.instance(i).classValue())
-							* data.instance(i).weight();
+			} else {
+				if (Utils.eq(Utils.sum(votes), 0)) {
 				} else {
-					if (vote != data.instance(i).classValue())
-						errorSum += data.instance(i).weight();
+					Utils.normalize(votes);
 				}
+				vote = Utils.maxIndex(votes); // predicted class
 			}
 			
-			m_OutOfBagError = errorSum / outOfBagCount;
+			// error for instance
+			outOfBagCount += data.instance(i).weight();
+			if (numeric) {
+				errorSum += StrictMath.abs(vote - data.instance(i).classValue())
+						* data.instance(i).weight();
+			} else {
+				if (vote != data.instance(i).classValue())
+					errorSum += data.instance(i).weight();
+			}
+		}
+		
+		return errorSum / outOfBagCount;
+	}
+	
+	/*
+	 * Scores the instances that a member left out of its bag, straight after
+	 * the member is built.
+	 *
+	 * @param member the member
+	 * @param data   the training data
+	 * @param bag    the bag of the member
+	 * @return the prediction of the member for each instance, or null for the
+	 * instances in its bag
+	 * @throws Exception if an instance could not be scored
+	 */
+	private static double[][] outOfBagVotes(Classifier member, Instances data,
+											Bootstrap bag) throws Exception {
+		
+		boolean[] inBag = new boolean[data.numInstances()];
+		bag.markInBag(inBag);
+		boolean numeric = data.classAttribute().isNumeric();
+		double[][] votes = new double[data.numInstances()][];
+		CancellationToken token = CancellationToken.current();
+		for (int i = 0; i < data.numInstances(); i++) {
+//---------------------------------------------------------------------------------------------------
+			if (token.isCancelled()) break;
+//---------------------------------------------------------------------------------------------------
+			if (inBag[i])
+				continue;
+			if (numeric) {
+				votes[i] = new double[]{member.classifyInstance(data.instance(i))};
+			} else {
+				votes[i] = member.distributionForInstance(data.instance(i));
+			}
+		}
+		return votes;
+	}
+	
+	/*
+	 * Adds the out-of-bag scores of a member to the votes for each instance.
+	 * The members are added in order, so the sums do not depend on which
+	 * member finished first.
+	 *
+	 * @param votes the scores of the member, null for the instances in its bag
+	 */
+	private void addOutOfBagVotes(double[][] votes) {
+		
+		for (int i = 0; i < votes.length; i++) {
+			if (votes[i] == null)
+				continue;
+			m_OutOfBagCounts[i]++;
+			// average the probability estimates
+			for (int k = 0; k < votes[i].length; k++) {
+				m_OutOfBagVotes[i][k] += votes[i][k];
+			}
+		}
+	}
+	
+	/*
+	 * Draws the bag of a member and sets the member's seed, consuming the
+	 * random number generator in the same way whether the members are built
+	 * one after another or in parallel.
+	 *
+	 * @param data    the training data
+	 * @param random  the random number generator of the ensemble
+	 * @param bagSize the number of instances in a bag
+	 * @param j       the index of the member
+	 * @return the bag
+	 */
+	private Bootstrap drawBag(Instances data, Random random, int bagSize, int j) {
+		
+		// create the in-bag sample
+		Bootstrap bag = Bootstrap.resampleWithWeights(data, random);
+		if (bagSize < data.numInstances()) {
+			bag = bag.subsample(bagSize, random);
+		}
+		
+		if (m_Classifier instanceof Randomizable) {
+			((Randomizable) m_Classifiers[j]).setSeed(random.nextInt());
+		}
+		return bag;
+	}
+	
+	/*
+	 * Builds a member from its bag, as per-row counts if the member can take
+	 * them and from copies of the drawn rows otherwise.
+	 *
+	 * @param member the member to build
+	 * @param bag    the bag of the member
+	 * @throws Exception if the member could not be built
+	 */
+	private static void buildMember(Classifier member, Bootstrap bag) throws Exception {
+		
+		if (member instanceof BootstrapHandler) {
+			((BootstrapHandler) member).buildClassifier(bag);
 		} else {
-			m_OutOfBagError = 0;
+			member.buildClassifier(bag.toInstances());
+		}
+	}
+	
+	/*
+	 * Builds the members on a bounded pool of worker threads. The bags are
+	 * drawn on the calling thread in member order, and at most
+	 * m_NumExecutionSlots bags are held in memory at once. Each worker scores
+	 * the out-of-bag instances of its member, and the scores are added to the
+	 * votes in member order as the members are collected.
+	 *
+	 * @param data    the training data
+	 * @param random  the random number generator of the ensemble
+	 * @param bagSize the number of instances in a bag
+	 * @throws Exception if a member could not be built
+	 */
+	private void buildMembersInParallel(final Instances data, Random random,
+										int bagSize) throws Exception {
+		
+		final CancellationToken token = CancellationToken.current();
+		final boolean calcOutOfBag = m_CalcOutOfBag;
+		ExecutorService pool = Executors.newFixedThreadPool(
+				Math.min(m_NumExecutionSlots, m_Classifiers.length));
+		LinkedList<Future<double[][]>> pending = new LinkedList<Future<double[][]>>();
+		try {
+			for (int j = 0; j < m_Classifiers.length; j++) {
+//---------------------------------------------------------------------------------------------------
+				if (Thread.currentThread().isInterrupted()) break;
+				if (token.isCancelled()) break;
+//---------------------------------------------------------------------------------------------------
+				if (pending.size() >= m_NumExecutionSlots) {
+					collectMember(pending.removeFirst().get());
+				}
+				final Bootstrap bag = drawBag(data, random, bagSize, j);
+				final Classifier member = m_Classifiers[j];
+				pending.add(pool.submit(new Callable<double[][]>() {
+					@Override
+					public double[][] call() throws Exception {
+						CancellationToken.setCurrent(token);
+						buildMember(member, bag);
+						return calcOutOfBag ? outOfBagVotes(member, data, bag) : null;
+					}
+				}));
+			}
+			while (!pending.isEmpty()) {
+				collectMember(pending.removeFirst().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	/*
+	 * Adds the out-of-bag scores of a member built on the pool, if any.
+	 *
+	 * @param votes the scores returned by the worker, or null
+	 */
+	private void collectMember(double[][] votes) {
+		
+		if (votes != null) {
+			addOutOfBagVotes(votes);
 		}
 	}
 	
@@ -624,6 +908,10 @@ public class BaggingTS extends RandomizableIteratedSingleClassifierEnhancer
 		
 		double[] sums = new double[instance.numClasses()], newProbs;
 		
+		if (m_Flat != null) {
+			m_Flat.addDistributions(instance, sums);
+			return finishDistribution(sums);
+		}
 		for (int i = 0; i < m_NumIterations; i++) {
 			if (instance.classAttribute().isNumeric() == true) {
 				sums[0] += m_Classifiers[i].classifyInstance(instance);
@@ -636,7 +924,19 @@ public class BaggingTS extends RandomizableIteratedSingleClassifierEnhancer
 		if (instance.classAttribute().isNumeric() == true) {
 			sums[0] /= m_NumIterations;
 			return sums;
-		} else if (Utils.eq(Utils.sum(sums), 0)) {
+		}
+		return finishDistribution(sums);
+	}
+	
+	/*
+	 * Normalises the summed class distributions of the members.
+	 *
+	 * @param sums the summed distributions
+	 * @return the class distribution of the ensemble
+	 */
+	private static double[] finishDistribution(double[] sums) {
+		
+		if (Utils.eq(Utils.sum(sums), 0)) {
 			return sums;
 		} else {
 			Utils.normalize(sums);
@@ -644,6 +944,42 @@ public class BaggingTS extends RandomizableIteratedSingleClassifierEnhancer
 		}
 	}
 	
+	/*
+	 * Returns the class distributions for a set of instances. When the members
+	 * have been laid out in flat arrays, the instances are scored together on
+	 * up to numExecutionSlots threads.
+	 *
+	 * @param insts the instances to score
+	 * @return the class distribution of each instance
+	 * @throws Exception if the distributions could not be computed
+	 */
+	public double[][] distributionsForInstances(Instances insts) throws Exception {
+		
+		if (m_Flat == null) {
+			double[][] result = new double[insts.numInstances()][];
+			for (int i = 0; i < insts.numInstances(); i++) {
+				result[i] = distributionForInstance(insts.instance(i));
+			}
+			return result;
+		}
+		double[][] result = m_Flat.distributionsForInstances(insts, m_NumExecutionSlots);
+		for (int i = 0; i < result.length; i++) {
+			finishDistribution(result[i]);
+		}
+		return result;
+	}
+	
+	/*
+	 * Returns whether the members have been laid out in flat arrays, which makes
+	 * scoring a set of instances together quicker.
+	 *
+	 * @return true if distributionsForInstances() should be used
+	 */
+	public boolean implementsMoreEfficientBatchPrediction() {
+		
+		return m_Flat != null;
+	}
+	
 	/*
 	 * Returns description of the bagged classifier.
 	 *
@@ -22,12 +22,12 @@
 
 package weka.classifiers.meta;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.classifiers.EvaluationTS;
 import weka.classifiers.RandomizableIteratedSingleClassifierEnhancer;
 import weka.classifiers.Sourcable;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -747,7 +747,7 @@ public class LogitBoostTS
 		m_Classifiers = new Classifier[m_NumClasses][];
 		for (int j = 0; j < m_NumClasses; j++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			m_Classifiers[j] = Classifier.makeCopies(m_Classifier,
 					getNumIterations());
@@ -774,7 +774,7 @@ public class LogitBoostTS
 				// Perform the cross-validation
 				for (int i = 0; i < m_NumFolds; i++) {
 //---------------------------------------------------------------------------------------------------
-					if (MainActivity.killThread == true) break;
+					if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 					
 					// Get train and test folds
@@ -806,7 +806,7 @@ public class LogitBoostTS
 					double sumOfWeights = train.sumOfWeights();
 					for (int j = 0; j < getNumIterations(); j++) {
 //---------------------------------------------------------------------------------------------------
-						if (MainActivity.killThread == true) break;
+						if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 						performIteration(trainYs, trainFs, probs, trainN, sumOfWeights);
 						EvaluationTS eval = new EvaluationTS(train);
@@ -859,7 +859,7 @@ public class LogitBoostTS
 		double sumOfWeights = data.sumOfWeights();
 		for (int j = 0; j < bestNumIterations; j++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			double previousLoglikelihood = logLikelihood;
 			performIteration(trainYs, trainFs, probs, data, sumOfWeights);
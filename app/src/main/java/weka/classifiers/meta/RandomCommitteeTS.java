@@ -22,9 +22,9 @@
 
 package weka.classifiers.meta;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.classifiers.RandomizableIteratedSingleClassifierEnhancer;
+import weka.core.CancellationToken;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Randomizable;
@@ -155,7 +155,7 @@ public class RandomCommitteeTS
 		Random random = data.getRandomNumberGenerator(m_Seed);
 		for (int j = 0; j < m_Classifiers.length; j++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			
 			// Set the random number seed for the current classifier.
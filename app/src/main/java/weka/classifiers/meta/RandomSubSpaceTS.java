@@ -22,10 +22,10 @@
 
 package weka.classifiers.meta;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.filters.unsupervised.attribute.Remove;
 import weka.classifiers.Classifier;
 import weka.classifiers.RandomizableIteratedSingleClassifierEnhancer;
+import weka.core.CancellationToken;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
@@ -437,7 +437,7 @@ public class RandomSubSpaceTS
 		
 		for (int j = 0; j < m_Classifiers.length; j++) {
 			//---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			if (m_Classifier instanceof Randomizable) {
 				((Randomizable) m_Classifiers[j]).setSeed(random.nextInt());
@@ -24,9 +24,9 @@
 
 package weka.classifiers.meta;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.RandomizableIteratedSingleClassifierEnhancer;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.FastVector;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -807,7 +807,7 @@ public class RotationForestTS
 		// Construction of the base classifiers
 		for (int i = 0; i < m_Classifiers.length; i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			m_ReducedHeaders[i] = new Instances[m_Groups[i].length];
 			FastVector transformedAttributes = new FastVector(data.numAttributes());
@@ -815,7 +815,7 @@ public class RotationForestTS
 			// Construction of the dataset for each group of attributes
 			for (int j = 0; j < m_Groups[i].length; j++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 
 				FastVector fv = new FastVector(m_Groups[i][j].length + 1);
@@ -892,7 +892,7 @@ public class RotationForestTS
 			Enumeration enu = data.enumerateInstances();
 			while (enu.hasMoreElements()) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				Instance instance = (Instance) enu.nextElement();
 				Instance newInstance = convertInstance(instance, i);
@@ -904,7 +904,7 @@ public class RotationForestTS
 				((Randomizable) m_Classifiers[i]).setSeed(random.nextInt());
 			}
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == false) m_Classifiers[i].buildClassifier(transformedData);
+			if (!CancellationToken.current().isCancelled()) m_Classifiers[i].buildClassifier(transformedData);
 //---------------------------------------------------------------------------------------------------
 		}
 
@@ -21,9 +21,9 @@
 
 package weka.classifiers.rules;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.ContingencyTables;
 import weka.core.FastVector;
@@ -1379,7 +1379,7 @@ public class ConjunctiveRuleTS
 			
 			while (isContinue) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				maxInfoGain = 0;       // We require that infoGain be positive
 				
@@ -1587,7 +1587,7 @@ public class ConjunctiveRuleTS
 		/* Calculate accuracy parameters for all the antecedents in this rule */
 		for (int x = 0; x < size; x++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			Antd antd = (Antd) m_Antds.elementAt(x);
 			Instances newData = new Instances(data);
@@ -1626,7 +1626,7 @@ public class ConjunctiveRuleTS
 		/* Prune the antecedents according to the accuracy parameters */
 		for (int z = (size - 1); z > 0; z--) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			// Treatment to avoid precision problems
 			double valueDelta;
@@ -22,7 +22,6 @@
 
 package weka.classifiers.rules;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.attributeSelection.ASSearch;
 import weka.attributeSelection.BestFirst;
 import weka.attributeSelection.SubsetEvaluator;
@@ -31,6 +30,7 @@ import weka.classifiers.Classifier;
 import weka.classifiers.EvaluationTS;
 import weka.classifiers.lazy.IBkTS;
 import weka.core.AdditionalMeasureProducer;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -1108,7 +1108,7 @@ public class DecisionTableTS
 			int fc = 0;
 			for (int jj = 0; jj < m_numAttributes; jj++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				if (subset.get(jj)) {
 					fc++;
@@ -1152,7 +1152,7 @@ public class DecisionTableTS
 			Arrays.fill(m_classPriorCounts, 1.0);
 			for (int i = 0; i < data.numInstances(); i++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				Instance curr = data.instance(i);
 				m_classPriorCounts[(int) curr.classValue()] +=
@@ -1219,7 +1219,7 @@ public class DecisionTableTS
 		// insert instances into the hash table
 		for (int i = 0; i < m_numInstances; i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			Instance inst = m_dtInstances.instance(i);
 			insertIntoTable(inst, null);
@@ -21,10 +21,10 @@
 
 package weka.classifiers.rules;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.core.AdditionalMeasureProducer;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Copyable;
 import weka.core.FastVector;
@@ -1339,7 +1339,7 @@ public class JRipTS
 				/* Build one condition based on all attributes not used yet*/
 				while (enumAttr.hasMoreElements()) {
 //---------------------------------------------------------------------------------------------------
-					if (MainActivity.killThread == true) break;
+					if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 					Attribute att = (Attribute) (enumAttr.nextElement());
 					
@@ -1457,7 +1457,7 @@ public class JRipTS
 			double tn = 0.0; // True negative if useWhole
 			for (int x = 0; x < size; x++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				Antd antd = (Antd) m_Antds.elementAt(x);
 				Instances newData = data;
@@ -1607,7 +1607,7 @@ public class JRipTS
 		oneClass:
 		for (int y = 0; y < data.numClasses() - 1; y++) { // For each class
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			
 			double classIndex = (double) y;
@@ -1669,12 +1669,12 @@ public class JRipTS
 		
 		for (int z = 0; z < m_RulesetStats.size(); z++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			RuleStats oneClass = (RuleStats) m_RulesetStats.elementAt(z);
 			for (int xyz = 0; xyz < oneClass.getRulesetSize(); xyz++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				double[] classDist = oneClass.getDistributions(xyz);
 				Utils.normalize(classDist);
@@ -1745,7 +1745,7 @@ public class JRipTS
 		while ((!stop) && hasPositive) { // Generate new rules until
 			// stopping criteria met
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			RipperRule oneRule;
 			if (m_UsePruning) {
@@ -27,10 +27,10 @@ import java.util.Vector;
 import java.util.ListIterator;
 import java.util.LinkedList;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.classifiers.Sourcable;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
 import weka.core.Instance;
@@ -349,7 +349,7 @@ public class OneRTS
 		Enumeration enu = instances.enumerateAttributes();
 		while (enu.hasMoreElements()) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			try {
 				OneRRule r = newRule((Attribute) enu.nextElement(), data);
@@ -22,10 +22,10 @@
 
 package weka.classifiers.rules;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.core.AdditionalMeasureProducer;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.FastVector;
 import weka.core.Instance;
@@ -729,7 +729,7 @@ public class RidorTS
 			
 			while (isContinue) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				maxInfoGain = 0;       // We require that infoGain be positive
 				
@@ -833,7 +833,7 @@ public class RidorTS
 			/* Calculate accuracy parameters for all the antecedents in this rule */
 			for (int x = 0; x < size; x++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				Antd antd = (Antd) m_Antds.elementAt(x);
 				Attribute attr = antd.getAttr();
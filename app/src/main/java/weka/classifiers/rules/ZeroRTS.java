@@ -22,10 +22,10 @@
 
 package weka.classifiers.rules;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.classifiers.Sourcable;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -151,7 +151,7 @@ public class ZeroRTS
 		Enumeration enu = instances.enumerateInstances();
 		while (enu.hasMoreElements()) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			Instance instance = (Instance) enu.nextElement();
 			if (!instance.classIsMissing()) {
@@ -22,8 +22,8 @@
 
 package weka.classifiers.rules.part;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.trees.j48.ModelSelection;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.CapabilitiesHandler;
 import weka.core.Instance;
@@ -187,7 +187,7 @@ public class MakeDecListTS
 		
 		while (Utils.gr(oldGrowData.numInstances(), 0)) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			
 			// Create rule
@@ -213,7 +213,7 @@ public class MakeDecListTS
 			Enumeration enu = oldGrowData.enumerateInstances();
 			while (enu.hasMoreElements()) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				Instance instance = (Instance) enu.nextElement();
 				currentWeight = currentRule.weight(instance);
@@ -232,7 +232,7 @@ public class MakeDecListTS
 				enu = oldPruneData.enumerateInstances();
 				while (enu.hasMoreElements()) {
 //---------------------------------------------------------------------------------------------------
-					if (MainActivity.killThread == true) break;
+					if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 					Instance instance = (Instance) enu.nextElement();
 					currentWeight = currentRule.weight(instance);
@@ -22,11 +22,11 @@
 
 package weka.classifiers.trees;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.EvaluationTS;
 import weka.classifiers.RandomizableClassifier;
 import weka.core.AdditionalMeasureProducer;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.FastVector;
 import weka.core.Instance;
@@ -431,7 +431,7 @@ public class BFTreeTS
 		
 		for (int i = 0; i < m_numFoldsPruning; i++) {
 //---------------------------------------------------------------------------------------------------
-//			if (MainActivity.killThread == true) break;
+//			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			train[i] = cvData.trainCV(m_numFoldsPruning, i);
 			test[i] = cvData.testCV(m_numFoldsPruning, i);
@@ -489,7 +489,7 @@ public class BFTreeTS
 			FastVector errorList = new FastVector();
 			while (true) {
 //---------------------------------------------------------------------------------------------------
-//				if (MainActivity.killThread == true) break;
+//				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				// compute average error
 				double expansionError = 0;
@@ -497,7 +497,7 @@ public class BFTreeTS
 				
 				for (int i = 0; i < m_numFoldsPruning; i++) {
 //---------------------------------------------------------------------------------------------------
-//					if (MainActivity.killThread == true) break;
+//					if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 					EvaluationTS eval;
 					
@@ -583,7 +583,7 @@ public class BFTreeTS
 			// calculate error of each expansion for each fold
 			for (int i = 0; i < m_numFoldsPruning; i++) {
 //---------------------------------------------------------------------------------------------------
-//				if (MainActivity.killThread == true) break;
+//				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				modelError[i] = new FastVector();
 				
@@ -620,7 +620,7 @@ public class BFTreeTS
 			int[] counts = new int[maxExpansion];
 			for (int i = 0; i < maxExpansion; i++) {
 //---------------------------------------------------------------------------------------------------
-//				if (MainActivity.killThread == true) break;
+//				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				counts[i] = 0;
 				error[i] = 0;
@@ -766,7 +766,7 @@ public class BFTreeTS
 				FastVector nextSplitElement = (FastVector) BestFirstElements.elementAt(0);
 				BFTreeTS nextSplitNode = (BFTreeTS) nextSplitElement.elementAt(0);
 //---------------------------------------------------------------------------------------------------
-//				if (MainActivity.killThread == true) {
+//				if (CancellationToken.current().isCancelled()) {
 //---------------------------------------------------------------------------------------------------
 					nextSplitNode.makeTree(BestFirstElements, data,
 							nextSplitNode.m_SortedIndices, nextSplitNode.m_Weights,
@@ -836,7 +836,7 @@ public class BFTreeTS
 				FastVector nextSplitElement = (FastVector) BestFirstElements.elementAt(0);
 				BFTreeTS nextSplitNode = (BFTreeTS) nextSplitElement.elementAt(0);
 //---------------------------------------------------------------------------------------------------
-//				if (MainActivity.killThread == true) {
+//				if (CancellationToken.current().isCancelled()) {
 //---------------------------------------------------------------------------------------------------
 					nextSplitNode.makeTree(BestFirstElements, data,
 							nextSplitNode.m_SortedIndices, nextSplitNode.m_Weights,
@@ -1053,7 +1053,7 @@ public class BFTreeTS
 			BFTreeTS nextSplitNode = (BFTreeTS)
 					((FastVector) BestFirstElements.elementAt(0)).elementAt(0);
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == false) {
+			if (!CancellationToken.current().isCancelled()) {
 //---------------------------------------------------------------------------------------------------
 				nextSplitNode.makeTree(BestFirstElements, root, train, test, modelError,
 						nextSplitNode.m_SortedIndices, nextSplitNode.m_Weights,
@@ -1113,7 +1113,7 @@ public class BFTreeTS
 
 					EvaluationTS eval = new EvaluationTS(test);
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == false) {
+				if (!CancellationToken.current().isCancelled()) {
 //---------------------------------------------------------------------------------------------------
 					eval.evaluateModel(root, test);
 				}
@@ -1127,7 +1127,7 @@ public class BFTreeTS
 				FastVector nextSplitElement = (FastVector) BestFirstElements.elementAt(0);
 				BFTreeTS nextSplitNode = (BFTreeTS) nextSplitElement.elementAt(0);
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == false) {
+				if (!CancellationToken.current().isCancelled()) {
 //---------------------------------------------------------------------------------------------------
 					nextSplitNode.makeTree(BestFirstElements, root, train, test, modelError,
 							nextSplitNode.m_SortedIndices, nextSplitNode.m_Weights,
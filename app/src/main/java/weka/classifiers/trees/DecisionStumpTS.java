@@ -22,10 +22,10 @@
 
 package weka.classifiers.trees;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.classifiers.Sourcable;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.ContingencyTables;
 import weka.core.Instance;
@@ -174,7 +174,7 @@ public class DecisionStumpTS
 		boolean first = true;
 		for (int i = 0; i < m_Instances.numAttributes(); i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			if (i != m_Instances.classIndex()) {
 				
@@ -439,7 +439,7 @@ public class DecisionStumpTS
 		// Compute counts for all the values
 		for (int i = 0; i < m_Instances.numInstances(); i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			Instance inst = m_Instances.instance(i);
 			if (inst.isMissing(index)) {
@@ -511,7 +511,7 @@ public class DecisionStumpTS
 		// Compute counts for all the values
 		for (int i = 0; i < m_Instances.numInstances(); i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			Instance inst = m_Instances.instance(i);
 			if (inst.isMissing(index)) {
@@ -545,7 +545,7 @@ public class DecisionStumpTS
 		// Make split counts for each possible split and evaluate
 		for (int i = 0; i < m_Instances.attribute(index).numValues(); i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			
 			m_Distribution[0][0] = sumsPerValue[i];
@@ -0,0 +1,368 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * FlatForest.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.classifiers.trees;
+
+import java.io.Serializable;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import weka.classifiers.Classifier;
+import weka.core.CancellationToken;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * The trees of an ensemble of RandomTreeTS models laid out in flat arrays, so
+ * that an instance is scored by a loop over array positions rather than by a
+ * recursive distributionForInstance() call on node objects. The children of a
+ * node are stored next to each other, and the normalised class distribution of
+ * every node is worked out once when the trees are laid out.
+ * <p/>
+ * Scoring allocates nothing unless an instance is missing the value of a split
+ * attribute, and gives the same distributions as the node objects.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class FlatForest implements Serializable {
+
+	/**
+	 * for serialization
+	 */
+	private static final long serialVersionUID = -3092617446257904138L;
+
+	/**
+	 * the position of the first node of each tree
+	 */
+	private int[] m_Roots;
+
+	/**
+	 * the attribute each node splits on, or -1 for a leaf
+	 */
+	private int[] m_Attribute;
+
+	/**
+	 * whether each attribute of the data is nominal
+	 */
+	private boolean[] m_Nominal;
+
+	/**
+	 * the split point of each node on a numeric attribute
+	 */
+	private double[] m_SplitPoint;
+
+	/**
+	 * the position of the first child of each node
+	 */
+	private int[] m_FirstChild;
+
+	/**
+	 * the number of children of each node
+	 */
+	private int[] m_NumChildren;
+
+	/**
+	 * the proportion of the parent's training instances that went down to each
+	 * node, used for instances missing the parent's split value
+	 */
+	private double[] m_Prop;
+
+	/**
+	 * the offset of each node's distribution in m_Distributions, or -1 if the
+	 * node has none
+	 */
+	private int[] m_Dist;
+
+	/**
+	 * the normalised class distributions of the nodes, one after another
+	 */
+	private double[] m_Distributions;
+
+	/**
+	 * the number of class values
+	 */
+	private int m_NumClasses;
+
+	private FlatForest() {
+	}
+
+	/**
+	 * Lays out the trees of the given ensemble members. Returns null if a
+	 * member is not a RandomTreeTS with a tree, or if a node's distribution
+	 * can't be normalised, in which case the members must be used as they are.
+	 *
+	 * @param members the built members of the ensemble
+	 * @return the flat trees, or null
+	 */
+	public static FlatForest compile(Classifier[] members) {
+		if (members.length == 0) {
+			return null;
+		}
+		RandomTreeTS.Tree[] trees = new RandomTreeTS.Tree[members.length];
+		int numNodes = 0;
+		int numDists = 0;
+		Instances header = null;
+		for (int i = 0; i < members.length; i++) {
+			if (!(members[i] instanceof RandomTreeTS)) {
+				return null;
+			}
+			RandomTreeTS member = (RandomTreeTS) members[i];
+			trees[i] = member.getTree();
+			if (trees[i] == null || member.getAllowUnclassifiedInstances()) {
+				return null;
+			}
+			if (header == null) {
+				header = member.getHeader();
+			}
+			LinkedList<RandomTreeTS.Tree> queue = new LinkedList<RandomTreeTS.Tree>();
+			queue.add(trees[i]);
+			while (!queue.isEmpty()) {
+				RandomTreeTS.Tree node = queue.removeFirst();
+				numNodes++;
+				if (node.m_ClassDistribution != null) {
+					if (Utils.eq(Utils.sum(node.m_ClassDistribution), 0)) {
+						return null;
+					}
+					numDists++;
+				}
+				if (node.m_Attribute > -1) {
+					for (int k = 0; k < node.m_Successors.length; k++) {
+						queue.add(node.m_Successors[k]);
+					}
+				}
+			}
+		}
+
+		FlatForest result = new FlatForest();
+		result.m_NumClasses = header.numClasses();
+		result.m_Nominal = new boolean[header.numAttributes()];
+		for (int i = 0; i < header.numAttributes(); i++) {
+			result.m_Nominal[i] = header.attribute(i).isNominal();
+		}
+		result.m_Roots = new int[trees.length];
+		result.m_Attribute = new int[numNodes];
+		result.m_SplitPoint = new double[numNodes];
+		result.m_FirstChild = new int[numNodes];
+		result.m_NumChildren = new int[numNodes];
+		result.m_Prop = new double[numNodes];
+		result.m_Dist = new int[numNodes];
+		result.m_Distributions = new double[numDists * result.m_NumClasses];
+
+		// breadth first, so that the children of a node are next to each other
+		int next = 0;
+		int dist = 0;
+		for (int i = 0; i < trees.length; i++) {
+			LinkedList<RandomTreeTS.Tree> queue = new LinkedList<RandomTreeTS.Tree>();
+			queue.add(trees[i]);
+			result.m_Roots[i] = next;
+			int free = next + 1;
+			while (!queue.isEmpty()) {
+				RandomTreeTS.Tree node = queue.removeFirst();
+				int pos = next++;
+				result.m_Attribute[pos] = node.m_Attribute;
+				result.m_SplitPoint[pos] = node.m_SplitPoint;
+				if (node.m_ClassDistribution != null) {
+					double[] normalized = node.m_ClassDistribution.clone();
+					Utils.normalize(normalized);
+					System.arraycopy(normalized, 0, result.m_Distributions, dist, normalized.length);
+					result.m_Dist[pos] = dist;
+					dist += result.m_NumClasses;
+				} else {
+					result.m_Dist[pos] = -1;
+				}
+				if (node.m_Attribute > -1) {
+					result.m_FirstChild[pos] = free;
+					result.m_NumChildren[pos] = node.m_Successors.length;
+					for (int k = 0; k < node.m_Successors.length; k++) {
+						if (node.m_Prop != null) {
+							result.m_Prop[free + k] = node.m_Prop[k];
+						}
+						queue.add(node.m_Successors[k]);
+					}
+					free += node.m_Successors.length;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of class values the trees predict.
+	 *
+	 * @return the number of class values
+	 */
+	public int numClasses() {
+		return m_NumClasses;
+	}
+
+	/**
+	 * Adds the class distribution that each tree gives the instance to the
+	 * given sums, in the order of the trees.
+	 *
+	 * @param instance the instance to score
+	 * @param sums     the sums to add to
+	 */
+	public void addDistributions(Instance instance, double[] sums) {
+		for (int t = 0; t < m_Roots.length; t++) {
+			int found = walk(m_Roots[t], instance);
+			if (found >= 0) {
+				int offset = m_Dist[found];
+				for (int j = 0; j < m_NumClasses; j++) {
+					sums[j] += m_Distributions[offset + j];
+				}
+			} else if (found < -1) {
+				double[] help = missingDistribution(-2 - found, instance);
+				for (int j = 0; j < m_NumClasses; j++) {
+					sums[j] += help[j];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the summed class distributions of the trees for each instance,
+	 * scoring the instances on up to numThreads threads.
+	 *
+	 * @param data       the instances to score
+	 * @param numThreads the number of threads to use
+	 * @return the summed distributions, one row per instance
+	 * @throws Exception if scoring is interrupted
+	 */
+	public double[][] distributionsForInstances(final Instances data, int numThreads)
+			throws Exception {
+		final double[][] result = new double[data.numInstances()][m_NumClasses];
+		int numChunks = Math.max(1, Math.min(numThreads, data.numInstances()));
+		if (numChunks == 1) {
+			addDistributions(data, result, 0, data.numInstances());
+			return result;
+		}
+
+		final CancellationToken token = CancellationToken.current();
+		ExecutorService pool = Executors.newFixedThreadPool(numChunks);
+		LinkedList<Future<?>> pending = new LinkedList<Future<?>>();
+		try {
+			for (int c = 0; c < numChunks; c++) {
+				final int from = (int) ((long) data.numInstances() * c / numChunks);
+				final int to = (int) ((long) data.numInstances() * (c + 1) / numChunks);
+				pending.add(pool.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						CancellationToken.setCurrent(token);
+						addDistributions(data, result, from, to);
+						return null;
+					}
+				}));
+			}
+			while (!pending.isEmpty()) {
+				pending.removeFirst().get();
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		} finally {
+			pool.shutdownNow();
+		}
+		return result;
+	}
+
+	private void addDistributions(Instances data, double[][] result, int from, int to) {
+		CancellationToken token = CancellationToken.current();
+		for (int i = from; i < to; i++) {
+//---------------------------------------------------------------------------------------------------
+			if (token.isCancelled()) break;
+//---------------------------------------------------------------------------------------------------
+			addDistributions(data.instance(i), result[i]);
+		}
+	}
+
+	/**
+	 * Follows the instance down from a node. As with the node objects, the
+	 * result is the deepest node on the path that has a distribution, unless
+	 * the instance is missing a split value on the way.
+	 *
+	 * @param node     the node to start from
+	 * @param instance the instance
+	 * @return the node whose distribution is the result, -1 if there is none,
+	 * or -2 - node for the node whose split value is missing
+	 */
+	private int walk(int node, Instance instance) {
+		int found = -1;
+		while (true) {
+			if (m_Dist[node] >= 0) {
+				found = node;
+			}
+			int att = m_Attribute[node];
+			if (att < 0) {
+				return found;
+			}
+			if (instance.isMissing(att)) {
+				return -2 - node;
+			}
+			double value = instance.value(att);
+			if (m_Nominal[att]) {
+				node = m_FirstChild[node] + (int) value;
+			} else {
+				node = m_FirstChild[node] + (value < m_SplitPoint[node] ? 0 : 1);
+			}
+		}
+	}
+
+	/**
+	 * Returns the distribution below a node, or null if there is none.
+	 */
+	private double[] distribution(int node, Instance instance) {
+		int found = walk(node, instance);
+		if (found >= 0) {
+			double[] result = new double[m_NumClasses];
+			System.arraycopy(m_Distributions, m_Dist[found], result, 0, m_NumClasses);
+			return result;
+		} else if (found < -1) {
+			return missingDistribution(-2 - found, instance);
+		}
+		return null;
+	}
+
+	/**
+	 * Splits an instance that is missing the split value of a node across the
+	 * node's children, weighted by the proportions of the training instances.
+	 */
+	private double[] missingDistribution(int node, Instance instance) {
+		double[] result = new double[m_NumClasses];
+		for (int c = m_FirstChild[node]; c < m_FirstChild[node] + m_NumChildren[node]; c++) {
+			double[] help = distribution(c, instance);
+			if (help != null) {
+				for (int j = 0; j < m_NumClasses; j++) {
+					result[j] += m_Prop[c] * help[j];
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -27,13 +27,15 @@ import java.util.Random;
 import java.util.Vector;
 //import weka.classifiers.AbstractClassifier;
 //import static weka.classifiers.AbstractClassifier.runClassifier;
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.EvaluationTS;
 import weka.classifiers.RandomizableClassifier;
 import weka.core.AdditionalMeasureProducer;
 import weka.core.Attribute;
+import weka.core.Bootstrap;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
+import weka.core.FoldView;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
@@ -271,16 +273,24 @@ public class ForestPA extends RandomizableClassifier implements OptionHandler,
 		}
 
 		trees = new SimpleCartPA[numberOfTrees];
+		
+		// the drawn copies would all have a weight of one, so with unit weights
+		// the bags can hold the rows of the dataset instead of copies
+		boolean unitWeights = true;
+		for (int i = 0; i < dataSet.numInstances() && unitWeights; i++) {
+			unitWeights = dataSet.instance(i).weight() == 1;
+		}
 //        trees = new SimpleCart[numberOfTrees];
 
 		for (int i = 0; i < numberOfTrees; i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
             /* STEP 1
                 GENERATE BOOTSTRAP SAMPLE
             */
-			Instances baggedDS = dataSet.resampleWithWeights(randomNum);
+			Bootstrap bag = Bootstrap.resampleWithWeights(dataSet, randomNum);
+			Instances baggedDS = unitWeights ? bag.shareRows() : bag.toInstances();
             
             /* STEP 2
                 GENERATE DECISION TREE
@@ -303,7 +313,7 @@ public class ForestPA extends RandomizableClassifier implements OptionHandler,
 
 				for (int k = 0; k < treeArray.length; k++) {
 //---------------------------------------------------------------------------------------------------
-					if (MainActivity.killThread == true) break;
+					if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 
 					if (treeArray[k].contains(thisAttrName)) {
@@ -332,7 +342,7 @@ public class ForestPA extends RandomizableClassifier implements OptionHandler,
             */
 			for (int j = 0; j < weightSet.length; j++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 
 				if (appearanceLevels[j] > 0) {
@@ -349,7 +359,7 @@ public class ForestPA extends RandomizableClassifier implements OptionHandler,
             */
 			for (int j = 0; j < weightSet.length; j++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				if (appearanceLevels[j] == 0 && weightSet[j] < 1.0) {
 					weightSet[j] = weightSet[j] + weightIncrements[j];
@@ -817,7 +827,8 @@ public class ForestPA extends RandomizableClassifier implements OptionHandler,
 		public void buildClassifier(Instances data) throws Exception {
 
 			getCapabilities().testWithFail(data);
-			data = new Instances(data);
+			// the rows are only read, so the bag's rows are shared rather than copied
+			data = FoldView.shareRows(data);
 			data.deleteWithMissingClass();
 
 			// unpruned CART decision tree
@@ -1041,7 +1052,7 @@ public class ForestPA extends RandomizableClassifier implements OptionHandler,
 				m_Successors = new SimpleCartPA[2];
 				for (int i = 0; i < 2; i++) {
 //---------------------------------------------------------------------------------------------------
-					if (MainActivity.killThread == true) break;
+					if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 					m_Successors[i] = new SimpleCartPA();
 					m_Successors[i].makeTree(data, m_totalTrainInstances, subsetIndices[i],
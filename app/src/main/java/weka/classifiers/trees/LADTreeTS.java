@@ -22,8 +22,8 @@
 
 package weka.classifiers.trees;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.*;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
 import weka.core.*;
@@ -642,7 +642,7 @@ public class LADTreeTS
 		// create the new nodes for the tree, updating the weights
 		for (int i = 0; i < m_search_bestSplitter.getNumOfBranches(); i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			Instances applicableInstances =
 					m_search_bestSplitter.instancesDownBranch(i, m_search_bestPathInstances);
@@ -1477,7 +1477,7 @@ public class LADTreeTS
 		// build the tree
 		for (int T = 0; T < m_boostingIterations; T++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			boost();
 		}
@@ -22,12 +22,12 @@
 
 package weka.classifiers.trees;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.classifiers.Sourcable;
 import weka.classifiers.rules.ZeroR;
 import weka.core.AdditionalMeasureProducer;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.ContingencyTables;
 import weka.core.Drawable;
@@ -699,7 +699,7 @@ public class REPTreeTS
 				m_Successors = new Tree[numAttVals];
 				for (int i = 0; i < numAttVals; i++) {
 //---------------------------------------------------------------------------------------------------
-					if (MainActivity.killThread == true) break;
+					if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 					
 					m_Successors[i] = new Tree();
@@ -28,6 +28,7 @@ import java.util.Vector;
 import weka.classifiers.Classifier;
 import weka.classifiers.meta.BaggingTS;
 import weka.core.AdditionalMeasureProducer;
+import weka.core.BatchPredictor;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -108,7 +109,7 @@ import weka.core.WeightedInstancesHandler;
  */
 public class RandomForestTS extends Classifier implements OptionHandler,
 		Randomizable, WeightedInstancesHandler, AdditionalMeasureProducer,
-		TechnicalInformationHandler {
+		TechnicalInformationHandler, BatchPredictor {
 	
 	/* for serialization */
 	private static final long serialVersionUID = -2260823972777004705L;
@@ -134,6 +135,15 @@ public class RandomForestTS extends Classifier implements OptionHandler,
 	/* The maximum depth of the trees (0 = unlimited) */
 	private int m_MaxDepth = 0;
 	
+	/* The number of trees to build at the same time (1 = sequential) */
+	private int m_numExecutionSlots = 1;
+	
+	/* Whether to skip the out of bag error, e.g. when the forest is cross-validated */
+	private boolean m_dontCalculateOutOfBag = false;
+	
+	/* Whether to lay the trees out in flat arrays after building */
+	private boolean m_flattenTrees = false;
+	
 	/*
 	 * Returns a string describing classifier
 	 *
@@ -287,6 +297,99 @@ public class RandomForestTS extends Classifier implements OptionHandler,
 		m_MaxDepth = value;
 	}
 	
+	/*
+	 * Returns the tip text for this property
+	 *
+	 * @return tip text for this property suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String numExecutionSlotsTipText() {
+		return "The number of trees to build at the same time (1 = one after another).";
+	}
+	
+	/*
+	 * Set the number of trees to build at the same time. The forest is the same
+	 * as the one built sequentially with the same seed.
+	 *
+	 * @param numSlots the number of worker threads
+	 */
+	public void setNumExecutionSlots(int numSlots) {
+		
+		m_numExecutionSlots = Math.max(1, numSlots);
+	}
+	
+	/*
+	 * Get the number of trees to build at the same time.
+	 *
+	 * @return the number of worker threads
+	 */
+	public int getNumExecutionSlots() {
+		
+		return m_numExecutionSlots;
+	}
+	
+	/*
+	 * Returns the tip text for this property
+	 *
+	 * @return tip text for this property suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String dontCalculateOutOfBagErrorTipText() {
+		return "If true, then the out of bag error is not computed";
+	}
+	
+	/*
+	 * Set whether to skip the out of bag error. Scoring every tree's out of bag
+	 * instances is wasted work when the forest is evaluated in another way.
+	 *
+	 * @param b whether not to calculate the out of bag error
+	 */
+	public void setDontCalculateOutOfBagError(boolean b) {
+		
+		m_dontCalculateOutOfBag = b;
+	}
+	
+	/*
+	 * Get whether the out of bag error is skipped.
+	 *
+	 * @return whether the out of bag error is not calculated
+	 */
+	public boolean getDontCalculateOutOfBagError() {
+		
+		return m_dontCalculateOutOfBag;
+	}
+	
+	/*
+	 * Returns the tip text for this property
+	 *
+	 * @return tip text for this property suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String flattenTreesTipText() {
+		return "Whether to lay the trees out in flat arrays after building, "
+				+ "which makes prediction faster without changing it.";
+	}
+	
+	/*
+	 * Set whether to lay the trees out in flat arrays after building.
+	 *
+	 * @param flatten whether to lay the trees out
+	 */
+	public void setFlattenTrees(boolean flatten) {
+		
+		m_flattenTrees = flatten;
+	}
+	
+	/*
+	 * Get whether the trees are laid out in flat arrays after building.
+	 *
+	 * @return whether the trees are laid out
+	 */
+	public boolean getFlattenTrees() {
+		
+		return m_flattenTrees;
+	}
+	
 	/*
 	 * Gets the out of bag error that was calculated as the classifier was built.
 	 *
@@ -294,7 +397,7 @@ public class RandomForestTS extends Classifier implements OptionHandler,
 	 */
 	private double measureOutOfBagError() {
 		
-		if (m_bagger != null) {
+		if (m_bagger != null && !m_dontCalculateOutOfBag) {
 			return m_bagger.measureOutOfBagError();
 		} else
 			return Double.NaN;
@@ -353,6 +456,16 @@ public class RandomForestTS extends Classifier implements OptionHandler,
 				"\tThe maximum depth of the trees, 0 for unlimited.\n"
 						+ "\t(default 0)", "depth", 1, "-depth <num>"));
 		
+		newVector.addElement(new Option(
+				"\tNumber of trees to build at the same time.\n"
+						+ "\t(default 1)", "num-slots", 1, "-num-slots <num>"));
+		
+		newVector.addElement(new Option(
+				"\tDon't calculate the out of bag error.", "O", 0, "-O"));
+		
+		newVector.addElement(new Option(
+				"\tLay the trees out in flat arrays for faster prediction.", "flat", 0, "-flat"));
+		
 		Enumeration enu = super.listOptions();
 		while (enu.hasMoreElements()) {
 			newVector.addElement(enu.nextElement());
@@ -388,6 +501,19 @@ public class RandomForestTS extends Classifier implements OptionHandler,
 			result.add("" + getMaxDepth());
 		}
 		
+		if (getNumExecutionSlots() > 1) {
+			result.add("-num-slots");
+			result.add("" + getNumExecutionSlots());
+		}
+		
+		if (getDontCalculateOutOfBagError()) {
+			result.add("-O");
+		}
+		
+		if (getFlattenTrees()) {
+			result.add("-flat");
+		}
+		
 		options = super.getOptions();
 		for (i = 0; i < options.length; i++)
 			result.add(options[i]);
@@ -426,6 +552,22 @@ public class RandomForestTS extends Classifier implements OptionHandler,
 	 * </pre>
 	 *
 	 * <pre>
+	 * -num-slots &lt;num&gt;
+	 *  Number of trees to build at the same time.
+	 *  (default 1)
+	 * </pre>
+	 *
+	 * <pre>
+	 * -O
+	 *  Don't calculate the out of bag error.
+	 * </pre>
+	 *
+	 * <pre>
+	 * -flat
+	 *  Lay the trees out in flat arrays for faster prediction.
+	 * </pre>
+	 *
+	 * <pre>
 	 * -D
 	 *  If set, classifier is run in debug mode and
 	 *  may output additional info to the console
@@ -468,6 +610,17 @@ public class RandomForestTS extends Classifier implements OptionHandler,
 			setMaxDepth(0);
 		}
 		
+		tmpStr = Utils.getOption("num-slots", options);
+		if (tmpStr.length() != 0) {
+			setNumExecutionSlots(Integer.parseInt(tmpStr));
+		} else {
+			setNumExecutionSlots(1);
+		}
+		
+		setDontCalculateOutOfBagError(Utils.getFlag('O', options));
+		
+		setFlattenTrees(Utils.getFlag("flat", options));
+		
 		super.setOptions(options);
 		
 		Utils.checkForRemainingOptions(options);
@@ -513,7 +666,9 @@ public class RandomForestTS extends Classifier implements OptionHandler,
 		m_bagger.setClassifier(rTree);
 		m_bagger.setSeed(m_randomSeed);
 		m_bagger.setNumIterations(m_numTrees);
-		m_bagger.setCalcOutOfBag(true);
+		m_bagger.setCalcOutOfBag(!m_dontCalculateOutOfBag);
+		m_bagger.setNumExecutionSlots(m_numExecutionSlots);
+		m_bagger.setFlattenTrees(m_flattenTrees);
 		m_bagger.buildClassifier(data);
 	}
 	
@@ -530,6 +685,28 @@ public class RandomForestTS extends Classifier implements OptionHandler,
 		return m_bagger.distributionForInstance(instance);
 	}
 	
+	/*
+	 * Returns the class probability distributions for a set of instances.
+	 *
+	 * @param insts the instances to be classified
+	 * @return the distribution the forest generates for each instance
+	 * @throws Exception if computation fails
+	 */
+	public double[][] distributionsForInstances(Instances insts) throws Exception {
+		
+		return m_bagger.distributionsForInstances(insts);
+	}
+	
+	/*
+	 * Returns whether the trees have been laid out in flat arrays.
+	 *
+	 * @return true if distributionsForInstances() should be used
+	 */
+	public boolean implementsMoreEfficientBatchPrediction() {
+		
+		return m_bagger != null && m_bagger.implementsMoreEfficientBatchPrediction();
+	}
+	
 	/*
 	 * Outputs a description of this classifier.
 	 *
@@ -560,9 +737,9 @@ public class RandomForestTS extends Classifier implements OptionHandler,
 					+ " random feature"
 					+ (m_KValue == 1 ? "" : "s")
 					+ ".\n"
-					+ "Out of bag error: "
+					+ (m_dontCalculateOutOfBag ? "" : "Out of bag error: "
 					+ Utils.doubleToString(m_bagger.measureOutOfBagError(), 4)
-					+ "\n"
+					+ "\n")
 					+ (getMaxDepth() > 0 ? ("Max. depth of trees: " + getMaxDepth() + "\n")
 					: ("")) + "\n";
 			retStr += m_bagger.toString();
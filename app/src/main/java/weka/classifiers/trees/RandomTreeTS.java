@@ -28,9 +28,11 @@ import java.util.Queue;
 import java.util.Random;
 import java.util.Vector;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.core.Attribute;
+import weka.core.Bootstrap;
+import weka.core.BootstrapHandler;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
 import weka.core.ContingencyTables;
@@ -103,7 +105,7 @@ import weka.core.WeightedInstancesHandler;
  * @version $Revision: 10993 $
  */
 public class RandomTreeTS extends Classifier implements OptionHandler,
-		WeightedInstancesHandler, Randomizable, Drawable {
+		WeightedInstancesHandler, BootstrapHandler, Randomizable, Drawable {
 	
 	/*
 	 * for serialization
@@ -155,6 +157,18 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 	 */
 	private Classifier m_zeroR;
 	
+	/**
+	 * The weights of the training instances while the tree is built. An
+	 * instance with a missing value for a split is sent down every branch,
+	 * with its weight scaled for the branch being built.
+	 */
+	private transient double[] m_Weights;
+	
+	/**
+	 * The branch each training instance goes down at the node being split.
+	 */
+	private transient int[] m_Branch;
+	
 	/*
 	 * Returns a string describing classifier
 	 *
@@ -324,11 +338,31 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 	 *
 	 * @return Value of NumFolds.
 	 */
-	private boolean getAllowUnclassifiedInstances() {
+	boolean getAllowUnclassifiedInstances() {
 		
 		return m_AllowUnclassifiedInstances;
 	}
 	
+	/*
+	 * Gets the tree for FlatForest to lay out.
+	 *
+	 * @return the root of the tree, or null if a ZeroR model was built instead
+	 */
+	Tree getTree() {
+		
+		return m_zeroR == null ? m_Tree : null;
+	}
+	
+	/*
+	 * Gets the header of the training data.
+	 *
+	 * @return the header, or null if the tree has not been built
+	 */
+	Instances getHeader() {
+		
+		return m_Info;
+	}
+	
 	/*
 	 * Set the value of AllowUnclassifiedInstances.
 	 *
@@ -600,31 +634,153 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 			backfit = data.testCV(m_NumFolds, 1);
 		}
 		
+		double[] weights = new double[train.numInstances()];
+		int[] rows = new int[train.numInstances()];
+		for (int i = 0; i < train.numInstances(); i++) {
+			weights[i] = train.instance(i).weight();
+			rows[i] = i;
+		}
+		growTree(train, rows, weights, rand);
+		
+		// Backfit if required
+		if (backfit != null) {
+			m_Tree.backfitData(backfit);
+		}
+	}
+	
+	/*
+	 * Builds the tree from a bootstrap sample without copying its rows, so that
+	 * the tree is the same as one built from the drawn rows. Falls back to
+	 * building from the drawn rows if a hold-out set is required for
+	 * backfitting.
+	 * <p/>
+	 * If none of the drawn rows has a missing value, each row is given the
+	 * number of times it was drawn as its weight: the weights stay whole, and
+	 * whole numbers add up the same in any order. A missing split value splits
+	 * weights into fractions, whose sums depend on the order they are added
+	 * in, so then the tree is grown over the drawn rows in the order they were
+	 * drawn, each with a weight of one, exactly as if they had been copied.
+	 *
+	 * @param sample the bootstrap sample
+	 * @throws Exception if something goes wrong
+	 */
+	public void buildClassifier(Bootstrap sample) throws Exception {
+		
+		Instances data = sample.getBase();
+		if (m_NumFolds > 0 || data.numAttributes() == 1) {
+			buildClassifier(sample.toInstances());
+			return;
+		}
+		
+		// Make sure K value is in range
+		if (m_KValue > data.numAttributes() - 1)
+			m_KValue = data.numAttributes() - 1;
+		if (m_KValue < 1)
+			m_KValue = (int) Utils.log2(data.numAttributes() - 1) + 1;
+		
+		// can classifier handle the data?
+		getCapabilities().testWithFail(data);
+		m_zeroR = null;
+		
+		double[] counts = sample.counts();
+		boolean missing = false;
+		for (int i = 0; i < counts.length && !missing; i++) {
+			missing = counts[i] > 0 && data.instance(i).hasMissingValue();
+		}
+		
+		Instances train;
+		double[] weights;
+		int[] rows;
+		Random rand;
+		if (!missing) {
+			// one slot per drawn row, weighted by its count
+			train = data;
+			weights = counts;
+			int count = 0;
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] > 0) count++;
+			}
+			rows = new int[count];
+			count = 0;
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] > 0) rows[count++] = i;
+			}
+			// same random choices as a tree built from the drawn rows
+			rand = sample.getRandomNumberGenerator(m_randomSeed);
+		} else {
+			// one slot per draw, sharing the rows; instances with a missing
+			// class are removed, as from copied rows
+			train = sample.shareRows();
+			train.deleteWithMissingClass();
+			weights = new double[train.numInstances()];
+			rows = new int[train.numInstances()];
+			for (int i = 0; i < train.numInstances(); i++) {
+				weights[i] = 1;
+				rows[i] = i;
+			}
+			rand = train.getRandomNumberGenerator(m_randomSeed);
+		}
+		growTree(train, rows, weights, rand);
+	}
+	
+	/*
+	 * Grows the tree from the given rows of the training data.
+	 *
+	 * @param train   the training data
+	 * @param rows    the positions of the rows to grow the tree from
+	 * @param weights the weights of the rows, indexed by position in train
+	 * @param rand    the random number generator
+	 * @throws Exception if something goes wrong
+	 */
+	private void growTree(Instances train, int[] rows, double[] weights,
+						  Random rand) throws Exception {
+		
 		// Create the attribute indices window
-		int[] attIndicesWindow = new int[data.numAttributes() - 1];
+		int[] attIndicesWindow = new int[train.numAttributes() - 1];
 		int j = 0;
 		for (int i = 0; i < attIndicesWindow.length; i++) {
-			if (j == data.classIndex())
+			if (j == train.classIndex())
 				j++; // do not include the class
 			attIndicesWindow[i] = j++;
 		}
 		
+		// Sort the rows on each numeric attribute once, so that the tree can
+		// split the sorted indices rather than sort them again at every node.
+		// Nominal attributes share the rows array.
+		int[][][] sortedIndices = new int[1][train.numAttributes()][];
+		double[] vals = new double[rows.length];
+		m_Weights = weights;
+		m_Branch = new int[train.numInstances()];
+		for (int att = 0; att < train.numAttributes(); att++) {
+			if (att == train.classIndex()) continue;
+			if (train.attribute(att).isNominal()) {
+				sortedIndices[0][att] = rows;
+			} else {
+				
+				// Missing values are sorted to the end
+				for (int i = 0; i < rows.length; i++) {
+					vals[i] = train.instance(rows[i]).value(att);
+				}
+				int[] sorted = Utils.sort(vals);
+				for (int i = 0; i < sorted.length; i++) {
+					sorted[i] = rows[sorted[i]];
+				}
+				sortedIndices[0][att] = sorted;
+			}
+		}
+		
 		// Compute initial class counts
 		double[] classProbs = new double[train.numClasses()];
-		for (int i = 0; i < train.numInstances(); i++) {
-			Instance inst = train.instance(i);
-			classProbs[(int) inst.classValue()] += inst.weight();
+		for (int i = 0; i < rows.length; i++) {
+			classProbs[(int) train.instance(rows[i]).classValue()] += weights[rows[i]];
 		}
 		
 		// Build tree
 		m_Tree = new Tree();
-		m_Info = new Instances(data, 0);
-		m_Tree.buildTree(train, classProbs, attIndicesWindow, rand, 0);
-		
-		// Backfit if required
-		if (backfit != null) {
-			m_Tree.backfitData(backfit);
-		}
+		m_Info = new Instances(train, 0);
+		m_Tree.buildTree(sortedIndices, train, classProbs, attIndicesWindow, rand, 0);
+		m_Weights = null;
+		m_Branch = null;
 	}
 	
 	/*
@@ -1115,6 +1271,9 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 		/*
 		 * Recursively generates a tree.
 		 *
+		 * @param sortedIndices    the indices of the instances, sorted on each
+		 *                         numeric attribute with missing values last, and
+		 *                         in the order of the data for nominal attributes
 		 * @param data             the data to work with
 		 * @param classProbs       the class distribution
 		 * @param attIndicesWindow the attribute window to choose attributes from
@@ -1122,14 +1281,16 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 		 * @param depth            the current depth
 		 * @throws Exception if generation fails
 		 */
-		void buildTree(Instances data, double[] classProbs,
+		void buildTree(int[][][] sortedIndices, Instances data, double[] classProbs,
 					   int[] attIndicesWindow, Random random, int depth) throws Exception {
 			
 			// Make leaf if there are no training instances
-			if (data.numInstances() == 0) {
+			int helpIndex = (data.classIndex() == 0) ? 1 : 0;
+			if (sortedIndices[0][helpIndex].length == 0) {
 				m_Attribute = -1;
 				m_ClassDistribution = null;
 				m_Prop = null;
+				sortedIndices[0] = null;
 				return;
 			}
 			
@@ -1144,6 +1305,7 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 				// Make leaf
 				m_Attribute = -1;
 				m_Prop = null;
+				sortedIndices[0] = null;
 				return;
 			}
 			
@@ -1174,7 +1336,8 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 				attIndicesWindow[windowSize - 1] = attIndex;
 				windowSize--;
 				
-				double currSplit = distribution(props, dists, attIndex, data);
+				double currSplit = distribution(props, dists, attIndex,
+						sortedIndices[0][attIndex], data);
 				double currVal = gain(dists[0], priorVal(dists[0]));
 				
 				if (Utils.gr(currVal, 0))
@@ -1198,22 +1361,36 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 				// Build subtrees
 				m_SplitPoint = split;
 				m_Prop = bestProps;
-				Instances[] subsets = splitData(data);
+				int[][][][] subsetIndices = new int[bestDists.length][1][][];
+				int[] missing = splitData(subsetIndices, sortedIndices[0], data);
+				
+				// Release the parent's arrays before building the subtrees
+				sortedIndices[0] = null;
 				m_Successors = new Tree[bestDists.length];
+				double[] missingWeights = new double[missing.length];
+				for (int j = 0; j < missing.length; j++) {
+					missingWeights[j] = m_Weights[missing[j]];
+				}
 				for (int i = 0; i < bestDists.length; i++) {
 //---------------------------------------------------------------------------------------------------
-					if (MainActivity.killThread == true) break;
+					if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
+					for (int j = 0; j < missing.length; j++) {
+						m_Weights[missing[j]] = m_Prop[i] * missingWeights[j];
+					}
 					m_Successors[i] = new Tree();
-					m_Successors[i].buildTree(subsets[i], bestDists[i], attIndicesWindow,
-							random, depth + 1);
+					m_Successors[i].buildTree(subsetIndices[i], data, bestDists[i],
+							attIndicesWindow, random, depth + 1);
+				}
+				for (int j = 0; j < missing.length; j++) {
+					m_Weights[missing[j]] = missingWeights[j];
 				}
 				
 				// If all successors are non-empty, we don't need to store the class
 				// distribution
 				boolean emptySuccessor = false;
-				for (int i = 0; i < subsets.length; i++) {
-					if (m_Successors[i].m_ClassDistribution == null) {
+				for (int i = 0; i < m_Successors.length; i++) {
+					if (m_Successors[i] == null || m_Successors[i].m_ClassDistribution == null) {
 						emptySuccessor = true;
 						break;
 					}
@@ -1225,6 +1402,7 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 				
 				// Make leaf
 				m_Attribute = -1;
+				sortedIndices[0] = null;
 			}
 		}
 		
@@ -1312,38 +1490,126 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 			return subsets;
 		}
 		
+		/*
+		 * Splits the sorted indices of each attribute into subsets, keeping them
+		 * in order, so no subset needs to be sorted again. Instances with a
+		 * missing value for the split go into every subset with a non-zero
+		 * proportion.
+		 *
+		 * @param subsetIndices the sorted indices in the subsets
+		 * @param sortedIndices the sorted indices of the whole set
+		 * @param data          the data to work with
+		 * @return the instances with a missing value for the split
+		 * @throws Exception if something goes wrong
+		 */
+		int[] splitData(int[][][][] subsetIndices, int[][] sortedIndices, Instances data)
+				throws Exception {
+			
+			Attribute attribute = data.attribute(m_Attribute);
+			if (!attribute.isNominal() && !attribute.isNumeric()) {
+				throw new IllegalArgumentException("Unknown attribute type");
+			}
+			
+			// Find the branch of each instance, and the size of each subset
+			int[] node = sortedIndices[m_Attribute];
+			int[] num = new int[m_Prop.length];
+			int numMissing = 0;
+			for (int j = 0; j < node.length; j++) {
+				Instance inst = data.instance(node[j]);
+				int branch;
+				if (inst.isMissing(m_Attribute)) {
+					branch = -1;
+					numMissing++;
+				} else if (attribute.isNominal()) {
+					branch = (int) inst.value(m_Attribute);
+					num[branch]++;
+				} else {
+					branch = (inst.value(m_Attribute) < m_SplitPoint) ? 0 : 1;
+					num[branch]++;
+				}
+				m_Branch[node[j]] = branch;
+			}
+			int[] missing = new int[numMissing];
+			numMissing = 0;
+			for (int j = 0; j < node.length; j++) {
+				if (m_Branch[node[j]] < 0) missing[numMissing++] = node[j];
+			}
+			for (int k = 0; k < num.length; k++) {
+				if (m_Prop[k] > 0) num[k] += missing.length;
+			}
+			
+			// Split each array once; the nominal attributes share one
+			for (int k = 0; k < num.length; k++) {
+				subsetIndices[k][0] = new int[data.numAttributes()][];
+			}
+			int[] shared = null;
+			int sharedAtt = -1;
+			for (int i = 0; i < data.numAttributes(); i++) {
+				if (sortedIndices[i] == null) continue;
+				if (sortedIndices[i] == shared) {
+					for (int k = 0; k < num.length; k++) {
+						subsetIndices[k][0][i] = subsetIndices[k][0][sharedAtt];
+					}
+					continue;
+				}
+				if (data.attribute(i).isNominal()) {
+					shared = sortedIndices[i];
+					sharedAtt = i;
+				}
+				for (int k = 0; k < num.length; k++) {
+					subsetIndices[k][0][i] = new int[num[k]];
+				}
+				int[] pos = new int[num.length];
+				for (int j = 0; j < sortedIndices[i].length; j++) {
+					int index = sortedIndices[i][j];
+					int branch = m_Branch[index];
+					if (branch >= 0) {
+						subsetIndices[branch][0][i][pos[branch]++] = index;
+					} else {
+						for (int k = 0; k < num.length; k++) {
+							if (m_Prop[k] > 0) subsetIndices[k][0][i][pos[k]++] = index;
+						}
+					}
+				}
+			}
+			return missing;
+		}
+		
 		/*
 		 * Computes class distribution for an attribute.
 		 *
 		 * @param props
 		 * @param dists
-		 * @param att   the attribute index
-		 * @param data  the data to work with
+		 * @param att           the attribute index
+		 * @param sortedIndices the indices of the instances, sorted with
+		 *                      missing values last for a numeric attribute
+		 * @param data          the data to work with
 		 * @throws Exception if something goes wrong
 		 */
-		double distribution(double[][] props, double[][][] dists,
-							int att, Instances data) throws Exception {
+		double distribution(double[][] props, double[][][] dists, int att,
+							int[] sortedIndices, Instances data) throws Exception {
 			
 			double splitPoint = Double.NaN;
 			Attribute attribute = data.attribute(att);
 			double[][] dist = null;
-			int indexOfFirstMissingValue = data.numInstances();
+			int indexOfFirstMissingValue = sortedIndices.length;
 			
 			if (attribute.isNominal()) {
 				
 				// For nominal attributes
 				dist = new double[attribute.numValues()][data.numClasses()];
-				for (int i = 0; i < data.numInstances(); i++) {
-					Instance inst = data.instance(i);
+				for (int i = 0; i < sortedIndices.length; i++) {
+					Instance inst = data.instance(sortedIndices[i]);
 					if (inst.isMissing(att)) {
 						
 						// Skip missing values at this stage
-						if (indexOfFirstMissingValue == data.numInstances()) {
+						if (indexOfFirstMissingValue == sortedIndices.length) {
 							indexOfFirstMissingValue = i;
 						}
 						continue;
 					}
-					dist[(int) inst.value(att)][(int) inst.classValue()] += inst.weight();
+					dist[(int) inst.value(att)][(int) inst.classValue()] +=
+							m_Weights[sortedIndices[i]];
 				}
 			} else {
 				
@@ -1351,19 +1617,16 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 				double[][] currDist = new double[2][data.numClasses()];
 				dist = new double[2][data.numClasses()];
 				
-				// Sort data
-				data.sort(att);
-				
 				// Move all instances into second subset
-				for (int j = 0; j < data.numInstances(); j++) {
-					Instance inst = data.instance(j);
+				for (int j = 0; j < sortedIndices.length; j++) {
+					Instance inst = data.instance(sortedIndices[j]);
 					if (inst.isMissing(att)) {
 						
 						// Can stop as soon as we hit a missing value
 						indexOfFirstMissingValue = j;
 						break;
 					}
-					currDist[1][(int) inst.classValue()] += inst.weight();
+					currDist[1][(int) inst.classValue()] += m_Weights[sortedIndices[j]];
 				}
 				
 				// Value before splitting
@@ -1375,10 +1638,10 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 				}
 				
 				// Try all possible split points
-				double currSplit = data.instance(0).value(att);
+				double currSplit = data.instance(sortedIndices[0]).value(att);
 				double currVal, bestVal = -Double.MAX_VALUE;
 				for (int i = 0; i < indexOfFirstMissingValue; i++) {
-					Instance inst = data.instance(i);
+					Instance inst = data.instance(sortedIndices[i]);
 					
 					// Can we place a sensible split point here?
 					if (inst.value(att) > currSplit) {
@@ -1409,8 +1672,8 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 					}
 					
 					// Shift over the weight
-					currDist[0][(int) inst.classValue()] += inst.weight();
-					currDist[1][(int) inst.classValue()] -= inst.weight();
+					currDist[0][(int) inst.classValue()] += m_Weights[sortedIndices[i]];
+					currDist[1][(int) inst.classValue()] -= m_Weights[sortedIndices[i]];
 				}
 			}
 			
@@ -1428,21 +1691,21 @@ public class RandomTreeTS extends Classifier implements OptionHandler,
 			}
 			
 			// Distribute weights for instances with missing values
-			for (int i = indexOfFirstMissingValue; i < data.numInstances(); i++) {
-				Instance inst = data.instance(i);
+			for (int i = indexOfFirstMissingValue; i < sortedIndices.length; i++) {
+				Instance inst = data.instance(sortedIndices[i]);
 				if (attribute.isNominal()) {
 					
 					// Need to check if attribute value is missing
 					if (inst.isMissing(att)) {
 						for (int j = 0; j < dist.length; j++) {
-							dist[j][(int) inst.classValue()] += props[0][j] * inst.weight();
+							dist[j][(int) inst.classValue()] += props[0][j] * m_Weights[sortedIndices[i]];
 						}
 					}
 				} else {
 					
 					// Can be sure that value is missing, so no test required
 					for (int j = 0; j < dist.length; j++) {
-						dist[j][(int) inst.classValue()] += props[0][j] * inst.weight();
+						dist[j][(int) inst.classValue()] += props[0][j] * m_Weights[sortedIndices[i]];
 					}
 				}
 			}
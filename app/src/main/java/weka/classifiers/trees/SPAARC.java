@@ -27,11 +27,11 @@ import java.util.Enumeration;
 import java.util.Random;
 import java.util.Vector;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Evaluation;
 import weka.classifiers.RandomizableClassifier;
 import weka.core.AdditionalMeasureProducer;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
 import weka.core.Instance;
@@ -614,7 +614,7 @@ public class SPAARC extends RandomizableClassifier implements
             m_Successors = new SPAARC[2];
             for (int i = 0; i < 2; i++) {
 //---------------------------------------------------------------------------------------------------
-                if (MainActivity.killThread == true) break;
+                if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
                 m_Successors[i] = new SPAARC();
                 m_Successors[i].makeTree(data, m_totalTrainInstances, subsetIndices[i],
@@ -22,11 +22,11 @@
 
 package weka.classifiers.trees;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.EvaluationTS;
 import weka.classifiers.RandomizableClassifier;
 import weka.core.AdditionalMeasureProducer;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -317,7 +317,7 @@ public class SimpleCartTS
 		// calculate errors and alphas for each fold
 		for (int i = 0; i < m_numFoldsPruning; i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			
 			//for every fold, grow tree on training set and fix error on test set.
@@ -363,7 +363,7 @@ public class SimpleCartTS
 		// for each pruned subtree, find the cross-validated error
 		for (int i = 0; i <= iterations; i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			//compute midpoint alphas
 			double alpha = Math.sqrt(treeAlphas[i] * treeAlphas[i + 1]);
@@ -507,7 +507,7 @@ public class SimpleCartTS
 			m_Successors = new SimpleCartTS[2];
 			for (int i = 0; i < 2; i++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				m_Successors[i] = new SimpleCartTS();
 				m_Successors[i].makeTree(data, m_totalTrainInstances, subsetIndices[i],
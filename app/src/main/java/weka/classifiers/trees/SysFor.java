@@ -34,7 +34,6 @@ import java.util.Vector;
 
 //import weka.associations.gsp.Element;
 //import weka.classifiers.AbstractClassifier;
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.classifiers.EvaluationTS;
 import weka.classifiers.rules.ZeroR;
@@ -43,7 +42,9 @@ import weka.classifiers.trees.j48ts.DistributionTS;
 import weka.classifiers.trees.j48ts.C45SplitTS;
 import weka.classifiers.trees.j48ts.DistributionTS;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
+import weka.core.DatasetStatistics;
 //import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -401,6 +402,7 @@ public class SysFor extends Classifier {
     public void buildClassifier(Instances data) throws Exception {
 
         getCapabilities().testWithFail(data);
+        DatasetStatistics stats = DatasetStatistics.get(data);
         data = new Instances(data);
         // data.deleteWithMissingClass();
 
@@ -414,7 +416,7 @@ public class SysFor extends Classifier {
 
         attDomains = new double[data.numAttributes()];
         for (int i = 0; i < attDomains.length; i++) {
-            attDomains[i] = calculateAttributeDomain(data, i);
+            attDomains[i] = calculateAttributeDomain(stats, data, i);
         }
 
         // Remove the records with missing values.
@@ -753,43 +755,22 @@ public class SysFor extends Classifier {
      * Calculate the domain of the attribute (highest value minus lowest value
      * for numerical. Number of distinct values for nominal attributes).
      *
+     * @param stats - the statistics of the dataset
      * @param dataset - dataset on which to calculate the domain
      * @param attributeIndex - index in the dataset of the attribute to
      * calculate
      * @return the range of the dataset for numerical attributes, number of
      * distinct values for nominal attributes
      */
-    private double calculateAttributeDomain(Instances dataset, int attributeIndex) {
+    private double calculateAttributeDomain(DatasetStatistics stats, Instances dataset, int attributeIndex) {
         if (dataset.attribute(attributeIndex).isNumeric()) {
-            // Sort the attributes values and store them as a list.
-            double[] values = dataset.attributeToDoubleArray(attributeIndex);
-            Double[] objectValues = new Double[values.length];
-            for (int i = 0; i < objectValues.length; i++) {
-                objectValues[i] = values[i];
+            if (stats.missingCount(attributeIndex) == stats.numInstances()) {
+                // no values: the lowest is +infinity and the highest -infinity
+                return Double.NEGATIVE_INFINITY;
             }
-            Arrays.sort(objectValues);
-            ArrayList<Double> lValues = new ArrayList<Double>();
-            lValues.addAll(Arrays.asList(objectValues));
-
-            // Create an iterator object for the sorted attribute values
-            Iterator<Double> iValues = lValues.iterator();
-
-            double minValue = Double.POSITIVE_INFINITY;
-            double maxValue = Double.NEGATIVE_INFINITY;
-
-            while (iValues.hasNext()) {
-                double currentValue = iValues.next();
-                if (currentValue < minValue) {
-                    minValue = currentValue;
-                }
-                if (currentValue > maxValue) {
-                    maxValue = currentValue;
-                }
-            }
-            double domain = maxValue - minValue;
-            return domain;
+            return stats.max(attributeIndex) - stats.min(attributeIndex);
         } else {
-            return dataset.numDistinctValues(attributeIndex);
+            return stats.numDistinctValues(attributeIndex);
         }
 
     }
@@ -1448,7 +1429,7 @@ public class SysFor extends Classifier {
 
                 for (int i = 0; i < dataSplits.length; i++) {
 //---------------------------------------------------------------------------------------------------
-                    if (MainActivity.killThread == true) break;
+                    if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
                     J48TS currentSubTree = new J48TS();
                     currentSubTree.setConfidenceFactor(confidence);
@@ -1478,7 +1459,7 @@ public class SysFor extends Classifier {
 
             for (int i = 0; i < dataSplits.length; i++) {
 //---------------------------------------------------------------------------------------------------
-                if (MainActivity.killThread == true) break;
+                if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
                 for (int j = 0; j < dataSplits[i].numInstances(); j++) {
                     Instance currentInstance = dataSplits[i].instance(j);
@@ -1488,7 +1469,7 @@ public class SysFor extends Classifier {
 
             for (int i = 0; i < dataSplits.length; i++) {
 //---------------------------------------------------------------------------------------------------
-                if (MainActivity.killThread == true) break;
+                if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
                 int currentLargestValueSupport = -1;
 
@@ -1503,7 +1484,7 @@ public class SysFor extends Classifier {
 
             for (int i = 0; i < dataSplits.length; i++) {
 //---------------------------------------------------------------------------------------------------
-                if (MainActivity.killThread == true) break;
+                if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
                 J48TS currentSubTree = new J48TS();
                 currentSubTree.setConfidenceFactor(confidence);
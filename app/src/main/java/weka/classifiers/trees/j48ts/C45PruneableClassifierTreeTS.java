@@ -22,12 +22,12 @@
 
 package weka.classifiers.trees.j48ts;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.trees.j48ts.ClassifierSplitModelTS;
 import weka.classifiers.trees.j48ts.ClassifierTreeTS;
 import weka.classifiers.trees.j48ts.DistributionTS;
 import weka.classifiers.trees.j48ts.NoSplitTS;
 import weka.classifiers.trees.j48.Stats;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instances;
 import weka.core.RevisionUtils;
@@ -190,7 +190,7 @@ public class C45PruneableClassifierTreeTS
 			// Prune all subtrees.
 			for (i = 0; i < m_sons.length; i++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				son(i).prune();
 			}
@@ -22,10 +22,10 @@
 
 package weka.classifiers.trees.j48ts;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.trees.j48ts.ClassifierSplitModelTS;
 import weka.classifiers.trees.j48ts.DistributionTS;
 import weka.classifiers.trees.j48ts.ModelSelectionTS;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.CapabilitiesHandler;
 import weka.core.Drawable;
@@ -181,7 +181,7 @@ public class ClassifierTreeTS
 			m_sons = new ClassifierTreeTS[m_localModel.numSubsets()];
 			for (int i = 0; i < m_sons.length; i++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				m_sons[i] = getNewTree(localInstances[i]);
 				localInstances[i] = null;
@@ -224,7 +224,7 @@ public class ClassifierTreeTS
 			m_sons = new ClassifierTreeTS[m_localModel.numSubsets()];
 			for (i = 0; i < m_sons.length; i++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				m_sons[i] = getNewTree(localTrain[i], localTest[i]);
 				localTrain[i] = null;
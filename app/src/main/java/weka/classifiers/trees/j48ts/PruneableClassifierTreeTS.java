@@ -22,11 +22,11 @@
 
 package weka.classifiers.trees.j48ts;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.trees.j48ts.ClassifierSplitModelTS;
 import weka.classifiers.trees.j48ts.ClassifierTreeTS;
 import weka.classifiers.trees.j48ts.ModelSelectionTS;
 import weka.classifiers.trees.j48ts.NoSplitTS;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instances;
 import weka.core.RevisionUtils;
@@ -159,7 +159,7 @@ public class PruneableClassifierTreeTS
 			// Prune all subtrees.
 			for (int i = 0; i < m_sons.length; i++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				son(i).prune();
 			}
@@ -22,11 +22,11 @@
 
 package weka.classifiers.trees.lmt;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.Classifier;
 import weka.classifiers.Evaluation;
 import weka.classifiers.functions.SimpleLinearRegression;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.RevisionUtils;
@@ -311,7 +311,7 @@ public class LogisticBaseTS
 	
 	while (iteration < maxIterations) {
 //---------------------------------------------------------------------------------------------------
-		if (MainActivity.killThread == true) break;
+		if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 	  
 	    //perform single LogitBoost iteration
@@ -357,7 +357,7 @@ public class LogisticBaseTS
 	//run iterations
 	while (iteration < numIterations) {
 //---------------------------------------------------------------------------------------------------
-		if (MainActivity.killThread == true) break;
+		if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 	    boolean foundAttribute = performIteration(iteration, trainYs, trainFs, probs, m_numericData);
 	    if (foundAttribute) iteration++;
@@ -390,7 +390,7 @@ public class LogisticBaseTS
 	
 	while (iteration < m_maxIterations) {
 //---------------------------------------------------------------------------------------------------
-		if (MainActivity.killThread == true) break;
+		if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 	    boolean foundAttribute = performIteration(iteration, trainYs, trainFs, probs, m_numericData);
 	    if (foundAttribute) {
@@ -22,11 +22,12 @@
 
 package weka.clusterers;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.clusterers.AbstractClusterer;
 import weka.clusterers.forOPTICSAndDBScan.DataObjects.DataObject;
 import weka.clusterers.forOPTICSAndDBScan.Databases.Database;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
+import weka.core.CompactInstances;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
@@ -197,13 +198,20 @@ public class DBSCANTS
         clusterID = 0;
 
         replaceMissingValues_Filter = new ReplaceMissingValues();
-        replaceMissingValues_Filter.setInputFormat(instances);
-        Instances filteredInstances = Filter.useFilter(instances, replaceMissingValues_Filter);
+        Instances filteredInstances;
+        if (CompactInstances.isCompact(instances) && !hasMissingValues(instances)) {
+            // nothing to replace, and the filtered copy would hold every value as
+            // a double again
+            filteredInstances = instances;
+        } else {
+            replaceMissingValues_Filter.setInputFormat(instances);
+            filteredInstances = Filter.useFilter(instances, replaceMissingValues_Filter);
+        }
 
         database = databaseForName(getDatabase_Type(), filteredInstances);
         for (int i = 0; i < database.getInstances().numInstances(); i++) {
 //---------------------------------------------------------------------------------------------------
-            if (MainActivity.killThread == true) break;
+            if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
             DataObject dataObject = dataObjectForName(getDatabase_distanceType(),
                     database.getInstances().instance(i),
@@ -216,7 +224,7 @@ public class DBSCANTS
         Iterator iterator = database.dataObjectIterator();
         while (iterator.hasNext()) {
 //---------------------------------------------------------------------------------------------------
-            if (MainActivity.killThread == true) break;
+            if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
             DataObject dataObject = (DataObject) iterator.next();
             if (dataObject.getClusterLabel() == DataObject.UNCLASSIFIED) {
@@ -231,6 +239,19 @@ public class DBSCANTS
         elapsedTime = (double) (time_2 - time_1) / 1000.0;
     }
     
+    /*
+     * Checks whether any value of the instances is missing
+     * @param instances The instances to check
+     * @return true, if a value is missing
+     */
+    private static boolean hasMissingValues(Instances instances) {
+        for (int i = 0; i < instances.numInstances(); i++) {
+            if (instances.instance(i).hasMissingValue())
+                return true;
+        }
+        return false;
+    }
+
     /*
      * Assigns this dataObject to a cluster or remains it as NOISE
      * @param dataObject The DataObject that needs to be assigned
@@ -22,7 +22,7 @@
 
 package weka.clusterers;
 
-import au.com.darrenyates.datalearner.MainActivity;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Attribute;
@@ -1144,7 +1144,7 @@ public class EMTS
 		while (CVincreased) {
 			// theInstances.stratify(10);
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			
 			CVincreased = false;
@@ -1154,7 +1154,7 @@ public class EMTS
 			templl = 0.0;
 			for (i = 0; i < numFolds; i++) {
 //---------------------------------------------------------------------------------------------------
-				if (MainActivity.killThread == true) break;
+				if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 				Instances cvTrain = trainCopy.trainCV(numFolds, i, cvr);
 				if (num_clusters > cvTrain.numInstances()) {
@@ -1167,7 +1167,7 @@ public class EMTS
 				EM_Init(cvTrain);
 				try {
 //---------------------------------------------------------------------------------------------------
-					if (MainActivity.killThread == true) break;
+					if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 					iterate(cvTrain, false);
 				} catch (Exception ex) {
@@ -1319,13 +1319,13 @@ public class EMTS
 		m_maxValues = new double[m_theInstances.numAttributes()];
 		for (int i = 0; i < m_theInstances.numAttributes(); i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			m_minValues[i] = m_maxValues[i] = Double.NaN;
 		}
 		for (int i = 0; i < m_theInstances.numInstances(); i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			updateMinMax(m_theInstances.instance(i));
 		}
@@ -21,8 +21,8 @@
  */
 package weka.clusterers;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -246,7 +246,7 @@ public class FarthestFirstTS
 		
 		for (int i = 1; i < m_NumClusters; i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			int nextI = farthestAway(minDistance, selected);
 			m_ClusterCentroids.add(m_instances.instance(nextI));
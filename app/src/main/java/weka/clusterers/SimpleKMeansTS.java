@@ -26,9 +26,9 @@ import java.util.HashMap;
 import java.util.Random;
 import java.util.Vector;
 
-import au.com.darrenyates.datalearner.MainActivity;
 import weka.classifiers.rules.DecisionTableHashKey;
 import weka.core.Attribute;
+import weka.core.CancellationToken;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
 import weka.core.DistanceFunction;
@@ -263,7 +263,7 @@ public class SimpleKMeansTS extends RandomizableClusterer implements
 		m_FullMeansOrMediansOrModes = moveCentroid(0, instances, false);
 		for (int i = 0; i < instances.numAttributes(); i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			m_FullMissingCounts[i] = instances.attributeStats(i).missingCount;
 			if (instances.attribute(i).isNumeric()) {
@@ -306,7 +306,7 @@ public class SimpleKMeansTS extends RandomizableClusterer implements
 		
 		for (int j = initInstances.numInstances() - 1; j >= 0; j--) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			instIndex = RandomO.nextInt(j + 1);
 			hk = new DecisionTableHashKey(initInstances.instance(instIndex),
@@ -336,7 +336,7 @@ public class SimpleKMeansTS extends RandomizableClusterer implements
 		m_ClusterMissingCounts = new int[m_NumClusters][instances.numAttributes()];
 		while (!converged) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			emptyClusterCount = 0;
 			m_Iterations++;
@@ -405,7 +405,7 @@ public class SimpleKMeansTS extends RandomizableClusterer implements
 		m_ClusterSizes = new int[m_NumClusters];
 		for (i = 0; i < m_NumClusters; i++) {
 //---------------------------------------------------------------------------------------------------
-			if (MainActivity.killThread == true) break;
+			if (CancellationToken.current().isCancelled()) break;
 //---------------------------------------------------------------------------------------------------
 			if (m_displayStdDevs) {
 				double[] vals2 = new double[instances.numAttributes()];
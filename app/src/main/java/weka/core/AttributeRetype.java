@@ -0,0 +1,143 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * AttributeRetype.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Changes the type of one attribute of a dataset without copying the dataset.
+ * Only the header is rebuilt; the value of the attribute is rewritten in the
+ * value array of each row, and the new dataset holds the same value arrays as
+ * the old one, so the other attributes are shared rather than copied. For a
+ * CompactInstances dataset the column of the attribute is rewritten in its
+ * column store instead.
+ * <p/>
+ * Because the rows are rewritten, the dataset passed in must not be used
+ * afterwards, and nothing else (e.g. a running job) may be reading its rows.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class AttributeRetype {
+
+	private AttributeRetype() {
+	}
+
+	/**
+	 * Turns a numeric attribute into a nominal one, giving the same result as
+	 * the NumericToNominal filter: the labels are the distinct values sorted in
+	 * ascending order and printed with Utils.doubleToString(value, 6), or for
+	 * a date attribute the distinct formatted dates in alphabetical order.
+	 *
+	 * @param data  the dataset, which is taken over by the result
+	 * @param index the index of the attribute
+	 * @return a dataset with the attribute changed, or the given dataset if the
+	 * attribute is not numeric
+	 */
+	public static Instances numericToNominal(Instances data, int index) {
+		Attribute att = data.attribute(index);
+		if (!att.isNumeric()) {
+			return data;
+		}
+		boolean isDate = att.isDate();
+		int numRows = data.numInstances();
+
+		// the labels in the order NumericToNominal gives them
+		FastVector labels = new FastVector();
+		if (isDate) {
+			HashSet<String> distinct = new HashSet<String>();
+			for (int i = 0; i < numRows; i++) {
+				Instance row = data.instance(i);
+				if (!row.isMissing(index)) {
+					distinct.add(row.stringValue(index));
+				}
+			}
+			List<String> sorted = new ArrayList<String>(distinct);
+			Collections.sort(sorted);
+			for (String value : sorted) {
+				labels.addElement(value);
+			}
+		} else {
+			HashSet<Double> distinct = new HashSet<Double>();
+			for (int i = 0; i < numRows; i++) {
+				Instance row = data.instance(i);
+				if (!row.isMissing(index)) {
+					distinct.add(row.value(index));
+				}
+			}
+			List<Double> sorted = new ArrayList<Double>(distinct);
+			Collections.sort(sorted);
+			for (Double value : sorted) {
+				labels.addElement(Utils.doubleToString(value, 6));
+			}
+		}
+		Attribute nominal = new Attribute(att.name(), labels);
+		nominal.setWeight(att.weight());
+
+		double[] newValues = new double[numRows];
+		for (int i = 0; i < numRows; i++) {
+			Instance row = data.instance(i);
+			newValues[i] = Instance.missingValue();
+			if (!row.isMissing(index)) {
+				int label = nominal.indexOfValue(isDate ? row.stringValue(index)
+						: Utils.doubleToString(row.value(index), 6));
+				if (label >= 0) {
+					newValues[i] = label;
+				}
+			}
+		}
+		if (data instanceof CompactInstances) {
+			// the column is rewritten in the column store
+			return ((CompactInstances) data).replaceAttribute(index, nominal, newValues);
+		}
+
+		FastVector atts = new FastVector(data.numAttributes());
+		for (int j = 0; j < data.numAttributes(); j++) {
+			atts.addElement((j == index) ? nominal : data.attribute(j));
+		}
+		Instances result = new Instances(data.relationName(), atts, numRows);
+		result.setClassIndex(data.classIndex());
+
+		for (int i = 0; i < numRows; i++) {
+			Instance row = data.instance(i);
+			double value = newValues[i];
+			if (row instanceof SparseInstance) {
+				// a value of 0 may not be stored, so the row is rebuilt
+				double[] values = row.toDoubleArray();
+				values[index] = value;
+				row = new SparseInstance(row.weight(), values);
+			} else if (row instanceof BackedInstance) {
+				// has no value array of its own until a value is set
+				row.setValue(index, value);
+			} else {
+				row.m_AttValues[index] = value;
+			}
+			// add() makes a new Instance holding the same value array
+			result.add(row);
+		}
+		return result;
+	}
+}
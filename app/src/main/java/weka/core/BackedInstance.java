@@ -0,0 +1,199 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * BackedInstance.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.core;
+
+/**
+ * A dense row that reads its values from storage it does not own, such as a
+ * row of another dataset or a column store, instead of holding them in a
+ * double array. The value array of Instance stays null while the row is
+ * backed; setting a value first copies the values into it, after which the
+ * row is an ordinary dense row and the storage is no longer read.
+ * <p/>
+ * Only Instance and its subclasses read the value array directly, and every
+ * method of Instance that does so is overridden here (toString(int) only
+ * reads it for a row without a dataset).
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+abstract class BackedInstance extends Instance {
+
+	/**
+	 * for serialization
+	 */
+	private static final long serialVersionUID = 5437816290178320341L;
+
+	/**
+	 * Returns a value from the storage.
+	 *
+	 * @param attIndex the index of the attribute
+	 * @return the value
+	 */
+	protected abstract double backedValue(int attIndex);
+
+	/**
+	 * Returns the number of values the storage holds for this row.
+	 *
+	 * @return the number of attributes
+	 */
+	protected abstract int backedNumAttributes();
+
+	/**
+	 * Returns a new row reading from the same storage. Weight and dataset are
+	 * set by the caller.
+	 *
+	 * @return the new row
+	 */
+	protected abstract BackedInstance backedCopy();
+
+	/**
+	 * Returns whether the values are read from a CompactInstances column
+	 * store, i.e. are held at reduced precision.
+	 *
+	 * @return true if the row is backed by compact storage
+	 */
+	boolean isCompact() {
+		return false;
+	}
+
+	/**
+	 * Returns whether the values are still read from the storage.
+	 *
+	 * @return true until a value is set
+	 */
+	protected final boolean isBacked() {
+		return m_AttValues == null;
+	}
+
+	/**
+	 * Copies the values out of the storage.
+	 */
+	private void materialize() {
+		if (m_AttValues == null) {
+			m_AttValues = toDoubleArray();
+		}
+	}
+
+	/**
+	 * Returns an ordinary row with a copy of the values, for Instance's
+	 * methods that read the value array directly.
+	 */
+	private Instance detached() {
+		Instance row = new Instance(m_Weight, toDoubleArray());
+		row.setDataset(m_Dataset);
+		return row;
+	}
+
+	@Override
+	public Object copy() {
+		if (m_AttValues != null) {
+			return super.copy();
+		}
+		BackedInstance result = backedCopy();
+		result.m_Weight = m_Weight;
+		result.m_Dataset = m_Dataset;
+		return result;
+	}
+
+	@Override
+	public double value(int attIndex) {
+		return (m_AttValues == null) ? backedValue(attIndex) : m_AttValues[attIndex];
+	}
+
+	@Override
+	public double valueSparse(int indexOfIndex) {
+		return value(indexOfIndex);
+	}
+
+	@Override
+	public boolean isMissing(int attIndex) {
+		return isMissingValue(value(attIndex));
+	}
+
+	@Override
+	public boolean isMissingSparse(int indexOfIndex) {
+		return isMissing(indexOfIndex);
+	}
+
+	@Override
+	public int numAttributes() {
+		return (m_AttValues == null) ? backedNumAttributes() : m_AttValues.length;
+	}
+
+	@Override
+	public int numValues() {
+		return numAttributes();
+	}
+
+	@Override
+	public double[] toDoubleArray() {
+		if (m_AttValues != null) {
+			return super.toDoubleArray();
+		}
+		double[] values = new double[backedNumAttributes()];
+		for (int j = 0; j < values.length; j++) {
+			values[j] = backedValue(j);
+		}
+		return values;
+	}
+
+	@Override
+	public String toString() {
+		return (m_AttValues == null) ? detached().toString() : super.toString();
+	}
+
+	@Override
+	protected String toStringNoWeight() {
+		return (m_AttValues == null) ? detached().toStringNoWeight() : super.toStringNoWeight();
+	}
+
+	@Override
+	public void replaceMissingValues(double[] array) {
+		materialize();
+		super.replaceMissingValues(array);
+	}
+
+	@Override
+	public void setValue(int attIndex, double value) {
+		materialize();
+		super.setValue(attIndex, value);
+	}
+
+	@Override
+	public void setValueSparse(int indexOfIndex, double value) {
+		materialize();
+		super.setValueSparse(indexOfIndex, value);
+	}
+
+	@Override
+	void forceDeleteAttributeAt(int position) {
+		materialize();
+		super.forceDeleteAttributeAt(position);
+	}
+
+	@Override
+	void forceInsertAttributeAt(int position) {
+		materialize();
+		super.forceInsertAttributeAt(position);
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * BatchPredictor.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.core;
+
+/**
+ * Implemented by classifiers that can score a whole set of instances more
+ * quickly than one distributionForInstance() call at a time, as in later
+ * releases of Weka.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public interface BatchPredictor {
+
+	/**
+	 * Returns the class distributions for a set of instances. Each must be the
+	 * same as distributionForInstance() returns for the instance.
+	 *
+	 * @param insts the instances to score
+	 * @return the class distribution of each instance
+	 * @throws Exception if the instances can't be scored
+	 */
+	double[][] distributionsForInstances(Instances insts) throws Exception;
+
+	/**
+	 * Returns whether distributionsForInstances() is quicker than scoring the
+	 * instances one at a time, which may depend on how the model was built.
+	 *
+	 * @return true if batch scoring should be used
+	 */
+	boolean implementsMoreEfficientBatchPrediction();
+}
@@ -0,0 +1,216 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * Bootstrap.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.core;
+
+import java.util.Random;
+
+/**
+ * A bootstrap sample of a dataset, stored as the positions of the drawn rows
+ * in one shared Instances object rather than as copies of the rows. Learners
+ * that implement BootstrapHandler build from the number of times each row was
+ * drawn; rows that were not drawn have a count of zero and are out of bag.
+ * <p/>
+ * The rows are drawn with the same sequence of random numbers as
+ * Instances.resampleWithWeights(), so a sample holds the same rows in the same
+ * order as the copying method.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class Bootstrap extends FoldView {
+
+	/**
+	 * for serialization
+	 */
+	private static final long serialVersionUID = 4185066343127716208L;
+
+	/**
+	 * Creates a bootstrap sample from the given drawn rows of a dataset.
+	 *
+	 * @param base    the dataset holding the rows
+	 * @param indices the positions of the drawn rows in the base dataset
+	 */
+	public Bootstrap(Instances base, int[] indices) {
+		super(base, indices);
+	}
+
+	/**
+	 * Draws a bootstrap sample of the same size as the dataset, with each row
+	 * drawn in proportion to its weight, in the same way as
+	 * Instances.resampleWithWeights(Random).
+	 *
+	 * @param base   the dataset to sample
+	 * @param random the random number generator
+	 * @return the bootstrap sample
+	 * @throws IllegalArgumentException if a row has a negative weight
+	 */
+	public static Bootstrap resampleWithWeights(Instances base, Random random) {
+		int numInstances = base.numInstances();
+		int[] indices = new int[numInstances];
+		if (numInstances == 0) {
+			return new Bootstrap(base, indices);
+		}
+		double[] P = new double[numInstances];
+		for (int i = 0; i < numInstances; i++) {
+			P[i] = base.instance(i).weight();
+		}
+		Utils.normalize(P);
+
+		// Walker's alias method, as set up by Instances.resampleWithWeights()
+		double[] Q = new double[numInstances];
+		int[] A = new int[numInstances];
+		int[] W = new int[numInstances];
+		int M = numInstances;
+		int NN = -1;
+		int NP = M;
+		for (int I = 0; I < M; I++) {
+			if (P[I] < 0) {
+				throw new IllegalArgumentException("Weights have to be positive.");
+			}
+			Q[I] = M * P[I];
+			if (Q[I] < 1.0) {
+				W[++NN] = I;
+			} else {
+				W[--NP] = I;
+			}
+		}
+		if (NN > -1 && NP < M) {
+			for (int S = 0; S < M - 1; S++) {
+				int I = W[S];
+				int J = W[NP];
+				A[I] = J;
+				Q[J] += Q[I] - 1;
+				if (Q[J] < 1.0) {
+					NP++;
+				}
+				if (NP >= M) {
+					break;
+				}
+			}
+		}
+		for (int I = 0; I < M; I++) {
+			Q[I] += I;
+		}
+
+		for (int i = 0; i < numInstances; i++) {
+			double U = M * random.nextDouble();
+			int I = (int) U;
+			indices[i] = (U < Q[I]) ? I : A[I];
+		}
+		return new Bootstrap(base, indices);
+	}
+
+	/**
+	 * Returns the first rows of this sample after shuffling it with the same
+	 * sequence of random numbers as Instances.randomize(), as bagging does when
+	 * a bag is smaller than the dataset.
+	 *
+	 * @param size   the number of rows to keep
+	 * @param random the random number generator
+	 * @return the smaller sample
+	 */
+	public Bootstrap subsample(int size, Random random) {
+		int[] indices = new int[numInstances()];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = index(i);
+		}
+		for (int j = indices.length - 1; j > 0; j--) {
+			int k = random.nextInt(j + 1);
+			int help = indices[j];
+			indices[j] = indices[k];
+			indices[k] = help;
+		}
+		int[] kept = new int[size];
+		System.arraycopy(indices, 0, kept, 0, size);
+		return new Bootstrap(getBase(), kept);
+	}
+
+	/**
+	 * Returns the number of times each row of the base dataset was drawn. As
+	 * every drawn copy has a weight of one, these are also the weights a
+	 * learner should give the rows.
+	 *
+	 * @return the counts, indexed by the position of the row in the base dataset
+	 */
+	public double[] counts() {
+		double[] counts = new double[getBase().numInstances()];
+		for (int i = 0; i < numInstances(); i++) {
+			counts[index(i)]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Marks the rows of the base dataset that were drawn at least once.
+	 *
+	 * @param inBag the array to fill, indexed by the position of the row in the
+	 *              base dataset
+	 */
+	public void markInBag(boolean[] inBag) {
+		for (int i = 0; i < numInstances(); i++) {
+			inBag[index(i)] = true;
+		}
+	}
+
+	/**
+	 * Returns the sample as a dataset of copies of the drawn rows, each with a
+	 * weight of one, exactly as Instances.resampleWithWeights() returns it. Used
+	 * for learners that can only be built from rows.
+	 *
+	 * @return the drawn rows
+	 */
+	@Override
+	public Instances toInstances() {
+		Instances result = new Instances(getBase(), numInstances());
+		for (int i = 0; i < numInstances(); i++) {
+			result.add(instance(i));
+			result.instance(i).setWeight(1);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the drawn rows as a dataset holding the Instance objects of the
+	 * base dataset rather than copies of them. This is the same as
+	 * toInstances() when every row of the base dataset has a weight of one.
+	 *
+	 * @return the drawn rows, shared with the base dataset
+	 */
+	public Instances shareRows() {
+		return super.toInstances();
+	}
+
+	/**
+	 * Returns the random number generator that Instances.getRandomNumberGenerator()
+	 * would return for the dataset of drawn rows, so that a learner built from
+	 * the counts makes the same random choices as one built from the rows.
+	 *
+	 * @param seed the given seed
+	 * @return the random number generator
+	 */
+	public Random getRandomNumberGenerator(long seed) {
+		Random result = new Random(seed);
+		result.setSeed(instance(result.nextInt(numInstances())).toStringNoWeight().hashCode() + seed);
+		return result;
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * BootstrapHandler.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.core;
+
+/**
+ * Implemented by classifiers that can be built from a bootstrap sample given
+ * as per-row counts over a shared dataset, rather than from a dataset of copied
+ * rows. Ensembles use it to avoid copying every row of every bag.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public interface BootstrapHandler {
+
+	/**
+	 * Builds the classifier from a bootstrap sample. The result must be the
+	 * same as building it from sample.toInstances().
+	 *
+	 * @param sample the bootstrap sample
+	 * @throws Exception if the classifier can't be built
+	 */
+	void buildClassifier(Bootstrap sample) throws Exception;
+}
@@ -0,0 +1,94 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * CancellationToken.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.core;
+
+/**
+ * A stop request for one modelling job. The learners poll the token of the
+ * job they are running for in their main loops and stop early once it has
+ * been cancelled.
+ * <p/>
+ * A job binds its token to the thread it runs on with setCurrent(); threads
+ * started from that thread (e.g. the fold workers of a parallel
+ * cross-validation) inherit it. Learners pick it up with current(), so
+ * several jobs can run side by side, each with its own token.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class CancellationToken {
+
+	/**
+	 * the token of the job running on each thread
+	 */
+	private static final InheritableThreadLocal<CancellationToken> CURRENT =
+			new InheritableThreadLocal<CancellationToken>() {
+				@Override
+				protected CancellationToken initialValue() {
+					return new CancellationToken();
+				}
+			};
+
+	/**
+	 * whether the job has been asked to stop
+	 */
+	private volatile boolean m_Cancelled = false;
+
+	/**
+	 * Asks the job to stop.
+	 */
+	public void cancel() {
+		m_Cancelled = true;
+	}
+
+	/**
+	 * Returns whether the job has been asked to stop.
+	 *
+	 * @return true if the job has been cancelled
+	 */
+	public boolean isCancelled() {
+		return m_Cancelled;
+	}
+
+	/**
+	 * Returns the token of the job running on the current thread. A thread
+	 * that has no job bound gets a token that is never cancelled.
+	 *
+	 * @return the token of the current job
+	 */
+	public static CancellationToken current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Binds a token to the current thread. Passing null unbinds it.
+	 *
+	 * @param token the token of the job about to run on this thread
+	 */
+	public static void setCurrent(CancellationToken token) {
+		if (token == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(token);
+		}
+	}
+}
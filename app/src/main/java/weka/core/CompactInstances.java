@@ -0,0 +1,455 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * CompactInstances.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A dataset that keeps its values in a column store instead of a double array
+ * per row, for data that would not otherwise fit in memory:
+ * <ul>
+ * <li>numeric attributes are held as floats, so only about 7 significant
+ * digits are kept (date attributes stay doubles, as a float cannot hold a
+ * time in milliseconds)</li>
+ * <li>nominal, string and relational attributes are held as value indices in
+ * a byte, short or int column, widened as the attribute gains values, with a
+ * bitmap marking the missing values</li>
+ * </ul>
+ * The rows are still Instance objects with the usual value(int) contract, so
+ * learners use a compact dataset as they would any other. A row reads its
+ * values from the store until one of them is set, at which point it gets a
+ * double array of its own. Copies of a row (e.g. made by new
+ * Instances(data)) read from the same store.
+ * <p/>
+ * Rows are always dense; sparse rows are stored with every value.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class CompactInstances extends Instances {
+
+	/**
+	 * for serialization
+	 */
+	private static final long serialVersionUID = -4093167226488710358L;
+
+	/**
+	 * the store holding the values of the rows
+	 */
+	private Columns m_Columns;
+
+	/**
+	 * Creates an empty compact dataset.
+	 *
+	 * @param name     the name of the relation
+	 * @param attInfo  the attribute information
+	 * @param capacity the number of rows to make room for
+	 */
+	public CompactInstances(String name, FastVector attInfo, int capacity) {
+		super(name, attInfo, capacity);
+		m_Columns = new Columns(this, capacity);
+	}
+
+	/**
+	 * Creates a compact copy of a dataset, with the same header (the attributes
+	 * are shared, as in new Instances(dataset)) and class index.
+	 *
+	 * @param dataset the dataset to copy
+	 */
+	public CompactInstances(Instances dataset) {
+		super(dataset, dataset.numInstances());
+		m_Columns = new Columns(this, dataset.numInstances());
+		for (int i = 0; i < dataset.numInstances(); i++) {
+			add(dataset.instance(i));
+		}
+	}
+
+	/**
+	 * Returns whether the rows of a dataset read their values from compact
+	 * storage, either directly or through a ProjectedInstances view. A learner
+	 * can use this to avoid making a full precision copy of the data, which
+	 * would undo the saving.
+	 *
+	 * @param data the dataset
+	 * @return true if the first row is held in compact storage
+	 */
+	public static boolean isCompact(Instances data) {
+		if (data.numInstances() == 0) {
+			return data instanceof CompactInstances;
+		}
+		Instance row = data.instance(0);
+		return row instanceof BackedInstance && ((BackedInstance) row).isCompact();
+	}
+
+	/**
+	 * Adds a row, storing its values in the column store. The values are copied
+	 * as in Instances.add(); string values are not looked up again.
+	 *
+	 * @param instance the row to add
+	 */
+	@Override
+	public void add(Instance instance) {
+		CompactInstance row = new CompactInstance(m_Columns, m_Columns.append(instance));
+		row.m_Weight = instance.weight();
+		row.setDataset(this);
+		m_Instances.addElement(row);
+	}
+
+	@Override
+	public void deleteAttributeAt(int position) {
+		super.deleteAttributeAt(position);
+		repack();
+	}
+
+	@Override
+	public void insertAttributeAt(Attribute att, int position) {
+		super.insertAttributeAt(att, position);
+		repack();
+	}
+
+	/**
+	 * Moves the rows into a new store after the header has changed. The rows
+	 * have their own values by then, as Instances changes them one by one.
+	 */
+	private void repack() {
+		m_Columns = new Columns(this, numInstances());
+		for (int i = 0; i < numInstances(); i++) {
+			Instance old = instance(i);
+			CompactInstance row = new CompactInstance(m_Columns, m_Columns.append(old));
+			row.m_Weight = old.weight();
+			row.setDataset(this);
+			m_Instances.setElementAt(row, i);
+		}
+	}
+
+	/**
+	 * Returns a dataset in which one attribute is replaced, sharing the store
+	 * with this one. The column of the attribute is rewritten in the store, so
+	 * this dataset must not be used afterwards.
+	 *
+	 * @param index  the index of the attribute
+	 * @param att    the new attribute
+	 * @param values the value of the new attribute for each row of this
+	 *               dataset, in the order of the rows
+	 * @return the dataset with the new attribute
+	 */
+	CompactInstances replaceAttribute(int index, Attribute att, double[] values) {
+		FastVector atts = new FastVector(numAttributes());
+		for (int j = 0; j < numAttributes(); j++) {
+			atts.addElement((j == index) ? att : attribute(j));
+		}
+		CompactInstances result = new CompactInstances(relationName(), atts, 0);
+		result.m_Columns = m_Columns;
+		result.setClassIndex(classIndex());
+
+		double[] byRow = new double[m_Columns.size()];
+		Arrays.fill(byRow, Instance.missingValue());
+		for (int i = 0; i < numInstances(); i++) {
+			Instance row = instance(i);
+			if (row instanceof CompactInstance && ((CompactInstance) row).isBacked()) {
+				byRow[((CompactInstance) row).m_Row] = values[i];
+			}
+		}
+		m_Columns.setColumn(index, att, byRow);
+
+		for (int i = 0; i < numInstances(); i++) {
+			Instance row = (Instance) instance(i).copy();
+			if (!(row instanceof CompactInstance) || !((CompactInstance) row).isBacked()) {
+				// has its own values, so the new one is set like any other
+				row.setValue(index, values[i]);
+			}
+			row.setDataset(result);
+			result.m_Instances.addElement(row);
+		}
+		return result;
+	}
+
+	/**
+	 * The values of the rows of a compact dataset, one array per attribute.
+	 */
+	private static class Columns implements Serializable {
+
+		private static final long serialVersionUID = 1862713364509731082L;
+
+		private static final byte FLOAT = 0;
+		private static final byte DOUBLE = 1;
+		private static final byte BYTE = 2;
+		private static final byte SHORT = 3;
+		private static final byte INT = 4;
+
+		/**
+		 * how each column is held
+		 */
+		private byte[] m_Types;
+
+		private float[][] m_Floats;
+		private double[][] m_Doubles;
+		private byte[][] m_Bytes;
+		private short[][] m_Shorts;
+		private int[][] m_Ints;
+
+		/**
+		 * which values of an index column are missing, one bit per row; null
+		 * for a column until one is
+		 */
+		private long[][] m_Missing;
+
+		/**
+		 * the number of rows stored
+		 */
+		private int m_Size;
+
+		/**
+		 * the number of rows there is room for
+		 */
+		private int m_Capacity;
+
+		Columns(Instances header, int capacity) {
+			int numAtts = header.numAttributes();
+			m_Types = new byte[numAtts];
+			m_Floats = new float[numAtts][];
+			m_Doubles = new double[numAtts][];
+			m_Bytes = new byte[numAtts][];
+			m_Shorts = new short[numAtts][];
+			m_Ints = new int[numAtts][];
+			m_Missing = new long[numAtts][];
+			m_Capacity = Math.max(capacity, 16);
+			for (int j = 0; j < numAtts; j++) {
+				Attribute att = header.attribute(j);
+				if (att.isDate()) {
+					m_Types[j] = DOUBLE;
+					m_Doubles[j] = new double[m_Capacity];
+				} else if (att.isNumeric()) {
+					m_Types[j] = FLOAT;
+					m_Floats[j] = new float[m_Capacity];
+				} else {
+					m_Types[j] = BYTE;
+					m_Bytes[j] = new byte[m_Capacity];
+				}
+			}
+		}
+
+		int size() {
+			return m_Size;
+		}
+
+		int numAttributes() {
+			return m_Types.length;
+		}
+
+		double value(int row, int j) {
+			switch (m_Types[j]) {
+				case FLOAT:
+					return m_Floats[j][row];
+				case DOUBLE:
+					return m_Doubles[j][row];
+				default:
+					long[] missing = m_Missing[j];
+					if (missing != null && (missing[row >> 6] & (1L << row)) != 0) {
+						return Instance.missingValue();
+					}
+					if (m_Types[j] == BYTE) {
+						return m_Bytes[j][row] & 0xFF;
+					} else if (m_Types[j] == SHORT) {
+						return m_Shorts[j][row] & 0xFFFF;
+					}
+					return m_Ints[j][row];
+			}
+		}
+
+		/**
+		 * Stores the values of a row.
+		 *
+		 * @param instance the row
+		 * @return the position of the row in the store
+		 */
+		int append(Instance instance) {
+			if (m_Size == m_Capacity) {
+				grow();
+			}
+			int row = m_Size++;
+			for (int j = 0; j < m_Types.length; j++) {
+				set(row, j, instance.value(j));
+			}
+			return row;
+		}
+
+		private void set(int row, int j, double value) {
+			switch (m_Types[j]) {
+				case FLOAT:
+					m_Floats[j][row] = (float) value;
+					return;
+				case DOUBLE:
+					m_Doubles[j][row] = value;
+					return;
+			}
+			int code = 0;
+			if (Instance.isMissingValue(value)) {
+				if (m_Missing[j] == null) {
+					m_Missing[j] = new long[(m_Capacity >> 6) + 1];
+				}
+				m_Missing[j][row >> 6] |= 1L << row;
+			} else {
+				code = (int) value;
+				if (m_Missing[j] != null) {
+					m_Missing[j][row >> 6] &= ~(1L << row);
+				}
+			}
+			if (m_Types[j] == BYTE && code > 0xFF) {
+				widen(j, (code > 0xFFFF) ? INT : SHORT);
+			} else if (m_Types[j] == SHORT && code > 0xFFFF) {
+				widen(j, INT);
+			}
+			switch (m_Types[j]) {
+				case BYTE:
+					m_Bytes[j][row] = (byte) code;
+					break;
+				case SHORT:
+					m_Shorts[j][row] = (short) code;
+					break;
+				default:
+					m_Ints[j][row] = code;
+			}
+		}
+
+		/**
+		 * Moves an index column to a wider type once it has too many values.
+		 */
+		private void widen(int j, byte type) {
+			int[] codes = new int[m_Capacity];
+			for (int row = 0; row < m_Size; row++) {
+				codes[row] = (m_Types[j] == BYTE) ? m_Bytes[j][row] & 0xFF : m_Shorts[j][row] & 0xFFFF;
+			}
+			m_Bytes[j] = null;
+			m_Shorts[j] = null;
+			if (type == SHORT) {
+				m_Shorts[j] = new short[m_Capacity];
+				for (int row = 0; row < m_Size; row++) {
+					m_Shorts[j][row] = (short) codes[row];
+				}
+			} else {
+				m_Ints[j] = codes;
+			}
+			m_Types[j] = type;
+		}
+
+		private void grow() {
+			m_Capacity += m_Capacity >> 1;
+			for (int j = 0; j < m_Types.length; j++) {
+				switch (m_Types[j]) {
+					case FLOAT:
+						m_Floats[j] = Arrays.copyOf(m_Floats[j], m_Capacity);
+						break;
+					case DOUBLE:
+						m_Doubles[j] = Arrays.copyOf(m_Doubles[j], m_Capacity);
+						break;
+					case BYTE:
+						m_Bytes[j] = Arrays.copyOf(m_Bytes[j], m_Capacity);
+						break;
+					case SHORT:
+						m_Shorts[j] = Arrays.copyOf(m_Shorts[j], m_Capacity);
+						break;
+					default:
+						m_Ints[j] = Arrays.copyOf(m_Ints[j], m_Capacity);
+				}
+				if (m_Missing[j] != null) {
+					m_Missing[j] = Arrays.copyOf(m_Missing[j], (m_Capacity >> 6) + 1);
+				}
+			}
+		}
+
+		/**
+		 * Replaces the column of an attribute.
+		 *
+		 * @param j      the index of the attribute
+		 * @param att    the new attribute
+		 * @param values the new value of every row in the store
+		 */
+		void setColumn(int j, Attribute att, double[] values) {
+			m_Floats[j] = null;
+			m_Doubles[j] = null;
+			m_Bytes[j] = null;
+			m_Shorts[j] = null;
+			m_Ints[j] = null;
+			m_Missing[j] = null;
+			if (att.isDate()) {
+				m_Types[j] = DOUBLE;
+				m_Doubles[j] = new double[m_Capacity];
+			} else if (att.isNumeric()) {
+				m_Types[j] = FLOAT;
+				m_Floats[j] = new float[m_Capacity];
+			} else {
+				m_Types[j] = BYTE;
+				m_Bytes[j] = new byte[m_Capacity];
+			}
+			for (int row = 0; row < m_Size; row++) {
+				set(row, j, values[row]);
+			}
+		}
+	}
+
+	/**
+	 * A row of a compact dataset, reading its values from the store until one
+	 * of them is set.
+	 */
+	private static class CompactInstance extends BackedInstance {
+
+		private static final long serialVersionUID = 7286604725135429153L;
+
+		/**
+		 * the store holding the values
+		 */
+		private Columns m_Columns;
+
+		/**
+		 * the position of the row in the store
+		 */
+		private int m_Row;
+
+		CompactInstance(Columns columns, int row) {
+			m_Columns = columns;
+			m_Row = row;
+		}
+
+		@Override
+		protected double backedValue(int attIndex) {
+			return m_Columns.value(m_Row, attIndex);
+		}
+
+		@Override
+		protected int backedNumAttributes() {
+			return m_Columns.numAttributes();
+		}
+
+		@Override
+		protected BackedInstance backedCopy() {
+			return new CompactInstance(m_Columns, m_Row);
+		}
+
+		@Override
+		boolean isCompact() {
+			return isBacked();
+		}
+	}
+}
@@ -0,0 +1,510 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * DatasetStatistics.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import weka.experiment.Stats;
+
+/**
+ * The statistics of every attribute of a dataset: missing, distinct and unique
+ * counts, the histogram of each nominal attribute and the minimum, maximum,
+ * mean and standard deviation of each numeric one. They are worked out in one
+ * pass over the rows, counting distinct values with hash tables instead of
+ * sorting each attribute as Instances.attributeStats() does, and the same
+ * figures as that method are given.
+ * <p/>
+ * get() keeps the statistics of each dataset until the dataset is garbage
+ * collected, so the summary shown for a dataset is only worked out again when
+ * its rows or attributes change. Changes to the values of rows in place are
+ * not noticed; call invalidate() after making them.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class DatasetStatistics {
+
+	/**
+	 * the statistics of each dataset, keyed on the Instances object itself
+	 */
+	private static final Map<Instances, DatasetStatistics> CACHE =
+			new WeakHashMap<Instances, DatasetStatistics>();
+
+	/**
+	 * the number of rows x attributes below which the attributes are not
+	 * split between threads
+	 */
+	private static final int MIN_PARALLEL_CELLS = 1 << 16;
+
+	/**
+	 * the structure of the dataset
+	 */
+	private final Instances m_Header;
+
+	/**
+	 * the attributes of the dataset, to find out if they were replaced
+	 */
+	private final Attribute[] m_Attributes;
+
+	/**
+	 * the number of rows
+	 */
+	private final int m_NumInstances;
+
+	/**
+	 * the statistics of each attribute
+	 */
+	private final AttributeStats[] m_Stats;
+
+	/**
+	 * Returns the statistics of a dataset, working them out only if they have
+	 * not been asked for before or the dataset has changed size or attributes
+	 * since.
+	 *
+	 * @param data the dataset
+	 * @return the statistics
+	 */
+	public static DatasetStatistics get(Instances data) {
+		DatasetStatistics stats;
+		synchronized (CACHE) {
+			stats = CACHE.get(data);
+		}
+		if (stats == null || !stats.describes(data)) {
+			stats = new DatasetStatistics(data, Runtime.getRuntime().availableProcessors());
+			synchronized (CACHE) {
+				CACHE.put(data, stats);
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * Forgets the statistics of a dataset, e.g. after values of its rows have
+	 * been changed in place.
+	 *
+	 * @param data the dataset
+	 */
+	public static void invalidate(Instances data) {
+		synchronized (CACHE) {
+			CACHE.remove(data);
+		}
+	}
+
+	/**
+	 * Lets a dataset holding the same rows as another one, in any order, use
+	 * the statistics of the other one if they have been worked out.
+	 *
+	 * @param from the dataset the statistics are kept for
+	 * @param to   the dataset holding the same rows
+	 */
+	static void share(Instances from, Instances to) {
+		synchronized (CACHE) {
+			DatasetStatistics stats = CACHE.get(from);
+			if (stats != null && stats.describes(to)) {
+				CACHE.put(to, stats);
+			}
+		}
+	}
+
+	/**
+	 * Works out the statistics of a dataset.
+	 *
+	 * @param data       the dataset
+	 * @param numThreads the number of threads to split the attributes between
+	 */
+	public DatasetStatistics(final Instances data, int numThreads) {
+		m_Header = new Instances(data, 0);
+		m_NumInstances = data.numInstances();
+		final int numAtts = data.numAttributes();
+		m_Attributes = new Attribute[numAtts];
+		for (int i = 0; i < numAtts; i++) {
+			m_Attributes[i] = data.attribute(i);
+		}
+		m_Stats = new AttributeStats[numAtts];
+
+		numThreads = Math.min(numThreads, numAtts);
+		if (numThreads <= 1 || (long) numAtts * m_NumInstances < MIN_PARALLEL_CELLS) {
+			compute(data, 0, numAtts);
+			return;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int t = 0; t < numThreads; t++) {
+				final int first = (int) ((long) numAtts * t / numThreads);
+				final int last = (int) ((long) numAtts * (t + 1) / numThreads);
+				futures.add(pool.submit(new Callable<Object>() {
+					@Override
+					public Object call() {
+						compute(data, first, last);
+						return null;
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw (Error) e.getCause();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while computing statistics", e);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Works out the statistics of a range of attributes in one pass over the
+	 * rows.
+	 *
+	 * @param data  the dataset
+	 * @param first the index of the first attribute
+	 * @param last  the index after the last attribute
+	 */
+	private void compute(Instances data, int first, int last) {
+		int numAtts = last - first;
+		int[][] counts = new int[numAtts][];
+		ValueCounts[] numericCounts = new ValueCounts[numAtts];
+		for (int j = 0; j < numAtts; j++) {
+			Attribute att = data.attribute(first + j);
+			AttributeStats stats = new AttributeStats();
+			stats.totalCount = m_NumInstances;
+			if (att.isNominal()) {
+				stats.nominalCounts = new int[att.numValues()];
+			}
+			if (att.isNumeric()) {
+				stats.numericStats = new Stats();
+				numericCounts[j] = new ValueCounts();
+			} else {
+				counts[j] = (stats.nominalCounts != null) ? stats.nominalCounts
+						: new int[att.numValues()];
+			}
+			m_Stats[first + j] = stats;
+		}
+
+		for (int i = 0; i < m_NumInstances; i++) {
+			Instance row = data.instance(i);
+			for (int j = 0; j < numAtts; j++) {
+				AttributeStats stats = m_Stats[first + j];
+				double value = row.value(first + j);
+				if (Instance.isMissingValue(value)) {
+					stats.missingCount++;
+					continue;
+				}
+				if (Utils.eq(value, (double) ((int) value))) {
+					stats.intCount++;
+				} else {
+					stats.realCount++;
+				}
+				if (numericCounts[j] != null) {
+					numericCounts[j].add(value);
+					stats.numericStats.add(value);
+				} else {
+					counts[j][(int) value]++;
+				}
+			}
+		}
+
+		for (int j = 0; j < numAtts; j++) {
+			AttributeStats stats = m_Stats[first + j];
+			if (numericCounts[j] != null) {
+				stats.distinctCount = numericCounts[j].numDistinct();
+				stats.uniqueCount = numericCounts[j].numUnique();
+				stats.numericStats.calculateDerived();
+			} else {
+				for (int count : counts[j]) {
+					if (count > 0) {
+						stats.distinctCount++;
+					}
+					if (count == 1) {
+						stats.uniqueCount++;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks if these statistics still describe a dataset.
+	 *
+	 * @param data the dataset
+	 * @return true if the dataset has the same number of rows and the same
+	 * attributes as when the statistics were worked out
+	 */
+	private boolean describes(Instances data) {
+		if (data.numInstances() != m_NumInstances || data.numAttributes() != m_Attributes.length) {
+			return false;
+		}
+		for (int i = 0; i < m_Attributes.length; i++) {
+			if (data.attribute(i) != m_Attributes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int numInstances() {
+		return m_NumInstances;
+	}
+
+	/**
+	 * @return the number of attributes
+	 */
+	public int numAttributes() {
+		return m_Stats.length;
+	}
+
+	/**
+	 * Returns the statistics of an attribute, with the same figures as
+	 * Instances.attributeStats().
+	 *
+	 * @param index the index of the attribute
+	 * @return the statistics
+	 */
+	public AttributeStats attributeStats(int index) {
+		return m_Stats[index];
+	}
+
+	/**
+	 * Returns the number of distinct values of an attribute as
+	 * Instances.numDistinctValues() does: the number of values a nominal or
+	 * string attribute is declared with, or the number of different values of a
+	 * numeric one that occur in the data.
+	 *
+	 * @param index the index of the attribute
+	 * @return the number of distinct values
+	 */
+	public int numDistinctValues(int index) {
+		if (m_Attributes[index].isNumeric()) {
+			return m_Stats[index].distinctCount;
+		}
+		return m_Attributes[index].numValues();
+	}
+
+	/**
+	 * @param index the index of the attribute
+	 * @return the number of rows missing a value for the attribute
+	 */
+	public int missingCount(int index) {
+		return m_Stats[index].missingCount;
+	}
+
+	/**
+	 * @param index the index of a numeric attribute
+	 * @return the smallest value of the attribute, or NaN if all are missing
+	 */
+	public double min(int index) {
+		return m_Stats[index].numericStats.min;
+	}
+
+	/**
+	 * @param index the index of a numeric attribute
+	 * @return the largest value of the attribute, or NaN if all are missing
+	 */
+	public double max(int index) {
+		return m_Stats[index].numericStats.max;
+	}
+
+	/**
+	 * @param index the index of a numeric attribute
+	 * @return the mean of the attribute
+	 */
+	public double mean(int index) {
+		return m_Stats[index].numericStats.mean;
+	}
+
+	/**
+	 * @param index the index of a numeric attribute
+	 * @return the standard deviation of the attribute
+	 */
+	public double stdDev(int index) {
+		return m_Stats[index].numericStats.stdDev;
+	}
+
+	/**
+	 * @param index the index of a nominal attribute
+	 * @return the number of rows holding each value of the attribute
+	 */
+	public int[] nominalCounts(int index) {
+		return m_Stats[index].nominalCounts;
+	}
+
+	/**
+	 * Generates the same summary of the dataset as
+	 * Instances.toSummaryString().
+	 *
+	 * @return the summary
+	 */
+	public String toSummaryString() {
+		StringBuffer result = new StringBuffer();
+		result.append("Relation Name:  ").append(m_Header.relationName()).append('\n');
+		result.append("Num Instances:  ").append(m_NumInstances).append('\n');
+		result.append("Num Attributes: ").append(m_Stats.length).append('\n');
+		result.append('\n');
+
+		result.append(Utils.padLeft("", 5)).append(Utils.padRight("Name", 25));
+		result.append(Utils.padLeft("Type", 5)).append(Utils.padLeft("Nom", 5));
+		result.append(Utils.padLeft("Int", 5)).append(Utils.padLeft("Real", 5));
+		result.append(Utils.padLeft("Missing", 12));
+		result.append(Utils.padLeft("Unique", 12));
+		result.append(Utils.padLeft("Dist", 6)).append('\n');
+		for (int i = 0; i < m_Stats.length; i++) {
+			Attribute a = m_Attributes[i];
+			AttributeStats as = m_Stats[i];
+			result.append(Utils.padLeft("" + (i + 1), 4)).append(' ');
+			result.append(Utils.padRight(a.name(), 25)).append(' ');
+			String type;
+			long nom, integer;
+			switch (a.type()) {
+				case Attribute.NOMINAL:
+					type = "Nom";
+					nom = percent(as.intCount, as.totalCount);
+					integer = 0;
+					break;
+				case Attribute.NUMERIC:
+					type = "Num";
+					nom = 0;
+					integer = percent(as.intCount, as.totalCount);
+					break;
+				case Attribute.DATE:
+					type = "Dat";
+					nom = 0;
+					integer = percent(as.intCount, as.totalCount);
+					break;
+				case Attribute.STRING:
+					type = "Str";
+					nom = percent(as.intCount, as.totalCount);
+					integer = 0;
+					break;
+				case Attribute.RELATIONAL:
+					type = "Rel";
+					nom = percent(as.intCount, as.totalCount);
+					integer = 0;
+					break;
+				default:
+					type = "???";
+					nom = 0;
+					integer = percent(as.intCount, as.totalCount);
+					break;
+			}
+			result.append(Utils.padLeft(type, 4)).append(' ');
+			result.append(Utils.padLeft("" + nom, 3)).append("% ");
+			result.append(Utils.padLeft("" + integer, 3)).append("% ");
+			result.append(Utils.padLeft("" + percent(as.realCount, as.totalCount), 3)).append("% ");
+			result.append(Utils.padLeft("" + as.missingCount, 5)).append(" /");
+			result.append(Utils.padLeft("" + percent(as.missingCount, as.totalCount), 3)).append("% ");
+			result.append(Utils.padLeft("" + as.uniqueCount, 5)).append(" /");
+			result.append(Utils.padLeft("" + percent(as.uniqueCount, as.totalCount), 3)).append("% ");
+			result.append(Utils.padLeft("" + as.distinctCount, 5)).append(' ');
+			result.append('\n');
+		}
+		return result.toString();
+	}
+
+	private static long percent(int count, int total) {
+		return Math.round(100.0 * count / total);
+	}
+
+	/**
+	 * Counts how often each value of a numeric attribute occurs, in an open
+	 * addressing hash table keyed on the bits of the values.
+	 */
+	private static class ValueCounts {
+
+		private long[] m_Keys = new long[64];
+		private int[] m_Counts = new int[64];
+		private int m_Size;
+
+		void add(double value) {
+			// -0.0 and 0.0 are the same value when sorted
+			long key = Double.doubleToLongBits(value == 0 ? 0.0 : value);
+			int mask = m_Keys.length - 1;
+			int slot = hash(key) & mask;
+			while (m_Counts[slot] != 0 && m_Keys[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			if (m_Counts[slot] == 0) {
+				m_Keys[slot] = key;
+				if (++m_Size > (m_Keys.length >> 1)) {
+					m_Counts[slot] = 1;
+					grow();
+					return;
+				}
+			}
+			m_Counts[slot]++;
+		}
+
+		private static int hash(long key) {
+			key *= 0x9E3779B97F4A7C15L;
+			return (int) (key ^ (key >>> 32));
+		}
+
+		private void grow() {
+			long[] keys = m_Keys;
+			int[] counts = m_Counts;
+			m_Keys = new long[keys.length << 1];
+			m_Counts = new int[keys.length << 1];
+			int mask = m_Keys.length - 1;
+			for (int i = 0; i < keys.length; i++) {
+				if (counts[i] != 0) {
+					int slot = hash(keys[i]) & mask;
+					while (m_Counts[slot] != 0) {
+						slot = (slot + 1) & mask;
+					}
+					m_Keys[slot] = keys[i];
+					m_Counts[slot] = counts[i];
+				}
+			}
+		}
+
+		int numDistinct() {
+			return m_Size;
+		}
+
+		int numUnique() {
+			int unique = 0;
+			for (int count : m_Counts) {
+				if (count == 1) {
+					unique++;
+				}
+			}
+			return unique;
+		}
+	}
+}
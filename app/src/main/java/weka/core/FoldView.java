@@ -0,0 +1,237 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * FoldView.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.core;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * A view of a subset of the rows of a dataset, stored as an array of row
+ * indices into one shared Instances object. Used by cross-validation so that
+ * the training and test folds do not copy the rows of the dataset.
+ * <p/>
+ * The folds are laid out exactly as Instances.trainCV() and Instances.testCV()
+ * lay them out, and a training fold is shuffled with the same sequence of
+ * random numbers as Instances.randomize(), so a view gives the same rows in the
+ * same order as the copying methods.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class FoldView implements Serializable {
+
+	/**
+	 * for serialization
+	 */
+	private static final long serialVersionUID = -2466281398536512742L;
+
+	/**
+	 * the dataset holding the rows
+	 */
+	private Instances m_Base;
+
+	/**
+	 * the positions of the rows of this view in the base dataset
+	 */
+	private int[] m_Indices;
+
+	/**
+	 * Creates a view of the given rows of a dataset.
+	 *
+	 * @param base    the dataset holding the rows
+	 * @param indices the positions of the rows in the base dataset
+	 */
+	public FoldView(Instances base, int[] indices) {
+		m_Base = base;
+		m_Indices = indices;
+	}
+
+	/**
+	 * Creates a view of the training set for a fold of a cross-validation,
+	 * shuffled with the given random number generator.
+	 *
+	 * @param base     the dataset holding the rows
+	 * @param numFolds the number of folds in the cross-validation
+	 * @param numFold  the fold for which the training set is required (0-based)
+	 * @param random   the random number generator
+	 * @return the training set view
+	 * @throws IllegalArgumentException if the number of folds is less than 2 or
+	 *                                  greater than the number of instances
+	 */
+	public static FoldView trainCV(Instances base, int numFolds, int numFold, Random random) {
+		int numInstances = base.numInstances();
+		checkFolds(numInstances, numFolds);
+		int numInstForFold = numInstances / numFolds;
+		int offset;
+		if (numFold < numInstances % numFolds) {
+			numInstForFold++;
+			offset = numFold;
+		} else {
+			offset = numInstances % numFolds;
+		}
+		int first = numFold * (numInstances / numFolds) + offset;
+		int[] indices = new int[numInstances - numInstForFold];
+		int pos = 0;
+		for (int i = 0; i < first; i++) {
+			indices[pos++] = i;
+		}
+		for (int i = first + numInstForFold; i < numInstances; i++) {
+			indices[pos++] = i;
+		}
+		// same swaps as Instances.randomize()
+		for (int j = indices.length - 1; j > 0; j--) {
+			int k = random.nextInt(j + 1);
+			int help = indices[j];
+			indices[j] = indices[k];
+			indices[k] = help;
+		}
+		return new FoldView(base, indices);
+	}
+
+	/**
+	 * Creates a view of the test set for a fold of a cross-validation.
+	 *
+	 * @param base     the dataset holding the rows
+	 * @param numFolds the number of folds in the cross-validation
+	 * @param numFold  the fold for which the test set is required (0-based)
+	 * @return the test set view
+	 * @throws IllegalArgumentException if the number of folds is less than 2 or
+	 *                                  greater than the number of instances
+	 */
+	public static FoldView testCV(Instances base, int numFolds, int numFold) {
+		int numInstances = base.numInstances();
+		checkFolds(numInstances, numFolds);
+		int numInstForFold = numInstances / numFolds;
+		int offset;
+		if (numFold < numInstances % numFolds) {
+			numInstForFold++;
+			offset = numFold;
+		} else {
+			offset = numInstances % numFolds;
+		}
+		int first = numFold * (numInstances / numFolds) + offset;
+		int[] indices = new int[numInstForFold];
+		for (int i = 0; i < numInstForFold; i++) {
+			indices[i] = first + i;
+		}
+		return new FoldView(base, indices);
+	}
+
+	private static void checkFolds(int numInstances, int numFolds) {
+		if (numFolds < 2) {
+			throw new IllegalArgumentException("Number of folds must be at least 2!");
+		}
+		if (numFolds > numInstances) {
+			throw new IllegalArgumentException("Can't have more folds than instances!");
+		}
+	}
+
+	/**
+	 * Returns a new Instances object that holds the same Instance objects as the
+	 * given dataset, rather than copies of them. The result can be reordered
+	 * (e.g. randomized or stratified) without touching the order of the
+	 * original, but changes to the values or weights of its rows are seen by
+	 * both. Statistics already worked out for the dataset are kept for the
+	 * result.
+	 *
+	 * @param data the dataset
+	 * @return a dataset sharing the rows of the given one
+	 */
+	public static Instances shareRows(Instances data) {
+		SharedInstances result = new SharedInstances(data, data.numInstances());
+		for (int i = 0; i < data.numInstances(); i++) {
+			result.addShared(data.instance(i));
+		}
+		DatasetStatistics.share(data, result);
+		return result;
+	}
+
+	/**
+	 * Returns the dataset holding the rows of this view.
+	 *
+	 * @return the base dataset
+	 */
+	public Instances getBase() {
+		return m_Base;
+	}
+
+	/**
+	 * Returns the number of rows in this view.
+	 *
+	 * @return the number of rows
+	 */
+	public int numInstances() {
+		return m_Indices.length;
+	}
+
+	/**
+	 * Returns the position in the base dataset of a row of this view.
+	 *
+	 * @param i the row of this view
+	 * @return the position of the row in the base dataset
+	 */
+	public int index(int i) {
+		return m_Indices[i];
+	}
+
+	/**
+	 * Returns a row of this view.
+	 *
+	 * @param i the row of this view
+	 * @return the Instance object of the base dataset
+	 */
+	public Instance instance(int i) {
+		return m_Base.instance(m_Indices[i]);
+	}
+
+	/**
+	 * Returns the rows of this view as an Instances object that learners can be
+	 * built from. Only the row references are gathered; the Instance objects are
+	 * those of the base dataset.
+	 *
+	 * @return the rows of this view
+	 */
+	public Instances toInstances() {
+		SharedInstances result = new SharedInstances(m_Base, m_Indices.length);
+		for (int i = 0; i < m_Indices.length; i++) {
+			result.addShared(m_Base.instance(m_Indices[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * An Instances object whose rows can be added by reference.
+	 */
+	private static class SharedInstances extends Instances {
+
+		private static final long serialVersionUID = 6013245476342166394L;
+
+		SharedInstances(Instances header, int capacity) {
+			super(header, capacity);
+		}
+
+		void addShared(Instance instance) {
+			m_Instances.addElement(instance);
+		}
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * ProjectedInstances.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.core;
+
+/**
+ * A view of a dataset with some of its attributes hidden, e.g. the class
+ * attribute when the dataset is clustered. Gives the same header and values as
+ * the Remove filter, but the rows are not copied: each row of the view reads
+ * its values from the row of the base dataset through an index map.
+ * <p/>
+ * The view never changes the base dataset. Setting a value of a row of the
+ * view first gives that row its own copy of the values, and the weights and
+ * the order of the rows of the view are its own.
+ * <p/>
+ * Rows of the view are always dense, even if the rows of the base dataset are
+ * sparse.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class ProjectedInstances extends Instances {
+
+	/**
+	 * for serialization
+	 */
+	private static final long serialVersionUID = 3160873127745640395L;
+
+	/**
+	 * the dataset holding the rows
+	 */
+	private Instances m_Base;
+
+	/**
+	 * the position in the base dataset of each attribute of this view
+	 */
+	private int[] m_Map;
+
+	/**
+	 * Creates a view of a dataset.
+	 *
+	 * @param base the dataset holding the rows
+	 * @param map  the indices of the visible attributes in ascending order
+	 */
+	private ProjectedInstances(Instances base, int[] map) {
+		super(base.relationName(), attributes(base, map), base.numInstances());
+		m_Base = base;
+		m_Map = map;
+		int classIndex = -1;
+		for (int j = 0; j < map.length; j++) {
+			if (map[j] == base.classIndex()) {
+				classIndex = j;
+			}
+		}
+		setClassIndex(classIndex);
+		for (int i = 0; i < base.numInstances(); i++) {
+			m_Instances.addElement(project(base.instance(i)));
+		}
+	}
+
+	/**
+	 * Returns a view of a dataset without the given attributes. The class
+	 * index is kept if the class attribute is not hidden, and is unset
+	 * otherwise.
+	 *
+	 * @param data   the dataset
+	 * @param hidden the indices of the attributes to hide
+	 * @return the view
+	 * @throws IllegalArgumentException if an index is out of range
+	 */
+	public static ProjectedInstances withoutAttributes(Instances data, int[] hidden) {
+		return new ProjectedInstances(data, visible(data, hidden));
+	}
+
+	/**
+	 * Returns a view of a dataset without its class attribute.
+	 *
+	 * @param data the dataset
+	 * @return the view, or the dataset itself if no class is set
+	 */
+	public static Instances withoutClass(Instances data) {
+		if (data.classIndex() < 0) {
+			return data;
+		}
+		return withoutAttributes(data, new int[]{data.classIndex()});
+	}
+
+	/**
+	 * Works out which attributes of the base dataset stay visible.
+	 *
+	 * @param base   the dataset holding the rows
+	 * @param hidden the indices of the attributes to hide
+	 * @return the indices of the visible attributes in ascending order
+	 */
+	private static int[] visible(Instances base, int[] hidden) {
+		boolean[] hide = new boolean[base.numAttributes()];
+		int numHidden = 0;
+		for (int index : hidden) {
+			if (index < 0 || index >= hide.length) {
+				throw new IllegalArgumentException("Attribute index " + index + " out of range!");
+			}
+			if (!hide[index]) {
+				hide[index] = true;
+				numHidden++;
+			}
+		}
+		int[] map = new int[hide.length - numHidden];
+		int pos = 0;
+		for (int j = 0; j < hide.length; j++) {
+			if (!hide[j]) {
+				map[pos++] = j;
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Copies the visible attributes, as the Instances constructor renumbers the
+	 * attributes it is given.
+	 */
+	private static FastVector attributes(Instances base, int[] map) {
+		FastVector atts = new FastVector(map.length);
+		for (int index : map) {
+			atts.addElement(base.attribute(index).copy());
+		}
+		return atts;
+	}
+
+	/**
+	 * Returns the dataset holding the rows of this view.
+	 *
+	 * @return the base dataset
+	 */
+	public Instances getBase() {
+		return m_Base;
+	}
+
+	/**
+	 * Returns the position in the base dataset of an attribute of this view.
+	 *
+	 * @param index the index of the attribute in this view
+	 * @return the index of the attribute in the base dataset
+	 */
+	public int baseIndex(int index) {
+		return m_Map[index];
+	}
+
+	/**
+	 * Projects a row with the header of the base dataset onto this view, e.g. a
+	 * test row that is to be clustered by a clusterer built from the view. The
+	 * values are not copied.
+	 *
+	 * @param instance a row with the header of the base dataset
+	 * @return the row as seen through this view
+	 */
+	public Instance project(Instance instance) {
+		ProjectedInstance row = new ProjectedInstance(instance, m_Map);
+		row.setDataset(this);
+		return row;
+	}
+
+	/**
+	 * A row of a view, reading its values from a row of the base dataset until
+	 * one of them is set.
+	 */
+	private static class ProjectedInstance extends BackedInstance {
+
+		private static final long serialVersionUID = -6981232416302740725L;
+
+		/**
+		 * the row of the base dataset
+		 */
+		private Instance m_Row;
+
+		/**
+		 * the position in the base row of each value of this row
+		 */
+		private int[] m_Map;
+
+		ProjectedInstance(Instance row, int[] map) {
+			m_Row = row;
+			m_Map = map;
+			m_Weight = row.weight();
+		}
+
+		@Override
+		protected double backedValue(int attIndex) {
+			return m_Row.value(m_Map[attIndex]);
+		}
+
+		@Override
+		protected int backedNumAttributes() {
+			return m_Map.length;
+		}
+
+		@Override
+		protected BackedInstance backedCopy() {
+			return new ProjectedInstance(m_Row, m_Map);
+		}
+
+		@Override
+		boolean isCompact() {
+			return isBacked() && m_Row instanceof BackedInstance && ((BackedInstance) m_Row).isCompact();
+		}
+	}
+}
@@ -0,0 +1,658 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * DLArffLoader.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.core.converters;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.RevisionUtils;
+import weka.core.SparseInstance;
+
+/**
+ * An ArffLoader that reads the data section of a file in batch mode without
+ * going through a StreamTokenizer. The header is still read by Weka's
+ * ArffReader; the data lines are then scanned in a character buffer, numbers
+ * are parsed in place and nominal values are looked up without making a String
+ * of each value.
+ * <p/>
+ * A line the scanner does not handle itself - one holding a quoted value with
+ * backslash escapes, a relational value, or anything that is not a well-formed
+ * row - is handed to an ArffReader on its own, so such lines are read, and
+ * errors reported, just as ArffLoader does. Incremental reading is left to
+ * ArffLoader.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class DLArffLoader extends ArffLoader {
+
+	/**
+	 * for serialization
+	 */
+	private static final long serialVersionUID = -7425186237418904321L;
+
+	/**
+	 * Returns a string describing this Loader
+	 *
+	 * @return a description of the Loader suitable for displaying in the
+	 * explorer/experimenter gui
+	 */
+	@Override
+	public String globalInfo() {
+		return "Reads a source that is in arff (attribute relation file format) "
+				+ "format, scanning the data section directly instead of tokenizing it.";
+	}
+
+	/**
+	 * Determines and returns (if possible) the structure (internally the
+	 * header) of the data set as an empty set of instances.
+	 *
+	 * @return the structure of the data set as an empty set of Instances
+	 * @throws IOException if an error occurs
+	 */
+	@Override
+	public Instances getStructure() throws IOException {
+		if (m_structure == null && m_sourceReader != null && !(m_sourceReader instanceof HeaderReader)) {
+			m_sourceReader = new HeaderReader(m_sourceReader);
+		}
+		return super.getStructure();
+	}
+
+	/**
+	 * Return the full data set. If the structure hasn't yet been determined by
+	 * a call to getStructure then method should do so before processing the
+	 * rest of the data set.
+	 *
+	 * @return the structure of the data set as an empty set of Instances
+	 * @throws IOException if there is no source or parsing fails
+	 */
+	@Override
+	public Instances getDataSet() throws IOException {
+		if (m_sourceReader == null) {
+			throw new IOException("No source has been specified");
+		}
+		if (getRetrieval() == INCREMENTAL) {
+			throw new IOException("Cannot mix getting Instances in both incremental and batch modes");
+		}
+		setRetrieval(BATCH);
+		if (m_structure == null) {
+			getStructure();
+		}
+
+		Instances data = new Instances(m_structure, 0);
+		try {
+			// StreamTokenizer leaves the '\n' of a "\r\n" after the header unread
+			boolean skipLF = (m_sourceReader instanceof HeaderReader)
+					&& ((HeaderReader) m_sourceReader).lastChar() == '\r';
+			new DataReader(m_sourceReader, data, m_ArffReader.getLineNo(), skipLF).read();
+		} finally {
+			m_sourceReader.close();
+		}
+		return data;
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision: 1 $");
+	}
+
+	/**
+	 * Remembers the last character the header tokenizer read, which it reads
+	 * one at a time.
+	 */
+	private static class HeaderReader extends FilterReader {
+
+		private int m_Last = -1;
+
+		HeaderReader(Reader in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int c = in.read();
+			if (c >= 0) {
+				m_Last = c;
+			}
+			return c;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			int n = in.read(cbuf, off, len);
+			if (n > 0) {
+				m_Last = cbuf[off + n - 1];
+			}
+			return n;
+		}
+
+		int lastChar() {
+			return m_Last;
+		}
+	}
+
+	/**
+	 * Looks up the index of a nominal value from the characters of a token.
+	 */
+	private static class Labels {
+
+		private final String[] m_Values;
+
+		/**
+		 * open addressing table of value index + 1, 0 marking a free slot
+		 */
+		private final int[] m_Table;
+
+		Labels(Attribute att) {
+			m_Values = new String[att.numValues()];
+			m_Table = new int[Integer.highestOneBit(Math.max(m_Values.length, 1) * 4)];
+			int mask = m_Table.length - 1;
+			for (int v = 0; v < m_Values.length; v++) {
+				m_Values[v] = att.value(v);
+				int slot = spread(m_Values[v].hashCode()) & mask;
+				while (m_Table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				m_Table[slot] = v + 1;
+			}
+		}
+
+		private static int spread(int hash) {
+			return hash ^ (hash >>> 16);
+		}
+
+		/**
+		 * @return the index of the value, or -1 if it is not declared
+		 */
+		int indexOf(char[] buf, int start, int end) {
+			int hash = 0;
+			for (int p = start; p < end; p++) {
+				hash = 31 * hash + buf[p];
+			}
+			int mask = m_Table.length - 1;
+			for (int slot = spread(hash) & mask; m_Table[slot] != 0; slot = (slot + 1) & mask) {
+				String value = m_Values[m_Table[slot] - 1];
+				if (value.length() == end - start && matches(value, buf, start)) {
+					return m_Table[slot] - 1;
+				}
+			}
+			return -1;
+		}
+
+		private static boolean matches(String value, char[] buf, int start) {
+			for (int i = 0; i < value.length(); i++) {
+				if (value.charAt(i) != buf[start + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Reads the data section line by line. Tokens follow the syntax of the
+	 * StreamTokenizer set up by ArffReader: values are separated by commas or
+	 * characters up to ' ', '%' starts a comment, '{' and '}' are tokens of
+	 * their own and quotes start a quoted value.
+	 */
+	private static class DataReader {
+
+		private static final int END = 0;
+		private static final int WORD = 1;
+		private static final int OPEN = 2;
+		private static final int CLOSE = 3;
+		private static final int QUOTED = 4;
+		private static final int OTHER = 5;
+
+		/**
+		 * powers of ten that are exact as doubles
+		 */
+		private static final double[] POWERS_OF_TEN = new double[23];
+
+		static {
+			POWERS_OF_TEN[0] = 1;
+			for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+				POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+			}
+		}
+
+		private final Reader m_Reader;
+		private final Instances m_Data;
+		private final int m_NumAttributes;
+		private final int[] m_Types;
+		private final Labels[] m_Labels;
+		private final double[] m_SparseValues;
+		private final int[] m_SparseIndices;
+
+		private char[] m_Buffer = new char[65536];
+		private int m_Pos;
+		private int m_Limit;
+		private boolean m_SkipLF;
+
+		/**
+		 * the number of the next line in the file
+		 */
+		private int m_NextLine;
+
+		private int m_LineStart;
+		private int m_LineEnd;
+		private boolean m_Terminated;
+
+		/**
+		 * the position of the scanner within the line
+		 */
+		private int m_Scan;
+		private int m_TokenStart;
+		private int m_TokenEnd;
+
+		/**
+		 * the last number parsed
+		 */
+		private double m_Number;
+
+		/**
+		 * @param reader    the text after the header
+		 * @param data      the header, to which the rows are added
+		 * @param firstLine the number of the first line of the data section
+		 * @param skipLF    whether a leading '\n' ends the header line
+		 */
+		DataReader(Reader reader, Instances data, int firstLine, boolean skipLF) {
+			m_Reader = reader;
+			m_Data = data;
+			m_NumAttributes = data.numAttributes();
+			m_Types = new int[m_NumAttributes];
+			m_Labels = new Labels[m_NumAttributes];
+			for (int j = 0; j < m_NumAttributes; j++) {
+				Attribute att = data.attribute(j);
+				m_Types[j] = att.type();
+				if (att.isNominal()) {
+					m_Labels[j] = new Labels(att);
+				}
+			}
+			m_SparseValues = new double[m_NumAttributes];
+			m_SparseIndices = new int[m_NumAttributes];
+			m_NextLine = firstLine;
+			m_SkipLF = skipLF;
+		}
+
+		void read() throws IOException {
+			while (nextLine()) {
+				m_Scan = m_LineStart;
+				int token = nextToken();
+				if (token == END) {
+					continue;
+				}
+				Instance row = (m_NumAttributes == 0) ? null
+						: (token == OPEN) ? parseSparse() : parseDense(token);
+				if (row != null) {
+					m_Data.add(row);
+				} else {
+					readWithTokenizer();
+				}
+			}
+		}
+
+		/**
+		 * Reads the current line with an ArffReader and adds the rows it finds
+		 * there to the dataset. The reader throws the error ArffLoader would.
+		 */
+		private void readWithTokenizer() throws IOException {
+			String line = new String(m_Buffer, m_LineStart, m_LineEnd - m_LineStart);
+			// the reader shares the attributes, so string values are added to them
+			Instances rows = new ArffReader(new StringReader(m_Terminated ? line + "\n" : line),
+					m_Data, m_NextLine).getData();
+			for (int i = 0; i < rows.numInstances(); i++) {
+				m_Data.add(rows.instance(i));
+			}
+		}
+
+		/**
+		 * Parses a dense row from its first token on.
+		 *
+		 * @return the row, or null if the line needs the tokenizer
+		 */
+		private Instance parseDense(int token) {
+			double[] values = new double[m_NumAttributes];
+			for (int j = 0; j < m_NumAttributes; j++) {
+				if (j > 0) {
+					token = nextToken();
+				}
+				if (!parseValue(token, j)) {
+					return null;
+				}
+				values[j] = m_Number;
+			}
+			if (!parseWeight()) {
+				return null;
+			}
+			return new Instance(m_Number, values);
+		}
+
+		/**
+		 * Parses a sparse row after its opening brace.
+		 *
+		 * @return the row, or null if the line needs the tokenizer
+		 */
+		private Instance parseSparse() {
+			int numValues = 0;
+			int maxIndex = -1;
+			int token;
+			while ((token = nextToken()) != CLOSE) {
+				if (token != WORD) {
+					return null;
+				}
+				int index = 0;
+				for (int p = m_TokenStart; p < m_TokenEnd; p++) {
+					char c = m_Buffer[p];
+					if (c < '0' || c > '9' || index > m_NumAttributes) {
+						return null;
+					}
+					index = index * 10 + (c - '0');
+				}
+				if (index <= maxIndex || index >= m_NumAttributes) {
+					return null;
+				}
+				maxIndex = index;
+				if (!parseValue(nextToken(), index)) {
+					return null;
+				}
+				m_SparseIndices[numValues] = index;
+				m_SparseValues[numValues] = m_Number;
+				numValues++;
+			}
+			if (!parseWeight()) {
+				return null;
+			}
+			return new SparseInstance(m_Number, Arrays.copyOf(m_SparseValues, numValues),
+					Arrays.copyOf(m_SparseIndices, numValues), m_NumAttributes);
+		}
+
+		/**
+		 * Parses the optional "{weight}" that ends a row into m_Number.
+		 *
+		 * @return false if the rest of the line is anything else
+		 */
+		private boolean parseWeight() {
+			int token = nextToken();
+			if (token == END) {
+				m_Number = 1;
+				return true;
+			}
+			return token == OPEN && nextToken() == WORD && parseNumber()
+					&& nextToken() == CLOSE && nextToken() == END;
+		}
+
+		/**
+		 * Parses the current token as a value of an attribute into m_Number.
+		 *
+		 * @param token the type of the token
+		 * @param att   the index of the attribute
+		 * @return false if the tokenizer has to read the value
+		 */
+		private boolean parseValue(int token, int att) {
+			if (token != WORD && token != QUOTED) {
+				return false;
+			}
+			if (token == WORD && m_TokenEnd - m_TokenStart == 1 && m_Buffer[m_TokenStart] == '?') {
+				m_Number = Instance.missingValue();
+				return true;
+			}
+			switch (m_Types[att]) {
+				case Attribute.NUMERIC:
+					return parseNumber();
+				case Attribute.NOMINAL:
+					int index = m_Labels[att].indexOf(m_Buffer, m_TokenStart, m_TokenEnd);
+					m_Number = index;
+					return index >= 0;
+				case Attribute.STRING:
+					m_Number = m_Data.attribute(att).addStringValue(tokenString());
+					return true;
+				case Attribute.DATE:
+					try {
+						m_Number = m_Data.attribute(att).parseDate(tokenString());
+						return true;
+					} catch (ParseException e) {
+						return false;
+					}
+				default:
+					return false;
+			}
+		}
+
+		private String tokenString() {
+			return new String(m_Buffer, m_TokenStart, m_TokenEnd - m_TokenStart);
+		}
+
+		/**
+		 * Parses the current token as Double.valueOf() would into m_Number.
+		 * Decimal numbers with up to 15 significant digits and small exponents
+		 * are exact products or quotients of two doubles, so are computed in
+		 * place; anything else goes through Double.parseDouble().
+		 *
+		 * @return false if the token is not a number
+		 */
+		private boolean parseNumber() {
+			char[] buf = m_Buffer;
+			int p = m_TokenStart;
+			int end = m_TokenEnd;
+			boolean negative = false;
+			if (buf[p] == '-' || buf[p] == '+') {
+				negative = buf[p] == '-';
+				p++;
+			}
+			long mantissa = 0;
+			int exponent = 0;
+			int digits = 0;
+			boolean fast = true;
+			for (; p < end && buf[p] >= '0' && buf[p] <= '9'; p++) {
+				if (mantissa < 100000000000000L) {
+					mantissa = mantissa * 10 + (buf[p] - '0');
+				} else {
+					fast = false;
+				}
+				digits++;
+			}
+			if (p < end && buf[p] == '.') {
+				for (p++; p < end && buf[p] >= '0' && buf[p] <= '9'; p++) {
+					if (mantissa < 100000000000000L) {
+						mantissa = mantissa * 10 + (buf[p] - '0');
+						exponent--;
+					} else {
+						fast = false;
+					}
+					digits++;
+				}
+			}
+			if (digits > 0 && p < end && (buf[p] == 'e' || buf[p] == 'E')) {
+				p++;
+				boolean negativeExponent = false;
+				if (p < end && (buf[p] == '-' || buf[p] == '+')) {
+					negativeExponent = buf[p] == '-';
+					p++;
+				}
+				int e = 0;
+				int start = p;
+				for (; p < end && buf[p] >= '0' && buf[p] <= '9'; p++) {
+					if (e < 10000) {
+						e = e * 10 + (buf[p] - '0');
+					}
+				}
+				if (p == start) {
+					digits = 0;
+				}
+				exponent += negativeExponent ? -e : e;
+			}
+			if (fast && digits > 0 && p == end && exponent >= -22 && exponent <= 22) {
+				double value = (exponent < 0) ? mantissa / POWERS_OF_TEN[-exponent]
+						: mantissa * POWERS_OF_TEN[exponent];
+				m_Number = negative ? -value : value;
+				return true;
+			}
+			try {
+				m_Number = Double.parseDouble(tokenString());
+				return true;
+			} catch (NumberFormatException e) {
+				return false;
+			}
+		}
+
+		/**
+		 * Reads the next token of the line. A quoted value is read without its
+		 * quotes, unless it holds a backslash escape or is not closed.
+		 *
+		 * @return END, WORD, OPEN, CLOSE, QUOTED or OTHER (a quoted value that
+		 * needs the tokenizer)
+		 */
+		private int nextToken() {
+			char[] buf = m_Buffer;
+			int p = m_Scan;
+			int end = m_LineEnd;
+			while (p < end && (buf[p] <= ' ' || buf[p] == ',')) {
+				p++;
+			}
+			if (p == end || buf[p] == '%') {
+				m_Scan = end;
+				return END;
+			}
+			char c = buf[p];
+			m_Scan = p + 1;
+			switch (c) {
+				case '{':
+					return OPEN;
+				case '}':
+					return CLOSE;
+				case '\'':
+				case '"':
+					int q = p + 1;
+					while (q < end && buf[q] != c && buf[q] != '\\') {
+						q++;
+					}
+					if (q == end || buf[q] != c) {
+						return OTHER;
+					}
+					m_TokenStart = p + 1;
+					m_TokenEnd = q;
+					m_Scan = q + 1;
+					return QUOTED;
+			}
+			m_TokenStart = p;
+			while (p < end && (c = buf[p]) > ' ' && c != ',' && c != '%' && c != '{' && c != '}'
+					&& c != '\'' && c != '"') {
+				p++;
+			}
+			m_TokenEnd = p;
+			m_Scan = p;
+			return WORD;
+		}
+
+		/**
+		 * Finds the next line and leaves it in m_Buffer between m_LineStart and
+		 * m_LineEnd.
+		 *
+		 * @return false at the end of the data
+		 */
+		private boolean nextLine() throws IOException {
+			if (m_SkipLF) {
+				if (m_Pos == m_Limit && !fill()) {
+					return false;
+				}
+				if (m_Buffer[m_Pos] == '\n') {
+					m_Pos++;
+				}
+				m_SkipLF = false;
+			}
+			int p = m_Pos;
+			while (true) {
+				while (p < m_Limit && m_Buffer[p] != '\n' && m_Buffer[p] != '\r') {
+					p++;
+				}
+				if (p < m_Limit) {
+					break;
+				}
+				int scanned = p - m_Pos;
+				if (!fill()) {
+					if (m_Pos == m_Limit) {
+						return false;
+					}
+					m_LineStart = m_Pos;
+					m_LineEnd = m_Limit;
+					m_Terminated = false;
+					m_Pos = m_Limit;
+					m_NextLine++;
+					return true;
+				}
+				p = m_Pos + scanned;
+			}
+			m_LineStart = m_Pos;
+			m_LineEnd = p;
+			m_Terminated = true;
+			m_Pos = p + 1;
+			if (m_Buffer[p] == '\r') {
+				if (m_Pos < m_Limit) {
+					if (m_Buffer[m_Pos] == '\n') {
+						m_Pos++;
+					}
+				} else {
+					m_SkipLF = true;
+				}
+			}
+			m_NextLine++;
+			return true;
+		}
+
+		/**
+		 * Reads more text, keeping the part of the buffer from m_Pos on, which
+		 * moves to the start of the buffer.
+		 *
+		 * @return false at the end of the text
+		 */
+		private boolean fill() throws IOException {
+			int keep = m_Limit - m_Pos;
+			if (keep == m_Buffer.length) {
+				m_Buffer = Arrays.copyOf(m_Buffer, m_Buffer.length * 2);
+			} else if (m_Pos > 0) {
+				System.arraycopy(m_Buffer, m_Pos, m_Buffer, 0, keep);
+			}
+			m_Pos = 0;
+			m_Limit = keep;
+			int n = m_Reader.read(m_Buffer, keep, m_Buffer.length - keep);
+			if (n <= 0) {
+				return false;
+			}
+			m_Limit += n;
+			return true;
+		}
+	}
+}
@@ -28,14 +28,30 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
 import java.io.StreamTokenizer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import weka.core.Attribute;
+import weka.core.CompactInstances;
 import weka.core.FastVector;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -43,6 +59,7 @@ import weka.core.Option;
 import weka.core.OptionHandler;
 import weka.core.Range;
 import weka.core.RevisionUtils;
+import weka.core.SparseInstance;
 import weka.core.Utils;
 
 /**
@@ -96,6 +113,26 @@ import weka.core.Utils;
  *  The enclosure character(s) to use for strings.
  *  Specify as a comma separated list (e.g. ",' (default: '"')
  * </pre>
+ *
+ * <pre>
+ * -threads &lt;num&gt;
+ *  The number of threads to parse a file with.
+ *  0 means one per processor, 1 parses on the calling thread.
+ *  (default: 0)
+ * </pre>
+ *
+ * <pre>
+ * -compact
+ *  Keep the data in compact storage: numbers as floats and
+ *  nominal values as byte or short indices.
+ * </pre>
+ *
+ * <pre>
+ * -sparse
+ *  Read the data as sparse data, keeping only the values that
+ *  are not 0 or the most frequent label of their attribute, and
+ *  return sparse instances unless more than half are kept.
+ * </pre>
  * <p>
  * <!-- options-end -->
  *
@@ -116,16 +153,6 @@ public class DLCSVLoader extends AbstractFileLoader implements BatchConverter,
 	 */
 	public static String FILE_EXTENSION = ".csv";
 	
-	/**
-	 * A list of hash tables for accumulating nominal values during parsing.
-	 */
-	protected FastVector m_cumulativeStructure;
-	
-	/**
-	 * Holds instances accumulated so far.
-	 */
-	protected FastVector m_cumulativeInstances;
-	
 	/**
 	 * The reader for the data.
 	 */
@@ -167,14 +194,45 @@ public class DLCSVLoader extends AbstractFileLoader implements BatchConverter,
 	protected String m_MissingValue = "?";
 	
 	/**
-	 * whether the first row has been read.
+	 * enclosure character(s) to use for strings
+	 */
+	protected String m_Enclosures = "\",\'";
+	
+	/**
+	 * The number of threads to parse a file with, 0 for one per processor.
 	 */
-	protected boolean m_FirstCheck;
+	protected int m_NumThreads = 0;
 	
 	/**
-	 * enclosure character(s) to use for strings
+	 * Whether the data is kept in compact storage.
 	 */
-	protected String m_Enclosures = "\",\'";
+	protected boolean m_CompactStorage = false;
+	
+	/**
+	 * Whether the data is read as sparse data.
+	 */
+	protected boolean m_Sparse = false;
+	
+	/**
+	 * The least number of bytes a file is split into chunks of.
+	 */
+	protected static final int MIN_CHUNK_SIZE = 1 << 20;
+	
+	/**
+	 * The most distinct numbers scanStructure() keeps for an attribute while it
+	 * is numeric, in case a label later turns it nominal.
+	 */
+	protected static final int MAX_SCAN_NUMBERS = 1 << 16;
+	
+	/**
+	 * The reader for getNextInstance(), created on the first call.
+	 */
+	private transient CSVReader m_StreamReader;
+	
+	/**
+	 * The fields of the row getNextInstance() is reading.
+	 */
+	private transient String[] m_StreamFields;
 	
 	/**
 	 * default constructor.
@@ -267,6 +325,20 @@ public class DLCSVLoader extends AbstractFileLoader implements BatchConverter,
 								+ "\tSpecify as a comma separated list (e.g. \",'"
 								+ " (default: \",')", "E", 1, "-E <enclosures>"));
 		
+		result.addElement(new Option(
+				"\tThe number of threads to parse a file with.\n"
+						+ "\t0 means one per processor, 1 parses on the calling thread.\n"
+						+ "\t(default: 0)", "threads", 1, "-threads <num>"));
+		
+		result.addElement(new Option(
+				"\tKeep the data in compact storage: numbers as floats and\n"
+						+ "\tnominal values as byte or short indices.", "compact", 0, "-compact"));
+		
+		result.addElement(new Option(
+				"\tRead the data as sparse data, keeping only the values that\n"
+						+ "\tare not 0 or the most frequent label of their attribute, and\n"
+						+ "\treturn sparse instances unless more than half are kept.", "sparse", 0, "-sparse"));
+		
 		return result.elements();
 	}
 	
@@ -319,6 +391,26 @@ public class DLCSVLoader extends AbstractFileLoader implements BatchConverter,
 	 *  Specify as a comma separated list (e.g. ",' (default: '"')
 	 * </pre>
 	 *
+	 * <pre>
+	 * -threads &lt;num&gt;
+	 *  The number of threads to parse a file with.
+	 *  0 means one per processor, 1 parses on the calling thread.
+	 *  (default: 0)
+	 * </pre>
+	 *
+	 * <pre>
+	 * -compact
+	 *  Keep the data in compact storage: numbers as floats and
+	 *  nominal values as byte or short indices.
+	 * </pre>
+	 *
+	 * <pre>
+	 * -sparse
+	 *  Read the data as sparse data, keeping only the values that
+	 *  are not 0 or the most frequent label of their attribute, and
+	 *  return sparse instances unless more than half are kept.
+	 * </pre>
+	 *
 	 * <!-- options-end -->
 	 *
 	 * @param options the list of options as an array of strings
@@ -358,6 +450,14 @@ public class DLCSVLoader extends AbstractFileLoader implements BatchConverter,
 		if (tmpStr.length() > 0) {
 			setEnclosureCharacters(tmpStr);
 		}
+		tmpStr = Utils.getOption("threads", options);
+		if (tmpStr.length() > 0) {
+			setNumThreads(Integer.parseInt(tmpStr));
+		} else {
+			setNumThreads(0);
+		}
+		setCompactStorage(Utils.getFlag("compact", options));
+		setSparse(Utils.getFlag("sparse", options));
 	}
 	
 	/**
@@ -394,6 +494,17 @@ public class DLCSVLoader extends AbstractFileLoader implements BatchConverter,
 		result.add("-E");
 		result.add(getEnclosureCharacters());
 		
+		result.add("-threads");
+		result.add("" + getNumThreads());
+		
+		if (getCompactStorage()) {
+			result.add("-compact");
+		}
+		
+		if (getSparse()) {
+			result.add("-sparse");
+		}
+		
 		return result.toArray(new String[result.size()]);
 	}
 	
@@ -541,6 +652,102 @@ public class DLCSVLoader extends AbstractFileLoader implements BatchConverter,
 		return m_Enclosures;
 	}
 	
+	/**
+	 * Sets the number of threads a file source is parsed with.
+	 *
+	 * @param value the number of threads, 0 for one per processor
+	 */
+	public void setNumThreads(int value) {
+		m_NumThreads = value;
+	}
+	
+	/**
+	 * Returns the number of threads a file source is parsed with.
+	 *
+	 * @return the number of threads, 0 for one per processor
+	 */
+	public int getNumThreads() {
+		return m_NumThreads;
+	}
+	
+	/**
+	 * Returns the tip text for this property.
+	 *
+	 * @return tip text for this property suitable for displaying in the
+	 * explorer/experimenter gui
+	 */
+	public String numThreadsTipText() {
+		return "The number of threads to parse a file with, 0 for one per processor "
+				+ "and 1 to parse it on the calling thread.";
+	}
+	
+	/**
+	 * Sets whether the data is kept in compact storage (see CompactInstances),
+	 * which holds numeric values at float precision.
+	 *
+	 * @param value true for compact storage
+	 */
+	public void setCompactStorage(boolean value) {
+		m_CompactStorage = value;
+	}
+	
+	/**
+	 * Returns whether the data is kept in compact storage.
+	 *
+	 * @return true for compact storage
+	 */
+	public boolean getCompactStorage() {
+		return m_CompactStorage;
+	}
+	
+	/**
+	 * Returns the tip text for this property.
+	 *
+	 * @return tip text for this property suitable for displaying in the
+	 * explorer/experimenter gui
+	 */
+	public String compactStorageTipText() {
+		return "Keep the data in compact storage, with numeric values as floats and "
+				+ "nominal values as byte or short indices, to fit more rows in memory.";
+	}
+	
+	/**
+	 * Sets whether the data is read as sparse data. Each attribute then keeps
+	 * only its values that are not its default, which is 0 for a numeric
+	 * attribute and the most frequent label for a nominal one; that label is
+	 * made the first label, so that it is the value a SparseInstance leaves
+	 * out. If at most half of all the values are kept, getDataSet() returns
+	 * SparseInstances (and compact storage is not used), otherwise ordinary
+	 * instances. Missing values are always kept, so a file that leaves out
+	 * items with the missing value placeholder is only sparse if a different
+	 * placeholder is set.
+	 *
+	 * @param value true to read the data as sparse data
+	 */
+	public void setSparse(boolean value) {
+		m_Sparse = value;
+	}
+	
+	/**
+	 * Returns whether the data is read as sparse data.
+	 *
+	 * @return true if the data is read as sparse data
+	 */
+	public boolean getSparse() {
+		return m_Sparse;
+	}
+	
+	/**
+	 * Returns the tip text for this property.
+	 *
+	 * @return tip text for this property suitable for displaying in the
+	 * explorer/experimenter gui
+	 */
+	public String sparseTipText() {
+		return "Read the data as sparse data, such as market baskets, keeping only the "
+				+ "values that are not 0 or the most frequent label of their attribute.";
+	}
+	
 	/**
 	 * Sets the placeholder for missing values.
 	 *
@@ -581,14 +788,15 @@ public class DLCSVLoader extends AbstractFileLoader implements BatchConverter,
 		m_structure = null;
 		m_sourceFile = null;
 		m_File = null;
-		m_FirstCheck = true;
+		m_StreamReader = null;
 		
 		m_sourceReader = new BufferedReader(new InputStreamReader(input));
 	}
 	
 	/**
 	 * Resets the Loader object and sets the source of the data set to be the
-	 * supplied File object.
+	 * supplied File object. Unless it is compressed, a large file is mapped into
+	 * memory and parsed in chunks on several threads (see setNumThreads()).
 	 *
 	 * @param file the source file.
 	 * @throws IOException if an error occurs
@@ -637,6 +845,14 @@ public class DLCSVLoader extends AbstractFileLoader implements BatchConverter,
 	 * Return the full data set. If the structure hasn't yet been determined by a
 	 * call to getStructure then method should do so before processing the rest of
 	 * the data set.
+	 * <p/>
+	 * The rows are read in a single pass straight into one primitive column per
+	 * attribute, with nominal values dictionary encoded, and the Instances are
+	 * built from the columns at the end. A large uncompressed file is split at
+	 * line ends into chunks that are parsed in parallel into columns of their
+	 * own, which are joined while the Instances are built. Sparse data (see
+	 * setSparse()) is read into columns that only keep the values that are not
+	 * the default.
 	 *
 	 * @return the structure of the data set as an empty set of Instances
 	 * @throws IOException if there is no source or parsing fails
@@ -646,316 +862,1564 @@ public class DLCSVLoader extends AbstractFileLoader implements BatchConverter,
 		if ((m_sourceFile == null) && (m_sourceReader == null)) {
 			throw new IOException("No source has been specified");
 		}
+		if (getRetrieval() == INCREMENTAL) {
+			throw new IOException("Cannot mix getting Instances in both incremental and batch modes");
+		}
 		
 		if (m_structure == null) {
 			getStructure();
 		}
 		
-		if (m_st == null) {
-			m_st = new StreamTokenizer(m_sourceReader);
-			initTokenizer(m_st);
+		int numAtts = m_structure.numAttributes();
+		m_NominalAttributes.setUpper(numAtts - 1);
+		m_StringAttributes.setUpper(numAtts - 1);
+		m_dateAttributes.setUpper(numAtts - 1);
+		
+		List<Column[]> parts = null;
+		if (m_sourceFile != null && m_st != null
+				&& !m_sourceFile.getName().endsWith(FILE_EXTENSION_COMPRESSED)
+				&& isLineAligned(Charset.defaultCharset())) {
+			int numThreads = (m_NumThreads > 0) ? m_NumThreads
+					: Runtime.getRuntime().availableProcessors();
+			if (numThreads > 1) {
+				parts = readChunks(numThreads);
+			}
+		}
+		if (parts == null) {
+			// too small to split, or not a plain file
+			if (m_formatter == null) {
+				m_formatter = new SimpleDateFormat(m_dateFormat);
+			}
+			CSVReader reader = new CSVReader(m_sourceReader, m_Enclosures,
+					(m_st == null) ? 0 : m_st.lineno());
+			Column[] columns = newColumns(numAtts);
+			while (readRow(reader, columns, m_formatter)) {
+			}
+			parts = new ArrayList<Column[]>();
+			parts.add(columns);
 		}
 		
-		m_st.ordinaryChar(',');
-		m_st.ordinaryChar('\t');
+		Instances dataSet = m_Sparse ? makeSparseInstances(parts) : makeInstances(parts);
+		m_structure = new Instances(dataSet, 0);
+		setRetrieval(BATCH);
 		
-		m_cumulativeStructure = new FastVector(m_structure.numAttributes());
-		for (int i = 0; i < m_structure.numAttributes(); i++) {
-			m_cumulativeStructure.addElement(new Hashtable());
-		}
+		// close the stream
+		m_sourceReader.close();
 		
-		m_cumulativeInstances = new FastVector();
-		FastVector current;
-		while ((current = getInstance(m_st)) != null) {
-			m_cumulativeInstances.addElement(current);
+		return dataSet;
+	}
+	
+	/**
+	 * Reads the whole source to find the structure getDataSet() would give it,
+	 * without keeping the rows. The types of the attributes of a CSV file are
+	 * only known once every row has been read, so this is the first of the two
+	 * passes needed to stream the file: the header returned here is the one to
+	 * pass to getNextInstance() of a second loader reading the same source.
+	 * <p/>
+	 * Only the labels of nominal attributes are kept, plus, while an attribute
+	 * is numeric, its distinct numbers, which become its first labels if a
+	 * label turns up later. If an attribute has more than MAX_SCAN_NUMBERS
+	 * distinct numbers before its first label the scan fails, as the order of
+	 * its labels can then not be reproduced.
+	 *
+	 * @return the structure of the data set as an empty set of Instances
+	 * @throws IOException if there is no source or parsing fails
+	 */
+	public Instances scanStructure() throws IOException {
+		if ((m_sourceFile == null) && (m_sourceReader == null)) {
+			throw new IOException("No source has been specified");
+		}
+		if (getRetrieval() == INCREMENTAL) {
+			throw new IOException("Cannot mix getting Instances in both incremental and batch modes");
 		}
 		
-		FastVector atts = new FastVector(m_structure.numAttributes());
-		for (int i = 0; i < m_structure.numAttributes(); i++) {
-			String attname = m_structure.attribute(i).name();
-			Hashtable tempHash = ((Hashtable) m_cumulativeStructure.elementAt(i));
-			if (tempHash.size() == 0) {
-				if (m_dateAttributes.isInRange(i)) {
-					atts.addElement(new Attribute(attname, m_dateFormat));
-				} else {
-					atts.addElement(new Attribute(attname));
-				}
-			} else {
-				if (m_StringAttributes.isInRange(i)) {
-					atts.addElement(new Attribute(attname, (FastVector) null));
-				} else {
-					FastVector values = new FastVector(tempHash.size());
-					// add dummy objects in order to make the FastVector's size ==
-					// capacity
-					for (int z = 0; z < tempHash.size(); z++) {
-						values.addElement("dummy");
-					}
-					Enumeration e = tempHash.keys();
-					while (e.hasMoreElements()) {
-						Object ob = e.nextElement();
-						// if (ob instanceof Double) {
-						int index = ((Integer) tempHash.get(ob)).intValue();
-						String s = ob.toString();
-						if (s.startsWith("'") || s.startsWith("\""))
-							s = s.substring(1, s.length() - 1);
-						values.setElementAt(s, index);
-						// }
-					}
-					atts.addElement(new Attribute(attname, values));
-				}
-			}
+		if (m_structure == null) {
+			getStructure();
 		}
 		
-		// make the instances
-		String relationName;
-		if (m_sourceFile != null)
-			relationName = (m_sourceFile.getName())
-					.replaceAll("\\.[cC][sS][vV]$", "");
-		else
-			relationName = "stream";
-		Instances dataSet = new Instances(relationName, atts,
-				m_cumulativeInstances.size());
-		
-		for (int i = 0; i < m_cumulativeInstances.size(); i++) {
-			current = ((FastVector) m_cumulativeInstances.elementAt(i));
-			double[] vals = new double[dataSet.numAttributes()];
-			for (int j = 0; j < current.size(); j++) {
-				Object cval = current.elementAt(j);
-				if (cval instanceof String) {
-					if (((String) cval).compareTo(m_MissingValue) == 0) {
-						vals[j] = Instance.missingValue();
-					} else {
-						if (dataSet.attribute(j).isString()) {
-							vals[j] = dataSet.attribute(j).addStringValue((String) cval);
-						} else if (dataSet.attribute(j).isNominal()) {
-							// find correct index
-							Hashtable lookup = (Hashtable) m_cumulativeStructure.elementAt(j);
-							int index = ((Integer) lookup.get(cval)).intValue();
-							vals[j] = index;
-						} else {
-							throw new IllegalStateException(
-									"Wrong attribute type at position " + (i + 1) + "!!!");
-						}
-					}
-				} else if (dataSet.attribute(j).isNominal()) {
-					// find correct index
-					Hashtable lookup = (Hashtable) m_cumulativeStructure.elementAt(j);
-					int index = ((Integer) lookup.get(cval)).intValue();
-					vals[j] = index;
-				} else if (dataSet.attribute(j).isString()) {
-					vals[j] = dataSet.attribute(j).addStringValue("" + cval);
-				} else {
-					vals[j] = ((Double) cval).doubleValue();
-				}
+		int numAtts = m_structure.numAttributes();
+		m_NominalAttributes.setUpper(numAtts - 1);
+		m_StringAttributes.setUpper(numAtts - 1);
+		m_dateAttributes.setUpper(numAtts - 1);
+		
+		if (m_formatter == null) {
+			m_formatter = new SimpleDateFormat(m_dateFormat);
+		}
+		CSVReader reader = new CSVReader(m_sourceReader, m_Enclosures,
+				(m_st == null) ? 0 : m_st.lineno());
+		Column[] columns = new Column[numAtts];
+		for (int i = 0; i < numAtts; i++) {
+			columns[i] = new ScanColumn();
+		}
+		initColumns(columns);
+		while (readRow(reader, columns, m_formatter)) {
+		}
+		for (int i = 0; i < numAtts; i++) {
+			if (((ScanColumn) columns[i]).m_Overflow && columns[i].hasLabels()) {
+				throw new IOException("attribute " + m_structure.attribute(i).name()
+						+ " has more than " + MAX_SCAN_NUMBERS
+						+ " distinct numbers before its first label");
 			}
-			dataSet.add(new Instance(1.0, vals));
 		}
-		m_structure = new Instances(dataSet, 0);
+		
+		List<Column[]> parts = new ArrayList<Column[]>();
+		parts.add(columns);
+		// a plain header, even with compact storage
+		m_structure = new Instances(makeInstances(parts), 0);
 		setRetrieval(BATCH);
-		m_cumulativeStructure = null; // conserve memory
-		m_cumulativeInstances = null;
 		
 		// close the stream
 		m_sourceReader.close();
 		
-		return dataSet;
+		return m_structure;
 	}
 	
 	/**
-	 * CSVLoader is unable to process a data set incrementally.
+	 * Creates empty columns for the attributes, sparse ones if the data is read
+	 * as sparse data.
 	 *
-	 * @param structure ignored
-	 * @return never returns without throwing an exception
-	 * @throws IOException always. CSVLoader is unable to process a data set
-	 *                     incrementally.
+	 * @param numAtts the number of attributes
+	 * @return the columns
 	 */
-	@Override
-	public Instance getNextInstance(Instances structure) throws IOException {
-		throw new IOException("CSVLoader can't read data sets incrementally.");
+	private Column[] newColumns(int numAtts) {
+		Column[] columns = new Column[numAtts];
+		for (int i = 0; i < numAtts; i++) {
+			columns[i] = m_Sparse ? new SparseColumn() : new Column();
+		}
+		initColumns(columns);
+		return columns;
 	}
 	
 	/**
-	 * Attempts to parse a line of the data set.
-	 *
-	 * @param tokenizer the tokenizer
-	 * @return a FastVector containg String and Double objects representing the
-	 * values of the instance.
-	 * @throws IOException if an error occurs
+	 * Turns the columns of forced nominal and string attributes into nominal
+	 * ones.
 	 *
-	 *                     <pre>
-	 *                     <jml>
-	 *                        private_normal_behavior
-	 *                          requires: tokenizer != null;
-	 *                          ensures: \result  != null;
-	 *                      also
-	 *                        private_exceptional_behavior
-	 *                          requires: tokenizer == null
-	 *                                    || (* unsucessful parse *);
-	 *                          signals: (IOException);
-	 *                     </jml>
-	 *                     </pre>
+	 * @param columns the empty columns of the attributes
 	 */
-	private FastVector getInstance(StreamTokenizer tokenizer) throws IOException {
-		
-		FastVector current = new FastVector();
-		
-		// Check if end of file reached.
-		DLConverterUtils.getFirstToken(tokenizer);
-		if (tokenizer.ttype == StreamTokenizer.TT_EOF) {
-			return null;
+	private void initColumns(Column[] columns) {
+		for (int i = 0; i < columns.length; i++) {
+			// the values of forced nominal and string attributes are labels from
+			// the start, unless they are dates
+			if ((m_NominalAttributes.isInRange(i) || m_StringAttributes.isInRange(i))
+					&& !m_dateAttributes.isInRange(i)) {
+				columns[i].toNominal();
+			}
 		}
-		boolean first = true;
-		boolean wasSep;
-		
-		while (tokenizer.ttype != StreamTokenizer.TT_EOL
-				&& tokenizer.ttype != StreamTokenizer.TT_EOF) {
+	}
+	
+	/**
+	 * Checks that a line feed byte is always a line feed character in a
+	 * charset, so that a file can be split at line feeds before it is decoded.
+	 *
+	 * @param charset the charset the file is read with
+	 * @return true for UTF-8 and single byte charsets
+	 */
+	private static boolean isLineAligned(Charset charset) {
+		return charset.name().equals("UTF-8")
+				|| (charset.newEncoder().maxBytesPerChar() == 1
+				&& Arrays.equals("\n".getBytes(charset), new byte[]{'\n'}));
+	}
+	
+	/**
+	 * Maps the source file into memory and parses the rows after the header in
+	 * chunks on several threads. Quoted fields end at the end of a line, so a
+	 * chunk starts at a new row as long as it starts after a line feed that is
+	 * not escaped.
+	 *
+	 * @param numThreads the number of threads to parse with
+	 * @return the columns of each chunk in file order, or null if the file is
+	 * too small to split
+	 * @throws IOException if reading fails or a row has the wrong number of
+	 *                     values
+	 */
+	private List<Column[]> readChunks(int numThreads) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(m_sourceFile, "r");
+		ExecutorService pool = null;
+		try {
+			final FileChannel channel = file.getChannel();
+			long size = channel.size();
+			long start = skipLines(channel, m_st.lineno() - 1);
+			long chunkSize = Math.max(MIN_CHUNK_SIZE, (size - start) / (numThreads * 4L));
+			int numChunks = (int) ((size - start + chunkSize - 1) / chunkSize);
+			if (numChunks < 2) {
+				return null;
+			}
 			
-			// Get next token
-			if (!first) {
-				DLConverterUtils.getToken(tokenizer);
+			final long[] bounds = new long[numChunks + 1];
+			bounds[0] = start;
+			for (int k = 1; k < numChunks; k++) {
+				bounds[k] = nextRowStart(channel, Math.max(bounds[k - 1], start + k * chunkSize));
 			}
+			bounds[numChunks] = size;
 			
-			if (tokenizer.ttype == ',' || tokenizer.ttype == '\t'
-					|| tokenizer.ttype == StreamTokenizer.TT_EOL) {
-				current.addElement(m_MissingValue);
-				wasSep = true;
-			} else {
-				wasSep = false;
-				if (tokenizer.sval.equals(m_MissingValue)
-						|| tokenizer.sval.trim().length() == 0) {
-					current.addElement(m_MissingValue);
-				} else {
-					// try to parse as a number
-					try {
-						double val = Double.valueOf(tokenizer.sval).doubleValue();
-						current.addElement(new Double(val));
-					} catch (NumberFormatException e) {
-						// otherwise assume its an enumerated value
-						current.addElement(tokenizer.sval);
+			pool = Executors.newFixedThreadPool(Math.min(numThreads, numChunks));
+			List<Future<Column[]>> futures = new ArrayList<Future<Column[]>>(numChunks);
+			for (int k = 0; k < numChunks; k++) {
+				final int chunk = k;
+				futures.add(pool.submit(new Callable<Column[]>() {
+					@Override
+					public Column[] call() throws IOException {
+						return readChunk(channel, bounds[chunk], bounds[chunk + 1]);
 					}
-				}
+				}));
 			}
 			
-			if (!wasSep) {
-				DLConverterUtils.getToken(tokenizer);
+			List<Column[]> parts = new ArrayList<Column[]>(numChunks);
+			for (int k = 0; k < numChunks; k++) {
+				try {
+					parts.add(futures.get(k).get());
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RowLengthException) {
+						// the chunk counted lines from its own start
+						RowLengthException r = (RowLengthException) cause;
+						throw new RowLengthException(r.m_Read, r.m_Expected,
+								1 + countLines(channel, bounds[k]) + r.m_Line);
+					} else if (cause instanceof IOException) {
+						throw (IOException) cause;
+					} else if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw (Error) cause;
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException("interrupted while reading " + m_sourceFile);
+				}
 			}
-			first = false;
-		}
-		
-		// check number of values read
-		if (current.size() != m_structure.numAttributes()) {
-			DLConverterUtils.errms(tokenizer,
-					"wrong number of values. Read " + current.size() + ", expected "
-							+ m_structure.numAttributes());
-		}
-		
-		// check for structure update
-		try {
-			checkStructure(current);
-		} catch (Exception ex) {
-			ex.printStackTrace();
+			return parts;
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+			file.close();
 		}
-		
-		return current;
 	}
 	
-	/*
-	 * Checks the current instance against what is known about the structure of
-	 * the data set so far. If there is a nominal value for an attribute that was
-	 * beleived to be numeric then all previously seen values for this attribute
-	 * are stored in a Hashtable.
-	 *
-	 * @param current a <code>FastVector</code> value
-	 * @exception Exception if an error occurs
-	 *
-	 *              <pre>
-	 * <jml>
-	 *    private_normal_behavior
-	 *      requires: current != null;
-	 *  also
-	 *    private_exceptional_behavior
-	 *      requires: current == null
-	 *                || (* unrecognized object type in current *);
-	 *      signals: (Exception);
-	 * </jml>
-	 * </pre>
+	/**
+	 * Parses the rows of one chunk of the source file.
+	 *
+	 * @param channel the source file
+	 * @param start   the position of the first byte of the chunk
+	 * @param end     the position after the last byte of the chunk
+	 * @return the columns of the chunk
+	 * @throws IOException if reading fails or a row has the wrong number of
+	 *                     values
 	 */
-	private void checkStructure(FastVector current) throws Exception {
-		if (current == null) {
-			throw new Exception("current shouldn't be null in checkStructure");
-		}
-		
-		// initialize ranges, if necessary
-		if (m_FirstCheck) {
-			m_NominalAttributes.setUpper(current.size() - 1);
-			m_StringAttributes.setUpper(current.size() - 1);
-			m_dateAttributes.setUpper(current.size() - 1);
-			m_FirstCheck = false;
+	private Column[] readChunk(FileChannel channel, long start, long end) throws IOException {
+		ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		CSVReader reader = new CSVReader(new InputStreamReader(new ByteBufferInputStream(buffer),
+				Charset.defaultCharset()), m_Enclosures, 0);
+		Column[] columns = newColumns(m_structure.numAttributes());
+		// SimpleDateFormat is not thread-safe
+		SimpleDateFormat formatter = new SimpleDateFormat(m_dateFormat);
+		while (readRow(reader, columns, formatter)) {
 		}
-		
-		for (int i = 0; i < current.size(); i++) {
-			Object ob = current.elementAt(i);
-			if ((ob instanceof String) || (m_NominalAttributes.isInRange(i))
-					|| (m_StringAttributes.isInRange(i)) || m_dateAttributes.isInRange(i)) {
-				if (ob.toString().compareTo(m_MissingValue) == 0) {
-					// do nothing
-				} else {
-					
-					boolean notDate = true;
-					if (m_dateAttributes.isInRange(i)) {
-						// try to parse date string
-						if (m_formatter == null) {
-							m_formatter = new SimpleDateFormat(m_dateFormat);
-						}
-						
-						try {
-							long time = m_formatter.parse(ob.toString()).getTime();
-							Double timeL = new Double(time);
-							current.setElementAt(timeL, i);
-							notDate = false;
-						} catch (ParseException e) {
-							notDate = true;
-						}
-					}
-					
-					if (notDate) {
-						Hashtable tempHash = (Hashtable) m_cumulativeStructure.elementAt(i);
-						if (!tempHash.containsKey(ob)) {
-							// may have found a nominal value in what was previously thought
-							// to
-							// be a numeric variable.
-							if (tempHash.size() == 0) {
-								for (int j = 0; j < m_cumulativeInstances.size(); j++) {
-									FastVector tempUpdate = ((FastVector) m_cumulativeInstances
-											.elementAt(j));
-									Object tempO = tempUpdate.elementAt(i);
-									if (tempO instanceof String) {
-										// must have been a missing value
-									} else {
-										if (!tempHash.containsKey(tempO)) {
-											tempHash.put(new Double(((Double) tempO).doubleValue()),
-													new Integer(tempHash.size()));
-										}
-									}
-								}
-							}
-							int newIndex = tempHash.size();
-							tempHash.put(ob, new Integer(newIndex));
-						}
+		return columns;
+	}
+	
+	/**
+	 * Finds the position after a number of line ends, counting "\r\n" once as
+	 * the tokenizer does.
+	 *
+	 * @param channel  the file
+	 * @param numLines the number of line ends to skip
+	 * @return the position after the last of them, or the size of the file
+	 * @throws IOException if reading fails
+	 */
+	private static long skipLines(FileChannel channel, int numLines) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long pos = 0;
+		boolean cr = false;
+		while (numLines > 0 || cr) {
+			buffer.clear();
+			int n = channel.read(buffer, pos);
+			if (n <= 0) {
+				return channel.size();
+			}
+			for (int i = 0; i < n; i++) {
+				byte b = buffer.get(i);
+				if (cr) {
+					cr = false;
+					if (b == '\n') {
+						continue;
 					}
 				}
-			} else if (ob instanceof Double) {
-				Hashtable tempHash = (Hashtable) m_cumulativeStructure.elementAt(i);
-				if (tempHash.size() != 0) {
-					if (!tempHash.containsKey(ob)) {
-						int newIndex = tempHash.size();
-						tempHash.put(new Double(((Double) ob).doubleValue()), new Integer(
-								newIndex));
-					}
+				if (numLines == 0) {
+					return pos + i;
 				}
-			} else {
-				throw new Exception("Wrong object type in checkStructure!");
+				if (b == '\n') {
+					numLines--;
+				} else if (b == '\r') {
+					numLines--;
+					cr = true;
+				}
+			}
+			pos += n;
+		}
+		return pos;
+	}
+	
+	/**
+	 * Counts the line ends before a position in a file.
+	 *
+	 * @param channel the file
+	 * @param end     the position to count up to
+	 * @return the number of line ends, counting "\r\n" once
+	 * @throws IOException if reading fails
+	 */
+	private static int countLines(FileChannel channel, long end) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		int count = 0;
+		byte last = 0;
+		long pos = 0;
+		while (pos < end) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), end - pos));
+			int n = channel.read(buffer, pos);
+			if (n <= 0) {
+				break;
+			}
+			for (int i = 0; i < n; i++) {
+				byte b = buffer.get(i);
+				if (b == '\r' || (b == '\n' && last != '\r')) {
+					count++;
+				}
+				last = b;
 			}
+			pos += n;
+		}
+		return count;
+	}
+	
+	/**
+	 * Finds the start of the first row at or after a position, i.e. the
+	 * position after the next line feed that is not escaped by a backslash.
+	 *
+	 * @param channel the file
+	 * @param pos     the position to search from
+	 * @return the start of the row, or the size of the file if there is none
+	 * @throws IOException if reading fails
+	 */
+	private static long nextRowStart(FileChannel channel, long pos) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		byte last = 0;
+		if (pos > 0) {
+			buffer.limit(1);
+			if (channel.read(buffer, pos - 1) == 1) {
+				last = buffer.get(0);
+			}
+		}
+		while (true) {
+			buffer.clear();
+			int n = channel.read(buffer, pos);
+			if (n <= 0) {
+				return channel.size();
+			}
+			for (int i = 0; i < n; i++) {
+				byte b = buffer.get(i);
+				if (b == '\n' && last != '\\') {
+					return pos + i + 1;
+				}
+				last = b;
+			}
+			pos += n;
+		}
+	}
+
+	/**
+	 * Reads the next row of the data set. The types of the attributes are
+	 * taken from the structure passed in, which has to be the structure the
+	 * whole file gives (see scanStructure()) rather than the all-string one
+	 * getStructure() returns; a field that does not fit the type of its
+	 * attribute is an error. Fields are read as getDataSet() reads them, so the
+	 * rows are the same as those of the full data set.
+	 *
+	 * @param structure the structure of the data set, e.g. from scanStructure()
+	 *                  of another loader reading the same source
+	 * @return the next row, or null if there are no more rows
+	 * @throws IOException if reading fails, a row has the wrong number of
+	 *                     values or a field does not fit the structure
+	 */
+	@Override
+	public Instance getNextInstance(Instances structure) throws IOException {
+		if ((m_sourceFile == null) && (m_sourceReader == null)) {
+			throw new IOException("No source has been specified");
+		}
+		if (getRetrieval() == BATCH) {
+			throw new IOException("Cannot mix getting Instances in both incremental and batch modes");
+		}
+		setRetrieval(INCREMENTAL);
+		
+		if (m_structure == null) {
+			getStructure();
+		}
+		int numAtts = m_structure.numAttributes();
+		if (structure.numAttributes() != numAtts) {
+			throw new IOException("structure has " + structure.numAttributes()
+					+ " attributes, the file has " + numAtts);
+		}
+		if (m_StreamReader == null) {
+			m_dateAttributes.setUpper(numAtts - 1);
+			if (m_formatter == null) {
+				m_formatter = new SimpleDateFormat(m_dateFormat);
+			}
+			m_StreamReader = new CSVReader(m_sourceReader, m_Enclosures,
+					(m_st == null) ? 0 : m_st.lineno());
+			m_StreamFields = new String[numAtts];
+		}
+		
+		if (!readFields(m_StreamReader, m_StreamFields)) {
+			// close the stream
+			m_sourceReader.close();
+			return null;
+		}
+		double[] vals = new double[numAtts];
+		for (int j = 0; j < numAtts; j++) {
+			String value = m_StreamFields[j];
+			if (value == null || value.equals(m_MissingValue) || value.trim().length() == 0) {
+				vals[j] = Instance.missingValue();
+			} else {
+				vals[j] = parseValue(structure.attribute(j), j, value);
+			}
+		}
+		Instance current = new Instance(1.0, vals);
+		current.setDataset(structure);
+		return current;
+	}
+	
+	/**
+	 * Converts a field that is not missing to the value of its attribute, the
+	 * way addValue() and makeInstances() together do.
+	 *
+	 * @param attribute the attribute in the structure of the data set
+	 * @param att       the index of the attribute
+	 * @param value     the text of the field
+	 * @return the internal value
+	 * @throws IOException if the field does not fit the attribute
+	 */
+	private double parseValue(Attribute attribute, int att, String value) throws IOException {
+		boolean isNumber = looksNumeric(value);
+		double number = 0;
+		if (isNumber) {
+			try {
+				number = Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				isNumber = false;
+			}
+		}
+		
+		Object label = isNumber ? (Object) Double.valueOf(number) : value;
+		if (m_dateAttributes.isInRange(att)) {
+			try {
+				label = Double.valueOf(m_formatter.parse(isNumber ? Double.toString(number) : value).getTime());
+			} catch (ParseException e) {
+				if (attribute.isDate()) {
+					throw new IOException("value " + value + " of attribute " + attribute.name()
+							+ " is not a date, read line " + m_StreamReader.lineNumber());
+				}
+			}
+		}
+		
+		if (attribute.isNumeric()) {
+			if (!(label instanceof Double)) {
+				throw new IOException("value " + value + " of attribute " + attribute.name()
+						+ " is not a number, read line " + m_StreamReader.lineNumber());
+			}
+			return (Double) label;
+		}
+		String text = label.toString();
+		if (attribute.isString()) {
+			return attribute.addStringValue(text);
+		}
+		if (text.startsWith("'") || text.startsWith("\"")) {
+			text = text.substring(1, text.length() - 1);
+		}
+		int index = attribute.indexOfValue(text);
+		if (index < 0) {
+			throw new IOException("value " + value + " of attribute " + attribute.name()
+					+ " is not one of its labels, read line " + m_StreamReader.lineNumber());
+		}
+		return index;
+	}
+	
+	/**
+	 * Reads the next row of the data set and appends its values to the
+	 * columns.
+	 *
+	 * @param reader    the reader positioned after the header
+	 * @param columns   the columns to append to
+	 * @param formatter the parser for date values
+	 * @return false if there are no more rows
+	 * @throws IOException if reading fails or the row has the wrong number of
+	 *                     values
+	 */
+	private boolean readRow(CSVReader reader, Column[] columns, SimpleDateFormat formatter)
+			throws IOException {
+		String[] fields = new String[columns.length];
+		if (!readFields(reader, fields)) {
+			return false;
+		}
+		for (int i = 0; i < columns.length; i++) {
+			if (fields[i] == null) {
+				columns[i].addMissing();
+			} else {
+				addValue(columns[i], i, fields[i], formatter);
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Reads the fields of the next row of the data set. A field that follows
+	 * another field without a separator is skipped, and a trailing separator
+	 * gives a trailing missing value, as with the StreamTokenizer-based reader
+	 * this replaces.
+	 *
+	 * @param reader the reader positioned after the header
+	 * @param fields receives the text of each field, or null where a row has
+	 *               two separators in a row
+	 * @return false if there are no more rows
+	 * @throws IOException if reading fails or the row has the wrong number of
+	 *                     values
+	 */
+	private boolean readFields(CSVReader reader, String[] fields) throws IOException {
+		int token;
+		// skip empty lines
+		do {
+			token = reader.next();
+		} while (token == CSVReader.EOL);
+		if (token == CSVReader.EOF) {
+			return false;
+		}
+		
+		int count = 0;
+		boolean expectValue = true;
+		while (true) {
+			if (expectValue) {
+				if (token == CSVReader.VALUE) {
+					if (count < fields.length) {
+						fields[count] = reader.value();
+					}
+					expectValue = false;
+				} else if (count < fields.length) {
+					fields[count] = null;
+				}
+				count++;
+				if (token == CSVReader.EOL || token == CSVReader.EOF) {
+					break;
+				}
+			} else {
+				if (token == CSVReader.EOL || token == CSVReader.EOF) {
+					break;
+				}
+				// whatever follows a value is taken as its separator
+				expectValue = true;
+			}
+			token = reader.next();
+		}
+		
+		if (count != fields.length) {
+			throw new RowLengthException(count, fields.length, reader.lineNumber());
+		}
+		return true;
+	}
+	
+	/**
+	 * Appends a field to a column. A field that parses as a number is stored as
+	 * one unless the column already holds labels; anything else turns the
+	 * column into a nominal one. Fields of date attributes are parsed with the
+	 * date format and fall back to labels if they are not dates.
+	 *
+	 * @param column    the column of the attribute
+	 * @param att       the index of the attribute
+	 * @param value     the text of the field
+	 * @param formatter the parser for date values
+	 */
+	private void addValue(Column column, int att, String value, SimpleDateFormat formatter) {
+		if (value.equals(m_MissingValue) || value.trim().length() == 0) {
+			column.addMissing();
+			return;
+		}
+		
+		boolean isNumber = looksNumeric(value);
+		double number = 0;
+		if (isNumber) {
+			try {
+				number = Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				isNumber = false;
+			}
+		}
+		
+		if (m_dateAttributes.isInRange(att)) {
+			try {
+				column.addNumber(formatter.parse(isNumber ? Double.toString(number) : value).getTime());
+			} catch (ParseException e) {
+				column.addLabel(isNumber ? (Object) Double.valueOf(number) : value);
+			}
+		} else if (isNumber) {
+			column.addNumber(number);
+		} else {
+			column.addLabel(value);
+		}
+	}
+	
+	/**
+	 * Quick test on the first non-blank character of a field, so that labels
+	 * are not all sent through Double.parseDouble and its exception.
+	 *
+	 * @param value the text of the field
+	 * @return false if the text cannot be a number
+	 */
+	private static boolean looksNumeric(String value) {
+		int i = 0;
+		while (i < value.length() && value.charAt(i) <= ' ') {
+			i++;
+		}
+		if (i == value.length()) {
+			return false;
+		}
+		char c = value.charAt(i);
+		return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'N' || c == 'I';
+	}
+	
+	/**
+	 * Creates the attributes from what the columns hold and copies the values
+	 * into a new set of instances. When the file was read in chunks, an
+	 * attribute is nominal if it is nominal in any chunk, and the labels of the
+	 * chunks are merged in chunk order, which numbers them in order of first
+	 * occurrence in the file just as reading it in one go does.
+	 *
+	 * @param parts the columns of each chunk in file order; emptied as the
+	 *              rows are copied
+	 * @return the data set
+	 */
+	private Instances makeInstances(List<Column[]> parts) {
+		int numAtts = m_structure.numAttributes();
+		int numRows = 0;
+		for (Column[] part : parts) {
+			numRows += part[0].size();
+		}
+		
+		// the merged labels of each nominal attribute, and for each chunk the
+		// index of each of its labels among them
+		Column[] labels = new Column[numAtts];
+		int[][][] labelMaps = new int[numAtts][][];
+		for (int i = 0; i < numAtts; i++) {
+			boolean nominal = false;
+			for (Column[] part : parts) {
+				nominal |= part[i].isNominal();
+			}
+			if (!nominal) {
+				continue;
+			}
+			labels[i] = new Column();
+			labels[i].toNominal();
+			labelMaps[i] = new int[parts.size()][];
+			for (int p = 0; p < parts.size(); p++) {
+				Column column = parts.get(p)[i];
+				if (column.hasLabels()) {
+					int[] map = new int[column.numLabels()];
+					for (int z = 0; z < map.length; z++) {
+						map[z] = labels[i].indexOf(column.label(z));
+					}
+					labelMaps[i][p] = map;
+				} else {
+					// numeric in this chunk, so its numbers are labels
+					for (int row = 0; row < column.size(); row++) {
+						if (!column.isMissing(row)) {
+							labels[i].indexOf(Double.valueOf(column.value(row)));
+						}
+					}
+				}
+			}
+		}
+		
+		// make the instances
+		String relationName = relationName();
+		Instances dataSet = m_CompactStorage
+				? new CompactInstances(relationName, makeAttributes(labels), numRows)
+				: new Instances(relationName, makeAttributes(labels), numRows);
+		
+		for (int p = 0; p < parts.size(); p++) {
+			Column[] columns = parts.get(p);
+			int size = columns[0].size();
+			for (int i = 0; i < size; i++) {
+				double[] vals = new double[numAtts];
+				for (int j = 0; j < numAtts; j++) {
+					Column column = columns[j];
+					if (column.isMissing(i)) {
+						vals[j] = Instance.missingValue();
+					} else if (labels[j] == null) {
+						vals[j] = column.value(i);
+					} else {
+						int index = (labelMaps[j][p] != null)
+								? labelMaps[j][p][(int) column.value(i)]
+								: labels[j].indexOf(Double.valueOf(column.value(i)));
+						if (dataSet.attribute(j).isString()) {
+							vals[j] = dataSet.attribute(j).addStringValue(labels[j].label(index).toString());
+						} else {
+							vals[j] = index;
+						}
+					}
+				}
+				dataSet.add(new Instance(1.0, vals));
+			}
+			parts.set(p, null); // conserve memory
+		}
+		return dataSet;
+	}
+	
+	/**
+	 * Creates the attributes of the data set.
+	 *
+	 * @param labels the labels of each nominal or string attribute in the
+	 *               order of their index, null for numeric and date ones
+	 * @return the attributes
+	 */
+	private FastVector makeAttributes(Column[] labels) {
+		int numAtts = m_structure.numAttributes();
+		FastVector atts = new FastVector(numAtts);
+		for (int i = 0; i < numAtts; i++) {
+			String attname = m_structure.attribute(i).name();
+			Column column = labels[i];
+			if (column == null) {
+				if (m_dateAttributes.isInRange(i)) {
+					atts.addElement(new Attribute(attname, m_dateFormat));
+				} else {
+					atts.addElement(new Attribute(attname));
+				}
+			} else if (m_StringAttributes.isInRange(i)) {
+				atts.addElement(new Attribute(attname, (FastVector) null));
+			} else {
+				FastVector values = new FastVector(column.numLabels());
+				for (int z = 0; z < column.numLabels(); z++) {
+					String s = column.label(z).toString();
+					if (s.startsWith("'") || s.startsWith("\""))
+						s = s.substring(1, s.length() - 1);
+					values.addElement(s);
+				}
+				atts.addElement(new Attribute(attname, values));
+			}
+		}
+		return atts;
+	}
+	
+	/**
+	 * @return the name of the relation, from the name of the source file
+	 */
+	private String relationName() {
+		if (m_sourceFile != null)
+			return (m_sourceFile.getName())
+					.replaceAll("\\.[cC][sS][vV]$", "");
+		return "stream";
+	}
+	
+	/**
+	 * Creates the attributes from what the sparse columns hold and copies the
+	 * values into a new set of instances. The labels of each nominal attribute
+	 * are merged in chunk order as makeInstances() does, after which the most
+	 * frequent one (the first of them if several are) is moved to the front,
+	 * so that index 0 is the value most rows have. The columns are then
+	 * renumbered to match and turned into rows, through the stored values only.
+	 *
+	 * @param parts the sparse columns of each chunk in file order; emptied as
+	 *              the rows are copied
+	 * @return the data set, of SparseInstances unless more than half of the
+	 * values are stored
+	 */
+	private Instances makeSparseInstances(List<Column[]> parts) {
+		int numAtts = m_structure.numAttributes();
+		int numRows = 0;
+		for (Column[] part : parts) {
+			numRows += part[0].size();
+		}
+		
+		// the labels of each nominal attribute, and for each chunk the index of
+		// each of its labels among them
+		Column[] labels = new Column[numAtts];
+		int[][][] labelMaps = new int[numAtts][][];
+		for (int i = 0; i < numAtts; i++) {
+			boolean nominal = false;
+			for (Column[] part : parts) {
+				nominal |= part[i].isNominal();
+			}
+			if (!nominal) {
+				continue;
+			}
+			Column merged = new Column();
+			merged.toNominal();
+			int[][] maps = new int[parts.size()][];
+			for (int p = 0; p < parts.size(); p++) {
+				SparseColumn column = (SparseColumn) parts.get(p)[i];
+				if (!column.hasLabels()) {
+					// numeric in this chunk, so its numbers are labels
+					column.toNominal();
+				}
+				maps[p] = new int[column.numLabels()];
+				for (int z = 0; z < maps[p].length; z++) {
+					maps[p][z] = merged.indexOf(column.label(z));
+				}
+			}
+			
+			int[] counts = new int[merged.numLabels()];
+			for (int p = 0; p < parts.size(); p++) {
+				SparseColumn column = (SparseColumn) parts.get(p)[i];
+				for (int z = 0; z < maps[p].length; z++) {
+					counts[maps[p][z]] += column.m_Counts[z];
+				}
+			}
+			int mode = Utils.maxIndex(counts);
+			
+			labels[i] = new Column();
+			labels[i].toNominal();
+			labels[i].indexOf(merged.label(mode));
+			for (int z = 0; z < merged.numLabels(); z++) {
+				labels[i].indexOf(merged.label(z));
+			}
+			for (int p = 0; p < parts.size(); p++) {
+				int[] map = maps[p];
+				for (int z = 0; z < map.length; z++) {
+					map[z] = labels[i].indexOf(merged.label(map[z]));
+				}
+			}
+			labelMaps[i] = maps;
+		}
+		
+		String relationName = relationName();
+		FastVector atts = makeAttributes(labels);
+		for (int i = 0; i < numAtts; i++) {
+			if (labelMaps[i] == null) {
+				continue;
+			}
+			Attribute attribute = (Attribute) atts.elementAt(i);
+			if (attribute.isString()) {
+				// a string attribute numbers its values itself
+				int[] strings = new int[labels[i].numLabels()];
+				for (int z = 0; z < strings.length; z++) {
+					strings[z] = attribute.addStringValue(labels[i].label(z).toString());
+				}
+				for (int[] map : labelMaps[i]) {
+					for (int z = 0; z < map.length; z++) {
+						map[z] = strings[map[z]];
+					}
+				}
+			}
+			for (int p = 0; p < parts.size(); p++) {
+				((SparseColumn) parts.get(p)[i]).recode(labelMaps[i][p]);
+			}
+		}
+		
+		long numStored = 0;
+		for (Column[] part : parts) {
+			for (int j = 0; j < numAtts; j++) {
+				numStored += ((SparseColumn) part[j]).m_NumStored;
+			}
+		}
+		boolean sparse = numStored <= (long) numRows * numAtts / 2;
+		
+		Instances dataSet = (m_CompactStorage && !sparse)
+				? new CompactInstances(relationName, atts, numRows)
+				: new Instances(relationName, atts, numRows);
+		
+		for (int p = 0; p < parts.size(); p++) {
+			Column[] columns = parts.get(p);
+			int size = columns[0].size();
+			int[] rowSizes = new int[size];
+			for (int j = 0; j < numAtts; j++) {
+				SparseColumn column = (SparseColumn) columns[j];
+				for (int k = 0; k < column.m_NumStored; k++) {
+					rowSizes[column.m_Rows[k]]++;
+				}
+			}
+			int[][] indices = new int[size][];
+			double[][] values = new double[size][];
+			for (int i = 0; i < size; i++) {
+				indices[i] = new int[rowSizes[i]];
+				values[i] = new double[rowSizes[i]];
+				rowSizes[i] = 0;
+			}
+			// column by column, so the values of each row are in attribute order
+			for (int j = 0; j < numAtts; j++) {
+				SparseColumn column = (SparseColumn) columns[j];
+				for (int k = 0; k < column.m_NumStored; k++) {
+					int row = column.m_Rows[k];
+					indices[row][rowSizes[row]] = j;
+					values[row][rowSizes[row]++] = column.m_Stored[k];
+				}
+				columns[j] = null; // conserve memory
+			}
+			parts.set(p, null);
+			
+			for (int i = 0; i < size; i++) {
+				if (sparse) {
+					dataSet.add(new SparseInstance(1.0, values[i], indices[i], numAtts));
+				} else {
+					double[] vals = new double[numAtts];
+					for (int k = 0; k < indices[i].length; k++) {
+						vals[indices[i][k]] = values[i][k];
+					}
+					dataSet.add(new Instance(1.0, vals));
+				}
+				indices[i] = null;
+				values[i] = null;
+			}
+		}
+		return dataSet;
+	}
+	
+	/**
+	 * The values of one attribute, held in a growable double array while the
+	 * file is read. A column starts out numeric. Once it meets a field that is
+	 * not a number (or from the start, for forced nominal and string
+	 * attributes) it is dictionary encoded: each value becomes the index of its
+	 * label, numbered in order of first occurrence, with the numbers already
+	 * read turned into labels of their own.
+	 */
+	private static class Column {
+		
+		/**
+		 * the values, or label indices once the column is nominal
+		 */
+		private double[] m_Values;
+		
+		/**
+		 * the number of values
+		 */
+		private int m_Size;
+		
+		/**
+		 * which values are missing, one bit per row; null until one is
+		 */
+		private long[] m_Missing;
+		
+		/**
+		 * the index of each label (a String, or a Double for numbers); null
+		 * while the column is numeric
+		 */
+		private HashMap<Object, Integer> m_Dictionary;
+		
+		/**
+		 * the labels in order of their index
+		 */
+		private ArrayList<Object> m_Labels;
+		
+		private void append(double value) {
+			if (m_Values == null) {
+				// allocated on first use, as subclasses keep their values elsewhere
+				m_Values = new double[256];
+			} else if (m_Size == m_Values.length) {
+				m_Values = Arrays.copyOf(m_Values, m_Size + (m_Size >> 1));
+			}
+			m_Values[m_Size++] = value;
+		}
+		
+		void addMissing() {
+			append(Instance.missingValue());
+			int row = m_Size - 1;
+			if (m_Missing == null) {
+				m_Missing = new long[(m_Values.length >> 6) + 1];
+			} else if ((row >> 6) >= m_Missing.length) {
+				m_Missing = Arrays.copyOf(m_Missing, (m_Values.length >> 6) + 1);
+			}
+			m_Missing[row >> 6] |= 1L << row;
+		}
+		
+		void addNumber(double value) {
+			if (m_Dictionary == null) {
+				append(value);
+			} else {
+				append(indexOf(Double.valueOf(value)));
+			}
+		}
+		
+		void addLabel(Object label) {
+			if (m_Dictionary == null) {
+				toNominal();
+			}
+			append(indexOf(label));
+		}
+		
+		/**
+		 * Switches the column to labels, turning the numbers read so far into
+		 * labels in the order they were read.
+		 */
+		void toNominal() {
+			m_Dictionary = new HashMap<Object, Integer>();
+			m_Labels = new ArrayList<Object>();
+			for (int i = 0; i < m_Size; i++) {
+				if (!isMissing(i)) {
+					m_Values[i] = indexOf(Double.valueOf(m_Values[i]));
+				}
+			}
+		}
+		
+		int indexOf(Object label) {
+			Integer index = m_Dictionary.get(label);
+			if (index == null) {
+				index = m_Labels.size();
+				m_Dictionary.put(label, index);
+				m_Labels.add(label);
+			}
+			return index;
+		}
+		
+		int size() {
+			return m_Size;
+		}
+		
+		boolean isMissing(int row) {
+			return m_Missing != null && (row >> 6) < m_Missing.length
+					&& (m_Missing[row >> 6] & (1L << row)) != 0;
+		}
+		
+		/**
+		 * @return true if the column holds labels; a forced nominal column that
+		 * only holds missing values is numeric
+		 */
+		boolean isNominal() {
+			return m_Labels != null && m_Labels.size() > 0;
+		}
+		
+		/**
+		 * @return true if the values are label indices, even if there are no
+		 * labels yet
+		 */
+		boolean hasLabels() {
+			return m_Labels != null;
+		}
+		
+		double value(int row) {
+			return m_Values[row];
+		}
+		
+		int numLabels() {
+			return m_Labels.size();
+		}
+		
+		Object label(int index) {
+			return m_Labels.get(index);
+		}
+	}
+	
+	/**
+	 * A column for scanStructure() that keeps the labels but not the values.
+	 * While it is numeric it keeps its distinct numbers in order of first
+	 * occurrence instead, up to MAX_SCAN_NUMBERS of them, so that they can
+	 * become the first labels just as the numbers of a Column do.
+	 */
+	private static class ScanColumn extends Column {
+		
+		/**
+		 * the distinct numbers while the column is numeric
+		 */
+		private LinkedHashSet<Double> m_Numbers = new LinkedHashSet<Double>();
+		
+		/**
+		 * whether there were too many distinct numbers to keep
+		 */
+		boolean m_Overflow;
+		
+		@Override
+		void addMissing() {
+		}
+		
+		@Override
+		void addNumber(double value) {
+			if (hasLabels()) {
+				indexOf(Double.valueOf(value));
+			} else if (m_Numbers != null) {
+				m_Numbers.add(Double.valueOf(value));
+				if (m_Numbers.size() > MAX_SCAN_NUMBERS) {
+					m_Numbers = null;
+					m_Overflow = true;
+				}
+			}
+		}
+		
+		@Override
+		void addLabel(Object label) {
+			if (!hasLabels()) {
+				toNominal();
+			}
+			indexOf(label);
+		}
+		
+		@Override
+		void toNominal() {
+			super.toNominal();
+			if (m_Numbers != null) {
+				for (Double number : m_Numbers) {
+					indexOf(number);
+				}
+				m_Numbers = null;
+			}
+		}
+	}
+	
+	/**
+	 * A column for sparse data that keeps only the values that differ from its
+	 * default, together with their rows. While the column is numeric the
+	 * default is 0. Once it is nominal the default is its most frequent label
+	 * so far: when another label becomes more than twice as frequent it takes
+	 * over and the stored values are rewritten, which happens rarely enough
+	 * for the cost to stay linear in the number of rows. Missing values are
+	 * always stored.
+	 */
+	private static class SparseColumn extends Column {
+		
+		/**
+		 * stands for a field that reads as the number NaN, which unlike a
+		 * missing value becomes a label if the column turns nominal
+		 */
+		private static final long NAN_NUMBER = 0x7ff8000000000001L;
+		
+		/**
+		 * the rows whose value is not the default, in ascending order
+		 */
+		private int[] m_Rows = new int[16];
+		
+		/**
+		 * the values of those rows, label indices once the column is nominal
+		 */
+		private double[] m_Stored = new double[16];
+		
+		/**
+		 * the number of stored values
+		 */
+		private int m_NumStored;
+		
+		/**
+		 * the number of rows
+		 */
+		private int m_NumRows;
+		
+		/**
+		 * the label index that is not stored; -1 while the column is numeric or
+		 * has had no label yet
+		 */
+		private int m_Default = -1;
+		
+		/**
+		 * the number of rows with each label index; null while the column is
+		 * numeric
+		 */
+		private int[] m_Counts;
+		
+		private void store(double value) {
+			if (m_NumStored == m_Rows.length) {
+				int capacity = m_NumStored + (m_NumStored >> 1);
+				m_Rows = Arrays.copyOf(m_Rows, capacity);
+				m_Stored = Arrays.copyOf(m_Stored, capacity);
+			}
+			m_Rows[m_NumStored] = m_NumRows;
+			m_Stored[m_NumStored++] = value;
+		}
+		
+		@Override
+		void addMissing() {
+			store(Instance.missingValue());
+			m_NumRows++;
+		}
+		
+		@Override
+		void addNumber(double value) {
+			if (hasLabels()) {
+				addIndex(indexOf(Double.valueOf(value)));
+			} else {
+				if (Double.isNaN(value)) {
+					store(Double.longBitsToDouble(NAN_NUMBER));
+				} else if (Double.doubleToRawLongBits(value) != 0L) {
+					// -0.0 is kept, as a dense column keeps it
+					store(value);
+				}
+				m_NumRows++;
+			}
+		}
+		
+		@Override
+		void addLabel(Object label) {
+			if (!hasLabels()) {
+				toNominal();
+			}
+			addIndex(indexOf(label));
+		}
+		
+		private void addIndex(int index) {
+			if (index >= m_Counts.length) {
+				m_Counts = Arrays.copyOf(m_Counts, Math.max(index + 1, m_Counts.length * 2));
+			}
+			m_Counts[index]++;
+			if (m_Default < 0) {
+				m_Default = index;
+			}
+			if (index != m_Default) {
+				store(index);
+			}
+			m_NumRows++;
+			if (m_Counts[index] > 2 * m_Counts[m_Default]) {
+				setDefault(index);
+			}
+		}
+		
+		/**
+		 * Makes another label the default, storing the rows of the old one
+		 * instead.
+		 *
+		 * @param index the new default label index
+		 */
+		private void setDefault(int index) {
+			int numStored = m_NumStored - m_Counts[index] + m_Counts[m_Default];
+			int[] rows = new int[numStored + (numStored >> 1) + 1];
+			double[] stored = new double[rows.length];
+			int k = 0;
+			int s = 0;
+			for (int row = 0; row < m_NumRows; row++) {
+				double value = m_Default;
+				if (k < m_NumStored && m_Rows[k] == row) {
+					value = m_Stored[k++];
+				}
+				// a missing value is never equal
+				if (value != index) {
+					rows[s] = row;
+					stored[s++] = value;
+				}
+			}
+			m_Rows = rows;
+			m_Stored = stored;
+			m_NumStored = s;
+			m_Default = index;
+		}
+		
+		/**
+		 * Switches the column to labels by reading its rows again, so the
+		 * numbers read so far, the zeros that were left out included, become
+		 * labels in the order they were read.
+		 */
+		@Override
+		void toNominal() {
+			super.toNominal();
+			m_Counts = new int[4];
+			int[] rows = m_Rows;
+			double[] stored = m_Stored;
+			int numStored = m_NumStored;
+			int numRows = m_NumRows;
+			m_Rows = new int[16];
+			m_Stored = new double[16];
+			m_NumStored = 0;
+			m_NumRows = 0;
+			int k = 0;
+			for (int row = 0; row < numRows; row++) {
+				if (k < numStored && rows[k] == row) {
+					double value = stored[k++];
+					if (Double.doubleToRawLongBits(value) == NAN_NUMBER) {
+						addIndex(indexOf(Double.valueOf(Double.NaN)));
+					} else if (Instance.isMissingValue(value)) {
+						addMissing();
+					} else {
+						addIndex(indexOf(Double.valueOf(value)));
+					}
+				} else {
+					addIndex(indexOf(Double.valueOf(0)));
+				}
+			}
+		}
+		
+		/**
+		 * Renumbers the labels, storing each value that is not 0 afterwards.
+		 * The rows left out are stored too if the default is not numbered 0.
+		 *
+		 * @param map the new index of each label index
+		 */
+		void recode(int[] map) {
+			int fill = (m_Default < 0) ? 0 : map[m_Default];
+			int numStored = (fill == 0) ? m_NumStored : m_NumRows;
+			int[] rows = (fill == 0) ? m_Rows : new int[numStored];
+			double[] stored = (fill == 0) ? m_Stored : new double[numStored];
+			int k = 0;
+			int s = 0;
+			for (int row = 0; row < m_NumRows; row++) {
+				double value = fill;
+				if (k < m_NumStored && m_Rows[k] == row) {
+					value = m_Stored[k++];
+					if (!Instance.isMissingValue(value)) {
+						value = map[(int) value];
+					}
+				} else if (fill == 0) {
+					// skip ahead to the next stored row
+					if (k == m_NumStored) {
+						break;
+					}
+					row = m_Rows[k] - 1;
+					continue;
+				}
+				if (value != 0) {
+					rows[s] = row;
+					stored[s++] = value;
+				}
+			}
+			m_Rows = rows;
+			m_Stored = stored;
+			m_NumStored = s;
+			m_Default = -1;
+			m_Counts = null;
+		}
+		
+		@Override
+		int size() {
+			return m_NumRows;
+		}
+		
+		@Override
+		boolean isMissing(int row) {
+			int k = Arrays.binarySearch(m_Rows, 0, m_NumStored, row);
+			return k >= 0 && Instance.isMissingValue(m_Stored[k]);
+		}
+		
+		@Override
+		double value(int row) {
+			int k = Arrays.binarySearch(m_Rows, 0, m_NumStored, row);
+			if (k >= 0) {
+				return m_Stored[k];
+			}
+			return (m_Default < 0) ? 0 : m_Default;
+		}
+	}
+	
+	/**
+	 * Thrown when a row does not have one value per attribute.
+	 */
+	private static class RowLengthException extends IOException {
+		
+		private static final long serialVersionUID = -2183360441386937105L;
+		
+		final int m_Read;
+		final int m_Expected;
+		final int m_Line;
+		
+		RowLengthException(int read, int expected, int line) {
+			super("wrong number of values. Read " + read + ", expected " + expected
+					+ ", read line " + line);
+			m_Read = read;
+			m_Expected = expected;
+			m_Line = line;
+		}
+	}
+	
+	/**
+	 * Reads the bytes of a buffer, e.g. a mapped chunk of a file.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+		
+		private final ByteBuffer m_Buffer;
+		
+		ByteBufferInputStream(ByteBuffer buffer) {
+			m_Buffer = buffer;
+		}
+		
+		@Override
+		public int read() {
+			return m_Buffer.hasRemaining() ? (m_Buffer.get() & 0xFF) : -1;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!m_Buffer.hasRemaining()) {
+				return -1;
+			}
+			len = Math.min(len, m_Buffer.remaining());
+			m_Buffer.get(b, off, len);
+			return len;
+		}
+		
+		@Override
+		public int available() {
+			return m_Buffer.remaining();
+		}
+	}
+	
+	/**
+	 * Splits CSV text into fields. Follows the syntax the StreamTokenizer set up
+	 * by initTokenizer() used to accept: fields are separated by commas or
+	 * tabs, other control characters are ignored, spaces belong to the field,
+	 * '%' starts a comment and the enclosure characters quote a field (with
+	 * backslash escapes) up to the closing enclosure or the end of the line.
+	 */
+	private static class CSVReader {
+		
+		static final int EOF = -1;
+		static final int EOL = -2;
+		static final int SEPARATOR = -3;
+		static final int VALUE = -4;
+		
+		private final Reader m_Reader;
+		private final String m_Enclosures;
+		private final char[] m_Buffer = new char[65536];
+		private int m_Pos;
+		private int m_Limit;
+		private int m_LineNumber;
+		private final StringBuilder m_Token = new StringBuilder();
+		private String m_Value;
+		
+		/**
+		 * @param reader     the text to read
+		 * @param enclosures the enclosure characters, as a comma separated list
+		 * @param lineNumber the number of lines already read
+		 */
+		CSVReader(Reader reader, String enclosures, int lineNumber) {
+			m_Reader = reader;
+			StringBuilder quotes = new StringBuilder();
+			for (String e : enclosures.split(",")) {
+				if (e.length() == 1) quotes.append(e);
+			}
+			m_Enclosures = quotes.toString();
+			m_LineNumber = lineNumber;
+		}
+		
+		private int read() throws IOException {
+			if (m_Pos == m_Limit) {
+				m_Limit = m_Reader.read(m_Buffer, 0, m_Buffer.length);
+				m_Pos = 0;
+				if (m_Limit <= 0) {
+					m_Limit = 0;
+					return -1;
+				}
+			}
+			return m_Buffer[m_Pos++];
+		}
+		
+		/**
+		 * Steps back over the character just read.
+		 */
+		private void unread() {
+			m_Pos--;
+		}
+		
+		/**
+		 * Reads the next token.
+		 *
+		 * @return EOF, EOL, SEPARATOR or VALUE
+		 * @throws IOException if reading fails
+		 */
+		int next() throws IOException {
+			while (true) {
+				int c = read();
+				if (c < 0) {
+					return EOF;
+				}
+				if (c == '\n') {
+					m_LineNumber++;
+					return EOL;
+				}
+				if (c == '\r') {
+					m_LineNumber++;
+					if ((c = read()) >= 0 && c != '\n') {
+						unread();
+					}
+					return EOL;
+				}
+				if (c == ',' || c == '\t') {
+					return SEPARATOR;
+				}
+				if (c < ' ') {
+					continue;
+				}
+				if (c == '%') {
+					while ((c = read()) >= 0 && c != '\n' && c != '\r') {
+					}
+					if (c >= 0) {
+						unread();
+					}
+					continue;
+				}
+				m_Token.setLength(0);
+				if (m_Enclosures.indexOf(c) >= 0) {
+					readQuoted(c);
+				} else {
+					m_Token.append((char) c);
+					while ((c = read()) >= ' ' && c != ',' && c != '%' && m_Enclosures.indexOf(c) < 0) {
+						m_Token.append((char) c);
+					}
+					if (c >= 0) {
+						unread();
+					}
+				}
+				m_Value = m_Token.toString();
+				return VALUE;
+			}
+		}
+		
+		private void readQuoted(int quote) throws IOException {
+			int c = read();
+			while (c >= 0 && c != quote && c != '\n' && c != '\r') {
+				if (c == '\\') {
+					c = read();
+					if (c < 0) {
+						break;
+					}
+					if (c >= '0' && c <= '7') {
+						int first = c;
+						c = c - '0';
+						int c2 = read();
+						if (c2 >= '0' && c2 <= '7') {
+							c = (c << 3) + (c2 - '0');
+							c2 = read();
+							if (c2 >= '0' && c2 <= '7' && first <= '3') {
+								c = (c << 3) + (c2 - '0');
+								c2 = read();
+							}
+						}
+						m_Token.append((char) c);
+						c = c2;
+						continue;
+					}
+					switch (c) {
+						case 'a':
+							c = 0x7;
+							break;
+						case 'b':
+							c = '\b';
+							break;
+						case 'f':
+							c = 0xC;
+							break;
+						case 'n':
+							c = '\n';
+							break;
+						case 'r':
+							c = '\r';
+							break;
+						case 't':
+							c = '\t';
+							break;
+						case 'v':
+							c = 0xB;
+							break;
+					}
+				}
+				m_Token.append((char) c);
+				c = read();
+			}
+			if (c == '\n' || c == '\r') {
+				// the end of the line ends the field but is a token of its own
+				unread();
+			}
+		}
+		
+		/**
+		 * @return the text of the last VALUE token
+		 */
+		String value() {
+			return m_Value;
+		}
+		
+		/**
+		 * @return the number of lines read so far
+		 */
+		int lineNumber() {
+			return m_LineNumber;
 		}
 	}
 	
@@ -1035,9 +2499,8 @@ public class DLCSVLoader extends AbstractFileLoader implements BatchConverter,
 	@Override
 	public void reset() throws IOException {
 		m_structure = null;
-		m_cumulativeStructure = null;
-		m_cumulativeInstances = null;
 		m_st = null;
+		m_StreamReader = null;
 		setRetrieval(NONE);
 		
 		if (m_File != null) {
@@ -23,6 +23,7 @@
 package weka.core.converters;
 
 import weka.core.ClassDiscovery;
+import weka.core.CompactInstances;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.RevisionHandler;
@@ -121,6 +122,11 @@ public class DLConverterUtils
 		 */
 		protected Instances m_BatchBuffer;
 		
+		/**
+		 * whether the data is returned in compact storage.
+		 */
+		protected boolean m_CompactStorage;
+		
 		/*
 		 * Tries to load the data from the file. Can be either a regular file or
 		 * a web location (http://, https://, ftp:// or file://).
@@ -142,7 +148,7 @@ public class DLConverterUtils
 			
 			// quick check: is it ARFF?
 			if (isArff(location)) {
-				m_Loader = new ArffLoader();
+				m_Loader = new DLArffLoader();
 			} else {
 				if (m_File != null)
 					m_Loader = DLConverterUtils.getLoaderForFile(location);
@@ -202,7 +208,7 @@ public class DLConverterUtils
 			super();
 			
 			m_BatchBuffer = null;
-			m_Loader = new ArffLoader();
+			m_Loader = new DLArffLoader();
 			try {
 				m_Loader.setSource(stream);
 			} catch (Exception e) {
@@ -261,6 +267,29 @@ public class DLConverterUtils
 			return m_Loader;
 		}
 		
+		/**
+		 * sets whether getDataSet() returns the data in compact storage (see
+		 * CompactInstances), which holds numeric values at float precision. A
+		 * DLCSVLoader reads the data straight into compact storage, other
+		 * loaders' data is packed once it is read.
+		 *
+		 * @param value true for compact storage
+		 */
+		public void setCompactStorage(boolean value) {
+			m_CompactStorage = value;
+			if (m_Loader instanceof DLCSVLoader)
+				((DLCSVLoader) m_Loader).setCompactStorage(value);
+		}
+		
+		/**
+		 * returns whether getDataSet() returns the data in compact storage.
+		 *
+		 * @return true for compact storage
+		 */
+		public boolean getCompactStorage() {
+			return m_CompactStorage;
+		}
+		
 		/*
 		 * returns the full dataset, can be null in case of an error.
 		 *
@@ -280,6 +309,8 @@ public class DLConverterUtils
 					result = m_Loader.getDataSet();
 				else
 					result = m_BatchBuffer;
+				if (m_CompactStorage && result != null && !(result instanceof CompactInstances))
+					result = new CompactInstances(result);
 			} catch (Exception e) {
 				e.printStackTrace();
 				result = null;
@@ -0,0 +1,369 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * DatasetCache.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package weka.core.converters;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+/**
+ * Keeps binary snapshots of parsed datasets in a directory, so that opening a
+ * dataset again does not parse its text again. A snapshot is keyed on where
+ * the dataset came from (e.g. a content URI) together with the size and
+ * modification time of the source, and is only used while both still match.
+ * <p/>
+ * A snapshot holds a header (relation name, attributes and nominal and string
+ * values) followed by one block per attribute with the values of every row:
+ * doubles for numeric and date attributes and value indices for nominal and
+ * string ones, -1 standing for a missing value. It is read through a
+ * memory-mapped buffer.
+ * <p/>
+ * Relational attributes are not supported; datasets holding them are not
+ * cached.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class DatasetCache {
+
+	/**
+	 * "DLC1", the first bytes of a snapshot
+	 */
+	private static final int MAGIC = 0x444C4331;
+
+	/**
+	 * the version of the snapshot format
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * set in the flags if the rows do not all have a weight of 1
+	 */
+	private static final int FLAG_WEIGHTS = 1;
+
+	/**
+	 * set in the flags if the rows are sparse instances
+	 */
+	private static final int FLAG_SPARSE = 2;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * the directory the snapshots are kept in
+	 */
+	private final File m_Directory;
+
+	/**
+	 * Creates a cache keeping its snapshots in a directory, which is created
+	 * when the first snapshot is stored.
+	 *
+	 * @param directory the directory
+	 */
+	public DatasetCache(File directory) {
+		m_Directory = directory;
+	}
+
+	/**
+	 * Returns the snapshot file of a source. Each source has one snapshot, which
+	 * is replaced when the source changes.
+	 *
+	 * @param source where the dataset came from, e.g. a content URI
+	 * @return the file
+	 */
+	protected File snapshotFile(String source) {
+		StringBuilder name = new StringBuilder("dataset-");
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(UTF8));
+			for (byte b : digest) {
+				name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+		} catch (NoSuchAlgorithmException e) {
+			name.append(Integer.toHexString(source.hashCode()));
+		}
+		return new File(m_Directory, name.append(".bin").toString());
+	}
+
+	/**
+	 * Loads the snapshot of a dataset, if there is one for this version of the
+	 * source. A snapshot that cannot be read is deleted.
+	 *
+	 * @param source   where the dataset came from, e.g. a content URI
+	 * @param size     the size of the source in bytes
+	 * @param modified the modification time of the source
+	 * @return the dataset, or null if there is no usable snapshot
+	 */
+	public Instances load(String source, long size, long modified) {
+		File file = snapshotFile(source);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			return read(file, source, size, modified);
+		} catch (IOException | RuntimeException e) {
+			// truncated or otherwise damaged
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a snapshot of a dataset, replacing any older snapshot of the same
+	 * source.
+	 *
+	 * @param source   where the dataset came from, e.g. a content URI
+	 * @param size     the size of the source in bytes
+	 * @param modified the modification time of the source
+	 * @param data     the dataset parsed from the source
+	 * @return false if the dataset cannot be cached
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public boolean store(String source, long size, long modified, Instances data)
+			throws IOException {
+		for (int i = 0; i < data.numAttributes(); i++) {
+			if (data.attribute(i).isRelationValued()) {
+				return false;
+			}
+		}
+		if (!m_Directory.isDirectory() && !m_Directory.mkdirs()) {
+			throw new IOException("Cannot create " + m_Directory);
+		}
+		File file = snapshotFile(source);
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(tmp), 65536));
+		try {
+			write(out, source, size, modified, data);
+		} finally {
+			out.close();
+		}
+		// replace the old snapshot only once the new one is complete
+		if (!tmp.renameTo(file)) {
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				tmp.delete();
+				throw new IOException("Cannot write " + file);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Deletes the snapshot of a source.
+	 *
+	 * @param source where the dataset came from
+	 */
+	public void remove(String source) {
+		snapshotFile(source).delete();
+	}
+
+	private static void write(DataOutputStream out, String source, long size, long modified,
+							  Instances data) throws IOException {
+		int numAtts = data.numAttributes();
+		int numRows = data.numInstances();
+		int flags = 0;
+		for (int i = 0; i < numRows; i++) {
+			if (data.instance(i).weight() != 1) {
+				flags |= FLAG_WEIGHTS;
+			}
+		}
+		if (numRows > 0) {
+			flags |= FLAG_SPARSE;
+			for (int i = 0; i < numRows; i++) {
+				if (!(data.instance(i) instanceof SparseInstance)) {
+					flags &= ~FLAG_SPARSE;
+					break;
+				}
+			}
+		}
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeString(out, source);
+		out.writeLong(size);
+		out.writeLong(modified);
+		writeString(out, data.relationName());
+		out.writeInt(numAtts);
+		out.writeInt(numRows);
+		out.writeInt(data.classIndex());
+		out.writeInt(flags);
+		for (int j = 0; j < numAtts; j++) {
+			Attribute att = data.attribute(j);
+			out.writeInt(att.type());
+			writeString(out, att.name());
+			if (att.isNominal() || att.isString()) {
+				out.writeInt(att.numValues());
+				for (int v = 0; v < att.numValues(); v++) {
+					writeString(out, att.value(v));
+				}
+			} else if (att.isDate()) {
+				writeString(out, att.getDateFormat());
+			}
+		}
+
+		if ((flags & FLAG_WEIGHTS) != 0) {
+			for (int i = 0; i < numRows; i++) {
+				out.writeDouble(data.instance(i).weight());
+			}
+		}
+		for (int j = 0; j < numAtts; j++) {
+			if (data.attribute(j).isNumeric()) {
+				for (int i = 0; i < numRows; i++) {
+					out.writeDouble(data.instance(i).value(j));
+				}
+			} else {
+				for (int i = 0; i < numRows; i++) {
+					Instance row = data.instance(i);
+					out.writeInt(row.isMissing(j) ? -1 : (int) row.value(j));
+				}
+			}
+		}
+	}
+
+	private static Instances read(File file, String source, long size, long modified)
+			throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		ByteBuffer in;
+		try {
+			FileChannel channel = raf.getChannel();
+			in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			raf.close();
+		}
+
+		if (in.getInt() != MAGIC || in.getInt() != VERSION
+				|| !readString(in).equals(source) || in.getLong() != size
+				|| in.getLong() != modified) {
+			return null;
+		}
+		String relationName = readString(in);
+		int numAtts = in.getInt();
+		int numRows = in.getInt();
+		int classIndex = in.getInt();
+		int flags = in.getInt();
+		FastVector atts = new FastVector(numAtts);
+		for (int j = 0; j < numAtts; j++) {
+			int type = in.getInt();
+			String name = readString(in);
+			switch (type) {
+				case Attribute.NUMERIC:
+					atts.addElement(new Attribute(name));
+					break;
+				case Attribute.DATE:
+					atts.addElement(new Attribute(name, readString(in)));
+					break;
+				case Attribute.NOMINAL:
+				case Attribute.STRING:
+					int numValues = in.getInt();
+					FastVector values = new FastVector(numValues);
+					for (int v = 0; v < numValues; v++) {
+						values.addElement(readString(in));
+					}
+					if (type == Attribute.NOMINAL) {
+						atts.addElement(new Attribute(name, values));
+					} else {
+						Attribute att = new Attribute(name, (FastVector) null);
+						for (int v = 0; v < numValues; v++) {
+							att.addStringValue((String) values.elementAt(v));
+						}
+						atts.addElement(att);
+					}
+					break;
+				default:
+					throw new IOException("Unknown attribute type " + type);
+			}
+		}
+
+		double[] weights = null;
+		if ((flags & FLAG_WEIGHTS) != 0) {
+			weights = new double[numRows];
+			in.asDoubleBuffer().get(weights);
+			in.position(in.position() + 8 * numRows);
+		}
+		double[][] rows = new double[numRows][numAtts];
+		double[] doubles = null;
+		int[] ints = null;
+		for (int j = 0; j < numAtts; j++) {
+			Attribute att = (Attribute) atts.elementAt(j);
+			if (att.isNumeric()) {
+				if (doubles == null) {
+					doubles = new double[numRows];
+				}
+				in.asDoubleBuffer().get(doubles);
+				in.position(in.position() + 8 * numRows);
+				for (int i = 0; i < numRows; i++) {
+					rows[i][j] = doubles[i];
+				}
+			} else {
+				if (ints == null) {
+					ints = new int[numRows];
+				}
+				in.asIntBuffer().get(ints);
+				in.position(in.position() + 4 * numRows);
+				for (int i = 0; i < numRows; i++) {
+					rows[i][j] = (ints[i] < 0) ? Instance.missingValue() : ints[i];
+				}
+			}
+		}
+
+		Instances data = new Instances(relationName, atts, numRows);
+		boolean sparse = (flags & FLAG_SPARSE) != 0;
+		for (int i = 0; i < numRows; i++) {
+			double weight = (weights == null) ? 1 : weights[i];
+			data.add(sparse ? new SparseInstance(weight, rows[i]) : new Instance(weight, rows[i]));
+			rows[i] = null; // conserve memory
+		}
+		data.setClassIndex(classIndex);
+		return data;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0 || length > in.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, UTF8);
+	}
+}
@@ -0,0 +1,59 @@
+package au.com.darrenyates.datalearner;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a job waiting in the queue keeps the dataset as it was when the
+ * job was submitted.
+ */
+public class JobSchedulerTest {
+
+	@Test
+	public void queuedJobKeepsClassIndex() throws Exception {
+		FastVector atts = new FastVector();
+		atts.addElement(new Attribute("x"));
+		atts.addElement(new Attribute("y"));
+		Instances data = new Instances("data", atts, 2);
+		data.add(new Instance(1, new double[]{1, 2}));
+		data.add(new Instance(1, new double[]{3, 4}));
+		data.setClassIndex(1);
+
+		JobScheduler scheduler = new JobScheduler(1, 0);
+		try {
+			final CountDownLatch release = new CountDownLatch(1);
+			JobScheduler.Job blocker = scheduler.submit("blocker", data, new JobScheduler.Task() {
+				@Override
+				public Object run(Instances rows) throws Exception {
+					release.await();
+					return null;
+				}
+			});
+			JobScheduler.Job queued = scheduler.submit("queued", data, new JobScheduler.Task() {
+				@Override
+				public Object run(Instances rows) {
+					return rows.classIndex();
+				}
+			});
+
+			// the class is changed while the second job is still waiting
+			data.setClassIndex(0);
+			release.countDown();
+			blocker.await();
+			queued.await();
+
+			assertEquals(JobScheduler.Status.FINISHED, queued.getStatus());
+			assertEquals(1, queued.getResult());
+		} finally {
+			scheduler.shutdown();
+		}
+	}
+}
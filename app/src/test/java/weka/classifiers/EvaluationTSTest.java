@@ -0,0 +1,126 @@
+package weka.classifiers;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import weka.classifiers.trees.REPTreeTS;
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that aggregating the evaluations of two halves of a test set gives
+ * the same results as evaluating the whole test set at once.
+ */
+public class EvaluationTSTest {
+
+	private static Instances makeData(String name, int numInstances, boolean nominalClass, long seed) {
+		FastVector atts = new FastVector();
+		atts.addElement(new Attribute("x1"));
+		atts.addElement(new Attribute("x2"));
+		FastVector colours = new FastVector();
+		colours.addElement("red");
+		colours.addElement("green");
+		colours.addElement("blue");
+		atts.addElement(new Attribute("colour", colours));
+		if (nominalClass) {
+			FastVector labels = new FastVector();
+			labels.addElement("a");
+			labels.addElement("b");
+			labels.addElement("c");
+			atts.addElement(new Attribute("class", labels));
+		} else {
+			atts.addElement(new Attribute("class"));
+		}
+		Instances data = new Instances(name, atts, numInstances);
+		data.setClassIndex(data.numAttributes() - 1);
+		Random random = new Random(seed);
+		for (int i = 0; i < numInstances; i++) {
+			double[] vals = new double[data.numAttributes()];
+			vals[0] = random.nextDouble() * 10;
+			vals[1] = random.nextGaussian();
+			vals[2] = random.nextInt(3);
+			double target = vals[0] + 2 * vals[1] + vals[2] + random.nextGaussian();
+			if (nominalClass) {
+				vals[3] = target < 4 ? 0 : target < 8 ? 1 : 2;
+			} else {
+				vals[3] = Math.rint(target * 100) / 100;
+			}
+			if (random.nextDouble() < 0.05) {
+				vals[1] = Instance.missingValue();
+			}
+			data.add(new Instance(1, vals));
+		}
+		return data;
+	}
+
+	private static void checkSplitTestSet(boolean nominalClass) throws Exception {
+		Instances train = makeData("train", 300, nominalClass, 1);
+		Instances test = makeData("test", 201, nominalClass, 2);
+		Classifier classifier = new REPTreeTS();
+		classifier.buildClassifier(train);
+
+		EvaluationTS whole = new EvaluationTS(train);
+		whole.evaluateModel(classifier, test);
+
+		int half = test.numInstances() / 2;
+		EvaluationTS first = new EvaluationTS(train);
+		first.evaluateModel(classifier, new Instances(test, 0, half));
+		EvaluationTS second = new EvaluationTS(train);
+		second.evaluateModel(classifier, new Instances(test, half, test.numInstances() - half));
+		first.aggregate(second);
+
+		assertEquals(whole.toSummaryString(), first.toSummaryString());
+		if (nominalClass) {
+			assertEquals(whole.toMatrixString(""), first.toMatrixString(""));
+			assertArrayEquals(whole.getClassPriors(), first.getClassPriors(), 0);
+		}
+	}
+
+	@Test
+	public void aggregateNominalMatchesSingleEvaluation() throws Exception {
+		checkSplitTestSet(true);
+	}
+
+	@Test
+	public void aggregateNumericMatchesSingleEvaluation() throws Exception {
+		checkSplitTestSet(false);
+	}
+
+	@Test
+	public void aggregateKeepsNumericErrorEstimator() throws Exception {
+		Instances train = makeData("train", 300, false, 3);
+		Instances test = makeData("test", 200, false, 4);
+		Classifier classifier = new REPTreeTS();
+		classifier.buildClassifier(train);
+
+		EvaluationTS whole = new EvaluationTS(train);
+		whole.evaluateModel(classifier, test);
+
+		// the SF entropy of the second half depends on the errors of the first
+		EvaluationTS first = new EvaluationTS(train);
+		first.evaluateModel(classifier, new Instances(test, 0, 100));
+		EvaluationTS merged = new EvaluationTS(train);
+		merged.aggregate(first);
+		merged.evaluateModel(classifier, new Instances(test, 100, 100));
+
+		assertEquals(whole.toSummaryString(true), merged.toSummaryString(true));
+	}
+
+	@Test
+	public void aggregateShardsSumsNominalPriors() throws Exception {
+		Instances all = makeData("all", 400, true, 5);
+		Instances shard1 = new Instances(all, 0, 150);
+		Instances shard2 = new Instances(all, 150, 250);
+
+		EvaluationTS whole = new EvaluationTS(all);
+		EvaluationTS first = new EvaluationTS(shard1);
+		first.aggregate(new EvaluationTS(shard2), false);
+
+		assertArrayEquals(whole.getClassPriors(), first.getClassPriors(), 1e-9);
+	}
+}
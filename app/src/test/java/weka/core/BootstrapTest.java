@@ -0,0 +1,116 @@
+package weka.core;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a Bootstrap draws the same rows as Instances.resampleWithWeights()
+ * and Instances.randomize() do with the same random numbers, as bagging relies
+ * on to build the same ensembles from counts as from copied rows.
+ */
+public class BootstrapTest {
+
+	// the first attribute holds the position of each row, so the rows of a
+	// copied sample can be traced back to the dataset
+	private static Instances makeData(int numInstances, boolean weighted) {
+		FastVector atts = new FastVector();
+		atts.addElement(new Attribute("row"));
+		atts.addElement(new Attribute("x"));
+		FastVector labels = new FastVector();
+		labels.addElement("a");
+		labels.addElement("b");
+		atts.addElement(new Attribute("class", labels));
+		Instances data = new Instances("rows", atts, numInstances);
+		data.setClassIndex(2);
+		Random random = new Random(numInstances);
+		for (int i = 0; i < numInstances; i++) {
+			double weight = weighted ? 0.25 + random.nextInt(8) * 0.5 : 1;
+			data.add(new Instance(weight, new double[]{i, random.nextGaussian(), random.nextInt(2)}));
+		}
+		return data;
+	}
+
+	private static double[] countRows(Instances sample, int numRows) {
+		double[] counts = new double[numRows];
+		for (int i = 0; i < sample.numInstances(); i++) {
+			counts[(int) sample.instance(i).value(0)]++;
+		}
+		return counts;
+	}
+
+	private static void checkResample(int numInstances, boolean weighted, long seed) {
+		Instances data = makeData(numInstances, weighted);
+		Instances copies = data.resampleWithWeights(new Random(seed));
+		Bootstrap bag = Bootstrap.resampleWithWeights(data, new Random(seed));
+
+		assertEquals(copies.numInstances(), bag.numInstances());
+		assertArrayEquals(countRows(copies, numInstances), bag.counts(), 0);
+		assertEquals(copies.toString(), bag.toInstances().toString());
+		assertEquals(copies.getRandomNumberGenerator(seed).nextLong(),
+				bag.getRandomNumberGenerator(seed).nextLong());
+	}
+
+	private static void checkSubsample(int numInstances, int bagSize, boolean weighted, long seed) {
+		Instances data = makeData(numInstances, weighted);
+		Random copyRandom = new Random(seed);
+		Instances copies = data.resampleWithWeights(copyRandom);
+		copies.randomize(copyRandom);
+		copies = new Instances(copies, 0, bagSize);
+		Random bagRandom = new Random(seed);
+		Bootstrap bag = Bootstrap.resampleWithWeights(data, bagRandom).subsample(bagSize, bagRandom);
+
+		assertEquals(bagSize, bag.numInstances());
+		assertArrayEquals(countRows(copies, numInstances), bag.counts(), 0);
+		assertEquals(copies.toString(), bag.toInstances().toString());
+		// both random number generators must be left in the same state
+		assertEquals(copyRandom.nextInt(), bagRandom.nextInt());
+	}
+
+	@Test
+	public void resampleUnitWeights() {
+		for (long seed = 1; seed <= 5; seed++) {
+			checkResample(200, false, seed);
+		}
+	}
+
+	@Test
+	public void resampleWeightedRows() {
+		for (long seed = 1; seed <= 5; seed++) {
+			checkResample(200, true, seed);
+		}
+	}
+
+	@Test
+	public void resampleSingleRow() {
+		checkResample(1, false, 3);
+	}
+
+	@Test
+	public void subsampleUnitWeights() {
+		for (long seed = 1; seed <= 5; seed++) {
+			checkSubsample(200, 120, false, seed);
+		}
+	}
+
+	@Test
+	public void subsampleWeightedRows() {
+		for (long seed = 1; seed <= 5; seed++) {
+			checkSubsample(200, 77, true, seed);
+		}
+	}
+
+	@Test
+	public void markInBagMatchesCounts() {
+		Instances data = makeData(100, true);
+		Bootstrap bag = Bootstrap.resampleWithWeights(data, new Random(9)).subsample(60, new Random(10));
+		boolean[] inBag = new boolean[data.numInstances()];
+		bag.markInBag(inBag);
+		double[] counts = bag.counts();
+		for (int i = 0; i < counts.length; i++) {
+			assertEquals("row " + i, counts[i] > 0, inBag[i]);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package weka.core.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that DLArffLoader reads the same rows as Weka's ArffLoader, down to
+ * the bits of every value, and fails on the same rows with the same messages.
+ */
+public class DLArffLoaderTest {
+
+	private static final String HEADER =
+			"% a comment before the header\n"
+					+ "@relation test\n"
+					+ "@attribute num numeric\n"
+					+ "@attribute colour {red,'light green',\"dark blue\"}\n"
+					+ "@attribute note string\n"
+					+ "@attribute real real\n"
+					+ "@attribute class {yes,no}\n"
+					+ "@data\n";
+
+	private static final String DENSE_ROWS =
+			"1,red,hello,0.1,yes\n"
+					+ "-2.5,'light green','two words',1e3,no\n"
+					+ "% a comment between rows\n"
+					+ "\n"
+					+ "3.14159265358979,\"dark blue\",\"double quoted\",-1.5E-7,yes\n"
+					+ "123456789012345678,red,x,1E-30,no\n"
+					+ "?,?,?,?,?\n"
+					+ "0.30000000000000004,red,'it\\'s escaped',+7,yes\n"
+					+ "1.7976931348623157E308,red,y,4.9E-324,no,{2.5}\n"
+					+ "  42 , red , spaced , 0.5 , yes \n";
+
+	private static Instances load(ArffLoader loader, String arff) throws IOException {
+		loader.setSource(new ByteArrayInputStream(arff.getBytes("UTF-8")));
+		return loader.getDataSet();
+	}
+
+	private static void assertSameData(String arff) throws IOException {
+		Instances expected = load(new ArffLoader(), arff);
+		Instances actual = load(new DLArffLoader(), arff);
+		assertEquals(expected.numAttributes(), actual.numAttributes());
+		assertEquals(expected.numInstances(), actual.numInstances());
+		for (int i = 0; i < expected.numInstances(); i++) {
+			Instance e = expected.instance(i);
+			Instance a = actual.instance(i);
+			String row = "row " + i;
+			assertEquals(row, e.getClass(), a.getClass());
+			assertEquals(row, Double.doubleToLongBits(e.weight()), Double.doubleToLongBits(a.weight()));
+			assertEquals(row, e.numValues(), a.numValues());
+			for (int j = 0; j < e.numValues(); j++) {
+				assertEquals(row, e.index(j), a.index(j));
+				assertEquals(row + " value " + j, Double.doubleToLongBits(e.valueSparse(j)),
+						Double.doubleToLongBits(a.valueSparse(j)));
+			}
+		}
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	private static void assertSameError(String arff) {
+		String expected = null;
+		try {
+			load(new ArffLoader(), arff);
+		} catch (IOException e) {
+			expected = e.getMessage();
+		}
+		assertNotNull("ArffLoader should reject the data", expected);
+		try {
+			load(new DLArffLoader(), arff);
+			fail("DLArffLoader should reject the data");
+		} catch (IOException e) {
+			assertEquals(expected, e.getMessage());
+		}
+	}
+
+	@Test
+	public void denseRows() throws Exception {
+		assertSameData(HEADER + DENSE_ROWS);
+	}
+
+	@Test
+	public void sparseRows() throws Exception {
+		assertSameData(HEADER
+				+ "{0 1.5,1 'light green',4 no}\n"
+				+ "{}\n"
+				+ "{1 red,2 'two words'}\n"
+				+ "{0 -2,3 ?,4 yes},{0.25}\n"
+				+ "{0 7e-3, 2 \"q\"}\n");
+	}
+
+	@Test
+	public void crlfLineEndings() throws Exception {
+		assertSameData((HEADER + DENSE_ROWS).replace("\n", "\r\n"));
+	}
+
+	@Test
+	public void crLineEndings() throws Exception {
+		assertSameData((HEADER + DENSE_ROWS).replace("\n", "\r"));
+	}
+
+	@Test
+	public void noNewlineAtEnd() throws Exception {
+		assertSameData(HEADER + "1,red,a,2,yes\n5,'light green',b,6,no");
+	}
+
+	@Test
+	public void wideLine() throws Exception {
+		StringBuilder arff = new StringBuilder("@relation wide\n");
+		int numAttributes = 3000;
+		for (int i = 0; i < numAttributes; i++) {
+			arff.append("@attribute a").append(i).append(" numeric\n");
+		}
+		arff.append("@data\n");
+		for (int r = 0; r < 3; r++) {
+			for (int i = 0; i < numAttributes; i++) {
+				if (i > 0) arff.append(',');
+				arff.append((i * 31 + r) % 997).append('.').append(i % 10);
+			}
+			arff.append('\n');
+		}
+		assertSameData(arff.toString());
+	}
+
+	@Test
+	public void undeclaredNominalValue() {
+		assertSameError(HEADER + "1,red,a,2,yes\n2,purple,b,3,no\n");
+	}
+
+	@Test
+	public void tooFewValues() {
+		assertSameError(HEADER + "1,red,a,2,yes\n2,red,b\n");
+	}
+
+	@Test
+	public void badNumber() {
+		assertSameError(HEADER + "1,red,a,2,yes\n2x,red,b,3,no\n");
+	}
+
+	@Test
+	public void unterminatedQuote() {
+		assertSameError(HEADER + "1,red,'a,2,yes\n");
+	}
+
+	@Test
+	public void badSparseIndex() {
+		assertSameError(HEADER + "{0 1,9 2}\n");
+	}
+}
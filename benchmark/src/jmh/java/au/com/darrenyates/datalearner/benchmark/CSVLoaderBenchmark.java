@@ -0,0 +1,90 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * CSVLoaderBenchmark.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import weka.core.Instances;
+import weka.core.converters.DLCSVLoader;
+
+/**
+ * Times DLCSVLoader.getDataSet(), the load of a CSV file as the app does it.
+ * The synthetic dataset is written to a temporary file during setup; with
+ * -p dataset=rain the bundled dataset is read instead.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CSVLoaderBenchmark {
+
+	@Param({"synthetic"})
+	public String dataset;
+
+	@Param({"1000", "10000"})
+	public int rows;
+
+	@Param({"10", "50"})
+	public int attributes;
+
+	@Param({"2", "5"})
+	public int classes;
+
+	private File m_File;
+	private boolean m_Temporary;
+
+	@Setup
+	public void setup() throws Exception {
+		m_File = DataState.file(dataset);
+		if (m_File == null) {
+			m_File = File.createTempFile("datalearner-bench", ".csv");
+			m_Temporary = true;
+			SyntheticData.writeCSV(SyntheticData.classification(rows, attributes, classes, 1), m_File);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (m_Temporary) m_File.delete();
+	}
+
+	@Benchmark
+	public Instances getDataSet() throws Exception {
+		DLCSVLoader loader = new DLCSVLoader();
+		loader.setSource(m_File);
+		return loader.getDataSet();
+	}
+}
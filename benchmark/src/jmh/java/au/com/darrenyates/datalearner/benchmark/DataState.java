@@ -0,0 +1,93 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * DataState.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner.benchmark;
+
+import java.io.File;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import weka.core.Instances;
+
+/**
+ * The classification dataset shared by the learner benchmarks. By default it
+ * is generated with the given numbers of rows, attributes and classes. Setting
+ * dataset to "rain" uses the dataset bundled with the app (R.raw.rain), and any
+ * other value is read as the path of an ARFF or CSV file; the class is the last
+ * attribute and the size parameters are then ignored, so pin them to one value
+ * each, e.g.
+ * <pre>
+ * -p dataset=rain -p rows=1000 -p attributes=10 -p classes=2
+ * </pre>
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+@State(Scope.Benchmark)
+public class DataState {
+
+	/**
+	 * the bundled dataset, relative to the root of the project
+	 */
+	public static final String RAIN = "app/src/main/res/raw/rain.csv";
+
+	@Param({"synthetic"})
+	public String dataset;
+
+	@Param({"1000", "10000"})
+	public int rows;
+
+	@Param({"10", "50"})
+	public int attributes;
+
+	@Param({"2", "5"})
+	public int classes;
+
+	/**
+	 * the dataset, with the class index set
+	 */
+	public Instances data;
+
+	@Setup
+	public void setup() throws Exception {
+		data = load(dataset, rows, attributes, classes);
+	}
+
+	/**
+	 * Returns the file a dataset name refers to, or null for "synthetic".
+	 */
+	static File file(String dataset) {
+		if (dataset.equals("synthetic")) return null;
+		return new File(dataset.equals("rain") ? RAIN : dataset);
+	}
+
+	static Instances load(String dataset, int rows, int attributes, int classes) throws Exception {
+		File file = file(dataset);
+		if (file == null) return SyntheticData.classification(rows, attributes, classes, 1);
+		Instances data = BenchmarkRunner.load(file);
+		data.setClassIndex(data.numAttributes() - 1);
+		return data;
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * EvaluationBenchmark.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import au.com.darrenyates.datalearner.AlgorithmRegistry;
+import weka.classifiers.Classifier;
+import weka.classifiers.EvaluationTS;
+
+/**
+ * Times EvaluationTS.evaluateModel(), i.e. predicting and scoring every
+ * instance of a dataset with an already built model. The classifier is
+ * named as in the app's spinners.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EvaluationBenchmark {
+
+	@Param({"NaiveBayes", "J48 (C4.5)", "RandomForest"})
+	public String classifier;
+
+	private Classifier m_Classifier;
+	private DataState m_State;
+
+	@Setup
+	public void setup(DataState state) throws Exception {
+		m_State = state;
+		m_Classifier = (Classifier) AlgorithmRegistry.get(classifier).newInstance();
+		m_Classifier.buildClassifier(state.data);
+	}
+
+	@Benchmark
+	public EvaluationTS evaluateModel() throws Exception {
+		EvaluationTS eval = new EvaluationTS(m_State.data);
+		eval.evaluateModel(m_Classifier, m_State.data);
+		return eval;
+	}
+}
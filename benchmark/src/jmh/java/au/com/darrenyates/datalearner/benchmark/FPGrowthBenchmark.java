@@ -0,0 +1,100 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * FPGrowthBenchmark.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import weka.associations.FPGrowthTS;
+import weka.core.Instances;
+
+/**
+ * Times FPGrowthTS.mineTree(), the recursive mining of the FP-tree. The tree
+ * is built from a synthetic market-basket dataset during setup; one operation
+ * mines every frequent item set at the given minimum support.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FPGrowthBenchmark {
+
+	@Param({"1000", "10000"})
+	public int rows;
+
+	@Param({"10", "25"})
+	public int items;
+
+	@Param({"0.1"})
+	public double minSupport;
+
+	private FPGrowthTS m_FPGrowth;
+	private Method m_MineTree;
+	private Object m_Tree;
+	private Constructor<?> m_NewItemSets;
+	private Constructor<?> m_NewConditional;
+	private int m_MinSupport;
+	private int m_NumTransactions;
+
+	@Setup
+	public void setup() throws Exception {
+		Instances data = SyntheticData.baskets(rows, items, 1);
+		m_FPGrowth = new FPGrowthTS();
+		m_NumTransactions = data.numInstances();
+		m_MinSupport = (int) Math.ceil(minSupport * m_NumTransactions);
+
+		Class<?> treeClass = Internals.nested(FPGrowthTS.class, "FPTreeRoot");
+		Class<?> itemSetsClass = Internals.nested(FPGrowthTS.class, "FrequentItemSets");
+		Class<?> conditionalClass = Internals.nested(FPGrowthTS.class, "FrequentBinaryItemSet");
+		m_NewItemSets = Internals.constructor(itemSetsClass, int.class);
+		m_NewConditional = Internals.constructor(conditionalClass, ArrayList.class, int.class);
+		m_MineTree = Internals.method(FPGrowthTS.class, "mineTree",
+				treeClass, itemSetsClass, int.class, conditionalClass, int.class);
+
+		Object singletons = Internals.method(FPGrowthTS.class, "getSingletons", Instances.class)
+				.invoke(m_FPGrowth, data);
+		m_Tree = Internals.method(FPGrowthTS.class, "buildFPTree", ArrayList.class, Instances.class, int.class)
+				.invoke(m_FPGrowth, singletons, data, m_MinSupport);
+	}
+
+	@Benchmark
+	public Object mineTree() throws Exception {
+		Object largeItemSets = m_NewItemSets.newInstance(m_NumTransactions);
+		Object conditional = m_NewConditional.newInstance(new ArrayList<Object>(), 0);
+		m_MineTree.invoke(m_FPGrowth, m_Tree, largeItemSets, 0, conditional, m_MinSupport);
+		return largeItemSets;
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * Internals.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Access to the private methods the benchmarks time. The hot paths are
+ * private helpers of the learners; the benchmarks look them up once during
+ * setup and call them through reflection rather than widening their access.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+class Internals {
+
+	/**
+	 * Returns a declared method of a class, made accessible.
+	 */
+	static Method method(Class<?> cls, String name, Class<?>... parameterTypes) throws Exception {
+		Method method = cls.getDeclaredMethod(name, parameterTypes);
+		method.setAccessible(true);
+		return method;
+	}
+
+	/**
+	 * Returns a declared constructor of a class, made accessible.
+	 */
+	static Constructor<?> constructor(Class<?> cls, Class<?>... parameterTypes) throws Exception {
+		Constructor<?> constructor = cls.getDeclaredConstructor(parameterTypes);
+		constructor.setAccessible(true);
+		return constructor;
+	}
+
+	/**
+	 * Returns a declared field of a class, made accessible.
+	 */
+	static Field field(Class<?> cls, String name) throws Exception {
+		Field field = cls.getDeclaredField(name);
+		field.setAccessible(true);
+		return field;
+	}
+
+	/**
+	 * Returns a nested class of a class by its simple name.
+	 */
+	static Class<?> nested(Class<?> cls, String name) throws Exception {
+		return Class.forName(cls.getName() + "$" + name, true, cls.getClassLoader());
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * KStarBenchmark.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import weka.classifiers.lazy.KStarTS;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Times KStarTS.instanceTransformationProbability(), which KStar calls for
+ * every training instance each time it classifies an instance. One operation
+ * compares one test instance with every training instance, as a single
+ * prediction does.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class KStarBenchmark {
+
+	private KStarTS m_KStar;
+	private Method m_TransProb;
+	private Instances m_Data;
+	private Instance m_Test;
+
+	@Setup
+	public void setup(DataState state) throws Exception {
+		m_Data = state.data;
+		m_KStar = new KStarTS();
+		m_KStar.buildClassifier(m_Data);
+		m_Test = m_Data.instance(m_Data.numInstances() / 2);
+		// sets up the per-attribute caches, as the first prediction does
+		m_KStar.distributionForInstance(m_Test);
+		m_TransProb = Internals.method(KStarTS.class, "instanceTransformationProbability",
+				Instance.class, Instance.class);
+	}
+
+	@Benchmark
+	public void instanceTransformationProbability(Blackhole bh) throws Exception {
+		for (int i = 0; i < m_Data.numInstances(); i++)
+			bh.consume(m_TransProb.invoke(m_KStar, m_Test, m_Data.instance(i)));
+	}
+}
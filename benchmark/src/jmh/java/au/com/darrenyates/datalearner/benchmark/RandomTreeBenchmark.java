@@ -0,0 +1,106 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * RandomTreeBenchmark.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import weka.classifiers.trees.RandomTreeTS;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Times RandomTreeTS.Tree.distribution(), the split search RandomTree runs for
+ * every candidate attribute at every node. One operation searches every
+ * attribute once over the whole dataset, as at the root of a tree. As in
+ * buildClassifier(), the rows are sorted on each numeric attribute once during
+ * setup, and the search scans the sorted indices.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RandomTreeBenchmark {
+
+	private Object m_Tree;
+	private Method m_Distribution;
+	private Instances m_Data;
+	private int[][] m_SortedIndices;
+
+	@Setup
+	public void setup(DataState state) throws Exception {
+		m_Data = state.data;
+		RandomTreeTS randomTree = new RandomTreeTS();
+		Class<?> treeClass = Internals.nested(RandomTreeTS.class, "Tree");
+		m_Tree = Internals.constructor(treeClass, RandomTreeTS.class).newInstance(randomTree);
+		m_Distribution = Internals.method(treeClass, "distribution",
+				double[][].class, double[][][].class, int.class, int[].class, Instances.class);
+
+		// the search reads the row weights and the sorted indices that
+		// buildClassifier() sets up before growing a tree
+		int numInstances = m_Data.numInstances();
+		double[] weights = new double[numInstances];
+		int[] rows = new int[numInstances];
+		for (int i = 0; i < numInstances; i++) {
+			weights[i] = m_Data.instance(i).weight();
+			rows[i] = i;
+		}
+		Internals.field(RandomTreeTS.class, "m_Weights").set(randomTree, weights);
+		Internals.field(RandomTreeTS.class, "m_Branch").set(randomTree, new int[numInstances]);
+		m_SortedIndices = new int[m_Data.numAttributes()][];
+		double[] vals = new double[numInstances];
+		for (int att = 0; att < m_Data.numAttributes(); att++) {
+			if (att == m_Data.classIndex()) continue;
+			if (m_Data.attribute(att).isNominal()) {
+				m_SortedIndices[att] = rows;
+			} else {
+				for (int i = 0; i < numInstances; i++) {
+					vals[i] = m_Data.instance(i).value(att);
+				}
+				m_SortedIndices[att] = Utils.sort(vals);
+			}
+		}
+	}
+
+	@Benchmark
+	public void distribution(Blackhole bh) throws Exception {
+		for (int att = 0; att < m_Data.numAttributes(); att++) {
+			if (att == m_Data.classIndex()) continue;
+			double[][] props = new double[1][0];
+			double[][][] dists = new double[1][0][0];
+			bh.consume(m_Distribution.invoke(m_Tree, props, dists, att, m_SortedIndices[att], m_Data));
+			bh.consume(dists);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * SimpleKMeansBenchmark.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import weka.clusterers.SimpleKMeansTS;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.Remove;
+
+/**
+ * Times SimpleKMeansTS.clusterProcessedInstance(), the assignment step of
+ * each k-means iteration. The clusterer is built during setup with one cluster
+ * per class value; one operation assigns every instance to its nearest
+ * centroid.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SimpleKMeansBenchmark {
+
+	private SimpleKMeansTS m_KMeans;
+	private Method m_Cluster;
+	private Instances m_Data;
+
+	@Setup
+	public void setup(DataState state) throws Exception {
+		Remove remove = new Remove();
+		remove.setAttributeIndices("" + (state.data.classIndex() + 1));
+		remove.setInputFormat(state.data);
+		m_Data = Filter.useFilter(state.data, remove);
+		m_KMeans = new SimpleKMeansTS();
+		m_KMeans.setNumClusters(Math.max(2, state.data.numClasses()));
+		m_KMeans.buildClusterer(m_Data);
+		m_Cluster = Internals.method(SimpleKMeansTS.class, "clusterProcessedInstance",
+				Instance.class, boolean.class);
+	}
+
+	@Benchmark
+	public void clusterProcessedInstance(Blackhole bh) throws Exception {
+		for (int i = 0; i < m_Data.numInstances(); i++)
+			bh.consume(m_Cluster.invoke(m_KMeans, m_Data.instance(i), false));
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * SyntheticData.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Generates datasets of a given shape for the benchmarks, so that learners can
+ * be timed over a grid of rows, attributes and classes.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class SyntheticData {
+
+	/**
+	 * Creates a classification dataset of numeric attributes and a nominal class
+	 * as the last attribute. Every other attribute is shifted by an amount that
+	 * depends on the class, so the learners have something to find, and values
+	 * are rounded to two decimals so that numeric attributes have ties, as
+	 * real data does.
+	 *
+	 * @param rows       the number of instances
+	 * @param attributes the number of attributes, not counting the class
+	 * @param classes    the number of class values
+	 * @param seed       the seed for the random number generator
+	 * @return the dataset, with the class index set
+	 */
+	public static Instances classification(int rows, int attributes, int classes, long seed) {
+		FastVector atts = new FastVector(attributes + 1);
+		for (int j = 0; j < attributes; j++)
+			atts.addElement(new Attribute("a" + j));
+		FastVector classValues = new FastVector(classes);
+		for (int k = 0; k < classes; k++)
+			classValues.addElement("c" + k);
+		atts.addElement(new Attribute("class", classValues));
+
+		Instances data = new Instances("synthetic-" + rows + "x" + attributes + "x" + classes, atts, rows);
+		data.setClassIndex(attributes);
+		Random random = new Random(seed);
+		for (int i = 0; i < rows; i++) {
+			double[] vals = new double[attributes + 1];
+			int cls = random.nextInt(classes);
+			for (int j = 0; j < attributes; j++) {
+				double shift = (j % 2 == 0) ? 0.5 * cls * (j % 5 + 1) : 0;
+				vals[j] = Math.round((random.nextGaussian() + shift) * 100) / 100.0;
+			}
+			vals[attributes] = cls;
+			data.add(new Instance(1.0, vals));
+		}
+		return data;
+	}
+
+	/**
+	 * Creates a market-basket dataset of binary nominal attributes, as
+	 * FPGrowth expects. Item j is bought with a probability falling with j, and
+	 * each item is often bought together with the next one, so there are
+	 * frequent item sets of several sizes.
+	 *
+	 * @param rows  the number of transactions
+	 * @param items the number of items
+	 * @param seed  the seed for the random number generator
+	 * @return the dataset, without a class
+	 */
+	public static Instances baskets(int rows, int items, long seed) {
+		FastVector values = new FastVector(2);
+		values.addElement("f");
+		values.addElement("t");
+		FastVector atts = new FastVector(items);
+		for (int j = 0; j < items; j++)
+			atts.addElement(new Attribute("item" + j, values));
+
+		Instances data = new Instances("baskets-" + rows + "x" + items, atts, rows);
+		Random random = new Random(seed);
+		for (int i = 0; i < rows; i++) {
+			double[] vals = new double[items];
+			for (int j = 0; j < items; j++) {
+				if (vals[j] == 1) continue;
+				if (random.nextDouble() < 0.6 / (1 + j * 0.2)) {
+					vals[j] = 1;
+					if (j + 1 < items && random.nextDouble() < 0.7) vals[j + 1] = 1;
+				}
+			}
+			data.add(new Instance(1.0, vals));
+		}
+		return data;
+	}
+
+	/**
+	 * Writes a dataset as a CSV file with a header row.
+	 *
+	 * @param data the dataset
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void writeCSV(Instances data, File file) throws IOException {
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		try {
+			StringBuilder line = new StringBuilder();
+			for (int j = 0; j < data.numAttributes(); j++) {
+				if (j > 0) line.append(',');
+				line.append(data.attribute(j).name());
+			}
+			out.println(line);
+			for (int i = 0; i < data.numInstances(); i++)
+				out.println(data.instance(i).toString());
+		} finally {
+			out.close();
+		}
+	}
+}
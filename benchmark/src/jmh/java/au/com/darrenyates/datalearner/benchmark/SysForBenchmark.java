@@ -0,0 +1,86 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * SysForBenchmark.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import weka.classifiers.trees.SysFor;
+import weka.core.Instances;
+
+/**
+ * Times SysFor.calculateNumericSplitsGR(), which computes the gain ratio of
+ * every available split point of a numeric attribute. One operation covers
+ * every numeric attribute of the dataset, with the split points found during
+ * setup.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SysForBenchmark {
+
+	private SysFor m_SysFor;
+	private Method m_SplitsGR;
+	private Instances m_Data;
+	private List<Integer> m_Attributes = new ArrayList<>();
+	private List<ArrayList<Double>> m_SplitPoints = new ArrayList<>();
+
+	@Setup
+	public void setup(DataState state) throws Exception {
+		m_SysFor = new SysFor();
+		m_SplitsGR = Internals.method(SysFor.class, "calculateNumericSplitsGR",
+				Instances.class, ArrayList.class, int.class);
+		Method findSplitPoints = Internals.method(SysFor.class, "findAvailableSplitPoints",
+				Instances.class, int.class);
+		m_Data = new Instances(state.data);
+		for (int att = 0; att < m_Data.numAttributes(); att++) {
+			if (att == m_Data.classIndex() || !m_Data.attribute(att).isNumeric()) continue;
+			m_Attributes.add(att);
+			@SuppressWarnings("unchecked")
+			ArrayList<Double> points = (ArrayList<Double>) findSplitPoints.invoke(m_SysFor, m_Data, att);
+			m_SplitPoints.add(points);
+		}
+	}
+
+	@Benchmark
+	public void calculateNumericSplitsGR(Blackhole bh) throws Exception {
+		for (int i = 0; i < m_Attributes.size(); i++) {
+			bh.consume(m_SplitsGR.invoke(m_SysFor, m_Data,
+					new ArrayList<>(m_SplitPoints.get(i)), m_Attributes.get(i)));
+		}
+	}
+}
@@ -0,0 +1,553 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/*
+ * DataLearner - a data-mining app for Android
+ * BenchmarkRunner.java
+ * (C) Copyright Darren Yates 2018-2019
+ * Developed using a combination of Weka 3.6.15 and algorithms developed by Charles Sturt University
+ * DataLearner is licensed GPLv3.0, source code is available on GitHub
+ * Weka 3.6.15 is licensed GPLv2.0, source code is available on GitHub
+ */
+package au.com.darrenyates.datalearner.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import au.com.darrenyates.datalearner.AlgorithmRegistry;
+import au.com.darrenyates.datalearner.StreamingTrainer;
+import weka.associations.Associator;
+import weka.classifiers.Classifier;
+import weka.classifiers.EvaluationTS;
+import weka.classifiers.meta.BaggingTS;
+import weka.classifiers.trees.RandomForestTS;
+import weka.clusterers.ClusterEvaluation;
+import weka.clusterers.Clusterer;
+import weka.core.Instances;
+import weka.core.ProjectedInstances;
+import weka.core.Utils;
+import weka.core.converters.AbstractFileLoader;
+import weka.core.converters.DLArffLoader;
+import weka.core.converters.DLCSVLoader;
+import weka.core.converters.DLConverterUtils;
+
+/**
+ * Times DataLearner algorithms on a plain JVM. The dataset is loaded the same
+ * way the app loads it (ARFF through DLConverterUtils, CSV through
+ * DLCSVLoader), each selected algorithm is built, or built and
+ * cross-validated, and wall time, CPU time, peak heap, allocated bytes and GC
+ * activity of every run are written as JSON.
+ * <p/>
+ * Valid options are:
+ * <pre>
+ * -t &lt;file&gt;
+ *  The ARFF or CSV dataset to load.
+ * -a &lt;name&gt;
+ *  An algorithm, as named in the app's spinners (e.g. "J48 (C4.5)").
+ *  May be given more than once; "all" runs every registered algorithm.
+ * -c &lt;index&gt;
+ *  The 1-based index of the class attribute, or "first"/"last".
+ *  (default last)
+ * -m &lt;build|cv&gt;
+ *  Build the model only, or build it and cross-validate it as the app does.
+ *  (default cv)
+ * -x &lt;folds&gt;
+ *  The number of cross-validation folds. (default 10)
+ * -s &lt;seed&gt;
+ *  The random seed for the cross-validation. (default 1)
+ * -p &lt;slots&gt;
+ *  The number of folds to evaluate at once. (default 1)
+ * -w &lt;runs&gt;
+ *  The number of untimed warm-up runs per algorithm. (default 1)
+ * -r &lt;runs&gt;
+ *  The number of timed runs per algorithm. (default 3)
+ * -o &lt;file&gt;
+ *  The file to write the JSON to. (default standard output)
+ * -compact
+ *  Load the dataset into compact storage (CompactInstances).
+ * -sparse
+ *  Read a CSV dataset as sparse data (SparseInstances if at most half
+ *  of the values are kept).
+ * -stream
+ *  Load only the header and stream the rows from the file through
+ *  updateable classifiers on each run (StreamingTrainer). In cv mode
+ *  the model is evaluated prequentially instead of cross-validated.
+ * </pre>
+ * Allocated bytes are counted for the thread running the benchmark only, so
+ * they leave out the fold threads when -p is greater than 1.
+ *
+ * @author Darren Yates
+ * @version $Revision: 1 $
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * The measurements of one timed run.
+	 */
+	static class Result {
+		String algorithm;
+		int run;
+		long wallNanos;
+		long cpuNanos = -1;
+		long threadCpuNanos = -1;
+		long peakHeapBytes = -1;
+		long allocatedBytes = -1;
+		long gcCount;
+		long gcMillis;
+		String metric;
+		double value = Double.NaN;
+		String error;
+	}
+
+	private File m_File;
+	private List<String> m_Algorithms = new ArrayList<>();
+	private String m_ClassIndex = "last";
+	private boolean m_CrossValidate = true;
+	private int m_Folds = 10;
+	private int m_Seed = 1;
+	private int m_Slots = 1;
+	private int m_WarmupRuns = 1;
+	private int m_Runs = 3;
+	private String m_Output;
+	private boolean m_Compact;
+	private boolean m_Sparse;
+	private boolean m_Stream;
+
+	private Instances m_Data;
+	private long m_LoadNanos;
+	private List<Result> m_Results = new ArrayList<>();
+
+	/**
+	 * Parses the options. See the class comment for the valid options.
+	 *
+	 * @param options the options
+	 * @throws Exception if an option is not valid
+	 */
+	public void setOptions(String[] options) throws Exception {
+		String tmp = Utils.getOption('t', options);
+		if (tmp.length() == 0)
+			throw new IllegalArgumentException("No dataset given (-t)!");
+		m_File = new File(tmp);
+
+		while ((tmp = Utils.getOption('a', options)).length() != 0) {
+			if (tmp.equalsIgnoreCase("all")) {
+				for (AlgorithmRegistry.Entry entry : AlgorithmRegistry.entries())
+					m_Algorithms.add(entry.getId());
+			} else {
+				if (AlgorithmRegistry.get(tmp) == null)
+					throw new IllegalArgumentException("Unknown algorithm: " + tmp);
+				m_Algorithms.add(tmp);
+			}
+		}
+		if (m_Algorithms.isEmpty())
+			throw new IllegalArgumentException("No algorithm given (-a)!");
+
+		tmp = Utils.getOption('c', options);
+		if (tmp.length() != 0) m_ClassIndex = tmp;
+
+		tmp = Utils.getOption('m', options);
+		if (tmp.length() != 0) {
+			if (tmp.equals("build")) m_CrossValidate = false;
+			else if (tmp.equals("cv")) m_CrossValidate = true;
+			else throw new IllegalArgumentException("Unknown mode: " + tmp);
+		}
+
+		tmp = Utils.getOption('x', options);
+		if (tmp.length() != 0) m_Folds = Integer.parseInt(tmp);
+		tmp = Utils.getOption('s', options);
+		if (tmp.length() != 0) m_Seed = Integer.parseInt(tmp);
+		tmp = Utils.getOption('p', options);
+		if (tmp.length() != 0) m_Slots = Integer.parseInt(tmp);
+		tmp = Utils.getOption('w', options);
+		if (tmp.length() != 0) m_WarmupRuns = Integer.parseInt(tmp);
+		tmp = Utils.getOption('r', options);
+		if (tmp.length() != 0) m_Runs = Integer.parseInt(tmp);
+		tmp = Utils.getOption('o', options);
+		if (tmp.length() != 0) m_Output = tmp;
+		m_Compact = Utils.getFlag("compact", options);
+		m_Sparse = Utils.getFlag("sparse", options);
+		m_Stream = Utils.getFlag("stream", options);
+
+		Utils.checkForRemainingOptions(options);
+	}
+
+	/**
+	 * Loads the dataset the way the app does: ARFF through DLConverterUtils,
+	 * anything else through DLCSVLoader with the file name as relation name.
+	 *
+	 * @param file the dataset
+	 * @return the dataset, without a class set
+	 * @throws Exception if the file cannot be loaded
+	 */
+	public static Instances load(File file) throws Exception {
+		return load(file, false);
+	}
+
+	/**
+	 * Loads the dataset the way the app does, optionally into compact storage.
+	 *
+	 * @param file    the dataset
+	 * @param compact whether to load it into CompactInstances
+	 * @return the dataset, without a class set
+	 * @throws Exception if the file cannot be loaded
+	 */
+	public static Instances load(File file, boolean compact) throws Exception {
+		return load(file, compact, false);
+	}
+
+	/**
+	 * Loads the dataset the way the app does, optionally into compact storage
+	 * or, for a CSV file, as sparse data.
+	 *
+	 * @param file    the dataset
+	 * @param compact whether to load it into CompactInstances
+	 * @param sparse  whether to read a CSV file as sparse data
+	 * @return the dataset, without a class set
+	 * @throws Exception if the file cannot be loaded
+	 */
+	public static Instances load(File file, boolean compact, boolean sparse) throws Exception {
+		Instances data;
+		if (DLConverterUtils.DataSource.isArff(file.getPath())) {
+			DLConverterUtils.DataSource source = new DLConverterUtils.DataSource(file.getPath());
+			source.setCompactStorage(compact);
+			data = source.getDataSet();
+		} else {
+			DLCSVLoader loader = new DLCSVLoader();
+			loader.setCompactStorage(compact);
+			loader.setSparse(sparse);
+			loader.setSource(file);
+			data = loader.getDataSet();
+			data.setRelationName(file.getName());
+		}
+		return data;
+	}
+
+	/**
+	 * Reads the header of the dataset for streaming. A CSV file is read through
+	 * once, as the types of its attributes are only known at the end.
+	 *
+	 * @param file the dataset
+	 * @return the header, without a class set
+	 * @throws Exception if the file cannot be read
+	 */
+	public static Instances loadHeader(File file) throws Exception {
+		if (DLConverterUtils.DataSource.isArff(file.getPath())) {
+			DLArffLoader loader = new DLArffLoader();
+			loader.setSource(file);
+			return loader.getStructure();
+		}
+		DLCSVLoader loader = new DLCSVLoader();
+		loader.setSource(file);
+		Instances header = loader.scanStructure();
+		header.setRelationName(file.getName());
+		return header;
+	}
+
+	/**
+	 * Loads the dataset and runs every selected algorithm.
+	 *
+	 * @throws Exception if the dataset cannot be loaded
+	 */
+	public void run() throws Exception {
+		long start = System.nanoTime();
+		m_Data = m_Stream ? loadHeader(m_File) : load(m_File, m_Compact, m_Sparse);
+		m_LoadNanos = System.nanoTime() - start;
+		if (m_ClassIndex.equals("first")) m_Data.setClassIndex(0);
+		else if (m_ClassIndex.equals("last")) m_Data.setClassIndex(m_Data.numAttributes() - 1);
+		else m_Data.setClassIndex(Integer.parseInt(m_ClassIndex) - 1);
+
+		for (String algorithm : m_Algorithms) {
+			AlgorithmRegistry.Entry entry = AlgorithmRegistry.get(algorithm);
+			for (int i = 0; i < m_WarmupRuns; i++)
+				measure(entry, -1);
+			for (int i = 0; i < m_Runs; i++)
+				m_Results.add(measure(entry, i));
+		}
+	}
+
+	/**
+	 * Runs one algorithm once and records what it cost.
+	 */
+	private Result measure(AlgorithmRegistry.Entry entry, int run) {
+		Result result = new Result();
+		result.algorithm = entry.getId();
+		result.run = run;
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				heapPools.add(pool);
+			}
+		}
+		System.gc();
+		for (MemoryPoolMXBean pool : heapPools)
+			pool.resetPeakUsage();
+		long gcCount = 0, gcMillis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcCount += Math.max(0, gc.getCollectionCount());
+			gcMillis += Math.max(0, gc.getCollectionTime());
+		}
+		long cpu = processCpuTime();
+		long threadCpu = threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+		long allocated = allocatedBytes();
+		long wall = System.nanoTime();
+
+		try {
+			runAlgorithm(entry, result);
+		} catch (Throwable e) {
+			result.error = e.toString();
+		}
+
+		result.wallNanos = System.nanoTime() - wall;
+		long tmp = processCpuTime();
+		if (cpu >= 0 && tmp >= 0) result.cpuNanos = tmp - cpu;
+		if (threadCpu >= 0) result.threadCpuNanos = threads.getCurrentThreadCpuTime() - threadCpu;
+		tmp = allocatedBytes();
+		if (allocated >= 0 && tmp >= 0) result.allocatedBytes = tmp - allocated;
+		if (!heapPools.isEmpty()) {
+			result.peakHeapBytes = 0;
+			for (MemoryPoolMXBean pool : heapPools)
+				result.peakHeapBytes += pool.getPeakUsage().getUsed();
+		}
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			result.gcCount += Math.max(0, gc.getCollectionCount());
+			result.gcMillis += Math.max(0, gc.getCollectionTime());
+		}
+		result.gcCount -= gcCount;
+		result.gcMillis -= gcMillis;
+		return result;
+	}
+
+	/**
+	 * Builds and, in cv mode, evaluates one learner the way DataAnalysis does.
+	 */
+	private void runAlgorithm(AlgorithmRegistry.Entry entry, Result result) throws Exception {
+		Instances data = m_Data;
+		if (entry.needsNominalClass() && !data.classAttribute().isNominal())
+			throw new IllegalArgumentException("Cannot handle numeric class!");
+		Object learner = entry.newInstance();
+		if (m_Stream) {
+			streamAlgorithm(entry, learner, result);
+			return;
+		}
+		switch (entry.getType()) {
+			case CLASSIFIER:
+				if (m_CrossValidate && learner instanceof RandomForestTS)
+					((RandomForestTS) learner).setDontCalculateOutOfBagError(true);
+				if (learner instanceof RandomForestTS)
+					((RandomForestTS) learner).setFlattenTrees(true);
+				else if (learner instanceof BaggingTS)
+					((BaggingTS) learner).setFlattenTrees(true);
+				((Classifier) learner).buildClassifier(data);
+				if (!m_CrossValidate) break;
+				EvaluationTS eval = new EvaluationTS(data);
+				if (entry.supportsParallelFolds()) eval.setNumExecutionSlots(m_Slots);
+				eval.crossValidateModel((Classifier) learner, data, m_Folds, new Random(m_Seed));
+				if (data.classAttribute().isNominal()) {
+					result.metric = "pctCorrect";
+					result.value = eval.pctCorrect();
+				} else {
+					result.metric = "rootMeanSquaredError";
+					result.value = eval.rootMeanSquaredError();
+				}
+				break;
+			case CLUSTERER:
+				Instances clusterdata = ProjectedInstances.withoutClass(data);
+				((Clusterer) learner).buildClusterer(clusterdata);
+				if (m_CrossValidate) {
+					ClusterEvaluation ceval = new ClusterEvaluation();
+					ceval.setClusterer((Clusterer) learner);
+					ceval.evaluateClusterer(clusterdata);
+					result.metric = "numClusters";
+					result.value = ceval.getNumClusters();
+				}
+				break;
+			default:
+				((Associator) learner).buildAssociations(data);
+				break;
+		}
+	}
+
+	/**
+	 * Trains one updateable classifier on the rows streamed from the file, the
+	 * way DataAnalysis does in streaming mode.
+	 */
+	private void streamAlgorithm(AlgorithmRegistry.Entry entry, Object learner, Result result)
+			throws Exception {
+		if (!entry.isUpdateable())
+			throw new IllegalArgumentException(entry.getId() + " can't be trained on streamed data!");
+		AbstractFileLoader loader = DLConverterUtils.DataSource.isArff(m_File.getPath())
+				? new DLArffLoader() : new DLCSVLoader();
+		loader.setSource(m_File);
+		loader.getStructure();
+		EvaluationTS eval = StreamingTrainer.train((Classifier) learner, loader, m_Data, m_CrossValidate);
+		if (eval == null) return;
+		if (m_Data.classAttribute().isNominal()) {
+			result.metric = "pctCorrect";
+			result.value = eval.pctCorrect();
+		} else {
+			result.metric = "rootMeanSquaredError";
+			result.value = eval.rootMeanSquaredError();
+		}
+	}
+
+	private static long processCpuTime() {
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean)
+			return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+		return -1;
+	}
+
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+			if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled())
+				return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes the dataset details and the results as JSON.
+	 *
+	 * @param out where to write to
+	 */
+	public void writeJSON(PrintWriter out) {
+		out.println("{");
+		out.println("  \"dataset\": " + quote(m_File.getPath()) + ",");
+		out.println("  \"relation\": " + quote(m_Data.relationName()) + ",");
+		out.println("  \"instances\": " + m_Data.numInstances() + ",");
+		out.println("  \"attributes\": " + m_Data.numAttributes() + ",");
+		out.println("  \"classIndex\": " + m_Data.classIndex() + ",");
+		out.println("  \"classIsNominal\": " + m_Data.classAttribute().isNominal() + ",");
+		out.println("  \"loadMillis\": " + millis(m_LoadNanos) + ",");
+		out.println("  \"compact\": " + m_Compact + ",");
+		out.println("  \"sparse\": " + m_Sparse + ",");
+		out.println("  \"stream\": " + m_Stream + ",");
+		out.println("  \"mode\": " + quote(m_CrossValidate ? "cv" : "build") + ",");
+		out.println("  \"folds\": " + m_Folds + ",");
+		out.println("  \"seed\": " + m_Seed + ",");
+		out.println("  \"slots\": " + m_Slots + ",");
+		out.println("  \"javaVersion\": " + quote(System.getProperty("java.version")) + ",");
+		out.println("  \"processors\": " + Runtime.getRuntime().availableProcessors() + ",");
+		out.println("  \"maxHeapBytes\": " + Runtime.getRuntime().maxMemory() + ",");
+		out.println("  \"results\": [");
+		for (int i = 0; i < m_Results.size(); i++) {
+			Result r = m_Results.get(i);
+			StringBuilder line = new StringBuilder("    {");
+			line.append("\"algorithm\": ").append(quote(r.algorithm));
+			line.append(", \"run\": ").append(r.run);
+			line.append(", \"wallMillis\": ").append(millis(r.wallNanos));
+			line.append(", \"cpuMillis\": ").append(r.cpuNanos < 0 ? "null" : millis(r.cpuNanos));
+			line.append(", \"threadCpuMillis\": ").append(r.threadCpuNanos < 0 ? "null" : millis(r.threadCpuNanos));
+			line.append(", \"peakHeapBytes\": ").append(r.peakHeapBytes < 0 ? "null" : "" + r.peakHeapBytes);
+			line.append(", \"allocatedBytes\": ").append(r.allocatedBytes < 0 ? "null" : "" + r.allocatedBytes);
+			line.append(", \"gcCount\": ").append(r.gcCount);
+			line.append(", \"gcMillis\": ").append(r.gcMillis);
+			if (r.metric != null) {
+				line.append(", ").append(quote(r.metric)).append(": ");
+				line.append(Double.isNaN(r.value) || Double.isInfinite(r.value) ? "null" : "" + r.value);
+			}
+			if (r.error != null) line.append(", \"error\": ").append(quote(r.error));
+			line.append(i < m_Results.size() - 1 ? "}," : "}");
+			out.println(line);
+		}
+		out.println("  ]");
+		out.println("}");
+		out.flush();
+	}
+
+	private static String millis(long nanos) {
+		return String.format(Locale.US, "%.3f", nanos / 1000000.0);
+	}
+
+	private static String quote(String s) {
+		StringBuilder result = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '"':
+					result.append("\\\"");
+					break;
+				case '\\':
+					result.append("\\\\");
+					break;
+				case '\n':
+					result.append("\\n");
+					break;
+				case '\r':
+					result.append("\\r");
+					break;
+				case '\t':
+					result.append("\\t");
+					break;
+				default:
+					if (c < 0x20) result.append(String.format("\\u%04x", (int) c));
+					else result.append(c);
+			}
+		}
+		return result.append('"').toString();
+	}
+
+	/**
+	 * Runs the benchmark. See the class comment for the options.
+	 *
+	 * @param args the commandline options
+	 */
+	public static void main(String[] args) {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		// the learners print progress to System.out; keep it out of the JSON
+		PrintStream stdout = System.out;
+		System.setOut(System.err);
+		try {
+			runner.setOptions(args);
+		} catch (Exception e) {
+			System.err.println(e.getMessage());
+			System.err.println("\nUsage: " + BenchmarkRunner.class.getName()
+					+ " -t <file> -a <algorithm> [-a <algorithm>...] [-c <index>] [-m build|cv]"
+					+ " [-x <folds>] [-s <seed>] [-p <slots>] [-w <runs>] [-r <runs>] [-o <file>]"
+					+ " [-compact] [-sparse] [-stream]");
+			System.exit(1);
+		}
+		try {
+			runner.run();
+			PrintWriter out;
+			if (runner.m_Output == null) {
+				out = new PrintWriter(new OutputStreamWriter(stdout, "UTF-8"));
+			} else {
+				out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(runner.m_Output), "UTF-8"));
+			}
+			runner.writeJSON(out);
+			if (runner.m_Output != null) out.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+}